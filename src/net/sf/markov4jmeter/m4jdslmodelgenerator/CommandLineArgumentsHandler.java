@@ -120,6 +120,9 @@ import org.apache.commons.cli.ParseException;
  */
 public class CommandLineArgumentsHandler {
 
+	/** Error message for a sampling rate which is out of range. */
+	private final static String ERROR_INVALID_SAMPLING_RATE = "invalid sampling rate %s, must be in range (0, 1]";
+
 	/**
 	 * Path to the directory of input Flows that indicate the Session Layer EFSM
 	 * structure.
@@ -220,11 +223,147 @@ public class CommandLineArgumentsHandler {
 	private final static Option THRESHOLD_MAX_TIME_BETWEEN_REQUESTS = CmdlOptionFactory
 			.createOption("threshold", // opt;
 					"sessionthreshold", // longOpt;
-					"Threshold for session determination. ", // description;
+					"(Optional) threshold for session determination; if " // description;
+							+ "set, the sessions file is regarded as a "
+							+ "time-ordered request log, which will be split "
+							+ "into sessions with this maximum time between "
+							+ "two requests (default: 0, no splitting).",
+					false, // !isRequired;
+					"0", // argName;
+					false); // !hasOptionalArg;
+
+	/**
+	 * (Optional) maximum number of distinct values to be kept per request
+	 * parameter.
+	 */
+	private final static Option MAX_PARAMETER_VALUES = CmdlOptionFactory
+			.createOption(
+					"pv", // opt;
+					"maxParameterValues", // longOpt;
+					"(Optional) maximum number of distinct values to be " // description;
+							+ "kept per request parameter; a uniform sample of the values will be kept, if a parameter has more values (0 = unlimited).",
+					false, // !isRequired;
+					"0", // argName;
+					false); // !hasOptionalArg;
+
+	/** (Optional) number of worker threads for parallel generation. */
+	private final static Option WORKER_COUNT = CmdlOptionFactory
+			.createOption(
+					"wc", // opt;
+					"workerCount", // longOpt;
+					"(Optional) number of worker threads for parsing the " // description;
+							+ "sessions file, mining invariants, collecting allowed "
+							+ "transitions and generating Behavior Models in "
+							+ "parallel (default: 1).",
+					false, // !isRequired;
+					"1", // argName;
+					false); // !hasOptionalArg;
+
+	/**
+	 * (Optional) flag for creating Markov States only for the services which
+	 * are visited in a Behavior Model.
+	 */
+	private final static Option SPARSE_MARKOV_STATES = CmdlOptionFactory
+			.createOption(
+					"sp", // opt;
+					"sparseMarkovStates", // longOpt;
+					"(Optional) flag for creating Markov States only for " // description;
+							+ "the services which are visited in a Behavior Model (default: false).",
+					false, // !isRequired;
+					"false", // argName;
+					false); // !hasOptionalArg;
+
+	/** (Optional) maximum number of input files to be read concurrently. */
+	private final static Option INGESTION_THREAD_COUNT = CmdlOptionFactory
+			.createOption(
+					"ic", // opt;
+					"ingestionThreadCount", // longOpt;
+					"(Optional) maximum number of input files to be read " // description;
+							+ "concurrently (default: 4).",
+					false, // !isRequired;
+					"4", // argName;
+					false); // !hasOptionalArg;
+
+	/** (Optional) fraction of sessions to be used for generation. */
+	private final static Option SAMPLING_RATE = CmdlOptionFactory
+			.createOption(
+					"sr", // opt;
+					"samplingRate", // longOpt;
+					"(Optional) fraction of sessions in range (0, 1] to be " // description;
+							+ "used for building the application and protocol "
+							+ "layers (default: 1.0).",
+					false, // !isRequired;
+					"1.0", // argName;
+					false); // !hasOptionalArg;
+
+	/**
+	 * (Optional) flag for sampling sessions stratified by their entry
+	 * services.
+	 */
+	private final static Option STRATIFIED_SAMPLING = CmdlOptionFactory
+			.createOption(
+					"ss", // opt;
+					"stratifiedSampling", // longOpt;
+					"(Optional) flag for sampling sessions stratified by " // description;
+							+ "their entry services (default: false).",
+					false, // !isRequired;
+					"false", // argName;
+					false); // !hasOptionalArg;
+
+	/** (Optional) maximum number of services to be kept. */
+	private final static Option MAX_SERVICES = CmdlOptionFactory
+			.createOption(
+					"ms", // opt;
+					"maxServices", // longOpt;
+					"(Optional) maximum number of most frequent services to " // description;
+							+ "be kept; all other services are folded into a "
+							+ "single service (default: 0, no limit).",
 					false, // !isRequired;
 					"0", // argName;
 					false); // !hasOptionalArg;
 
+	/**
+	 * (Optional) minimum share of all service calls a service must have for
+	 * being kept.
+	 */
+	private final static Option MIN_SERVICE_SHARE = CmdlOptionFactory
+			.createOption(
+					"mss", // opt;
+					"minServiceShare", // longOpt;
+					"(Optional) minimum share of all service calls in range " // description;
+							+ "[0, 1] a service must have for not being folded "
+							+ "into a single service (default: 0.0, no minimum).",
+					false, // !isRequired;
+					"0.0", // argName;
+					false); // !hasOptionalArg;
+
+	/** (Optional) file which provides URI templates for service names. */
+	private final static Option URI_TEMPLATES_FILE = CmdlOptionFactory
+			.createOption(
+					"ut", // opt;
+					"uriTemplates", // longOpt;
+					"(Optional) file which provides URI templates, one per " // description;
+							+ "line, for mapping URI-like service names to "
+							+ "templated services, e.g. \"/item/{itemId}\".",
+					false, // !isRequired;
+					"templates.txt", // argName;
+					false); // !hasOptionalArg;
+
+	/**
+	 * (Optional) flag for replacing numeric, UUID and hexadecimal path
+	 * segments of service names automatically.
+	 */
+	private final static Option URI_AUTO_TEMPLATING = CmdlOptionFactory
+			.createOption(
+					"ua", // opt;
+					"uriAutoTemplating", // longOpt;
+					"(Optional) flag for replacing numeric, UUID and " // description;
+							+ "hexadecimal path segments of service names by "
+							+ "placeholders (default: false).",
+					false, // !isRequired;
+					"false", // argName;
+					false); // !hasOptionalArg;
+
 	/** Formatter for printing the usage instructions. */
 	private final static HelpFormatter HELP_FORMATTER = new HelpFormatter();
 
@@ -279,6 +418,44 @@ public class CommandLineArgumentsHandler {
 	/** (Optional) Threshold for session determination. */
 	private static String thresholdMaxSessionTime;
 
+	/**
+	 * (Optional) maximum number of distinct values to be kept per request
+	 * parameter.
+	 */
+	private static int maxParameterValues;
+
+	/** Number of worker threads for parallel generation. */
+	private static int workerCount;
+
+	/**
+	 * Flag for creating Markov States only for the services which are visited
+	 * in a Behavior Model.
+	 */
+	private static boolean sparseMarkovStates;
+
+	/** Maximum number of input files to be read concurrently. */
+	private static int ingestionThreadCount;
+
+	/** Fraction of sessions to be used for generation. */
+	private static double samplingRate;
+
+	/** Flag for sampling sessions stratified by their entry services. */
+	private static boolean stratifiedSampling;
+
+	/** Maximum number of services to be kept. */
+	private static int maxServices;
+
+	/**
+	 * Minimum share of all service calls a service must have for being kept.
+	 */
+	private static double minServiceShare;
+
+	/** File which provides URI templates for service names. */
+	private static String uriTemplatesFile;
+
+	/** Flag for replacing parameter path segments of service names. */
+	private static boolean uriAutoTemplating;
+
 	/** Command-line options to be parsed. */
 	private static Options options;
 
@@ -315,6 +492,36 @@ public class CommandLineArgumentsHandler {
 
 		CommandLineArgumentsHandler.options
 				.addOption(CommandLineArgumentsHandler.THRESHOLD_MAX_TIME_BETWEEN_REQUESTS);
+
+		CommandLineArgumentsHandler.options
+				.addOption(CommandLineArgumentsHandler.MAX_PARAMETER_VALUES);
+
+		CommandLineArgumentsHandler.options
+				.addOption(CommandLineArgumentsHandler.WORKER_COUNT);
+
+		CommandLineArgumentsHandler.options
+				.addOption(CommandLineArgumentsHandler.SPARSE_MARKOV_STATES);
+
+		CommandLineArgumentsHandler.options
+				.addOption(CommandLineArgumentsHandler.INGESTION_THREAD_COUNT);
+
+		CommandLineArgumentsHandler.options
+				.addOption(CommandLineArgumentsHandler.SAMPLING_RATE);
+
+		CommandLineArgumentsHandler.options
+				.addOption(CommandLineArgumentsHandler.STRATIFIED_SAMPLING);
+
+		CommandLineArgumentsHandler.options
+				.addOption(CommandLineArgumentsHandler.MAX_SERVICES);
+
+		CommandLineArgumentsHandler.options
+				.addOption(CommandLineArgumentsHandler.MIN_SERVICE_SHARE);
+
+		CommandLineArgumentsHandler.options
+				.addOption(CommandLineArgumentsHandler.URI_TEMPLATES_FILE);
+
+		CommandLineArgumentsHandler.options
+				.addOption(CommandLineArgumentsHandler.URI_AUTO_TEMPLATING);
 	}
 
 	/* ************************** public methods ************************** */
@@ -430,6 +637,121 @@ public class CommandLineArgumentsHandler {
 		return CommandLineArgumentsHandler.thresholdMaxSessionTime;
 	}
 
+	/**
+	 * Returns the (optional) maximum number of distinct values to be kept per
+	 * request parameter.
+	 * 
+	 * @return the value that has been read from command-line, or 0 (no limit)
+	 *         by default.
+	 */
+	public static int getMaxParameterValues() {
+
+		return CommandLineArgumentsHandler.maxParameterValues;
+	}
+
+	/**
+	 * Returns the (optional) number of worker threads for parallel
+	 * generation.
+	 * 
+	 * @return the value that has been read from command-line, or 1 by default.
+	 */
+	public static int getWorkerCount() {
+
+		return CommandLineArgumentsHandler.workerCount;
+	}
+
+	/**
+	 * Returns the (optional) flag for creating Markov States only for the
+	 * services which are visited in a Behavior Model.
+	 * 
+	 * @return the value that has been read from command-line, or
+	 *         <code>false</code> by default.
+	 */
+	public static boolean getSparseMarkovStates() {
+
+		return CommandLineArgumentsHandler.sparseMarkovStates;
+	}
+
+	/**
+	 * Returns the (optional) maximum number of input files to be read
+	 * concurrently.
+	 * 
+	 * @return the value that has been read from command-line, or 4 by default.
+	 */
+	public static int getIngestionThreadCount() {
+
+		return CommandLineArgumentsHandler.ingestionThreadCount;
+	}
+
+	/**
+	 * Returns the (optional) fraction of sessions to be used for generation.
+	 * 
+	 * @return the value that has been read from command-line, or 1.0 by
+	 *         default.
+	 */
+	public static double getSamplingRate() {
+
+		return CommandLineArgumentsHandler.samplingRate;
+	}
+
+	/**
+	 * Returns the (optional) flag for sampling sessions stratified by their
+	 * entry services.
+	 * 
+	 * @return the value that has been read from command-line, or
+	 *         <code>false</code> by default.
+	 */
+	public static boolean getStratifiedSampling() {
+
+		return CommandLineArgumentsHandler.stratifiedSampling;
+	}
+
+	/**
+	 * Returns the (optional) maximum number of services to be kept.
+	 * 
+	 * @return the value that has been read from command-line, or 0 by default.
+	 */
+	public static int getMaxServices() {
+
+		return CommandLineArgumentsHandler.maxServices;
+	}
+
+	/**
+	 * Returns the (optional) minimum share of all service calls a service must
+	 * have for being kept.
+	 * 
+	 * @return the value that has been read from command-line, or 0.0 by
+	 *         default.
+	 */
+	public static double getMinServiceShare() {
+
+		return CommandLineArgumentsHandler.minServiceShare;
+	}
+
+	/**
+	 * Returns the (optional) file which provides URI templates for service
+	 * names.
+	 * 
+	 * @return a valid <code>String</code> which denotes a file path, or
+	 *         <code>null</code> if no file path has been specified.
+	 */
+	public static String getUriTemplatesFile() {
+
+		return CommandLineArgumentsHandler.uriTemplatesFile;
+	}
+
+	/**
+	 * Returns the (optional) flag for replacing numeric, UUID and hexadecimal
+	 * path segments of service names automatically.
+	 * 
+	 * @return the value that has been read from command-line, or
+	 *         <code>false</code> by default.
+	 */
+	public static boolean getUriAutoTemplating() {
+
+		return CommandLineArgumentsHandler.uriAutoTemplating;
+	}
+
 	/**
 	 * Prints the usage instructions to standard output.
 	 */
@@ -459,7 +781,8 @@ public class CommandLineArgumentsHandler {
 	 *             <code>null</code>).
 	 * @throws IllegalArgumentException
 	 *             if an option flag denotes an empty <code>String</code> (
-	 *             <code>""</code>).
+	 *             <code>""</code>), or if the sampling rate is not in range
+	 *             (0, 1].
 	 */
 	public static void init(final String[] args) throws ParseException,
 			NullPointerException, IllegalArgumentException {
@@ -509,6 +832,56 @@ public class CommandLineArgumentsHandler {
 				.readOptionValueAsString(
 						commandLine,
 						CommandLineArgumentsHandler.THRESHOLD_MAX_TIME_BETWEEN_REQUESTS);
+
+		CommandLineArgumentsHandler.maxParameterValues = CommandLineArgumentsHandler
+				.readOptionValueAsInt(commandLine,
+						CommandLineArgumentsHandler.MAX_PARAMETER_VALUES, 0);
+
+		CommandLineArgumentsHandler.workerCount = CommandLineArgumentsHandler
+				.readOptionValueAsInt(commandLine,
+						CommandLineArgumentsHandler.WORKER_COUNT, 1);
+
+		CommandLineArgumentsHandler.sparseMarkovStates = CommandLineArgumentsHandler
+				.readOptionValueAsBoolean(commandLine,
+						CommandLineArgumentsHandler.SPARSE_MARKOV_STATES,
+						false);
+
+		CommandLineArgumentsHandler.ingestionThreadCount = CommandLineArgumentsHandler
+				.readOptionValueAsInt(commandLine,
+						CommandLineArgumentsHandler.INGESTION_THREAD_COUNT,
+						InputIngestion.DEFAULT_THREAD_COUNT);
+
+		CommandLineArgumentsHandler.samplingRate = CommandLineArgumentsHandler
+				.readOptionValueAsDouble(commandLine,
+						CommandLineArgumentsHandler.SAMPLING_RATE, 1.0d);
+
+		if (!(CommandLineArgumentsHandler.samplingRate > 0.0d
+				&& CommandLineArgumentsHandler.samplingRate <= 1.0d)) {
+
+			throw new IllegalArgumentException(String.format(
+					CommandLineArgumentsHandler.ERROR_INVALID_SAMPLING_RATE,
+					CommandLineArgumentsHandler.samplingRate));
+		}
+
+		CommandLineArgumentsHandler.stratifiedSampling = CommandLineArgumentsHandler
+				.readOptionValueAsBoolean(commandLine,
+						CommandLineArgumentsHandler.STRATIFIED_SAMPLING, false);
+
+		CommandLineArgumentsHandler.maxServices = CommandLineArgumentsHandler
+				.readOptionValueAsInt(commandLine,
+						CommandLineArgumentsHandler.MAX_SERVICES, 0);
+
+		CommandLineArgumentsHandler.minServiceShare = CommandLineArgumentsHandler
+				.readOptionValueAsDouble(commandLine,
+						CommandLineArgumentsHandler.MIN_SERVICE_SHARE, 0.0d);
+
+		CommandLineArgumentsHandler.uriTemplatesFile = CommandLineArgumentsHandler
+				.readOptionValueAsString(commandLine,
+						CommandLineArgumentsHandler.URI_TEMPLATES_FILE);
+
+		CommandLineArgumentsHandler.uriAutoTemplating = CommandLineArgumentsHandler
+				.readOptionValueAsBoolean(commandLine,
+						CommandLineArgumentsHandler.URI_AUTO_TEMPLATING, false);
 	}
 
 	/* ************************** private methods ************************* */
@@ -615,6 +988,80 @@ public class CommandLineArgumentsHandler {
 		return value;
 	}
 
+	/**
+	 * Reads the value for a given option from the specified command-line as
+	 * <code>int</code>.
+	 * 
+	 * @param commandLine
+	 *            command-line which provides the values.
+	 * @param option
+	 *            option whose value shall be read from command-line.
+	 * @param defaultValue
+	 *            value to be returned, if the option's value is optional and
+	 *            undefined.
+	 * 
+	 * @return an <code>int</code> value which is the given default value, if
+	 *         the option's value is optional and undefined.
+	 * 
+	 * @throws NullPointerException
+	 *             in case the value is required, but could not be read as
+	 *             <code>int</code>.
+	 * @throws NumberFormatException
+	 *             if the parsed value does not denote an <code>int</code>
+	 *             value.
+	 */
+	private static int readOptionValueAsInt(final CommandLine commandLine,
+			final Option option, final int defaultValue)
+			throws NullPointerException, NumberFormatException {
+
+		final String opt = option.getOpt();
+
+		// build an instance for reading "typed" options from command-line;
+		final CmdlOptionsReader cmdlOptionsReader = new CmdlOptionsReader(
+				commandLine);
+
+		if (option.isRequired()) {
+
+			// might throw a NullPointer- or NumberFormatException;
+			return cmdlOptionsReader.readOptionValueAsInt(opt);
+		}
+
+		// might throw a NumberFormatException;
+		return cmdlOptionsReader.readOptionValueAsInt(opt, defaultValue);
+	}
+
+	/**
+	 * Reads the value for a given option from the specified command-line as
+	 * <code>double</code>.
+	 * 
+	 * @param commandLine
+	 *            command-line which provides the values.
+	 * @param option
+	 *            option whose value shall be read from command-line.
+	 * @param defaultValue
+	 *            default value to be returned, if the option's value is
+	 *            optional and undefined.
+	 * 
+	 * @return the value that has been read, or the default value.
+	 * 
+	 * @throws NullPointerException
+	 *             in case the value is required, but could not be read.
+	 * @throws NumberFormatException
+	 *             if the value cannot be parsed as <code>double</code>.
+	 */
+	private static double readOptionValueAsDouble(
+			final CommandLine commandLine, final Option option,
+			final double defaultValue) throws NullPointerException,
+			NumberFormatException {
+
+		// might throw a NullPointer- or IllegalArgumentException;
+		final String value = CommandLineArgumentsHandler
+				.readOptionValueAsString(commandLine, option);
+
+		// might throw a NumberFormatException;
+		return (value != null) ? Double.parseDouble(value) : defaultValue;
+	}
+
 	/**
 	 * Parses the given user input and builds an instance of {@link CommandLine}
 	 * .
@@ -0,0 +1,137 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Ingestion stage for reading and parsing input files concurrently on a
+ * bounded pool of I/O threads. Reading tasks are submitted via
+ * {@link #submit(Callable)}, and their results are requested via
+ * {@link #await(Future)}; the ingestion must be shut down via
+ * {@link #shutdown()} after all results have been requested.
+ *
+ * @version 1.0
+ */
+public class InputIngestion {
+
+	/* ***************************** constants **************************** */
+
+	/** Default number of I/O threads. */
+	public final static int DEFAULT_THREAD_COUNT = 4;
+
+	/** Error message for the case that reading an input failed. */
+	private final static String ERROR_READING_INPUT_FAILED = "reading input failed: %s";
+
+	/** Error message for the case that reading an input has been interrupted. */
+	private final static String ERROR_READING_INPUT_INTERRUPTED = "reading input has been interrupted";
+
+	/* ************************* global variables ************************* */
+
+	/** Executor which runs the reading tasks. */
+	private final ExecutorService executorService;
+
+	/* *************************** constructors *************************** */
+
+	/**
+	 * Constructor for an Input Ingestion.
+	 *
+	 * @param threadCount
+	 *            maximum number of inputs to be read concurrently; a value
+	 *            less than 1 indicates a single thread.
+	 */
+	public InputIngestion(final int threadCount) {
+
+		this.executorService = Executors.newFixedThreadPool(Math.max(
+				threadCount, 1));
+	}
+
+	/* ************************** public methods ************************** */
+
+	/**
+	 * Submits a task for reading an input.
+	 *
+	 * @param task
+	 *            task which reads and parses the input.
+	 *
+	 * @return the pending result of the task.
+	 */
+	public <T> Future<T> submit(final Callable<T> task) {
+
+		return this.executorService.submit(task);
+	}
+
+	/**
+	 * Waits for the result of a reading task.
+	 *
+	 * @param future
+	 *            pending result of the task; might be <code>null</code>, if
+	 *            no task has been submitted.
+	 *
+	 * @return the result of the task, or <code>null</code> if
+	 *         <code>null</code> has been passed.
+	 *
+	 * @throws GeneratorException
+	 *             if the task failed or waiting has been interrupted.
+	 */
+	public <T> T await(final Future<T> future) throws GeneratorException {
+
+		if (future == null) {
+
+			return null;
+		}
+
+		try {
+
+			return future.get();
+
+		} catch (final ExecutionException ex) {
+
+			final Throwable cause = ex.getCause();
+
+			if (cause instanceof GeneratorException) {
+
+				throw (GeneratorException) cause;
+			}
+
+			final String message = String.format(
+					InputIngestion.ERROR_READING_INPUT_FAILED,
+					cause.getMessage());
+
+			throw new GeneratorException(message);
+
+		} catch (final InterruptedException ex) {
+
+			Thread.currentThread().interrupt();
+
+			throw new GeneratorException(
+					InputIngestion.ERROR_READING_INPUT_INTERRUPTED);
+		}
+	}
+
+	/**
+	 * Shuts down the ingestion; pending tasks will be cancelled.
+	 */
+	public void shutdown() {
+
+		this.executorService.shutdownNow();
+	}
+}
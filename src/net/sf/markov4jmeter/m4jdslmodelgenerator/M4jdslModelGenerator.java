@@ -22,10 +22,16 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import m4jdsl.ApplicationModel;
 import m4jdsl.BehaviorMix;
@@ -39,14 +45,22 @@ import net.sf.markov4jmeter.m4jdslmodelgenerator.components.BehaviorMixGenerator
 import net.sf.markov4jmeter.m4jdslmodelgenerator.components.BehaviorModelsGenerator;
 import net.sf.markov4jmeter.m4jdslmodelgenerator.components.WorkloadIntensityGenerator;
 import net.sf.markov4jmeter.m4jdslmodelgenerator.components.efsm.AbstractProtocolLayerEFSMGenerator;
-import net.sf.markov4jmeter.m4jdslmodelgenerator.components.efsm.AbstractSessionLayerEFSMGenerator;
 import net.sf.markov4jmeter.m4jdslmodelgenerator.components.efsm.GuardsAndActionsGenerator;
 import net.sf.markov4jmeter.m4jdslmodelgenerator.components.efsm.HTTPProtocolLayerEFSMGenerator;
+import net.sf.markov4jmeter.m4jdslmodelgenerator.components.efsm.MinedInvariant;
 import net.sf.markov4jmeter.m4jdslmodelgenerator.components.efsm.SessionLayerEFSMGenerator;
+import net.sf.markov4jmeter.m4jdslmodelgenerator.util.BehaviorMatrix;
+import net.sf.markov4jmeter.m4jdslmodelgenerator.util.CoverageEstimator;
 import net.sf.markov4jmeter.m4jdslmodelgenerator.util.IdGenerator;
-import wessbas.commons.parser.ParseException;
-import wessbas.commons.parser.Parser;
-import wessbas.commons.parser.SessionData;
+import net.sf.markov4jmeter.m4jdslmodelgenerator.util.ParallelSessionLogReader;
+import net.sf.markov4jmeter.m4jdslmodelgenerator.util.ParameterValueSample;
+import net.sf.markov4jmeter.m4jdslmodelgenerator.util.SessionAggregator;
+import net.sf.markov4jmeter.m4jdslmodelgenerator.util.SessionLogReader;
+import net.sf.markov4jmeter.m4jdslmodelgenerator.util.ServiceSummary;
+import net.sf.markov4jmeter.m4jdslmodelgenerator.util.ServiceTruncator;
+import net.sf.markov4jmeter.m4jdslmodelgenerator.util.SessionSampler;
+import net.sf.markov4jmeter.m4jdslmodelgenerator.util.Sessionizer;
+import net.sf.markov4jmeter.m4jdslmodelgenerator.util.UriTemplater;
 import wessbas.commons.util.XmiEcoreHandler;
 
 /**
@@ -89,11 +103,83 @@ public class M4jdslModelGenerator {
 	/** Error message for the case that a Behavior Model frequency is invalid. */
 	private final static String ERROR_INVALID_FREQUENCY = "invalid frequency value \"%s\" for Behavior Model \"%s\"";
 
+	/**
+	 * Warning message for the case that a behavior information file could not
+	 * be loaded for a Behavior Model.
+	 */
+	private final static String WARNING_BEHAVIOR_FILE_LOADING_FAILED = "behavior information file \"%s\" could not be loaded for "
+			+ "Behavior Model \"%s\"; will not install any behavior "
+			+ "information into that model";
+
+	/** Informational message for the number of sampled sessions. */
+	private final static String INFO_SESSIONS_SAMPLED = "sampled %d of %d sessions (%d strata)";
+
+	/** Informational message for the estimated coverage of services. */
+	private final static String INFO_SERVICE_COVERAGE = "estimated coverage of service calls: %.4f "
+			+ "(%d services observed, about %.1f services estimated, "
+			+ "95%% confidence interval [%.1f, %.1f])";
+
+	/** Informational message for the estimated coverage of parameter values. */
+	private final static String INFO_PARAMETER_VALUE_COVERAGE = "estimated coverage of parameter values: %.4f "
+			+ "(lowest: %.4f for parameter \"%s\")";
+
+	/** Informational message for the number of templated services. */
+	private final static String INFO_SERVICES_TEMPLATED = "mapped %d services to %d URI templates; "
+			+ "each template requests the concrete URI of its first mapped service";
+
+	/** Informational message for the number of folded services. */
+	private final static String INFO_SERVICES_FOLDED = "folded %d of %d services into service \"%s\"";
+
 	/* ************************* global variables ************************* */
 
 	/** Instance for creating M4J-DSL model elements. */
 	private final M4jdslFactory m4jdslFactory;
 
+	/**
+	 * Maximum number of distinct values to be kept per request parameter, or
+	 * {@link ParameterValueSample#UNLIMITED}.
+	 */
+	private int maxParameterValues = ParameterValueSample.UNLIMITED;
+
+	/** Number of worker threads for parallel generation. */
+	private int workerCount = 1;
+
+	/**
+	 * <code>true</code> if and only if Behavior Models shall include Markov
+	 * States only for the services they visit.
+	 */
+	private boolean sparseMarkovStates = false;
+
+	/** Maximum number of input files to be read concurrently. */
+	private int ingestionThreadCount = InputIngestion.DEFAULT_THREAD_COUNT;
+
+	/** Fraction of sessions to be used for generation. */
+	private double samplingRate = 1.0d;
+
+	/** Flag for sampling sessions stratified by their entry services. */
+	private boolean stratifiedSampling = false;
+
+	/**
+	 * Maximum time between two requests of a session, or 0 if the sessions
+	 * file contains sessions already.
+	 */
+	private long sessionThreshold = 0;
+
+	/** Maximum number of services to be kept, or 0 for no limit. */
+	private int maxServices = 0;
+
+	/**
+	 * Minimum share of all service calls a service must have for being kept,
+	 * or 0 for no minimum.
+	 */
+	private double minServiceShare = 0.0d;
+
+	/**
+	 * Templater for mapping URI-like service names to templated services, or
+	 * <code>null</code> if service names shall be kept unchanged.
+	 */
+	private UriTemplater uriTemplater = null;
+
 	/* *************************** constructors *************************** */
 
 	/**
@@ -107,6 +193,154 @@ public class M4jdslModelGenerator {
 
 	/* ************************** public methods ************************** */
 
+	/**
+	 * Sets the maximum number of distinct values to be kept per request
+	 * parameter of the Protocol Layer; if a parameter has more values, a
+	 * uniform sample of them will be kept.
+	 * 
+	 * @param maxParameterValues
+	 *            maximum number of values, or
+	 *            {@link ParameterValueSample#UNLIMITED} if all values shall be
+	 *            kept (default).
+	 */
+	public void setMaxParameterValues(final int maxParameterValues) {
+
+		this.maxParameterValues = maxParameterValues;
+	}
+
+	/**
+	 * Sets the number of worker threads for parsing the sessions file, for
+	 * mining invariants, for collecting the allowed transitions and for
+	 * generating the Behavior Models in parallel; the generated model does not
+	 * depend on this number.
+	 * 
+	 * @param workerCount
+	 *            number of worker threads; a value less than or equal to 1
+	 *            indicates sequential generation (default).
+	 */
+	public void setWorkerCount(final int workerCount) {
+
+		this.workerCount = workerCount;
+	}
+
+	/**
+	 * Sets whether Behavior Models shall include Markov States only for the
+	 * initial service and for services with incoming or outgoing transitions;
+	 * this reduces the model size significantly for large service catalogs.
+	 * 
+	 * @param sparseMarkovStates
+	 *            <code>true</code> if and only if sparse Behavior Models shall
+	 *            be generated; by default, each Behavior Model includes a
+	 *            Markov State for every service.
+	 */
+	public void setSparseMarkovStates(final boolean sparseMarkovStates) {
+
+		this.sparseMarkovStates = sparseMarkovStates;
+	}
+
+	/**
+	 * Sets the maximum number of input files to be read concurrently; the
+	 * sessions file, the behavior information files and the Synoptic log file
+	 * are read and parsed by an ingestion stage, before the model generation
+	 * starts.
+	 * 
+	 * @param ingestionThreadCount
+	 *            number of I/O threads; a value less than or equal to 1
+	 *            indicates that all input files shall be read one after
+	 *            another.
+	 */
+	public void setIngestionThreadCount(final int ingestionThreadCount) {
+
+		this.ingestionThreadCount = ingestionThreadCount;
+	}
+
+	/**
+	 * Sets the fraction of sessions to be used for building the Application
+	 * Layer and the Protocol Layer; if the fraction is less than 1, a sample
+	 * of the sessions will be drawn while the sessions file is read, and the
+	 * estimated coverage of services and parameter values will be reported.
+	 * 
+	 * @param samplingRate
+	 *            fraction of sessions in range (0, 1]; 1 indicates that all
+	 *            sessions shall be used (default).
+	 */
+	public void setSamplingRate(final double samplingRate) {
+
+		this.samplingRate = samplingRate;
+	}
+
+	/**
+	 * Sets the flag for sampling sessions stratified by their entry services;
+	 * this flag has no effect, unless a sampling rate less than 1 is set.
+	 * 
+	 * @param stratifiedSampling
+	 *            <code>true</code> if and only if each entry service shall
+	 *            contribute a minimum number of sessions to the sample;
+	 *            <code>false</code> for uniform sampling (default).
+	 */
+	public void setStratifiedSampling(final boolean stratifiedSampling) {
+
+		this.stratifiedSampling = stratifiedSampling;
+	}
+
+	/**
+	 * Sets the threshold for session determination; if a threshold greater
+	 * than 0 is set, the sessions file is regarded as a time-ordered log of
+	 * raw requests, which will be split into sessions while being read.
+	 * 
+	 * @param sessionThreshold
+	 *            maximum time between the end of a request and the start of
+	 *            the next request of the same session, in the unit of the
+	 *            request timestamps; 0 indicates that the sessions file
+	 *            contains sessions already (default).
+	 */
+	public void setSessionThreshold(final long sessionThreshold) {
+
+		this.sessionThreshold = sessionThreshold;
+	}
+
+	/**
+	 * Sets the maximum number of services to be kept; all less frequent
+	 * services will be folded into a single aggregate service, which bounds
+	 * the number of states of the Session Layer EFSM and Behavior Models.
+	 * 
+	 * @param maxServices
+	 *            maximum number of services, or 0 for no limit (default);
+	 *            initial states and exit states are kept additionally.
+	 */
+	public void setMaxServices(final int maxServices) {
+
+		this.maxServices = maxServices;
+	}
+
+	/**
+	 * Sets the minimum share of all service calls a service must have for not
+	 * being folded into a single aggregate service.
+	 * 
+	 * @param minServiceShare
+	 *            minimum share in range [0, 1], or 0 for no minimum
+	 *            (default).
+	 */
+	public void setMinServiceShare(final double minServiceShare) {
+
+		this.minServiceShare = minServiceShare;
+	}
+
+	/**
+	 * Sets the templater for mapping URI-like service names to templated
+	 * services; services which are mapped to the same template are merged
+	 * into a single service, before any layer of the application model is
+	 * generated.
+	 * 
+	 * @param uriTemplater
+	 *            templater to be used, or <code>null</code> if service names
+	 *            shall be kept unchanged (default).
+	 */
+	public void setUriTemplater(final UriTemplater uriTemplater) {
+
+		this.uriTemplater = uriTemplater;
+	}
+
 	/**
 	 * Creates an M4J-DSL model which builds on Flow information; additionally,
 	 * a DOT graph which illustrates the states and transitions of the Session
@@ -162,13 +396,79 @@ public class M4jdslModelGenerator {
 		final ArrayList<String> names = new ArrayList<String>();
 		final ArrayList<String> filenames = new ArrayList<String>();
 		final ArrayList<Double> frequencies = new ArrayList<Double>();
-		final ArrayList<File> behaviorFiles = new ArrayList<File>();
+		final ArrayList<BehaviorMatrix> behaviorMatrices = new ArrayList<BehaviorMatrix>();
+
+		final GuardsAndActionsGenerator guardsAndActionsGenerator = new GuardsAndActionsGenerator(
+				this.m4jdslFactory);
+
+		guardsAndActionsGenerator.setWorkerCount(this.workerCount);
+
+		// read and parse all input files concurrently;
+		final InputIngestion inputIngestion = new InputIngestion(
+				this.ingestionThreadCount);
+
+		final SessionAggregator sessionAggregator;
+		List<MinedInvariant> temporalInvariants;
+
+		// invariants of mapped services must be mined after mapping;
+		final boolean servicesMappable = this.isServiceMappingEnabled();
+
+		try {
+
+			final Future<SessionAggregator> sessionsFuture = inputIngestion
+					.submit(this.createSessionsReadingTask(sessionDatFile));
+
+			final ArrayList<Future<BehaviorMatrix>> behaviorMatrixFutures = new ArrayList<Future<BehaviorMatrix>>();
+
+			for (BehaviorModelParameters p : behaviorModelParametersList) {
+				names.add(p.name);
+				filenames.add(p.filename);
+				frequencies.add(p.frequency);
+				behaviorMatrixFutures.add(inputIngestion.submit(this
+						.createBehaviorMatrixReadingTask(p)));
+			}
 
-		for (BehaviorModelParameters p : behaviorModelParametersList) {
-			names.add(p.name);
-			filenames.add(p.filename);
-			frequencies.add(p.frequency);
-			behaviorFiles.add(p.behaviorFile);
+			final Future<List<MinedInvariant>> temporalInvariantsFuture = (synopticProperties != null && !servicesMappable) ? inputIngestion
+					.submit(this.createInvariantsMiningTask(
+							guardsAndActionsGenerator, synopticProperties))
+					: null;
+
+			// might throw a GeneratorException;
+			sessionAggregator = inputIngestion.await(sessionsFuture);
+
+			if (sessionAggregator.getSessionSampler() != null) {
+
+				this.reportSamplingCoverage(sessionAggregator);
+			}
+
+			for (final Future<BehaviorMatrix> future : behaviorMatrixFutures) {
+
+				// might throw a GeneratorException;
+				behaviorMatrices.add(inputIngestion.await(future));
+			}
+
+			// might throw a GeneratorException;
+			temporalInvariants = inputIngestion
+					.await(temporalInvariantsFuture);
+
+		} finally {
+
+			inputIngestion.shutdown();
+		}
+
+		// target service names, keyed by the names of all mapped services;
+		final LinkedHashMap<String, String> composedMapping = new LinkedHashMap<String, String>();
+
+		this.templateServices(sessionAggregator, behaviorMatrices,
+				composedMapping);
+		this.truncateServices(sessionAggregator, behaviorMatrices,
+				composedMapping);
+
+		if (synopticProperties != null && servicesMappable) {
+
+			temporalInvariants = guardsAndActionsGenerator
+					.mineTemporalInvariants(synopticProperties,
+							composedMapping);
 		}
 
 		final Iterator<Double> frequencyIterator = frequencies.iterator();
@@ -183,21 +483,25 @@ public class M4jdslModelGenerator {
 
 		// might throw a GeneratorException;
 		this.installApplicationLayer(workloadModel, serviceRepository,
-				graphOutputPath, sessionDatFile, sessionsCanBeExitedAnytime,
-				behaviorFiles.toArray(new File[] {}));
+				graphOutputPath, sessionAggregator, sessionsCanBeExitedAnytime,
+				behaviorMatrices.toArray(new BehaviorMatrix[] {}));
 
 		// might throw a GeneratorException;
 		this.installBehaviorModels(workloadModel, serviceRepository,
 				names.toArray(new String[] {}),
 				filenames.toArray(new String[] {}),
-				behaviorFiles.toArray(new File[] {}));
+				behaviorMatrices.toArray(new BehaviorMatrix[] {}));
 
 		// might throw a GeneratorException;
 		this.installBehaviorMix(workloadModel,
 				workloadModel.getBehaviorModels(), behaviorMixEntries);
 
 		// install guards and actions
-		this.installGuardsAndActions(workloadModel, synopticProperties);
+		if (synopticProperties != null) {
+
+			guardsAndActionsGenerator.installGuardsAndActions(workloadModel,
+					temporalInvariants);
+		}
 
 		// calculate conditional probabilities
 
@@ -251,6 +555,9 @@ public class M4jdslModelGenerator {
 	 *            path to the directory which contains the Flow files.
 	 * @param graphOutputPath
 	 *            path to the graph output file.
+	 * @param sessionAggregator
+	 *            per-service summaries of the sessions which have been read
+	 *            from the sessions file.
 	 * @param sessionsCanBeExitedAnytime
 	 *            <code>true</code> if and only if sessions can be exited at any
 	 *            time, which is generally given in Web applications; if this
@@ -261,20 +568,23 @@ public class M4jdslModelGenerator {
 	 *            shall be used; if this flag is <code>false</code>, plain Node
 	 *            names will be used as state names, without any related Flow
 	 *            names being added as prefixes.
+	 * @param behaviorMatrices
+	 *            behavior information of the Behavior Models, which indicates
+	 *            the allowed transitions; entries might be <code>null</code>,
+	 *            if no information is available.
 	 * 
 	 * @return M4J-DSL model with the installed Application Layer.
 	 * 
 	 * @throws GeneratorException
 	 *             if the Application Layer installation fails for any reason.
-	 * @throws ExtractionException
-	 * @throws ParseException
-	 * @throws IOException
 	 */
 	private WorkloadModel installApplicationLayer(
 			final WorkloadModel workloadModel,
 			final ServiceRepository serviceRepository,
-			final String graphOutputPath, final String sessionDatFile,
-			final boolean sessionsCanBeExitedAnytime, final File[] filenames)
+			final String graphOutputPath,
+			final SessionAggregator sessionAggregator,
+			final boolean sessionsCanBeExitedAnytime,
+			final BehaviorMatrix[] behaviorMatrices)
 			throws GeneratorException {
 		/*
 		 * final AbstractProtocolLayerEFSMGenerator protocolLayerEFSMGenerator =
@@ -282,36 +592,25 @@ public class M4jdslModelGenerator {
 		 * IdGenerator("PS"), new IdGenerator("R"));
 		 */
 
-		try {
+		final AbstractProtocolLayerEFSMGenerator protocolLayerEFSMGenerator = new HTTPProtocolLayerEFSMGenerator(
+				this.m4jdslFactory, new IdGenerator("PS"),
+				new IdGenerator("R"), sessionAggregator);
 
-			ArrayList<SessionData> sessions = Parser
-					.parseSessionsIntoSessionsRepository(sessionDatFile, null);
+		final SessionLayerEFSMGenerator sessionLayerEFSMGenerator = new SessionLayerEFSMGenerator(
+				this.m4jdslFactory, serviceRepository,
+				protocolLayerEFSMGenerator, new IdGenerator("ASId"),
+				sessionsCanBeExitedAnytime, graphOutputPath, behaviorMatrices);
 
-			final AbstractProtocolLayerEFSMGenerator protocolLayerEFSMGenerator = new HTTPProtocolLayerEFSMGenerator(
-					this.m4jdslFactory, new IdGenerator("PS"), new IdGenerator(
-							"R"), sessions);
+		sessionLayerEFSMGenerator.setWorkerCount(this.workerCount);
 
-			final AbstractSessionLayerEFSMGenerator sessionLayerEFSMGenerator = new SessionLayerEFSMGenerator(
-					this.m4jdslFactory, serviceRepository,
-					protocolLayerEFSMGenerator, new IdGenerator("ASId"),
-					sessionsCanBeExitedAnytime, graphOutputPath, filenames);
+		final ApplicationModelGenerator applicationModelGenerator = new ApplicationModelGenerator(
+				this.m4jdslFactory, sessionLayerEFSMGenerator);
 
-			final ApplicationModelGenerator applicationModelGenerator = new ApplicationModelGenerator(
-					this.m4jdslFactory, sessionLayerEFSMGenerator);
-
-			// might throw a GeneratorException;
-			final ApplicationModel applicationModel = applicationModelGenerator
-					.generateApplicationModel();
-
-			workloadModel.setApplicationModel(applicationModel);
+		// might throw a GeneratorException;
+		final ApplicationModel applicationModel = applicationModelGenerator
+				.generateApplicationModel();
 
-		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (ParseException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
+		workloadModel.setApplicationModel(applicationModel);
 
 		return workloadModel;
 	}
@@ -327,9 +626,10 @@ public class M4jdslModelGenerator {
 	 *            names of the Behavior Models.
 	 * @param filenames
 	 *            filenames of the Behavior Models.
-	 * @param behaviorFiles
-	 *            files which provide the behavior information (probabilities
-	 *            and think times) to be included to the Behavior Models.
+	 * @param behaviorMatrices
+	 *            behavior information (probabilities and think times) to be
+	 *            included to the Behavior Models; entries might be
+	 *            <code>null</code>, if no information is available.
 	 * 
 	 * @return M4J-DSL model with the installed Behavior Models.
 	 * 
@@ -339,15 +639,16 @@ public class M4jdslModelGenerator {
 	private WorkloadModel installBehaviorModels(
 			final WorkloadModel workloadModel,
 			final ServiceRepository serviceRepository, final String[] names,
-			final String[] filenames, final File[] behaviorFiles)
+			final String[] filenames, final BehaviorMatrix[] behaviorMatrices)
 			throws GeneratorException {
 
 		final BehaviorModelsGenerator behaviorModelGenerator = new BehaviorModelsGenerator(
-				this.m4jdslFactory, new IdGenerator("MSId"), serviceRepository);
+				this.m4jdslFactory, new IdGenerator("MSId"), serviceRepository,
+				this.workerCount, this.sparseMarkovStates);
 
 		// might throw a GeneratorException;
 		final List<BehaviorModel> behaviorModels = behaviorModelGenerator
-				.generateBehaviorModels(names, filenames, behaviorFiles,
+				.generateBehaviorModels(names, filenames, behaviorMatrices,
 						workloadModel.getApplicationModel()
 								.getSessionLayerEFSM().getInitialState()
 								.getService());
@@ -391,21 +692,375 @@ public class M4jdslModelGenerator {
 		return workloadModel;
 	}
 
+	/* ------------------------- ingestion methods ------------------------ */
+
 	/**
-	 * Identify guards and actions.
+	 * Creates a task which reads the sessions from a given sessions file; the
+	 * sessions are aggregated while being read, so that only per-service
+	 * summaries are kept in memory.
 	 * 
-	 * @param workloadModel
+	 * @param sessionDatFile
+	 *            path to the sessions file; if multiple workers are
+	 *            configured, the file will be parsed in parallel chunks, and
+	 *            if a sampling rate is set, only a sample of the sessions will
+	 *            be aggregated; if a session threshold is set, the file will
+	 *            be regarded as a request log to be split into sessions.
+	 * 
+	 * @return the newly created task.
 	 */
-	private void installGuardsAndActions(final WorkloadModel workloadModel,
-			final Properties synoticProperties) {
-		GuardsAndActionsGenerator guardsAndActionsGenerator = new GuardsAndActionsGenerator(
-				this.m4jdslFactory);
-		guardsAndActionsGenerator.installGuardsAndActions(workloadModel,
-				synoticProperties);
+	private Callable<SessionAggregator> createSessionsReadingTask(
+			final String sessionDatFile) {
+
+		final int maxParameterValues = this.maxParameterValues;
+		final int workerCount = this.workerCount;
+		final long sessionThreshold = this.sessionThreshold;
+
+		// might throw an IllegalArgumentException;
+		final SessionSampler sessionSampler = (this.samplingRate < 1.0d) ? new SessionSampler(
+				this.stratifiedSampling ? SessionSampler.MODE_STRATIFIED
+						: SessionSampler.MODE_UNIFORM, this.samplingRate,
+				SessionSampler.DEFAULT_MIN_SESSIONS_PER_STRATUM) : null;
+
+		return new Callable<SessionAggregator>() {
+
+			@Override
+			public SessionAggregator call() throws IOException {
+
+				final SessionAggregator sessionAggregator = new SessionAggregator(
+						maxParameterValues, sessionSampler);
+
+				// might throw a FileNotFound- or IOException;
+				if (sessionThreshold > 0) {
+
+					new Sessionizer(sessionThreshold).read(sessionDatFile,
+							sessionAggregator);
+
+				} else if (workerCount > 1) {
+
+					new ParallelSessionLogReader(workerCount).read(
+							sessionDatFile, sessionAggregator);
+
+				} else {
+
+					new SessionLogReader().read(sessionDatFile,
+							sessionAggregator);
+				}
+
+				return sessionAggregator;
+			}
+		};
+	}
+
+	/**
+	 * Creates a task which reads the behavior information of a Behavior Model.
+	 * 
+	 * @param behaviorModelParameters
+	 *            parameters of the Behavior Model, including the behavior
+	 *            information file.
+	 * 
+	 * @return the newly created task, which provides <code>null</code> if no
+	 *         behavior information is available.
+	 */
+	private Callable<BehaviorMatrix> createBehaviorMatrixReadingTask(
+			final BehaviorModelParameters behaviorModelParameters) {
+
+		return new Callable<BehaviorMatrix>() {
+
+			@Override
+			public BehaviorMatrix call() {
+
+				return M4jdslModelGenerator.this
+						.readBehaviorMatrix(behaviorModelParameters);
+			}
+		};
+	}
+
+	/**
+	 * Creates a task which mines the temporal invariants for guards and
+	 * actions from the Synoptic log file.
+	 * 
+	 * @param guardsAndActionsGenerator
+	 *            generator which mines the invariants.
+	 * @param synopticProperties
+	 *            Synoptic properties, including the log file.
+	 * 
+	 * @return the newly created task, which provides <code>null</code> if
+	 *         mining fails.
+	 */
+	private Callable<List<MinedInvariant>> createInvariantsMiningTask(
+			final GuardsAndActionsGenerator guardsAndActionsGenerator,
+			final Properties synopticProperties) {
+
+		return new Callable<List<MinedInvariant>>() {
+
+			@Override
+			public List<MinedInvariant> call() {
+
+				return guardsAndActionsGenerator
+						.mineTemporalInvariants(synopticProperties);
+			}
+		};
+	}
+
+	/**
+	 * Reports the number of sampled sessions and the estimated coverage of
+	 * services and parameter values.
+	 * 
+	 * @param sessionAggregator
+	 *            sampled sessions.
+	 */
+	private void reportSamplingCoverage(
+			final SessionAggregator sessionAggregator) {
+
+		final SessionSampler sessionSampler = sessionAggregator
+				.getSessionSampler();
+
+		final CoverageEstimator coverageEstimator = new CoverageEstimator(
+				sessionAggregator);
+
+		System.out.println("INFO: "
+				+ String.format(INFO_SESSIONS_SAMPLED,
+						sessionSampler.getSampledCount(),
+						sessionSampler.getSessionCount(),
+						sessionSampler.getStratumCount()));
+
+		final double[] serviceCountInterval = coverageEstimator
+				.getEstimatedServiceCountInterval();
+
+		System.out.println("INFO: "
+				+ String.format(INFO_SERVICE_COVERAGE,
+						coverageEstimator.getServiceCoverage(),
+						coverageEstimator.getObservedServiceCount(),
+						coverageEstimator.getEstimatedServiceCount(),
+						serviceCountInterval[0], serviceCountInterval[1]));
+
+		if (coverageEstimator.getMinParameterName() != null) {
+
+			System.out.println("INFO: "
+					+ String.format(INFO_PARAMETER_VALUE_COVERAGE,
+							coverageEstimator.getParameterValueCoverage(),
+							coverageEstimator.getMinParameterValueCoverage(),
+							coverageEstimator.getMinParameterName()));
+		}
+	}
+
+	/**
+	 * Maps URI-like service names to their templates, if a templater is set;
+	 * the Behavior Matrices will be replaced by their folded counterparts.
+	 * 
+	 * @param sessionAggregator
+	 *            aggregated sessions, whose services shall be mapped.
+	 * @param behaviorMatrices
+	 *            behavior information of all Behavior Models, might contain
+	 *            <code>null</code> elements.
+	 * @param composedMapping
+	 *            mapping of all services which have been mapped so far; the
+	 *            templated services will be added.
+	 */
+	private void templateServices(final SessionAggregator sessionAggregator,
+			final ArrayList<BehaviorMatrix> behaviorMatrices,
+			final Map<String, String> composedMapping) {
+
+		if (this.uriTemplater == null || !this.uriTemplater.isEnabled()) {
+
+			return;
+		}
+
+		final LinkedHashSet<String> serviceNames = new LinkedHashSet<String>();
+
+		for (final ServiceSummary serviceSummary : sessionAggregator
+				.getServiceSummaries()) {
+
+			serviceNames.add(serviceSummary.getName());
+		}
+
+		for (final BehaviorMatrix behaviorMatrix : behaviorMatrices) {
+
+			if (behaviorMatrix != null) {
+
+				for (int i = 0; i < behaviorMatrix.getRowCount(); i++) {
+					serviceNames.add(behaviorMatrix.getRowStateName(i));
+				}
+
+				for (int j = 0; j < behaviorMatrix.getColumnCount(); j++) {
+					serviceNames.add(behaviorMatrix.getColumnName(j));
+				}
+			}
+		}
+
+		final Map<String, String> serviceMapping = this.uriTemplater
+				.computeServiceMapping(serviceNames);
+
+		if (serviceMapping.isEmpty()) {
+
+			return;
+		}
+
+		this.foldServices(sessionAggregator, behaviorMatrices, serviceMapping,
+				composedMapping);
+
+		System.out.println("INFO: "
+				+ String.format(INFO_SERVICES_TEMPLATED, serviceMapping.size(),
+						new HashSet<String>(serviceMapping.values()).size()));
+	}
+
+	/**
+	 * Folds all infrequent services into a single aggregate service, if a
+	 * maximum number of services or a minimum service share is set; the
+	 * Behavior Matrices will be replaced by their folded counterparts.
+	 * 
+	 * @param sessionAggregator
+	 *            aggregated sessions, whose services shall be folded.
+	 * @param behaviorMatrices
+	 *            behavior information of all Behavior Models, might contain
+	 *            <code>null</code> elements.
+	 * @param composedMapping
+	 *            mapping of all services which have been mapped so far; the
+	 *            folded services will be added.
+	 */
+	private void truncateServices(final SessionAggregator sessionAggregator,
+			final ArrayList<BehaviorMatrix> behaviorMatrices,
+			final Map<String, String> composedMapping) {
+
+		final ServiceTruncator serviceTruncator = new ServiceTruncator(
+				this.maxServices, this.minServiceShare);
+
+		if (!serviceTruncator.isEnabled()) {
+
+			return;
+		}
+
+		final Map<String, String> serviceMapping = serviceTruncator
+				.computeServiceMapping(sessionAggregator, behaviorMatrices
+						.toArray(new BehaviorMatrix[] {}));
+
+		if (serviceMapping.isEmpty()) {
+
+			return;
+		}
+
+		this.foldServices(sessionAggregator, behaviorMatrices, serviceMapping,
+				composedMapping);
+
+		System.out.println("INFO: "
+				+ String.format(INFO_SERVICES_FOLDED, serviceMapping.size(),
+						serviceTruncator.getServiceCount(), serviceMapping
+								.values().iterator().next()));
+	}
+
+	/**
+	 * Folds services of the aggregated sessions and of all Behavior Matrices
+	 * into other services.
+	 * 
+	 * @param sessionAggregator
+	 *            aggregated sessions, whose services shall be folded.
+	 * @param behaviorMatrices
+	 *            behavior information of all Behavior Models, might contain
+	 *            <code>null</code> elements; the matrices will be replaced by
+	 *            their folded counterparts.
+	 * @param serviceMapping
+	 *            target service names, keyed by the names of the services to
+	 *            be folded.
+	 * @param composedMapping
+	 *            mapping of all services which have been mapped so far,
+	 *            keyed by their original names; the mapping will be composed
+	 *            with the given mapping, so that it maps each original name to
+	 *            its final target name.
+	 */
+	private void foldServices(final SessionAggregator sessionAggregator,
+			final ArrayList<BehaviorMatrix> behaviorMatrices,
+			final Map<String, String> serviceMapping,
+			final Map<String, String> composedMapping) {
+
+		for (int i = 0; i < behaviorMatrices.size(); i++) {
+
+			final BehaviorMatrix behaviorMatrix = behaviorMatrices.get(i);
+
+			if (behaviorMatrix != null) {
+
+				behaviorMatrices.set(i, behaviorMatrix.fold(serviceMapping));
+			}
+		}
+
+		sessionAggregator.foldServices(serviceMapping);
+
+		for (final Map.Entry<String, String> entry : composedMapping
+				.entrySet()) {
+
+			final String targetName = serviceMapping.get(entry.getValue());
+
+			if (targetName != null) {
+
+				entry.setValue(targetName);
+			}
+		}
+
+		for (final Map.Entry<String, String> entry : serviceMapping
+				.entrySet()) {
+
+			if (!composedMapping.containsKey(entry.getKey())) {
+
+				composedMapping.put(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Checks whether services might be mapped to other services by templating
+	 * or truncation.
+	 * 
+	 * @return <code>true</code> if and only if a templater or a service
+	 *         truncation is enabled.
+	 */
+	private boolean isServiceMappingEnabled() {
+
+		return (this.uriTemplater != null && this.uriTemplater.isEnabled())
+				|| new ServiceTruncator(this.maxServices, this.minServiceShare)
+						.isEnabled();
 	}
 
 	/* -------------------------- helping methods ------------------------- */
 
+	/**
+	 * Reads the behavior information of a Behavior Model; the information is
+	 * read only once, to be shared by the Application Layer and Behavior
+	 * Models generators.
+	 * 
+	 * @param behaviorModelParameters
+	 *            parameters of the Behavior Model, including the behavior
+	 *            information file.
+	 * 
+	 * @return the behavior information, or <code>null</code> if no behavior
+	 *         information file is given or the file could not be read.
+	 */
+	private BehaviorMatrix readBehaviorMatrix(
+			final BehaviorModelParameters behaviorModelParameters) {
+
+		final File behaviorFile = behaviorModelParameters.behaviorFile;
+
+		if (behaviorFile == null) {
+
+			return null;
+		}
+
+		try {
+
+			// might throw a FileNotFound- or IOException;
+			return BehaviorMatrix.read(behaviorFile.getAbsolutePath(),
+					this.sparseMarkovStates);
+
+		} catch (final IOException ex) {
+
+			final String message = String.format(
+					M4jdslModelGenerator.WARNING_BEHAVIOR_FILE_LOADING_FAILED,
+					behaviorFile, behaviorModelParameters.name);
+
+			System.out.println("WARNING: " + message);
+
+			return null;
+		}
+	}
+
 	/**
 	 * Prints the usage information on the standard output stream.
 	 */
@@ -630,17 +1285,92 @@ public class M4jdslModelGenerator {
 		final boolean sessionsCanBeExitedAnytime = CommandLineArgumentsHandler
 				.getSessionsCanBeExitedAnytime();
 
-		// might throw a FileNotFound- or IOException;
-		final Properties workloadIntensityProperties = M4jdslModelGenerator
-				.loadProperties(workloadIntensityPropertiesFile);
+		m4jdslModelGenerator.setMaxParameterValues(CommandLineArgumentsHandler
+				.getMaxParameterValues());
 
-		// might throw a FileNotFound- or IOException;
-		final Properties behaviorModelsProperties = (behaviorModelsPropertiesFile != null) ? M4jdslModelGenerator
-				.loadProperties(behaviorModelsPropertiesFile) : null;
+		m4jdslModelGenerator.setWorkerCount(CommandLineArgumentsHandler
+				.getWorkerCount());
 
-		// might throw a FileNotFound- or IOException;
-		final Properties synopticProperties = (synopticPropertiesFile != null) ? M4jdslModelGenerator
-				.loadProperties(synopticPropertiesFile) : null;
+		m4jdslModelGenerator.setSparseMarkovStates(CommandLineArgumentsHandler
+				.getSparseMarkovStates());
+
+		m4jdslModelGenerator.setIngestionThreadCount(CommandLineArgumentsHandler
+				.getIngestionThreadCount());
+		m4jdslModelGenerator.setSamplingRate(CommandLineArgumentsHandler
+				.getSamplingRate());
+
+		final String sessionThreshold = CommandLineArgumentsHandler
+				.getThresholdSessionTime();
+
+		if (sessionThreshold != null) {
+
+			// might throw a NumberFormatException;
+			m4jdslModelGenerator.setSessionThreshold(Long
+					.parseLong(sessionThreshold.trim()));
+		}
+
+		m4jdslModelGenerator.setStratifiedSampling(CommandLineArgumentsHandler
+				.getStratifiedSampling());
+
+		m4jdslModelGenerator.setMaxServices(CommandLineArgumentsHandler
+				.getMaxServices());
+		m4jdslModelGenerator.setMinServiceShare(CommandLineArgumentsHandler
+				.getMinServiceShare());
+
+		final String uriTemplatesFile = CommandLineArgumentsHandler
+				.getUriTemplatesFile();
+
+		final boolean uriAutoTemplating = CommandLineArgumentsHandler
+				.getUriAutoTemplating();
+
+		if (uriTemplatesFile != null || uriAutoTemplating) {
+
+			final UriTemplater uriTemplater = new UriTemplater(
+					uriAutoTemplating);
+
+			if (uriTemplatesFile != null) {
+
+				// might throw a FileNotFound- or IOException;
+				uriTemplater.readTemplates(uriTemplatesFile);
+			}
+
+			m4jdslModelGenerator.setUriTemplater(uriTemplater);
+		}
+
+		final Properties workloadIntensityProperties;
+		final Properties behaviorModelsProperties;
+		final Properties synopticProperties;
+
+		final InputIngestion inputIngestion = new InputIngestion(
+				CommandLineArgumentsHandler.getIngestionThreadCount());
+
+		try {
+
+			final Future<Properties> workloadIntensityFuture = inputIngestion
+					.submit(M4jdslModelGenerator
+							.createPropertiesLoadingTask(workloadIntensityPropertiesFile));
+
+			final Future<Properties> behaviorModelsFuture = (behaviorModelsPropertiesFile != null) ? inputIngestion
+					.submit(M4jdslModelGenerator
+							.createPropertiesLoadingTask(behaviorModelsPropertiesFile))
+					: null;
+
+			final Future<Properties> synopticFuture = (synopticPropertiesFile != null) ? inputIngestion
+					.submit(M4jdslModelGenerator
+							.createPropertiesLoadingTask(synopticPropertiesFile))
+					: null;
+
+			// might throw a GeneratorException;
+			workloadIntensityProperties = inputIngestion
+					.await(workloadIntensityFuture);
+			behaviorModelsProperties = inputIngestion
+					.await(behaviorModelsFuture);
+			synopticProperties = inputIngestion.await(synopticFuture);
+
+		} finally {
+
+			inputIngestion.shutdown();
+		}
 
 		final WorkloadModel workloadModel = m4jdslModelGenerator
 				.generateWorkloadModel(workloadIntensityProperties,
@@ -662,6 +1392,29 @@ public class M4jdslModelGenerator {
 				xmiOutputFilePath);
 	}
 
+	/**
+	 * Creates a task which loads the key/value pairs from a specified
+	 * properties file.
+	 * 
+	 * @param filename
+	 *            name of the properties file to be loaded.
+	 * 
+	 * @return the newly created task.
+	 */
+	private static Callable<Properties> createPropertiesLoadingTask(
+			final String filename) {
+
+		return new Callable<Properties>() {
+
+			@Override
+			public Properties call() throws FileNotFoundException,
+					IOException, SecurityException {
+
+				return M4jdslModelGenerator.loadProperties(filename);
+			}
+		};
+	}
+
 	/**
 	 * Loads the key/value pairs from a specified properties file.
 	 * 
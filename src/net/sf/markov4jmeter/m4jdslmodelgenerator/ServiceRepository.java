@@ -17,8 +17,10 @@
 
 package net.sf.markov4jmeter.m4jdslmodelgenerator;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.LinkedList;
+import java.util.HashMap;
 import java.util.List;
 
 import m4jdsl.M4jdslFactory;
@@ -27,17 +29,48 @@ import m4jdsl.Service;
 /**
  * Repository class for handling all available services.
  *
+ * <p> Services are indexed by name, and each service is assigned a dense
+ * integer ID in order of registration, so that services might be used as
+ * indices of primitive arrays. The list of services sorted by name is cached
+ * and rebuilt only after a new service has been registered.
+ *
  * @author   Eike Schulz (esc@informatik.uni-kiel.de)
  * @version  1.0
  */
 public class ServiceRepository {
 
+
+    /* *****************************  constants  **************************** */
+
+
+    /** Comparator which orders services by name. */
+    private final static Comparator<Service> NAME_ORDER =
+            new Comparator<Service>() {
+
+        @Override
+        public int compare (final Service s1, final Service s2) {
+
+            return s1.getName().compareTo(s2.getName());
+        }
+    };
+
+
+    /* *************************  global variables  ************************* */
+
+
     /** Instance for creating M4J-DSL model elements. */
     private final M4jdslFactory m4jdslFactory;
 
-    /** List of all registered services. */
+    /** List of all registered services, indexed by service IDs. */
     private final List<Service> services;
 
+    /** IDs of all registered services, keyed by service names. */
+    private final HashMap<String, Integer> serviceIds;
+
+    /** Unmodifiable list of all registered services, sorted by name;
+     *  <code>null</code> if it needs to be rebuilt. */
+    private List<Service> sortedServices;
+
 
     /* ***************************  constructors  *************************** */
 
@@ -51,7 +84,8 @@ public class ServiceRepository {
     public ServiceRepository (final M4jdslFactory m4jdslFactory) {
 
         this.m4jdslFactory = m4jdslFactory;
-        this.services      = new LinkedList<Service>();
+        this.services      = new ArrayList<Service>();
+        this.serviceIds    = new HashMap<String, Integer>();
     }
 
 
@@ -61,11 +95,18 @@ public class ServiceRepository {
     /**
      * Returns all registered services.
      *
-     * @return  a valid list of all registered services.
+     * @return
+     *     a valid, unmodifiable list of all registered services, sorted by
+     *     name.
      */
     public List<Service> getServices () {
 
-        return this.sortServices(this.services);
+        if (this.sortedServices == null) {
+
+            this.sortedServices = this.sortServices(this.services);
+        }
+
+        return this.sortedServices;
     }
 
     /**
@@ -90,8 +131,11 @@ public class ServiceRepository {
         service = this.m4jdslFactory.createService();
         service.setName(name);
 
+        this.serviceIds.put(name, this.services.size());
         this.services.add(service);
 
+        this.sortedServices = null;
+
         return service;
     }
 
@@ -107,15 +151,56 @@ public class ServiceRepository {
      */
     public Service findServiceByName (final String name) {
 
-        for (final Service service : this.services) {
+        final Integer id = this.serviceIds.get(name);
 
-            if ( name.equals(service.getName()) ) {
+        return (id != null) ? this.services.get(id) : null;
+    }
 
-                return service;
-            }
-        }
+    /**
+     * Returns the ID of a service; IDs are assigned densely, in order of
+     * registration, starting with 0.
+     *
+     * @param name
+     *     name of the service.
+     *
+     * @return
+     *     the ID of the service, or -1 if no service of the given name has
+     *     been registered.
+     */
+    public int getServiceId (final String name) {
+
+        final Integer id = this.serviceIds.get(name);
+
+        return (id != null) ? id : -1;
+    }
+
+    /**
+     * Returns the service with a specific ID.
+     *
+     * @param id
+     *     ID of the service, in range [0, {@link #getServiceCount()}).
+     *
+     * @return
+     *     the service with the given ID.
+     *
+     * @throws IndexOutOfBoundsException
+     *     if the ID is out of range.
+     */
+    public Service getServiceById (final int id)
+            throws IndexOutOfBoundsException {
 
-        return null;  // no match;
+        return this.services.get(id);
+    }
+
+    /**
+     * Returns the number of registered services, which is the upper bound
+     * (exclusive) of all service IDs.
+     *
+     * @return  a non-negative number.
+     */
+    public int getServiceCount () {
+
+        return this.services.size();
     }
 
 
@@ -123,23 +208,18 @@ public class ServiceRepository {
 
 
     /**
-     * Sorts the list of services by name.
+     * Creates a sorted copy of a list of services.
      *
      * @param services  List of services to be sorted.
      *
-     * @return  the sorted list of services.
+     * @return  an unmodifiable list of the services, sorted by name.
      */
     private List<Service> sortServices (final List<Service> services) {
 
-        java.util.Collections.sort(services, new Comparator<Service>() {
-
-            @Override
-            public int compare (final Service s1, final Service s2) {
+        final ArrayList<Service> sortedServices = new ArrayList<Service>(services);
 
-                return s1.getName().compareTo(s2.getName());
-            }
-        });
+        Collections.sort(sortedServices, ServiceRepository.NAME_ORDER);
 
-        return services;
+        return Collections.unmodifiableList(sortedServices);
     }
 }
@@ -16,9 +16,16 @@
 
 package net.sf.markov4jmeter.m4jdslmodelgenerator.components;
 
-import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import m4jdsl.BehaviorModel;
 import m4jdsl.BehaviorModelExitState;
@@ -31,8 +38,9 @@ import m4jdsl.ThinkTime;
 import m4jdsl.Transition;
 import net.sf.markov4jmeter.m4jdslmodelgenerator.GeneratorException;
 import net.sf.markov4jmeter.m4jdslmodelgenerator.ServiceRepository;
-import net.sf.markov4jmeter.m4jdslmodelgenerator.util.CSVHandler;
+import net.sf.markov4jmeter.m4jdslmodelgenerator.util.BehaviorMatrix;
 import net.sf.markov4jmeter.m4jdslmodelgenerator.util.IdGenerator;
+import net.sf.markov4jmeter.m4jdslmodelgenerator.util.SparseBehaviorMatrix;
 
 /**
  * Generator class for creating M4J-DSL model components, which represent the
@@ -63,30 +71,16 @@ public class BehaviorModelsGenerator {
 	private final static String WARNING_UNKNOWN_TARGETSTATE = "unknown target state \"%s\" detected, will be ignored";
 
 	/**
-	 * Informational message for the case that no behavior information is
-	 * available for a certain state.
-	 */
-	private final static String INFO_NO_BEHAVIOR_INFORMATION_FOR_STATE = "no behavior information for state \"%s\" available, will skip";
-
-	/**
-	 * Warning message for the case that a behavior information file could not
-	 * be loaded for a Behavior Model.
+	 * Error message for the case that the parallel generation of a Behavior
+	 * Model failed or has been interrupted.
 	 */
-	private final static String WARNING_BEHAVIOR_FILE_LOADING_FAILED = "behavior information file \"%s\" could not be loaded for "
-			+ "Behavior Model \"%s\"; will not install any behavior "
-			+ "information into that model";
+	private final static String ERROR_PARALLEL_GENERATION_FAILED = "generation of Behavior Model \"%s\" failed: %s";
 
 	/**
-	 * Warning message for the case that a negative probability has been
-	 * detected.
-	 */
-	private final static String WARNING_NEGATIVE_PROBABILITY = "negative probability value detected, will use 0.0 instead of %f";
-
-	/**
-	 * Warning message for the case that a probability value could not be
-	 * parsed.
+	 * Informational message for the case that no behavior information is
+	 * available for a certain state.
 	 */
-	private final static String WARNING_PROBABILITY_PARSING_FAILED = "could not parse probability value \"%s\", will use 0.0 instead";
+	private final static String INFO_NO_BEHAVIOR_INFORMATION_FOR_STATE = "no behavior information for state \"%s\" available, will skip";
 
 	/* ************************* global variables ************************* */
 
@@ -99,11 +93,14 @@ public class BehaviorModelsGenerator {
 	/** Instance for handling all available services. */
 	private final ServiceRepository serviceRepository;
 
-	/** Instance for reading/writing CSV files. */
-	private final CSVHandler csvHandler;
+	/** Number of worker threads for generating Behavior Models in parallel. */
+	private final int workerCount;
 
-	/** Instance for parsing think time definitions. */
-	private final ThinkTimeParser thinkTimeParser;
+	/**
+	 * <code>true</code> if and only if Markov States shall be created only for
+	 * services which are visited in a Behavior Model.
+	 */
+	private final boolean sparseMarkovStates;
 
 	/* *************************** constructors *************************** */
 
@@ -121,12 +118,40 @@ public class BehaviorModelsGenerator {
 			final IdGenerator idGenerator,
 			final ServiceRepository serviceRepository) {
 
+		this(m4jdslFactory, idGenerator, serviceRepository, 1, false);
+	}
+
+	/**
+	 * Constructor for a Behavior Models Generator which generates Behavior
+	 * Models in parallel. The generated models and their IDs do not depend on
+	 * the number of worker threads.
+	 * 
+	 * @param m4jdslFactory
+	 *            instance for creating M4J-DSL model elements.
+	 * @param idGenerator
+	 *            instance for creating unique Markov State IDs.
+	 * @param serviceRepository
+	 *            instance for handling all available services.
+	 * @param workerCount
+	 *            number of worker threads; a value less than or equal to 1
+	 *            indicates that all models shall be generated sequentially.
+	 * @param sparseMarkovStates
+	 *            <code>true</code> if and only if Markov States shall be
+	 *            created only for the initial service and for services which
+	 *            have incoming or outgoing transitions in a Behavior Model;
+	 *            otherwise, each Behavior Model includes a Markov State for
+	 *            every service.
+	 */
+	public BehaviorModelsGenerator(final M4jdslFactory m4jdslFactory,
+			final IdGenerator idGenerator,
+			final ServiceRepository serviceRepository, final int workerCount,
+			final boolean sparseMarkovStates) {
+
 		this.m4jdslFactory = m4jdslFactory;
 		this.idGenerator = idGenerator;
 		this.serviceRepository = serviceRepository;
-
-		this.csvHandler = new CSVHandler();
-		this.thinkTimeParser = new ThinkTimeParser(m4jdslFactory);
+		this.workerCount = Math.max(workerCount, 1);
+		this.sparseMarkovStates = sparseMarkovStates;
 	}
 
 	/* ************************** public methods ************************** */
@@ -140,9 +165,10 @@ public class BehaviorModelsGenerator {
 	 *            names of the Behavior Models.
 	 * @param filenames
 	 *            filenames of the Behavior Models.
-	 * @param behaviorFiles
-	 *            CSV files which provide the behavior information as matrices,
-	 *            to be included into the Behavior Models.
+	 * @param behaviorMatrices
+	 *            behavior information to be included into the Behavior Models;
+	 *            entries might be <code>null</code>, if no information shall
+	 *            be included.
 	 * @param initialService
 	 *            initial service of all Behavior Models.
 	 * 
@@ -153,21 +179,44 @@ public class BehaviorModelsGenerator {
 	 */
 	public LinkedList<BehaviorModel> generateBehaviorModels(
 			final String[] names, final String[] filenames,
-			final File[] behaviorFiles, final Service initialService)
-			throws GeneratorException {
+			final BehaviorMatrix[] behaviorMatrices,
+			final Service initialService) throws GeneratorException {
 
 		final LinkedList<BehaviorModel> behaviorModels = new LinkedList<BehaviorModel>();
 
-		for (int i = 0, n = behaviorFiles.length; i < n; i++) {
+		// the sorted view of the repository is unmodifiable, so it can be
+		// shared by all workers;
+		final List<Service> services = this.serviceRepository.getServices();
+
+		final int n = behaviorMatrices.length;
+		final int threads = Math.min(this.workerCount, n);
 
-			final String name = names[i];
-			final String filename = filenames[i];
-			final File behaviorFile = behaviorFiles[i];
+		if (threads <= 1) {
 
-			final BehaviorModel behaviorModel = this.generateBehaviorModel(
-					name, filename, behaviorFile, initialService);
+			for (int i = 0; i < n; i++) {
 
-			behaviorModels.add(behaviorModel);
+				final String name = names[i];
+				final String filename = filenames[i];
+				final BehaviorMatrix behaviorMatrix = behaviorMatrices[i];
+
+				final BehaviorModel behaviorModel = this.generateBehaviorModel(
+						name, filename, behaviorMatrix, services,
+						initialService);
+
+				behaviorModels.add(behaviorModel);
+			}
+
+		} else {
+
+			this.generateBehaviorModelsInParallel(names, filenames,
+					behaviorMatrices, services, initialService, threads,
+					behaviorModels);
+		}
+
+		// IDs are assigned in model order, independent of the threads;
+		for (final BehaviorModel behaviorModel : behaviorModels) {
+
+			this.assignIds(behaviorModel);
 		}
 
 		return behaviorModels;
@@ -175,6 +224,109 @@ public class BehaviorModelsGenerator {
 
 	/* ************************** private methods ************************* */
 
+	/**
+	 * Creates a set of Behavior Models in parallel; the models will be added
+	 * to the given list in the order of the input arrays.
+	 * 
+	 * @param names
+	 *            names of the Behavior Models.
+	 * @param filenames
+	 *            filenames of the Behavior Models.
+	 * @param behaviorMatrices
+	 *            behavior information to be included into the Behavior Models.
+	 * @param services
+	 *            all available services, each of them being associated with a
+	 *            Markov State.
+	 * @param initialService
+	 *            initial service of all Behavior Models.
+	 * @param threads
+	 *            number of worker threads to be used.
+	 * @param behaviorModels
+	 *            list to which the newly created Behavior Models will be
+	 *            added.
+	 * 
+	 * @throws GeneratorException
+	 *             if any error occurs during the generation process.
+	 */
+	private void generateBehaviorModelsInParallel(final String[] names,
+			final String[] filenames, final BehaviorMatrix[] behaviorMatrices,
+			final List<Service> services, final Service initialService,
+			final int threads, final List<BehaviorModel> behaviorModels)
+			throws GeneratorException {
+
+		final ExecutorService executorService = Executors
+				.newFixedThreadPool(threads);
+
+		try {
+
+			final List<Future<BehaviorModel>> futures = new ArrayList<Future<BehaviorModel>>();
+
+			for (int i = 0, n = behaviorMatrices.length; i < n; i++) {
+
+				futures.add(executorService.submit(new BehaviorModelTask(
+						names[i], filenames[i], behaviorMatrices[i], services,
+						initialService)));
+			}
+
+			for (int i = 0, n = futures.size(); i < n; i++) {
+
+				behaviorModels.add(this.getBehaviorModel(futures.get(i),
+						names[i]));
+			}
+
+		} finally {
+
+			executorService.shutdownNow();
+		}
+	}
+
+	/**
+	 * Waits for a Behavior Model which is generated by a worker thread.
+	 * 
+	 * @param future
+	 *            result of the worker thread.
+	 * @param name
+	 *            name of the Behavior Model, for error messages.
+	 * 
+	 * @return the generated Behavior Model.
+	 * 
+	 * @throws GeneratorException
+	 *             if the generation failed or has been interrupted.
+	 */
+	private BehaviorModel getBehaviorModel(final Future<BehaviorModel> future,
+			final String name) throws GeneratorException {
+
+		try {
+
+			return future.get();
+
+		} catch (final ExecutionException ex) {
+
+			final Throwable cause = ex.getCause();
+
+			if (cause instanceof GeneratorException) {
+
+				throw (GeneratorException) cause;
+			}
+
+			final String message = String.format(
+					BehaviorModelsGenerator.ERROR_PARALLEL_GENERATION_FAILED,
+					name, cause);
+
+			throw new GeneratorException(message);
+
+		} catch (final InterruptedException ex) {
+
+			Thread.currentThread().interrupt();
+
+			final String message = String.format(
+					BehaviorModelsGenerator.ERROR_PARALLEL_GENERATION_FAILED,
+					name, ex);
+
+			throw new GeneratorException(message);
+		}
+	}
+
 	/**
 	 * Creates a Behavior Model, based on name/filename/behavior information.
 	 * 
@@ -182,33 +334,45 @@ public class BehaviorModelsGenerator {
 	 *            name of the Behavior Model.
 	 * @param filename
 	 *            filename of the Behavior Model.
-	 * @param behaviorFile
-	 *            CSV file which provides the behavior information as matrix, to
-	 *            be included into the Behavior Model.
+	 * @param behaviorMatrix
+	 *            behavior information to be included into the Behavior Model;
+	 *            might be <code>null</code>, if no information shall be
+	 *            included.
+	 * @param services
+	 *            all available services, each of them being associated with a
+	 *            Markov State.
 	 * @param initialService
 	 *            initial service of all Behavior Models.
 	 * 
-	 * @return the newly created Behavior Model.
+	 * @return the newly created Behavior Model, whose states do not have any
+	 *         IDs yet.
 	 * 
 	 * @throws GeneratorException
 	 *             if any error occurs during the generation process.
 	 */
 	private BehaviorModel generateBehaviorModel(final String name,
-			final String filename, final File behaviorFile,
-			final Service initialService) throws GeneratorException {
+			final String filename, final BehaviorMatrix behaviorMatrix,
+			final List<Service> services, final Service initialService)
+			throws GeneratorException {
 
 		final BehaviorModel behaviorModel = this.createBehaviorModel(name,
 				filename);
 
-		this.installMarkovStates(behaviorModel, initialService);
+		// in sparse mode, only visited services are associated with states;
+		final HashSet<String> visitedServiceNames = this.sparseMarkovStates ? this
+				.findVisitedServiceNames(behaviorMatrix) : null;
+
+		this.installMarkovStates(behaviorModel, services, initialService,
+				visitedServiceNames);
 
 		// all Markov States have been created, and -all- services have been
 		// registered in the service repository; now, add the transitions
 		// between the states, with the use of the repository;
 
-		if (behaviorFile != null) {
+		if (behaviorMatrix != null) {
 
-			this.installMarkovTransitions(behaviorModel, behaviorFile);
+			this.installMarkovTransitions(behaviorModel, behaviorMatrix,
+					visitedServiceNames);
 		}
 
 		return behaviorModel;
@@ -219,18 +383,32 @@ public class BehaviorModelsGenerator {
 	 * 
 	 * @param behaviorModel
 	 *            Behavior Model to be equipped with Markov states.
+	 * @param services
+	 *            services to be associated with the Markov states.
 	 * @param initialService
 	 *            service which is associated with the initial Markov state.
+	 * @param visitedServiceNames
+	 *            names of the services to be associated with Markov states in
+	 *            sparse mode; might be <code>null</code>, if Markov states
+	 *            shall be installed for all services.
 	 * 
 	 * @throws GeneratorException
 	 *             if any error occurs during the generation process.
 	 */
 	private void installMarkovStates(final BehaviorModel behaviorModel,
-			final Service initialService) throws GeneratorException {
+			final List<Service> services, final Service initialService,
+			final HashSet<String> visitedServiceNames)
+			throws GeneratorException {
 
 		boolean installedInitialState = false;
 
-		for (final Service service : this.serviceRepository.getServices()) {
+		for (final Service service : services) {
+
+			if (visitedServiceNames != null && service != initialService
+					&& !visitedServiceNames.contains(service.getName())) {
+
+				continue; // no Markov State required in sparse mode;
+			}
 
 			final MarkovState markovState = this.createMarkovState(service);
 
@@ -254,64 +432,170 @@ public class BehaviorModelsGenerator {
 		}
 	}
 
+	/**
+	 * Determines the names of all services which have incoming or outgoing
+	 * transitions in the given behavior information.
+	 * 
+	 * @param behaviorMatrix
+	 *            behavior information to be searched through; might be
+	 *            <code>null</code>, if no information is available.
+	 * 
+	 * @return a set of service names, which is empty if no behavior
+	 *         information is available.
+	 */
+	private HashSet<String> findVisitedServiceNames(
+			final BehaviorMatrix behaviorMatrix) {
+
+		final HashSet<String> serviceNames = new HashSet<String>();
+
+		if (behaviorMatrix == null) {
+
+			return serviceNames;
+		}
+
+		final SparseBehaviorMatrix sparseMatrix = behaviorMatrix
+				.getSparseMatrix();
+
+		final int m = behaviorMatrix.getRowCount();
+		final int n = behaviorMatrix.getColumnCount();
+
+		// dense behavior information must be scanned completely;
+		final boolean[] incoming = new boolean[n];
+		final boolean[] outgoing = new boolean[m];
+
+		for (int i = 0; sparseMatrix == null && i < m; i++) {
+
+			for (int j = 0; j < n; j++) {
+
+				if (behaviorMatrix.getProbability(i, j) > 0) {
+
+					incoming[j] = true;
+					outgoing[i] = true;
+				}
+			}
+		}
+
+		for (int j = 0; j < n; j++) {
+
+			if ((sparseMatrix != null) ? sparseMatrix.hasIncomingTransitions(j)
+					: incoming[j]) {
+
+				serviceNames.add(behaviorMatrix.getColumnName(j));
+			}
+		}
+
+		for (int i = 0; i < m; i++) {
+
+			if ((sparseMatrix != null) ? sparseMatrix.hasOutgoingTransitions(i)
+					: outgoing[i]) {
+
+				serviceNames.add(behaviorMatrix.getRowStateName(i));
+			}
+		}
+
+		return serviceNames;
+	}
+
 	/**
 	 * Installs the transitions between the Markov states.
 	 * 
 	 * @param behaviorModel
 	 *            Behavior Model to be equipped with transitions.
-	 * @param behaviorFile
-	 *            File with user behavior information to be included optionally;
-	 *            might be <code>null</code>, if no information shall be
-	 *            included.
+	 * @param behaviorMatrix
+	 *            behavior information which indicates the transitions to be
+	 *            installed.
+	 * @param visitedServiceNames
+	 *            names of the services which have been associated with Markov
+	 *            states in sparse mode; might be <code>null</code>, if Markov
+	 *            states have been installed for all services.
 	 */
 	private void installMarkovTransitions(final BehaviorModel behaviorModel,
-			final File behaviorFile) {
+			final BehaviorMatrix behaviorMatrix,
+			final HashSet<String> visitedServiceNames) {
 
-		// behaviorInformation is initialized with null, in case reading fails;
-		final String[][] behaviorInformation = this
-				.readBehaviorInformation(behaviorFile.getAbsolutePath());
+		final List<MarkovState> markovStates = behaviorModel.getMarkovStates();
 
-		if (behaviorInformation != null) {
+		final BehaviorModelState[] targetStates = this.findTargetStates(
+				behaviorMatrix, markovStates, behaviorModel.getExitState(),
+				visitedServiceNames);
 
-			final List<MarkovState> markovStates = behaviorModel
-					.getMarkovStates();
-
-			for (final MarkovState markovState : markovStates) {
-
-				this.setMarkovStateTransitions(markovState, markovStates,
-						behaviorModel.getExitState(), behaviorInformation);
-			}
+		for (final MarkovState markovState : markovStates) {
 
-		} else {
-			this.info(
-					BehaviorModelsGenerator.WARNING_BEHAVIOR_FILE_LOADING_FAILED,
-					behaviorFile, behaviorModel.getName());
+			this.setMarkovStateTransitions(markovState, targetStates,
+					behaviorMatrix);
 		}
 	}
 
 	/**
-	 * Reads the behavior information from a given CSV file.
+	 * Determines the target states which are associated with the columns of
+	 * the given behavior information; a warning will be given for each unknown
+	 * target state.
 	 * 
-	 * @param filename
-	 *            CSV file which provides the behavior information as matrix.
+	 * @param behaviorMatrix
+	 *            behavior information whose columns shall be resolved.
+	 * @param markovStates
+	 *            all Markov States of the related Behavior Model, including
+	 *            possible target states.
+	 * @param behaviorModelExitState
+	 *            exit state of the related Behavior Model, possibly being a
+	 *            target state.
+	 * @param visitedServiceNames
+	 *            names of the services which have been associated with Markov
+	 *            states in sparse mode; might be <code>null</code>, if Markov
+	 *            states have been installed for all services.
 	 * 
-	 * @return the matrix which has been read from the given CSV file, or
-	 *         <code>null</code> if the file could not be read.
+	 * @return an array which contains the target state of each column; entries
+	 *         for unknown target states are <code>null</code>.
 	 */
-	private String[][] readBehaviorInformation(final String filename) {
+	private BehaviorModelState[] findTargetStates(
+			final BehaviorMatrix behaviorMatrix,
+			final List<MarkovState> markovStates,
+			final BehaviorModelExitState behaviorModelExitState,
+			final HashSet<String> visitedServiceNames) {
 
-		String[][] information; // to be returned;
+		final HashMap<String, MarkovState> markovStatesByServiceName = new HashMap<String, MarkovState>(
+				2 * markovStates.size());
 
-		try {
+		for (final MarkovState markovState : markovStates) {
 
-			information = this.csvHandler.readValues(filename);
+			final String serviceName = markovState.getService().getName();
 
-		} catch (final Exception ex) {
+			if (!markovStatesByServiceName.containsKey(serviceName)) {
 
-			information = null; // null indicates an error;
+				markovStatesByServiceName.put(serviceName, markovState);
+			}
 		}
 
-		return information;
+		final int n = behaviorMatrix.getColumnCount();
+		final BehaviorModelState[] targetStates = new BehaviorModelState[n];
+
+		for (int j = 0; j < n; j++) {
+
+			final String targetServiceName = behaviorMatrix.getColumnName(j);
+
+			if ("$".equals(targetServiceName)) {
+
+				targetStates[j] = behaviorModelExitState;
+
+			} else {
+
+				targetStates[j] = markovStatesByServiceName
+						.get(targetServiceName);
+
+				// in sparse mode, states of unvisited services are omitted
+				// intentionally;
+				if (targetStates[j] == null
+						&& (visitedServiceNames == null || visitedServiceNames
+								.contains(targetServiceName))) {
+
+					this.warn(
+							BehaviorModelsGenerator.WARNING_UNKNOWN_TARGETSTATE,
+							targetServiceName);
+				}
+			}
+		}
+
+		return targetStates;
 	}
 
 	/**
@@ -350,207 +634,83 @@ public class BehaviorModelsGenerator {
 	 * 
 	 * @param markovState
 	 *            Markov State whose outgoing transitions shall be installed.
-	 * @param markovStates
-	 *            all Markov States of the related Behavior Model, including
-	 *            possible target states.
-	 * @param behaviorModelExitState
-	 *            exit state of the related Behavior Model, possibly being a
-	 *            target state.
-	 * @param behaviorInformation
+	 * @param targetStates
+	 *            target states which are associated with the columns of the
+	 *            behavior information; <code>null</code> entries indicate
+	 *            unknown target states, which will be ignored.
+	 * @param behaviorMatrix
 	 *            behavior information which indicates the transitions to be
 	 *            installed.
 	 */
 	private void setMarkovStateTransitions(final MarkovState markovState,
-			final List<MarkovState> markovStates,
-			final BehaviorModelExitState behaviorModelExitState,
-			final String[][] behaviorInformation) {
+			final BehaviorModelState[] targetStates,
+			final BehaviorMatrix behaviorMatrix) {
 
 		final String sourceServiceName = markovState.getService().getName();
 
-		final String[] row = this.findRowByStateName(sourceServiceName,
-				behaviorInformation);
-
-		if (row != null) { // behavior information available?
-
-			final String[] headerRow = behaviorInformation[0];
-
-			// ignore first (header) column --> start with index 1;
-			for (int j = 1, n = headerRow.length; j < n; j++) {
-
-				final String targetServiceName = headerRow[j];
-
-				final BehaviorModelState targetState;
-				final double probability;
-				final ThinkTime thinkTime;
-
-				if ("$".equals(targetServiceName)) {
-
-					targetState = behaviorModelExitState;
-
-				} else {
+		final int row = behaviorMatrix.getRowIndex(sourceServiceName);
 
-					targetState = this.findMarkovStateByServiceName(
-							targetServiceName, markovStates);
+		final SparseBehaviorMatrix sparseMatrix = behaviorMatrix
+				.getSparseMatrix();
 
-					if (targetState == null) {
-
-						this.warn(
-								BehaviorModelsGenerator.WARNING_UNKNOWN_TARGETSTATE,
-								targetServiceName);
-
-						continue;
-					}
-				}
-
-				final String entry = row[j];
-
-				probability = this.extractProbability(entry);
-
-				// do not add any transition, if probability equals 0;
-				if (probability > 0) {
-
-					thinkTime = this.extractThinkTime(entry);
-
-					final Transition transition = this.createTransition(
-							targetState, probability, thinkTime);
-
-					markovState.getOutgoingTransitions().add(transition);
-				}
-			}
-
-		} else {
+		if (row < 0) { // no behavior information available?
 
 			this.info(
 					BehaviorModelsGenerator.INFO_NO_BEHAVIOR_INFORMATION_FOR_STATE,
 					sourceServiceName);
-		}
 
-	}
+		} else if (sparseMatrix != null) {
 
-	/**
-	 * Searches for a Markov State which is associated with a specific service,
-	 * specified by its name.
-	 * 
-	 * @param serviceName
-	 *            name of the service which is associated with the Markov State.
-	 * @param markovStates
-	 *            Markov States to be searched through.
-	 * 
-	 * @return a matching Markov State, or <code>null</code> if no matching
-	 *         state exists.
-	 */
-	private MarkovState findMarkovStateByServiceName(final String serviceName,
-			final List<MarkovState> markovStates) {
-
-		for (final MarkovState markovState : markovStates) {
+			// only transitions with a probability greater than 0 are stored;
+			for (int k = sparseMatrix.getRowStart(row), n = sparseMatrix
+					.getRowEnd(row); k < n; k++) {
 
-			final String stateName = markovState.getService().getName();
+				final BehaviorModelState targetState = targetStates[sparseMatrix
+						.getColumnIndex(k)];
 
-			if (serviceName.equals(stateName)) {
-
-				return markovState;
-			}
-		}
-
-		return null; // no matching state for service name;
-	}
+				if (targetState == null) {
 
-	/**
-	 * Extracts the probability from a given behavior matrix entry; in case any
-	 * extraction error occurs, a warning will be given, and a default value
-	 * will be returned.
-	 * 
-	 * @param str
-	 *            behavior matrix entry which consists of probability and think
-	 *            time definitions, both separated by semicolon.
-	 * 
-	 * @return the (extracted) probability value, which might be 0.0 by default,
-	 *         if extraction fails.
-	 */
-	private double extractProbability(final String str) {
-
-		final String valueStr = str.substring(0, str.indexOf(';'));
-
-		double probability;
-
-		try {
-
-			// might throw a NullPointer- or NumberFormatException;
-			// (NullPointerException should be never thrown here);
-			probability = Double.parseDouble(valueStr);
+					continue; // unknown target state;
+				}
 
-			if (probability < 0) {
+				final ThinkTime thinkTime = this.createThinkTime(
+						sparseMatrix.getThinkTimeMean(k),
+						sparseMatrix.getThinkTimeDeviation(k));
 
-				this.warn(BehaviorModelsGenerator.WARNING_NEGATIVE_PROBABILITY,
-						probability);
+				final Transition transition = this.createTransition(
+						targetState, sparseMatrix.getProbability(k), thinkTime);
 
-				probability = 0.0d;
+				markovState.getOutgoingTransitions().add(transition);
 			}
 
-		} catch (final NumberFormatException ex) {
+		} else {
 
-			this.warn(
-					BehaviorModelsGenerator.WARNING_PROBABILITY_PARSING_FAILED,
-					valueStr);
+			for (int j = 0, n = targetStates.length; j < n; j++) {
 
-			probability = 0.0d;
-		}
+				final BehaviorModelState targetState = targetStates[j];
 
-		return probability;
-	}
-
-	/**
-	 * Extracts the think time from a given behavior matrix entry.
-	 * 
-	 * @param str
-	 *            behavior matrix entry which consists of probability and think
-	 *            time definitions, both separated by semicolon.
-	 * 
-	 * @return the extracted think time, or <code>null</code> if extraction
-	 *         fails.
-	 */
-	private ThinkTime extractThinkTime(final String str) {
+				if (targetState == null) {
 
-		final String thinkTimeStr = str.substring(str.indexOf(';') + 1,
-				str.length()).trim();
+					continue; // unknown target state;
+				}
 
-		// parse() returns null, if parsing fails;
-		return this.thinkTimeParser.parse(thinkTimeStr);
-	}
+				final double probability = behaviorMatrix.getProbability(row,
+						j);
 
-	/**
-	 * Searches for a behavior matrix row which is associated with a specific
-	 * state name
-	 * 
-	 * @param stateName
-	 *            state name whose associated row shall be found.
-	 * @param behaviorInformation
-	 *            matrix to be searched through.
-	 * 
-	 * @return a matching row, or <code>null</code> if no matching row exists.
-	 */
-	private String[] findRowByStateName(final String stateName,
-			final String[][] behaviorInformation) {
+				// do not add any transition, if probability equals 0;
+				if (probability > 0) {
 
-		for (final String[] row : behaviorInformation) {
+					final ThinkTime thinkTime = this.createThinkTime(
+							behaviorMatrix.getThinkTimeMean(row, j),
+							behaviorMatrix.getThinkTimeDeviation(row, j));
 
-			if (stateName.equals(this.removeAsteriskSuffix(row[0]))) {
+					final Transition transition = this.createTransition(
+							targetState, probability, thinkTime);
 
-				return row;
+					markovState.getOutgoingTransitions().add(transition);
+				}
 			}
 		}
-
-		return null; // no matching row for state name;
-	}
-
-	private String removeAsteriskSuffix(final String stateName) {
-
-		if (stateName.endsWith("*")) {
-
-			return stateName.substring(0, stateName.length() - 1);
-		}
-
-		return stateName;
 	}
 
 	/**
@@ -606,9 +766,6 @@ public class BehaviorModelsGenerator {
 
 		final MarkovState markovState = this.m4jdslFactory.createMarkovState();
 
-		// use the service name as a part of the ID for better readability;
-		markovState.setEId(this.idGenerator.newId() + "_" + service.getName());
-
 		markovState.setService(service);
 
 		return markovState;
@@ -641,12 +798,26 @@ public class BehaviorModelsGenerator {
 	 */
 	private BehaviorModelExitState createBehaviorModelExitState() {
 
-		final BehaviorModelExitState behaviorModelExitState = this.m4jdslFactory
-				.createBehaviorModelExitState();
+		return this.m4jdslFactory.createBehaviorModelExitState();
+	}
 
-		behaviorModelExitState.setEId(this.idGenerator.newId());
+	/**
+	 * Assigns unique IDs to the exit state and the Markov States of a Behavior
+	 * Model, in this order.
+	 * 
+	 * @param behaviorModel
+	 *            Behavior Model whose states shall be equipped with IDs.
+	 */
+	private void assignIds(final BehaviorModel behaviorModel) {
+
+		behaviorModel.getExitState().setEId(this.idGenerator.newId());
+
+		for (final MarkovState markovState : behaviorModel.getMarkovStates()) {
 
-		return behaviorModelExitState;
+			// use the service name as a part of the ID for better readability;
+			markovState.setEId(this.idGenerator.newId() + "_"
+					+ markovState.getService().getName());
+		}
 	}
 
 	/**
@@ -674,206 +845,93 @@ public class BehaviorModelsGenerator {
 		return transition;
 	}
 
-	/* ************************* internal classes ************************* */
-
 	/**
-	 * Class for parsing a token of a CSV-file which denotes a user think time.
-	 * A token has to be formatted as <blockquote>
-	 * <i>&#060;functionDescriptor&#062;</i>(<i>&#060;parameter1&#062;
-	 * &#060;parameter2&#062; ... </i> ) </blockquote> whereas
-	 * <i>&#060;functionDescriptor&#062;</i> indicates the used distribution
-	 * function. The number of parameters depends on that distribution.
-	 * 
-	 * @author Eike Schulz (esc@informatik.uni-kiel.de)
-	 * 
-	 * @version 1.0
+	 * Creates a {@link NormallyDistributedThinkTime} instance, which will be
+	 * initialized with the given mean and deviation values.
+	 * 
+	 * @param mean
+	 *            mean value of the think time, or {@link Double#NaN} if no
+	 *            valid think time is available.
+	 * @param deviation
+	 *            deviation value of the think time, or {@link Double#NaN} if
+	 *            no valid think time is available.
+	 * 
+	 * @return a valid instance of {@link NormallyDistributedThinkTime}, or
+	 *         <code>null</code> if no valid think time is available.
 	 */
-	private class ThinkTimeParser {
-
-		/** Regular expression specifying the separator for parameters. */
-		private final static String PARAMETER_SEPARATOR = "\\s+";
-
-		/** Function descriptor for a normally distributed think time. */
-		private final static String FDESCR__NORMALLY_DISTRIBUTED_TT = "n";
+	private ThinkTime createThinkTime(final double mean,
+			final double deviation) {
 
-		/** Instance for creating M4J-DSL model elements. */
-		private final M4jdslFactory m4jdslFactory;
+		if (Double.isNaN(mean) || Double.isNaN(deviation)) {
 
-		/**
-		 * Constructor for a think time parser.
-		 * 
-		 * @param m4jdslFactory
-		 *            instance for creating M4J-DSL model elements.
-		 */
-		public ThinkTimeParser(final M4jdslFactory m4jdslFactory) {
-
-			this.m4jdslFactory = m4jdslFactory;
+			return null; // null ~ invalid think time;
 		}
 
-		/**
-		 * Parses a given <code>String</code> which specifies a think time
-		 * according to a certain distribution.
-		 * 
-		 * @param str
-		 *            <code>String</code> which provides a distribution function
-		 *            descriptor and the required parameters as well. The
-		 *            leading function descriptor indicates the distribution
-		 *            type and therewith the type of {@link ThinkTime} to be
-		 *            returned. The passed <code>String</code> might be wrapped
-		 *            into whitespace, which will be removed before parsing
-		 *            starts.
-		 * 
-		 * @return a valid instance of a {@link ThinkTime} sub-class, or
-		 *         <code>null</code> if parsing fails for any reason.
-		 */
-		public ThinkTime parse(String str) {
+		final NormallyDistributedThinkTime normallyDistributedThinkTime = this.m4jdslFactory
+				.createNormallyDistributedThinkTime();
 
-			if (str != null) {
+		normallyDistributedThinkTime.setMean(mean);
+		normallyDistributedThinkTime.setDeviation(deviation);
 
-				str = str.trim();
-
-				// ensure that at least one leading character exists prior the
-				// first opening bracket; closing bracket must be at last
-				// position;
-				if (str.indexOf('(') > 0
-						&& str.lastIndexOf(')') == str.length() - 1) {
-
-					final String functionDescriptor = this
-							.extractFunctionDescriptor(str);
-
-					final String[] parameters = this.extractParameters(str);
-
-					return this.createThinkTime(functionDescriptor, parameters);
-				}
-			}
-
-			return null; // invalid function String;
-		}
-
-		/**
-		 * Extracts the function descriptor which indicates the distribution
-		 * type.
-		 * 
-		 * @param str
-		 *            <code>String</code> which specifies the distribution type
-		 *            as well as required parameters; it must contain at least
-		 *            an opening bracket.
-		 * 
-		 * @return a valid <code>String</code> instance, or <code>null</code> if
-		 *         no function descriptor can be found.
-		 */
-		private String extractFunctionDescriptor(final String str) {
-
-			return str.split("\\(")[0].trim();
-		}
+		return normallyDistributedThinkTime;
+	}
 
-		/**
-		 * Extracts the parameters which are required by the regarding
-		 * distribution type. The parameters will be returned as (unparsed)
-		 * <code>String</code>s.
-		 * 
-		 * @param function
-		 *            <code>String</code> which specifies the distribution type
-		 *            as well as required parameters.
-		 * 
-		 * @return a valid array of <code>String</code> instances; each entry
-		 *         denotes an unparsed parameter.
-		 */
-		private String[] extractParameters(final String function) {
+	/* ************************* internal classes ************************* */
 
-			final String str = function.substring(function.indexOf('(') + 1,
-					function.length() - 1).trim();
+	/**
+	 * Task for generating a single Behavior Model by a worker thread.
+	 * 
+	 * @version 1.0
+	 */
+	private class BehaviorModelTask implements Callable<BehaviorModel> {
 
-			return str.split(ThinkTimeParser.PARAMETER_SEPARATOR);
-		}
+		/** Name of the Behavior Model. */
+		private final String name;
 
-		/**
-		 * Creates an instance of a {@link ThinkTime} sub-class, depending on
-		 * the given function descriptor.
-		 * 
-		 * @param functionDescriptor
-		 *            a <code>String</code> which indicates the think time
-		 *            distribution type.
-		 * @param parameters
-		 *            the (unparsed) function parameters required by the think
-		 *            time distribution type.
-		 * 
-		 * @return a valid instance of a {@link ThinkTime} sub-class; if the
-		 *         given function descriptor is unknown or parameters are
-		 *         invalid, <code>null</code> will be returned.
-		 */
-		private ThinkTime createThinkTime(final String functionDescriptor,
-				final String[] parameters) {
+		/** Filename of the Behavior Model. */
+		private final String filename;
 
-			if (ThinkTimeParser.FDESCR__NORMALLY_DISTRIBUTED_TT
-					.equalsIgnoreCase(functionDescriptor)) {
+		/** Behavior information to be included; might be <code>null</code>. */
+		private final BehaviorMatrix behaviorMatrix;
 
-				return this.createNormalDistributionThinkTime(parameters);
-			}
+		/** Services to be associated with the Markov States. */
+		private final List<Service> services;
 
-			// more cases might be added for further distribution types;
-
-			return null; // null ~ unknown function descriptor;
-		}
+		/** Initial service of the Behavior Model. */
+		private final Service initialService;
 
 		/**
-		 * Creates a {@link NormallyDistributedThinkTime} instance, which will
-		 * be initialized with the parsed values of the given parameters.
-		 * 
-		 * @param parameters
-		 *            the function parameters required by the think time
-		 *            distribution type.
+		 * Constructor for a Behavior Model Task.
 		 * 
-		 * @return a valid instance of {@link NormallyDistributedThinkTime}, or
-		 *         <code>null</code> if any parameter parsing fails.
+		 * @param name
+		 *            name of the Behavior Model.
+		 * @param filename
+		 *            filename of the Behavior Model.
+		 * @param behaviorMatrix
+		 *            behavior information to be included into the Behavior
+		 *            Model; might be <code>null</code>.
+		 * @param services
+		 *            services to be associated with the Markov States.
+		 * @param initialService
+		 *            initial service of the Behavior Model.
 		 */
-		private NormallyDistributedThinkTime createNormalDistributionThinkTime(
-				final String[] parameters) {
-
-			NormallyDistributedThinkTime thinkTime = null;
-
-			if (parameters.length == 2) {
-
-				try {
-
-					// parseDouble() might throw a NumberFormatException;
-					final double mean = Double.parseDouble(parameters[0]);
-					final double deviation = Double.parseDouble(parameters[1]);
-
-					thinkTime = this.createNormallyDistributedThinkTime(mean,
-							deviation);
-
-				} catch (final NumberFormatException ex) {
-
-					// keep thinkTime being null for indicating an error;
-				}
-			}
-
-			return thinkTime;
+		public BehaviorModelTask(final String name, final String filename,
+				final BehaviorMatrix behaviorMatrix,
+				final List<Service> services, final Service initialService) {
+
+			this.name = name;
+			this.filename = filename;
+			this.behaviorMatrix = behaviorMatrix;
+			this.services = services;
+			this.initialService = initialService;
 		}
 
-		/**
-		 * Creates a {@link NormallyDistributedThinkTime} instance, which will
-		 * be initialized with the given mean and deviation values.
-		 * 
-		 * @param mean
-		 *            mean value of the think time.
-		 * @param deviation
-		 *            deviation value of the think time.
-		 * 
-		 * @return a valid instance of {@link NormallyDistributedThinkTime}.
-		 */
-		private NormallyDistributedThinkTime createNormallyDistributedThinkTime(
-				final double mean, final double deviation) {
-
-			final NormallyDistributedThinkTime normallyDistributedThinkTime = this.m4jdslFactory
-					.createNormallyDistributedThinkTime();
+		@Override
+		public BehaviorModel call() throws GeneratorException {
 
-			normallyDistributedThinkTime.setMean(mean);
-			normallyDistributedThinkTime.setDeviation(deviation);
-
-			return normallyDistributedThinkTime;
+			return BehaviorModelsGenerator.this.generateBehaviorModel(
+					this.name, this.filename, this.behaviorMatrix,
+					this.services, this.initialService);
 		}
-
 	} // internal class;
 }
@@ -94,7 +94,8 @@ public abstract class AbstractProtocolLayerEFSMGenerator {
     /** Instance for creating unique request IDs. */
     protected final IdGenerator requestIdGenerator;
     
-    /** Sessions with protocol information. */
+    /** Sessions with protocol information; might be <code>null</code>, if
+     *  the sessions have been aggregated while being read. */
     protected final ArrayList<SessionData> sessions;
 
 
@@ -17,7 +17,6 @@
 
 package net.sf.markov4jmeter.m4jdslmodelgenerator.components.efsm;
 
-import java.io.File;
 import java.io.IOException;
 
 import org.eclipse.emf.common.util.EList;
@@ -35,6 +34,7 @@ import m4jdsl.SessionLayerEFSM;
 import m4jdsl.SessionLayerEFSMState;
 import net.sf.markov4jmeter.m4jdslmodelgenerator.GeneratorException;
 import net.sf.markov4jmeter.m4jdslmodelgenerator.ServiceRepository;
+import net.sf.markov4jmeter.m4jdslmodelgenerator.util.BehaviorMatrix;
 import net.sf.markov4jmeter.m4jdslmodelgenerator.util.DotGraphGenerator;
 import net.sf.markov4jmeter.m4jdslmodelgenerator.util.IdGenerator;
 
@@ -81,9 +81,10 @@ public abstract class AbstractSessionLayerEFSMGenerator {
      *  graph shall be generated. */
     private final String graphFilePath;
     
-    /** Instance for storing the <code>Service</code> instances which are
-     *  included in the Session Layer EFSM. */
-    protected final File[] fileNames;
+    /** Behavior information of the Behavior Models, which indicates the
+     *  allowed transitions; entries might be <code>null</code>, if no
+     *  information is available. */
+    protected final BehaviorMatrix[] behaviorMatrices;
 
 
     /* ***************************  constructors  *************************** */
@@ -104,6 +105,11 @@ public abstract class AbstractSessionLayerEFSMGenerator {
      * @param graphFilePath
      *     Path of the DOT graph output file; might be <code>null</code>, if no
      *     graph shall be generated.
+     * @param dotGraphGenerator
+     *     instance for generating DOT graph output.
+     * @param behaviorMatrices
+     *     behavior information of the Behavior Models, which indicates the
+     *     allowed transitions.
      */
     public AbstractSessionLayerEFSMGenerator (
             final M4jdslFactory m4jdslFactory,
@@ -112,7 +118,7 @@ public abstract class AbstractSessionLayerEFSMGenerator {
             final IdGenerator idGenerator,
             final String graphFilePath,
             final DotGraphGenerator dotGraphGenerator,
-            final File[] fileNames) {
+            final BehaviorMatrix[] behaviorMatrices) {
 
         this.m4jdslFactory              = m4jdslFactory;
         this.serviceRepository          = serviceRepository;
@@ -120,7 +126,7 @@ public abstract class AbstractSessionLayerEFSMGenerator {
         this.idGenerator                = idGenerator;
         this.graphFilePath              = graphFilePath;
         this.dotGraphGenerator          = dotGraphGenerator;
-        this.fileNames          = fileNames;
+        this.behaviorMatrices           = behaviorMatrices;
     }
 
 
@@ -16,10 +16,16 @@
 
 package net.sf.markov4jmeter.m4jdslmodelgenerator.components.efsm;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
-import java.util.Stack;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import m4jdsl.Action;
 import m4jdsl.ApplicationState;
@@ -30,18 +36,14 @@ import m4jdsl.GuardActionParameterType;
 import m4jdsl.M4jdslFactory;
 import m4jdsl.SessionLayerEFSM;
 import m4jdsl.WorkloadModel;
-import synoptic.invariants.AlwaysPrecedesInvariant;
-import synoptic.invariants.BinaryInvariant;
-import synoptic.invariants.CntAlwaysEqualsGreaterInvariant;
 import synoptic.invariants.ITemporalInvariant;
-import synoptic.invariants.NeverFollowedInvariant;
 import synoptic.invariants.TemporalInvariantSet;
 import synoptic.main.AbstractMain;
 import synoptic.main.SynopticMain;
 
 /**
- * Identified invariants using synoptic and the translates these invariants to
- * guards and actions.
+ * Identified invariants using the built-in {@link InvariantMiner} or synoptic
+ * and the translates these invariants to guards and actions.
  * 
  * @author Christian Voegele (voegele@fortiss.org)
  * @version 1.0
@@ -71,20 +73,61 @@ public class GuardsAndActionsGenerator {
 	/** Property key for workload intensity type. */
 	private final static String PKEY_SYNOPTIC_LOGFILE = "synoptic.logfile";
 
+	/** Property key for the invariant miner to be used. */
+	private final static String PKEY_SYNOPTIC_MINER = "synoptic.miner";
+
+	/** Property value for mining invariants by the built-in miner. */
+	private final static String MINER_BUILTIN = "builtin";
+
+	/** Separator expression which is used if no separator is specified. */
+	private final static String DEFAULT_SEPARATOR = "^---$";
+
+	/** Information message for mined invariants. */
+	private final static String INFO_INVARIANTS_MINED = "mined %d invariants from %d traces with %d event types";
+
+	/** Error message for failed built-in mining. */
+	private final static String ERROR_BUILTIN_MINING_FAILED = "built-in invariant mining failed (%s), falling back to Synoptic";
+
+	/** Warning message for invariants which refer to mapped services. */
+	private final static String WARNING_MAPPED_SERVICES_DROPPED = "Synoptic cannot mine invariants of templated or folded services; dropped %d invariants which refer to %d mapped services";
+
+	/** Warning message for invariants which refer to unknown services. */
+	private final static String WARNING_UNKNOWN_SERVICES_SKIPPED = "%d invariants refer to services which are not part of the Session Layer EFSM; no guards and actions are installed for them";
+
 	/* ************************* global variables ************************* */
 
 	/** Instance for creating M4J-DSL model elements. */
 	private final M4jdslFactory m4jdslFactory;
 
+	/** Number of worker threads for mining invariants. */
+	private int workerCount = 1;
+
+	/**
+	 * Mined invariants.
+	 */
+	private List<MinedInvariant> invariants;
+
+	/**
+	 * Application States of the Session Layer EFSM, keyed by service names.
+	 */
+	private HashMap<String, ApplicationState> applicationStatesByName;
+
 	/**
-	 * Is needed for neverFollowByInvariant.
+	 * Transitions which lead to Application States, keyed by the service
+	 * names of their target states.
 	 */
-	private boolean foundPaths = false;
+	private HashMap<String, List<ApplicationTransition>> incomingTransitions;
 
 	/**
-	 * Invariants from Synoptic.
+	 * GuardActionParameters of the Session Layer EFSM, keyed by their names.
 	 */
-	private TemporalInvariantSet invariants;
+	private HashMap<String, GuardActionParameter> guardActionParametersByName;
+
+	/**
+	 * GuardActionParameters of the actions of each transition; an entry is
+	 * created on the first action which is added to a transition.
+	 */
+	private HashMap<ApplicationTransition, HashSet<GuardActionParameter>> actionParameters;
 
 	/* *************************** constructors *************************** */
 
@@ -101,6 +144,19 @@ public class GuardsAndActionsGenerator {
 
 	/* ************************** public methods ************************** */
 
+	/**
+	 * Sets the number of worker threads for mining invariants by the built-in
+	 * miner; the mined invariants do not depend on this number.
+	 * 
+	 * @param workerCount
+	 *            number of worker threads; a value less than or equal to 1
+	 *            indicates sequential mining (default).
+	 */
+	public void setWorkerCount(final int workerCount) {
+
+		this.workerCount = workerCount;
+	}
+
 	/**
 	 * Add guards and actions to workloadModel.
 	 * 
@@ -112,73 +168,216 @@ public class GuardsAndActionsGenerator {
 
 		if (synopticProperties != null) {
 
-			this.getTemporalInvariants(synopticProperties);
-
-			if (this.invariants != null) {
-
-				this.filterInvariants();
-				SessionLayerEFSM sessionLayerEFSM = workloadModel
-						.getApplicationModel().getSessionLayerEFSM();
-				// for each found invariant
-				for (ITemporalInvariant invariant : this.invariants.getSet()) {
-
-					if (invariant instanceof BinaryInvariant) {
-						BinaryInvariant binaryInvariant = (BinaryInvariant) invariant;
-						ApplicationState first = getApplicationState(
-								binaryInvariant.getFirst().toString(),
-								sessionLayerEFSM);
-						ApplicationState second = getApplicationState(
-								binaryInvariant.getSecond().toString(),
-								sessionLayerEFSM);
-
-						if (first == null) {
-							continue;
-						}
-
-						List<ApplicationTransition> actionApplicationTransitions = getActionApplicationTransition(
-								binaryInvariant.getFirst().toString(),
-								sessionLayerEFSM);
-						List<ApplicationTransition> guardApplicationTransitions = getGuardApplicationTransition(
-								binaryInvariant.getSecond().toString(),
-								sessionLayerEFSM);
-
-						// not all guards are needed. First check.
-						if (checkIfGuardsAreNeeded(guardApplicationTransitions,
+			this.installGuardsAndActions(workloadModel,
+					this.mineTemporalInvariants(synopticProperties));
+		}
+	}
+
+	/**
+	 * Mines the temporal invariants from the log file which is specified in
+	 * the given Synoptic properties. This method does not modify the state of
+	 * this generator, so it might be called by an ingestion thread.
+	 * 
+	 * <p>
+	 * Invariants are mined by the Synoptic tool, unless the property
+	 * <code>synoptic.miner</code> is set to <code>builtin</code>; in that
+	 * case, the built-in {@link InvariantMiner} is used, with the Synoptic
+	 * tool as fallback if built-in mining fails. Both miners are expected to
+	 * give equal invariants, which is checked by the
+	 * <code>GuardsAndActionsGeneratorTest</code>.
+	 * 
+	 * @param synopticProperties
+	 *            Synoptic properties, including the log file.
+	 * 
+	 * @return the mined invariants, or <code>null</code> if mining fails.
+	 */
+	public List<MinedInvariant> mineTemporalInvariants(
+			final Properties synopticProperties) {
+
+		return this.mineTemporalInvariants(synopticProperties, null);
+	}
+
+	/**
+	 * Mines the temporal invariants from the log file which is specified in
+	 * the given Synoptic properties, for services which have been mapped to
+	 * other services, e.g., by templating or truncation.
+	 * 
+	 * <p>
+	 * The built-in miner maps the services of the log file before counting
+	 * them, so that the invariants of merged services are mined from the
+	 * merged traces. Since the Synoptic tool does not support such a mapping,
+	 * its invariants which refer to mapped services are dropped.
+	 * 
+	 * @param synopticProperties
+	 *            Synoptic properties, including the log file.
+	 * @param serviceMapping
+	 *            target service names, keyed by the names of the services to
+	 *            be mapped; might be <code>null</code>, if no services shall
+	 *            be mapped.
+	 * 
+	 * @return the mined invariants, or <code>null</code> if mining fails.
+	 */
+	public List<MinedInvariant> mineTemporalInvariants(
+			final Properties synopticProperties,
+			final Map<String, String> serviceMapping) {
+
+		if (GuardsAndActionsGenerator.MINER_BUILTIN
+				.equalsIgnoreCase(synopticProperties.getProperty(
+						GuardsAndActionsGenerator.PKEY_SYNOPTIC_MINER, "").trim())) {
+
+			try {
+				return this.getBuiltInInvariants(synopticProperties,
+						serviceMapping);
+			} catch (final IOException | PatternSyntaxException ex) {
+				System.out.println("WARNING: "
+						+ String.format(
+								GuardsAndActionsGenerator.ERROR_BUILTIN_MINING_FAILED,
+								ex.getMessage()));
+			}
+		}
+		final List<MinedInvariant> temporalInvariants = this
+				.getTemporalInvariants(synopticProperties);
+
+		return (temporalInvariants != null && serviceMapping != null && !serviceMapping
+				.isEmpty()) ? this.dropMappedInvariants(temporalInvariants,
+				serviceMapping) : temporalInvariants;
+	}
+
+	/**
+	 * Add guards and actions to workloadModel, based on previously mined
+	 * temporal invariants.
+	 * 
+	 * @param workloadModel
+	 * @param temporalInvariants
+	 *            invariants which have been mined and filtered via
+	 *            {@link #mineTemporalInvariants(Properties)}; might be
+	 *            <code>null</code>, if mining failed.
+	 */
+	public void installGuardsAndActions(final WorkloadModel workloadModel,
+			final List<MinedInvariant> temporalInvariants) {
+
+		this.invariants = temporalInvariants;
+
+		if (this.invariants != null) {
+
+			SessionLayerEFSM sessionLayerEFSM = workloadModel
+					.getApplicationModel().getSessionLayerEFSM();
+			// reachability is needed for NeverFollowedInvariants only, and
+			// guards and actions do not change the structure of the EFSM;
+			ReachabilityIndex reachabilityIndex = new ReachabilityIndex(
+					sessionLayerEFSM);
+			indexSessionLayerEFSM(sessionLayerEFSM);
+			int skippedInvariantCount = 0;
+			// for each found invariant
+			for (MinedInvariant invariant : this.invariants) {
+
+				ApplicationState first = getApplicationState(invariant
+						.getFirst());
+				ApplicationState second = getApplicationState(invariant
+						.getSecond());
+
+				if (first == null || second == null) {
+					skippedInvariantCount++;
+					continue;
+				}
+
+				List<ApplicationTransition> actionApplicationTransitions = getActionApplicationTransition(invariant
+						.getFirst());
+				List<ApplicationTransition> guardApplicationTransitions = getGuardApplicationTransition(invariant
+						.getSecond());
+
+				// not all guards are needed. First check.
+				if (checkIfGuardsAreNeeded(guardApplicationTransitions, first,
+						second, sessionLayerEFSM, invariant)) {
+					switch (invariant.getType()) {
+					case MinedInvariant.TYPE_ALWAYS_PRECEDES:
+						installGuardsActionsAlwaysPrecedesInvariant(first,
+								sessionLayerEFSM, actionApplicationTransitions,
+								guardApplicationTransitions);
+						break;
+					case MinedInvariant.TYPE_NEVER_FOLLOWED_BY:
+						installGuardsActionsNeverFollowedInvariant(first,
+								second, sessionLayerEFSM, reachabilityIndex,
+								actionApplicationTransitions,
+								guardApplicationTransitions);
+						break;
+					case MinedInvariant.TYPE_CNT_ALWAYS_EQUALS_GREATER:
+						installGuardsActionsCntAlwaysEqualsGreaterInvariant(
 								first, second, sessionLayerEFSM,
-								binaryInvariant)) {
-							if (binaryInvariant instanceof AlwaysPrecedesInvariant) {
-								installGuardsActionsAlwaysPrecedesInvariant(
-										first, sessionLayerEFSM,
-										actionApplicationTransitions,
-										guardApplicationTransitions);
-							} else if (binaryInvariant instanceof NeverFollowedInvariant) {
-								installGuardsActionsNeverFollowedInvariant(
-										first, second, sessionLayerEFSM,
-										actionApplicationTransitions,
-										guardApplicationTransitions);
-							} else if (binaryInvariant instanceof CntAlwaysEqualsGreaterInvariant) {
-								CntAlwaysEqualsGreaterInvariant cntAlwaysEqualsGreaterInvariant = (CntAlwaysEqualsGreaterInvariant) binaryInvariant;
-								installGuardsActionsCntAlwaysEqualsGreaterInvariant(
-										first, second, sessionLayerEFSM,
-										actionApplicationTransitions,
-										guardApplicationTransitions,
-										cntAlwaysEqualsGreaterInvariant
-												.getDiffMinimum());
-							}
-						}
+								actionApplicationTransitions,
+								guardApplicationTransitions,
+								invariant.getDiffMinimum());
+						break;
 					}
 				}
 			}
+			if (skippedInvariantCount > 0) {
+				System.out.println("WARNING: "
+						+ String.format(
+								GuardsAndActionsGenerator.WARNING_UNKNOWN_SERVICES_SKIPPED,
+								skippedInvariantCount));
+			}
 		}
 	}
 
 	/* ************************** private methods ************************* */
 
+	/**
+	 * getTemporalInvariants from the built-in miner, in a single pass over the
+	 * log file; shards of the log are mined in parallel, if multiple workers
+	 * are available.
+	 * 
+	 * @param synopticProperties
+	 *            Synoptic properties, including the log file.
+	 * @param serviceMapping
+	 *            target service names, keyed by the names of the services to
+	 *            be mapped before counting; might be <code>null</code>.
+	 * @return the filtered invariants.
+	 * @throws IOException
+	 *             if the log file cannot be read.
+	 * @throws PatternSyntaxException
+	 *             if any of the expressions is invalid.
+	 */
+	private List<MinedInvariant> getBuiltInInvariants(
+			final Properties synopticProperties,
+			final Map<String, String> serviceMapping) throws IOException,
+			PatternSyntaxException {
+		String expression = synopticProperties
+				.getProperty(GuardsAndActionsGenerator.PKEY_SYNOPTIC_EXPRESSION_VALUE);
+		String separator = synopticProperties.getProperty(
+				GuardsAndActionsGenerator.PKEY_SYNOPTIC_SEPARATOR_VALUE,
+				GuardsAndActionsGenerator.DEFAULT_SEPARATOR);
+		String logfile = synopticProperties
+				.getProperty(GuardsAndActionsGenerator.PKEY_SYNOPTIC_LOGFILE);
+		if (logfile == null) {
+			throw new IOException("no log file specified");
+		}
+
+		InvariantMiner invariantMiner = new ParallelInvariantMiner(
+				this.workerCount).read(logfile.trim(),
+				(expression != null) ? Pattern.compile(expression.trim())
+						: null, Pattern.compile(separator.trim()),
+				serviceMapping);
+
+		final List<MinedInvariant> temporalInvariants = invariantMiner
+				.getInvariants();
+		System.out.println("INFO: "
+				+ String.format(
+						GuardsAndActionsGenerator.INFO_INVARIANTS_MINED,
+						temporalInvariants.size(),
+						invariantMiner.getTraceCount(),
+						invariantMiner.getEventTypeCount()));
+		return this.filterInvariants(temporalInvariants);
+	}
+
 	/**
 	 * getTemporalInvariants from synoptic package.
+	 * 
+	 * @return the filtered invariants, or <code>null</code> if mining fails.
 	 */
-	private void getTemporalInvariants(final Properties synopticProperties) {
-		String[] args = new String[synopticProperties.keySet().size()];
+	private List<MinedInvariant> getTemporalInvariants(
+			final Properties synopticProperties) {
+		String[] args = new String[7];
 		args[0] = synopticProperties
 				.getProperty(GuardsAndActionsGenerator.PKEY_SYNOPTIC_EXPRESSION);
 		args[1] = synopticProperties
@@ -197,44 +396,101 @@ public class GuardsAndActionsGenerator {
 		try {
 			AbstractMain.instance = null;
 			SynopticMain.main(args);
-			this.invariants = AbstractMain.getInvariants();
-			this.filterInvariants();
+			final TemporalInvariantSet synopticInvariants = AbstractMain
+					.getInvariants();
+			final List<MinedInvariant> temporalInvariants = new ArrayList<MinedInvariant>();
+			for (ITemporalInvariant invariant : synopticInvariants.getSet()) {
+				MinedInvariant minedInvariant = MinedInvariant
+						.fromSynopticInvariant(invariant);
+				if (minedInvariant != null) {
+					temporalInvariants.add(minedInvariant);
+				}
+			}
+			return this.filterInvariants(temporalInvariants);
 		} catch (Exception e) {
 			System.out
 					.println("Synoptic properties are not correct! Guards and actions cannot be generated!");
+			return null;
 		}
 	}
 
+	/**
+	 * Drops all invariants which refer to mapped services, since renaming
+	 * their services would not yield valid invariants of the merged
+	 * services.
+	 * 
+	 * @param invariants
+	 * @param serviceMapping
+	 *            target service names, keyed by the names of the mapped
+	 *            services.
+	 * @return the remaining invariants, in their original order
+	 */
+	private List<MinedInvariant> dropMappedInvariants(
+			final List<MinedInvariant> invariants,
+			final Map<String, String> serviceMapping) {
+		List<MinedInvariant> remainingInvariants = new ArrayList<MinedInvariant>(
+				invariants.size());
+		HashSet<String> droppedServices = new HashSet<String>();
+		for (MinedInvariant invariant : invariants) {
+			boolean firstMapped = serviceMapping.containsKey(invariant
+					.getFirst());
+			boolean secondMapped = serviceMapping.containsKey(invariant
+					.getSecond());
+			if (firstMapped) {
+				droppedServices.add(invariant.getFirst());
+			}
+			if (secondMapped) {
+				droppedServices.add(invariant.getSecond());
+			}
+			if (!firstMapped && !secondMapped) {
+				remainingInvariants.add(invariant);
+			}
+		}
+		if (remainingInvariants.size() < invariants.size()) {
+			System.out.println("WARNING: "
+					+ String.format(
+							GuardsAndActionsGenerator.WARNING_MAPPED_SERVICES_DROPPED,
+							invariants.size() - remainingInvariants.size(),
+							droppedServices.size()));
+		}
+		return remainingInvariants;
+	}
+
 	/**
 	 * Invariants which are AlwaysPrecedesInvariant and
 	 * CntAlwaysEqualsGreaterInvariant are redundant. Only keep
-	 * CntAlwaysEqualsGreaterInvariant.
+	 * CntAlwaysEqualsGreaterInvariant. The CntAlwaysEqualsGreaterInvariants
+	 * are indexed by their first and second event types, so that each
+	 * AlwaysPrecedesInvariant is checked in constant time.
+	 * 
+	 * @param invariants
+	 * @return the filtered invariants, in their original order
 	 */
-	private void filterInvariants() {
-		List<ITemporalInvariant> removeList = new ArrayList<ITemporalInvariant>();
-		for (ITemporalInvariant invariant : this.invariants.getSet()) {
-			if (invariant instanceof AlwaysPrecedesInvariant) {
-				AlwaysPrecedesInvariant alwaysPrecedesInvariant = (AlwaysPrecedesInvariant) invariant;
-				String first = alwaysPrecedesInvariant.getFirst().toString();
-				String second = alwaysPrecedesInvariant.getSecond().toString();
-				for (ITemporalInvariant invariantCompare : this.invariants
-						.getSet()) {
-					if (invariantCompare instanceof CntAlwaysEqualsGreaterInvariant) {
-						CntAlwaysEqualsGreaterInvariant cntAlwaysEqualsGreaterInvariant = (CntAlwaysEqualsGreaterInvariant) invariantCompare;
-						String firstCompare = cntAlwaysEqualsGreaterInvariant
-								.getFirst().toString();
-						String secondCompare = cntAlwaysEqualsGreaterInvariant
-								.getSecond().toString();
-						if (first.equals(firstCompare)
-								&& second.equals(secondCompare)) {
-							removeList.add(invariant);
-							break;
-						}
-					}
+	private List<MinedInvariant> filterInvariants(
+			final List<MinedInvariant> invariants) {
+		HashMap<String, HashSet<String>> cntSeconds = new HashMap<String, HashSet<String>>();
+		for (MinedInvariant invariant : invariants) {
+			if (invariant.getType() == MinedInvariant.TYPE_CNT_ALWAYS_EQUALS_GREATER) {
+				HashSet<String> seconds = cntSeconds.get(invariant.getFirst());
+				if (seconds == null) {
+					seconds = new HashSet<String>();
+					cntSeconds.put(invariant.getFirst(), seconds);
+				}
+				seconds.add(invariant.getSecond());
+			}
+		}
+		List<MinedInvariant> filteredInvariants = new ArrayList<MinedInvariant>(
+				invariants.size());
+		for (MinedInvariant invariant : invariants) {
+			if (invariant.getType() == MinedInvariant.TYPE_ALWAYS_PRECEDES) {
+				HashSet<String> seconds = cntSeconds.get(invariant.getFirst());
+				if (seconds != null && seconds.contains(invariant.getSecond())) {
+					continue;
 				}
 			}
+			filteredInvariants.add(invariant);
 		}
-		this.invariants.getSet().removeAll(removeList);
+		return filteredInvariants;
 	}
 
 	/**
@@ -254,10 +510,7 @@ public class GuardsAndActionsGenerator {
 				first.getService().getName(), GuardActionParameterType.BOOLEAN,
 				sessionLayerEFSM, first.getService().getName(), null);
 		for (ApplicationTransition applicationTransition : actionApplicationTransitions) {
-			Action action = createAction(guardActionParameter);
-			if (!actionAlreadyExists(applicationTransition, action)) {
-				applicationTransition.getAction().add(action);
-			}
+			addAction(applicationTransition, guardActionParameter);
 		}
 		for (ApplicationTransition applicationTransition : guardApplicationTransitions) {
 			Guard guard = createGuard(guardActionParameter, true);
@@ -271,27 +524,25 @@ public class GuardsAndActionsGenerator {
 	 * @param first
 	 * @param second
 	 * @param sessionLayerEFSM
+	 * @param reachabilityIndex
+	 *            index for checking whether a path from first to second
+	 *            exists; otherwise the NeverFollowedInvariant must not be set.
 	 * @param actionApplicationTransitions
 	 * @param guardApplicationTransitions
 	 */
 	private void installGuardsActionsNeverFollowedInvariant(
 			final ApplicationState first, final ApplicationState second,
 			final SessionLayerEFSM sessionLayerEFSM,
+			final ReachabilityIndex reachabilityIndex,
 			final List<ApplicationTransition> actionApplicationTransitions,
 			final List<ApplicationTransition> guardApplicationTransitions) {
-		this.foundPaths = false;
-		pathsFromFirstToSecondExists(first, second, sessionLayerEFSM,
-				new Stack<ApplicationState>());
-		if (this.foundPaths) {
+		if (reachabilityIndex.isReachable(first, second)) {
 			GuardActionParameter guardActionParameter = createGuardActionParameter(
 					first.getService().getName(),
 					GuardActionParameterType.BOOLEAN, sessionLayerEFSM, first
 							.getService().getName(), null);
 			for (ApplicationTransition applicationTransition : actionApplicationTransitions) {
-				Action action = createAction(guardActionParameter);
-				if (!actionAlreadyExists(applicationTransition, action)) {
-					applicationTransition.getAction().add(action);
-				}
+				addAction(applicationTransition, guardActionParameter);
 			}
 			for (ApplicationTransition applicationTransition : guardApplicationTransitions) {
 				Guard guard = createGuard(guardActionParameter, false);
@@ -324,16 +575,10 @@ public class GuardsAndActionsGenerator {
 				sessionLayerEFSM, first.getService().getName(), second
 						.getService().getName());
 		for (ApplicationTransition applicationTransition : actionApplicationTransitions) {
-			Action action = createAction(guardActionParameter);
-			if (!actionAlreadyExists(applicationTransition, action)) {
-				applicationTransition.getAction().add(action);
-			}
+			addAction(applicationTransition, guardActionParameter);
 		}
 		for (ApplicationTransition applicationTransition : guardApplicationTransitions) {
-			Action action = createAction(guardActionParameter);
-			if (!actionAlreadyExists(applicationTransition, action)) {
-				applicationTransition.getAction().add(action);
-			}
+			addAction(applicationTransition, guardActionParameter);
 		}
 		for (ApplicationTransition applicationTransition : guardApplicationTransitions) {
 			Guard guard = createGuard(guardActionParameter, true, diffMinimum);
@@ -342,54 +587,28 @@ public class GuardsAndActionsGenerator {
 	}
 
 	/**
-	 * Check if applicationTransition has already the action.
+	 * Add an action for the guardActionParameter to applicationTransition, if
+	 * the transition has no action for that parameter yet.
 	 * 
 	 * @param applicationTransition
-	 * @param action
-	 * @return true if action already exists
+	 * @param guardActionParameter
 	 */
-	private boolean actionAlreadyExists(
-			final ApplicationTransition applicationTransition,
-			final Action action) {
-		for (Action actionInstance : applicationTransition.getAction()) {
-			if (actionInstance.getActionParameter().equals(
-					action.getActionParameter())) {
-				return true;
+	private void addAction(final ApplicationTransition applicationTransition,
+			final GuardActionParameter guardActionParameter) {
+		HashSet<GuardActionParameter> parameters = this.actionParameters
+				.get(applicationTransition);
+		if (parameters == null) {
+			// index the actions which have been installed before;
+			parameters = new HashSet<GuardActionParameter>();
+			for (Action actionInstance : applicationTransition.getAction()) {
+				parameters.add(actionInstance.getActionParameter());
 			}
+			this.actionParameters.put(applicationTransition, parameters);
 		}
-		return false;
-	}
-
-	/**
-	 * To set a NeverFollowedInvariant it must be checked if a paths from first
-	 * to second exists. Otherwise the NeverFollowedInvariant must not ne set.
-	 * 
-	 * @param first
-	 * @param second
-	 * @param sessionLayerEFSM
-	 * @return
-	 */
-	private void pathsFromFirstToSecondExists(final ApplicationState first,
-			final ApplicationState second,
-			final SessionLayerEFSM sessionLayerEFSM,
-			final Stack<ApplicationState> currentPath) {
-		currentPath.push(first);
-		for (ApplicationTransition applicationTransition : first
-				.getOutgoingTransitions()) {
-			if (applicationTransition.getTargetState() instanceof ApplicationState) {
-				ApplicationState nextApplicationState = (ApplicationState) applicationTransition
-						.getTargetState();
-				if (nextApplicationState.equals(second)) {
-					this.foundPaths = true;
-				} else {
-					if (!currentPath.contains(nextApplicationState)) {
-						pathsFromFirstToSecondExists(nextApplicationState,
-								second, sessionLayerEFSM, currentPath);
-					}
-				}
-			}
+		if (parameters.add(guardActionParameter)) {
+			applicationTransition.getAction().add(
+					createAction(guardActionParameter));
 		}
-		currentPath.pop();
 	}
 
 	/**
@@ -406,7 +625,7 @@ public class GuardsAndActionsGenerator {
 			final List<ApplicationTransition> guardApplicationTransitions,
 			final ApplicationState first, final ApplicationState second,
 			final SessionLayerEFSM sessionLayerEFSM,
-			final BinaryInvariant binaryInvariant) {
+			final MinedInvariant invariant) {
 
 		// Error case: guardApplicationTransitions has no incoming, i.e. when
 		// target is initial state
@@ -419,9 +638,8 @@ public class GuardsAndActionsGenerator {
 		if (guardApplicationTransitions.size() == 1) {
 			if (guardApplicationTransitions.get(0).getApplicationState()
 					.equals(first)) {
-				if (binaryInvariant instanceof CntAlwaysEqualsGreaterInvariant) {
-					if (((CntAlwaysEqualsGreaterInvariant) binaryInvariant)
-							.getDiffMinimum() == 0) {
+				if (invariant.getType() == MinedInvariant.TYPE_CNT_ALWAYS_EQUALS_GREATER) {
+					if (invariant.getDiffMinimum() == 0) {
 						return false;
 					}
 				} else {
@@ -433,31 +651,61 @@ public class GuardsAndActionsGenerator {
 	}
 
 	/**
-	 * Return a list of ApplicationTransition which are incoming transitions to
-	 * the serviceName.
+	 * Builds the indices of Application States, incoming transitions and
+	 * GuardActionParameters of the Session Layer EFSM, so that each lookup
+	 * takes constant time.
 	 * 
-	 * @param serviceName
 	 * @param sessionLayerEFSM
-	 * @return List<ApplicationTransition>
 	 */
-	private List<ApplicationTransition> getActionApplicationTransition(
-			final String serviceName, final SessionLayerEFSM sessionLayerEFSM) {
-		List<ApplicationTransition> returnApplicationTransitionList = new ArrayList<ApplicationTransition>();
+	private void indexSessionLayerEFSM(final SessionLayerEFSM sessionLayerEFSM) {
+		this.applicationStatesByName = new HashMap<String, ApplicationState>();
+		this.incomingTransitions = new HashMap<String, List<ApplicationTransition>>();
+		this.guardActionParametersByName = new HashMap<String, GuardActionParameter>();
+		this.actionParameters = new HashMap<ApplicationTransition, HashSet<GuardActionParameter>>();
+		for (GuardActionParameter guardActionParameter : sessionLayerEFSM
+				.getGuardActionParameterList().getGuardActionParameters()) {
+			String name = guardActionParameter.getGuardActionParameterName();
+			// the first parameter of a name wins, as in a linear search;
+			if (!this.guardActionParametersByName.containsKey(name)) {
+				this.guardActionParametersByName.put(name,
+						guardActionParameter);
+			}
+		}
 		for (ApplicationState applicationState : sessionLayerEFSM
 				.getApplicationStates()) {
+			String serviceName = applicationState.getService().getName();
+			// the first state of a service wins, as in a linear search;
+			if (!this.applicationStatesByName.containsKey(serviceName)) {
+				this.applicationStatesByName.put(serviceName, applicationState);
+			}
 			for (ApplicationTransition applicationTransition : applicationState
 					.getOutgoingTransitions()) {
 				if (applicationTransition.getTargetState() instanceof ApplicationState) {
 					String targetState = ((ApplicationState) applicationTransition
 							.getTargetState()).getService().getName();
-					if (targetState.equals(serviceName)) {
-						returnApplicationTransitionList
-								.add(applicationTransition);
+					List<ApplicationTransition> applicationTransitions = this.incomingTransitions
+							.get(targetState);
+					if (applicationTransitions == null) {
+						applicationTransitions = new ArrayList<ApplicationTransition>();
+						this.incomingTransitions.put(targetState,
+								applicationTransitions);
 					}
+					applicationTransitions.add(applicationTransition);
 				}
 			}
 		}
-		return returnApplicationTransitionList;
+	}
+
+	/**
+	 * Return a list of ApplicationTransition which are incoming transitions to
+	 * the serviceName.
+	 * 
+	 * @param serviceName
+	 * @return List<ApplicationTransition>, which must not be modified
+	 */
+	private List<ApplicationTransition> getActionApplicationTransition(
+			final String serviceName) {
+		return getIncomingTransitions(serviceName);
 	}
 
 	/**
@@ -465,45 +713,37 @@ public class GuardsAndActionsGenerator {
 	 * serviceName.
 	 * 
 	 * @param serviceName
-	 * @param sessionLayerEFSM
-	 * @return List<ApplicationTransition>
+	 * @return List<ApplicationTransition>, which must not be modified
 	 */
 	private List<ApplicationTransition> getGuardApplicationTransition(
-			final String serviceName, final SessionLayerEFSM sessionLayerEFSM) {
-		List<ApplicationTransition> returnApplicationTransitionList = new ArrayList<ApplicationTransition>();
-		for (ApplicationState applicationState : sessionLayerEFSM
-				.getApplicationStates()) {
-			for (ApplicationTransition applicationTransition : applicationState
-					.getOutgoingTransitions()) {
-				if (applicationTransition.getTargetState() instanceof ApplicationState) {
-					String targetState = ((ApplicationState) applicationTransition
-							.getTargetState()).getService().getName();
-					if (targetState.equals(serviceName)) {
-						returnApplicationTransitionList
-								.add(applicationTransition);
-					}
-				}
-			}
+			final String serviceName) {
+		return getIncomingTransitions(serviceName);
+	}
+
+	/**
+	 * Return the indexed incoming transitions of the serviceName.
+	 * 
+	 * @param serviceName
+	 * @return List<ApplicationTransition>, which must not be modified
+	 */
+	private List<ApplicationTransition> getIncomingTransitions(
+			final String serviceName) {
+		List<ApplicationTransition> applicationTransitions = this.incomingTransitions
+				.get(serviceName);
+		if (applicationTransitions == null) {
+			return Collections.emptyList();
 		}
-		return returnApplicationTransitionList;
+		return Collections.unmodifiableList(applicationTransitions);
 	}
 
 	/**
 	 * Get applicationstate.
 	 * 
 	 * @param serviceName
-	 * @param sessionLayerEFSM
 	 * @return
 	 */
-	private ApplicationState getApplicationState(final String serviceName,
-			final SessionLayerEFSM sessionLayerEFSM) {
-		for (ApplicationState applicationState : sessionLayerEFSM
-				.getApplicationStates()) {
-			if (applicationState.getService().getName().equals(serviceName)) {
-				return applicationState;
-			}
-		}
-		return null;
+	private ApplicationState getApplicationState(final String serviceName) {
+		return this.applicationStatesByName.get(serviceName);
 	}
 
 	/**
@@ -520,12 +760,10 @@ public class GuardsAndActionsGenerator {
 			final String targetName) {
 
 		// search if parameter already exists
-		for (GuardActionParameter guardActionParameter : sessionLayerEFSM
-				.getGuardActionParameterList().getGuardActionParameters()) {
-			if (guardActionParameter.getGuardActionParameterName().equals(
-					guardActionName)) {
-				return guardActionParameter;
-			}
+		GuardActionParameter existingParameter = this.guardActionParametersByName
+				.get(guardActionName);
+		if (existingParameter != null) {
+			return existingParameter;
 		}
 
 		// if not --> create
@@ -540,6 +778,8 @@ public class GuardsAndActionsGenerator {
 
 		sessionLayerEFSM.getGuardActionParameterList()
 				.getGuardActionParameters().add(guardActionParameter);
+		this.guardActionParametersByName.put(guardActionName,
+				guardActionParameter);
 		return guardActionParameter;
 	}
 
@@ -16,13 +16,7 @@
 
 package net.sf.markov4jmeter.m4jdslmodelgenerator.components.efsm;
 
-import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
 
 import m4jdsl.M4jdslFactory;
@@ -33,15 +27,29 @@ import m4jdsl.ProtocolTransition;
 import m4jdsl.Request;
 import net.sf.markov4jmeter.m4jdslmodelgenerator.GeneratorException;
 import net.sf.markov4jmeter.m4jdslmodelgenerator.util.IdGenerator;
+import net.sf.markov4jmeter.m4jdslmodelgenerator.util.ParameterValueSample;
+import net.sf.markov4jmeter.m4jdslmodelgenerator.util.ServiceSummary;
+import net.sf.markov4jmeter.m4jdslmodelgenerator.util.SessionAggregator;
 import wessbas.commons.parser.SessionData;
-import wessbas.commons.parser.UseCase;
 
 public class HTTPProtocolLayerEFSMGenerator extends
 		AbstractProtocolLayerEFSMGenerator {
 
+	/* ***************************** constants **************************** */
+
+	/**
+	 * Informational message for the case that the values of a parameter have
+	 * been sampled.
+	 */
+	private final static String INFO_PARAMETER_VALUES_SAMPLED = "parameter \"%s\" of service \"%s\" has about %d distinct values, kept %d of them";
+
 	/* *************************** Global Variables *************************** */
 
-	HashMap<String, HashSet<String>> parameterMap = new HashMap<String, HashSet<String>>();
+	/**
+	 * Per-service summaries of all sessions, which provide the endpoint
+	 * information and the parameter values of each service.
+	 */
+	private final SessionAggregator sessionAggregator;
 
 	/* *************************** constructors *************************** */
 
@@ -59,7 +67,80 @@ public class HTTPProtocolLayerEFSMGenerator extends
 			final IdGenerator idGenerator,
 			final IdGenerator requestIdGenerator,
 			final ArrayList<SessionData> sessions) {
+		this(m4jdslFactory, idGenerator, requestIdGenerator, sessions,
+				ParameterValueSample.UNLIMITED);
+	}
+
+	/**
+	 * Constructor for a Protocol Layer EFSM with Http requests, which keeps a
+	 * limited number of distinct values per request parameter.
+	 * 
+	 * @param m4jdslFactory
+	 *            instance for creating M4J-DSL model elements.
+	 * @param idGenerator
+	 *            instance for creating unique Protocol State IDs.
+	 * @param requestIdGenerator
+	 *            instance for creating unique request IDs.
+	 * @param maxParameterValues
+	 *            maximum number of distinct values to be kept per parameter;
+	 *            if a parameter has more values, a uniform sample of them
+	 *            will be kept. {@link ParameterValueSample#UNLIMITED}
+	 *            indicates that all values shall be kept.
+	 */
+	public HTTPProtocolLayerEFSMGenerator(final M4jdslFactory m4jdslFactory,
+			final IdGenerator idGenerator,
+			final IdGenerator requestIdGenerator,
+			final ArrayList<SessionData> sessions,
+			final int maxParameterValues) {
+		this(m4jdslFactory, idGenerator, requestIdGenerator, sessions,
+				HTTPProtocolLayerEFSMGenerator.aggregateSessions(sessions,
+						maxParameterValues));
+	}
+
+	/**
+	 * Constructor for a Protocol Layer EFSM with Http requests, based on
+	 * sessions which have been aggregated while being read; no sessions need
+	 * to be kept in memory.
+	 * 
+	 * @param m4jdslFactory
+	 *            instance for creating M4J-DSL model elements.
+	 * @param idGenerator
+	 *            instance for creating unique Protocol State IDs.
+	 * @param requestIdGenerator
+	 *            instance for creating unique request IDs.
+	 * @param sessionAggregator
+	 *            per-service summaries of all sessions.
+	 */
+	public HTTPProtocolLayerEFSMGenerator(final M4jdslFactory m4jdslFactory,
+			final IdGenerator idGenerator,
+			final IdGenerator requestIdGenerator,
+			final SessionAggregator sessionAggregator) {
+		this(m4jdslFactory, idGenerator, requestIdGenerator, null,
+				sessionAggregator);
+	}
+
+	/**
+	 * Constructor for a Protocol Layer EFSM with Http requests.
+	 * 
+	 * @param m4jdslFactory
+	 *            instance for creating M4J-DSL model elements.
+	 * @param idGenerator
+	 *            instance for creating unique Protocol State IDs.
+	 * @param requestIdGenerator
+	 *            instance for creating unique request IDs.
+	 * @param sessions
+	 *            materialized sessions, or <code>null</code> if the sessions
+	 *            have been aggregated only.
+	 * @param sessionAggregator
+	 *            per-service summaries of all sessions.
+	 */
+	private HTTPProtocolLayerEFSMGenerator(final M4jdslFactory m4jdslFactory,
+			final IdGenerator idGenerator,
+			final IdGenerator requestIdGenerator,
+			final ArrayList<SessionData> sessions,
+			final SessionAggregator sessionAggregator) {
 		super(m4jdslFactory, idGenerator, requestIdGenerator, sessions);
+		this.sessionAggregator = sessionAggregator;
 	}
 
 	/* ************************** public methods ************************** */
@@ -85,50 +166,30 @@ public class HTTPProtocolLayerEFSMGenerator extends
 		Request request;
 
 		// check if protocoll information are available.
-		boolean generateProtocolInformation = true;
-		if (this.sessions.get(0).getUseCases().get(0).getUri() == null) {
-			generateProtocolInformation = false;
-		}
-
-		if (generateProtocolInformation) {
+		if (this.sessionAggregator.hasProtocolInformation()) {
 
-			ArrayList<UseCase> relatedUseCases = new ArrayList<UseCase>();
 			String ip = "";
 			int port = 0;
 			String uri = "";
 			String method = "";
 			String encoding = "";
 			String protocol = "";
+			String[][] requestParameter = new String[0][];
 
-			// get useCases for this serviceName
-			for (SessionData sessionData : this.sessions) {
-				for (UseCase useCase : sessionData.getUseCases()) {
-					if (useCase.getName().equals(serviceName)) {
-						relatedUseCases.add(useCase);
-					}
-				}
-			}
+			// get summary of the useCases for this serviceName
+			final ServiceSummary serviceSummary = this.sessionAggregator
+					.getServiceSummary(serviceName);
 
-			if (relatedUseCases.size() > 0) {
+			if (serviceSummary != null) {
 				// take the value form the first useCase
-				ip = relatedUseCases.get(0).getIp();
-				port = relatedUseCases.get(0).getPort();
-				uri = relatedUseCases.get(0).getUri();
-				method = relatedUseCases.get(0).getMethode();
-				encoding = relatedUseCases.get(0).getEncoding();
-				protocol = relatedUseCases.get(0).getProtocol()
-						.equals("HTTP/1.1") ? "http" : "";
-				initializeParameterMap(relatedUseCases);
-			}
-
-			String[][] requestParameter = new String[parameterMap.keySet()
-					.size()][2];
-			int i = 0;
-			for (String key : parameterMap.keySet()) {
-				HashSet<String> parameterValues = parameterMap.get(key);
-				requestParameter[i][0] = key;
-				requestParameter[i][1] = getValuesAsString(parameterValues, ";");
-				i++;
+				ip = serviceSummary.getIp();
+				port = serviceSummary.getPort();
+				uri = serviceSummary.getUri();
+				method = serviceSummary.getMethod();
+				encoding = serviceSummary.getEncoding();
+				protocol = "HTTP/1.1".equals(serviceSummary.getProtocol()) ? "http"
+						: "";
+				requestParameter = this.getRequestParameters(serviceSummary);
 			}
 
 			// z.B.
@@ -172,94 +233,68 @@ public class HTTPProtocolLayerEFSMGenerator extends
 		protocolLayerEFSM.getProtocolStates().add(protocolState);
 		protocolLayerEFSM.setInitialState(protocolState);
 
-		parameterMap.clear();
-
 		return protocolLayerEFSM;
 	}
 
 	/**
-	 * @param parameterValues
-	 * @param delimiter
-	 * @return String
-	 */
-	private String getValuesAsString(final HashSet<String> parameterValues,
-			final String delimiter) {
-		String returnString = "";
-		for (String value : parameterValues) {
-			returnString += value.trim() + delimiter;
-		}
-		return returnString;
-	}
-
-	/**
-	 * 
-	 * http://stackoverflow.com/questions/13592236/parse-the-uri-string-into-
-	 * name-value-collection-in-java.
+	 * Aggregates materialized sessions into per-service summaries.
 	 * 
-	 * @param queryString
-	 * @return Map<String, List<String>>
-	 * @throws UnsupportedEncodingException
+	 * @param sessions
+	 *            sessions to be aggregated.
+	 * @param maxParameterValues
+	 *            maximum number of distinct values to be kept per parameter.
+	 * @return the aggregated sessions.
 	 */
-	private static Map<String, List<String>> splitQuery(String queryString)
-			throws UnsupportedEncodingException {
-
-		final Map<String, List<String>> query_pairs = new LinkedHashMap<String, List<String>>();
-		final String[] pairs = queryString.split("&");
-		for (String pair : pairs) {
-			final int idx = pair.indexOf("=");
-			final String key = idx > 0 ? pair.substring(0, idx) : pair;
-			if (!query_pairs.containsKey(key)) {
-				query_pairs.put(key, new LinkedList<String>());
-			}
-			final String value = idx > 0 && pair.length() > idx + 1 ? pair
-					.substring(idx + 1) : null;
-			query_pairs.get(key).add(value);
-		}
+	private static SessionAggregator aggregateSessions(
+			final ArrayList<SessionData> sessions, final int maxParameterValues) {
 
-		return query_pairs;
+		final SessionAggregator sessionAggregator = new SessionAggregator(
+				maxParameterValues);
+		sessionAggregator.addSessions(sessions);
+		return sessionAggregator;
 	}
 
 	/**
-	 * Init parameterMap.
+	 * Builds the request parameters of a service, each parameter being
+	 * associated with all of its (kept) values.
 	 * 
-	 * @param relatedSessions
+	 * @param serviceSummary
+	 *            summary of the service.
+	 * @return String[][] of name/values pairs.
 	 */
-	private void initializeParameterMap(final ArrayList<UseCase> relatedUseCases) {
-		for (UseCase useCase : relatedUseCases) {
-
-			try {
-				Map<String, List<String>> parameterRequest = splitQuery(useCase
-						.getQueryString());
-				for (String parameterName : parameterRequest.keySet()) {
-					if (!parameterName.equals("<no-query-string>")) {
-						List<String> parameterValues = parameterRequest
-								.get(parameterName);
-						for (String parameterValue : parameterValues) {
-							addToParameters(parameterName, parameterValue);
-						}
-					}
-				}
-			} catch (UnsupportedEncodingException e) {
-				e.printStackTrace();
+	private String[][] getRequestParameters(final ServiceSummary serviceSummary) {
+
+		final Map<String, ParameterValueSample> parameterMap = serviceSummary
+				.getParameters();
+
+		String[][] requestParameter = new String[parameterMap.size()][2];
+		int i = 0;
+		for (Map.Entry<String, ParameterValueSample> entry : parameterMap
+				.entrySet()) {
+			final String key = entry.getKey();
+			final ParameterValueSample parameterValues = entry.getValue();
+			requestParameter[i][0] = key;
+			requestParameter[i][1] = getValuesAsString(parameterValues, ";");
+			i++;
+
+			if (parameterValues.isSampled()) {
+				System.out.println("INFO: "
+						+ String.format(INFO_PARAMETER_VALUES_SAMPLED, key,
+								serviceSummary.getName(),
+								parameterValues.getDistinctCount(),
+								parameterValues.getValues().size()));
 			}
 		}
+		return requestParameter;
 	}
 
 	/**
-	 * Add key value pairs to parameterMap.
-	 * 
-	 * @param key
-	 * @param value
+	 * @param parameterValues
+	 * @param delimiter
+	 * @return String
 	 */
-	private void addToParameters(String key, String value) {
-		if (parameterMap.get(key) != null) {
-			HashSet<String> valueString = parameterMap.get(key);
-			valueString.add(value);
-			parameterMap.put(key, valueString);
-		} else {
-			HashSet<String> valueString = new HashSet<String>();
-			valueString.add(value);
-			parameterMap.put(key, valueString);
-		}
+	private String getValuesAsString(
+			final ParameterValueSample parameterValues, final String delimiter) {
+		return parameterValues.join(delimiter);
 	}
 }
@@ -0,0 +1,664 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator.components.efsm;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Miner for the temporal invariants which are required for generating guards
+ * and actions; the traces of a log are processed in a single streaming pass,
+ * without any global state. For each ordered pair <i>(a, b)</i> of event
+ * types which occur in the log, the following invariants are mined:
+ *
+ * <ul>
+ *   <li> <i>a</i> AlwaysPrecedes <i>b</i>: in each trace, each occurrence of
+ *   <i>b</i> is preceded by an occurrence of <i>a</i>, with <i>a != b</i>.
+ *
+ *   <li> <i>a</i> NeverFollowedBy <i>b</i>: in no trace, an occurrence of
+ *   <i>a</i> is followed by an occurrence of <i>b</i>.
+ *
+ *   <li> <i>a</i> CntAlwaysEqualsGreater <i>b</i>: in each trace, at each
+ *   occurrence of <i>b</i>, the number of preceding occurrences of <i>a</i>
+ *   exceeds the number of preceding occurrences of <i>b</i>, with
+ *   <i>a != b</i>; the minimum difference is the minimum surplus over all
+ *   occurrences of <i>b</i>.
+ * </ul>
+ *
+ * <p> Event types are identified by dense integer IDs; violations of each
+ * invariant type are stored as bit sets which are indexed by the ID of the
+ * second event type, and the event types of the current trace are tracked by
+ * per-trace counters.
+ *
+ * <p> Event types might be mapped to other event types before they are
+ * counted, e.g., if services are merged by templating or truncation; the
+ * invariants of merged event types are mined from the merged traces then,
+ * rather than being derived from the invariants of the original event types.
+ *
+ * @version  1.0
+ */
+public class InvariantMiner {
+
+
+    /* *****************************  constants  **************************** */
+
+
+    /** Name of the regular expression group which denotes the event type of
+     *  a log line. */
+    private final static String TYPE_GROUP_NAME = "TYPE";
+
+
+    /* *************************  global variables  ************************* */
+
+
+    /** Expression for extracting the event type of a log line, or
+     *  <code>null</code> if each line denotes an event type. */
+    private final Pattern expression;
+
+    /** <code>true</code> if and only if the expression includes a named
+     *  group for the event type. */
+    private final boolean typeGroupAvailable;
+
+    /** Expression for lines which separate traces. */
+    private final Pattern separator;
+
+    /** Target event types, keyed by the names of the event types to be
+     *  mapped, or <code>null</code> if no event types shall be mapped. */
+    private final Map<String, String> eventTypeMapping;
+
+    /** IDs of all event types, keyed by event type names. */
+    private final HashMap<String, Integer> eventTypeIds;
+
+    /** Names of all event types, indexed by event type IDs. */
+    private final ArrayList<String> eventTypeNames;
+
+    /** For each second event type, the first event types which violate an
+     *  AlwaysPrecedes invariant. */
+    private final ArrayList<BitSet> precedesViolations;
+
+    /** For each second event type, the first event types which violate a
+     *  NeverFollowedBy invariant. */
+    private final ArrayList<BitSet> followedByViolations;
+
+    /** For each second event type, the first event types which violate a
+     *  CntAlwaysEqualsGreater invariant. */
+    private final ArrayList<BitSet> countViolations;
+
+    /** For each second event type, the minimum count differences, indexed by
+     *  first event types. */
+    private final ArrayList<int[]> countDiffMinima;
+
+    /** Event types which occur in any completed trace. */
+    private final BitSet previousEventTypes;
+
+    /** Event types which occur in the current trace. */
+    private final BitSet traceEventTypes;
+
+    /** Occurrences of each event type in the current trace, indexed by event
+     *  type IDs. */
+    private int[] traceCounts;
+
+    /** Number of completed traces. */
+    private int traceCount;
+
+
+    /* ***************************  constructors  *************************** */
+
+
+    /**
+     * Constructor for an Invariant Miner.
+     *
+     * @param expression
+     *     expression for extracting the event type of a log line, or
+     *     <code>null</code> if each line denotes an event type; if the
+     *     expression includes a group named <code>TYPE</code>, that group
+     *     denotes the event type, otherwise the whole line does. Lines which
+     *     do not match the expression are ignored.
+     * @param separator
+     *     expression for lines which separate traces.
+     */
+    public InvariantMiner (final Pattern expression, final Pattern separator) {
+
+        this(expression, separator, null);
+    }
+
+    /**
+     * Constructor for an Invariant Miner which maps event types before
+     * counting them.
+     *
+     * @param expression
+     *     expression for extracting the event type of a log line, see
+     *     {@link #InvariantMiner(Pattern, Pattern)}.
+     * @param separator
+     *     expression for lines which separate traces.
+     * @param eventTypeMapping
+     *     target event types, keyed by the names of the event types to be
+     *     mapped; event types which are not included are kept. Might be
+     *     <code>null</code>, if no event types shall be mapped.
+     */
+    public InvariantMiner (
+            final Pattern expression,
+            final Pattern separator,
+            final Map<String, String> eventTypeMapping) {
+
+        this.expression           = expression;
+        this.typeGroupAvailable   = expression != null && expression.pattern()
+                .contains("(?<" + InvariantMiner.TYPE_GROUP_NAME + ">");
+        this.separator            = separator;
+        this.eventTypeMapping     = eventTypeMapping;
+        this.eventTypeIds         = new HashMap<String, Integer>();
+        this.eventTypeNames       = new ArrayList<String>();
+        this.precedesViolations   = new ArrayList<BitSet>();
+        this.followedByViolations = new ArrayList<BitSet>();
+        this.countViolations      = new ArrayList<BitSet>();
+        this.countDiffMinima      = new ArrayList<int[]>();
+        this.previousEventTypes   = new BitSet();
+        this.traceEventTypes      = new BitSet();
+        this.traceCounts          = new int[16];
+    }
+
+
+    /* **************************  public methods  ************************** */
+
+
+    /**
+     * Reads all traces of a log file.
+     *
+     * @param filename  name of the log file to be read.
+     *
+     * @throws FileNotFoundException
+     *     in case the denoted file does not exist.
+     * @throws IOException
+     *     if any error while reading occurs.
+     */
+    public void readTraces (final String filename)
+            throws FileNotFoundException, IOException {
+
+        BufferedReader bufferedReader = null;
+
+        try {
+
+            // might throw a FileNotFoundException;
+            bufferedReader = new BufferedReader( new FileReader(filename) );
+
+            String line;
+
+            // might throw an IOException;
+            while ((line = bufferedReader.readLine()) != null) {
+
+                this.addLine(line);
+            }
+
+            this.endTrace();
+
+        } finally {
+
+            if (bufferedReader != null) {
+
+                try {
+
+                    bufferedReader.close();
+
+                } catch (final IOException ex) {
+
+                    // ignore exception, since this is the "finally" block;
+                    // TODO: exception message should be written to log file;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a log line, which might denote an event of the current trace or
+     * separate two traces; empty lines are ignored.
+     *
+     * @param line  log line to be added.
+     */
+    public void addLine (final String line) {
+
+        if ( this.separator.matcher(line).matches() ) {
+
+            this.endTrace();
+
+        } else {
+
+            final String eventType = this.getEventType(line);
+
+            if (eventType != null && !eventType.isEmpty()) {
+
+                this.addEvent(eventType);
+            }
+        }
+    }
+
+    /**
+     * Adds an event to the current trace; the event type is mapped before,
+     * if it is included in the event type mapping.
+     *
+     * @param eventType  name of the event type.
+     */
+    public void addEvent (final String eventType) {
+
+        final int id = this.registerEventType( this.mapEventType(eventType) );
+        final int n  = this.eventTypeNames.size();
+
+        final BitSet seen = this.traceEventTypes;
+
+        if ( !seen.get(id) ) {
+
+            // first occurrence: each event type which has not occurred yet
+            // does not precede this event type in the current trace;
+            final BitSet unseen = new BitSet(n);
+
+            unseen.set(0, n);
+            unseen.andNot(seen);
+
+            this.precedesViolations.get(id).or(unseen);
+            this.countViolations.get(id).or(unseen);
+        }
+
+        // each event type which has occurred yet is followed by this type;
+        this.followedByViolations.get(id).or(seen);
+
+        final BitSet countViolations = this.countViolations.get(id);
+        final int[] diffMinima       = this.getCountDiffMinima(id, n);
+        final int count              = this.traceCounts[id];
+
+        for (int i = seen.nextSetBit(0); i >= 0; i = seen.nextSetBit(i + 1)) {
+
+            if (i != id && !countViolations.get(i)) {
+
+                final int diff = this.traceCounts[i] - count - 1;
+
+                if (diff < 0) {
+
+                    countViolations.set(i);
+
+                } else if (diff < diffMinima[i]) {
+
+                    diffMinima[i] = diff;
+                }
+            }
+        }
+
+        seen.set(id);
+        this.traceCounts[id]++;
+    }
+
+    /**
+     * Completes the current trace; if the current trace is empty, this method
+     * has no effect.
+     */
+    public void endTrace () {
+
+        final BitSet seen = this.traceEventTypes;
+
+        if ( seen.isEmpty() ) {
+
+            return;
+        }
+
+        for (int i = seen.nextSetBit(0); i >= 0; i = seen.nextSetBit(i + 1)) {
+
+            this.traceCounts[i] = 0;
+        }
+
+        this.previousEventTypes.or(seen);
+        seen.clear();
+
+        this.traceCount++;
+    }
+
+    /**
+     * Merges the traces of another miner into this miner, as if they had
+     * been added to this miner; the result does not depend on the order in
+     * which miners are merged. The current traces of both miners are
+     * completed before.
+     *
+     * @param invariantMiner
+     *     miner to be merged, which should not be used anymore afterwards.
+     */
+    public void merge (final InvariantMiner invariantMiner) {
+
+        this.endTrace();
+        invariantMiner.endTrace();
+
+        final int m = invariantMiner.eventTypeNames.size();
+
+        final int[] ids = new int[m];
+
+        // event types which are new to this miner are not preceding the
+        // event types of this miner's traces, see registerEventType();
+        for (int i = 0; i < m; i++) {
+
+            ids[i] = this.registerEventType( invariantMiner.eventTypeNames.get(i) );
+        }
+
+        final int n = this.eventTypeNames.size();
+
+        // event types which do not occur in the other miner's traces are not
+        // preceding any event type of those traces;
+        final BitSet missingEventTypes = new BitSet(n);
+
+        missingEventTypes.set(0, n);
+
+        for (int i = 0; i < m; i++) {
+
+            missingEventTypes.clear(ids[i]);
+        }
+
+        for (int second = 0; second < m; second++) {
+
+            final int id = ids[second];
+
+            this.precedesViolations.get(id).or(missingEventTypes);
+            this.countViolations.get(id).or(missingEventTypes);
+
+            InvariantMiner.orMapped(
+                    this.precedesViolations.get(id),
+                    invariantMiner.precedesViolations.get(second),
+                    ids);
+
+            InvariantMiner.orMapped(
+                    this.followedByViolations.get(id),
+                    invariantMiner.followedByViolations.get(second),
+                    ids);
+
+            InvariantMiner.orMapped(
+                    this.countViolations.get(id),
+                    invariantMiner.countViolations.get(second),
+                    ids);
+
+            final int[] diffMinima      = this.getCountDiffMinima(id, n);
+            final int[] otherDiffMinima = invariantMiner.getCountDiffMinima(second, m);
+
+            for (int first = 0; first < m; first++) {
+
+                diffMinima[ids[first]] =
+                        Math.min(diffMinima[ids[first]], otherDiffMinima[first]);
+            }
+        }
+
+        for (int i = 0; i < m; i++) {
+
+            this.previousEventTypes.set(ids[i]);
+        }
+
+        this.traceCount += invariantMiner.traceCount;
+    }
+
+    /**
+     * Returns the invariants which hold for all traces added so far; the
+     * current trace is completed before.
+     *
+     * @return
+     *     the mined invariants, ordered by {@link MinedInvariant#ORDER}.
+     */
+    public List<MinedInvariant> getInvariants () {
+
+        this.endTrace();
+
+        final ArrayList<MinedInvariant> invariants =
+                new ArrayList<MinedInvariant>();
+
+        final int n = this.eventTypeNames.size();
+
+        for (int second = 0; second < n; second++) {
+
+            final String secondName = this.eventTypeNames.get(second);
+
+            final BitSet precedesViolations   = this.precedesViolations.get(second);
+            final BitSet followedByViolations = this.followedByViolations.get(second);
+            final BitSet countViolations      = this.countViolations.get(second);
+            final int[] diffMinima            = this.getCountDiffMinima(second, n);
+
+            for (int first = 0; first < n; first++) {
+
+                final String firstName = this.eventTypeNames.get(first);
+
+                if ( !followedByViolations.get(first) ) {
+
+                    invariants.add(new MinedInvariant(
+                            MinedInvariant.TYPE_NEVER_FOLLOWED_BY,
+                            firstName,
+                            secondName,
+                            0));
+                }
+
+                if (first == second) {
+
+                    continue;
+                }
+
+                if ( !precedesViolations.get(first) ) {
+
+                    invariants.add(new MinedInvariant(
+                            MinedInvariant.TYPE_ALWAYS_PRECEDES,
+                            firstName,
+                            secondName,
+                            0));
+                }
+
+                if ( !countViolations.get(first) ) {
+
+                    invariants.add(new MinedInvariant(
+                            MinedInvariant.TYPE_CNT_ALWAYS_EQUALS_GREATER,
+                            firstName,
+                            secondName,
+                            diffMinima[first]));
+                }
+            }
+        }
+
+        Collections.sort(invariants, MinedInvariant.ORDER);
+
+        return invariants;
+    }
+
+    /**
+     * Returns the number of completed traces.
+     *
+     * @return  a non-negative number.
+     */
+    public int getTraceCount () {
+
+        return this.traceCount;
+    }
+
+    /**
+     * Returns the number of distinct event types.
+     *
+     * @return  a non-negative number.
+     */
+    public int getEventTypeCount () {
+
+        return this.eventTypeNames.size();
+    }
+
+
+    /* **************************  private methods  ************************* */
+
+
+    /**
+     * Extracts the event type of a log line.
+     *
+     * @param line  log line to be parsed.
+     *
+     * @return
+     *     the event type, or <code>null</code> if the line does not match the
+     *     expression.
+     */
+    private String getEventType (final String line) {
+
+        if (this.expression == null) {
+
+            return line;
+        }
+
+        final Matcher matcher = this.expression.matcher(line);
+
+        if ( !matcher.matches() ) {
+
+            return null;
+        }
+
+        return this.typeGroupAvailable ?
+                matcher.group(InvariantMiner.TYPE_GROUP_NAME) : line;
+    }
+
+    /**
+     * Maps an event type to its target event type.
+     *
+     * @param eventType  name of the event type to be mapped.
+     *
+     * @return
+     *     the name of the target event type, or the given name if the event
+     *     type is not mapped.
+     */
+    private String mapEventType (final String eventType) {
+
+        if (this.eventTypeMapping == null) {
+
+            return eventType;
+        }
+
+        final String targetEventType = this.eventTypeMapping.get(eventType);
+
+        return (targetEventType != null) ? targetEventType : eventType;
+    }
+
+    /**
+     * Registers an event type, if it has not been registered before.
+     *
+     * @param name  name of the event type.
+     *
+     * @return  the ID of the event type.
+     */
+    private int registerEventType (final String name) {
+
+        final Integer id = this.eventTypeIds.get(name);
+
+        if (id != null) {
+
+            return id;
+        }
+
+        final int newId = this.eventTypeNames.size();
+
+        this.eventTypeIds.put(name, newId);
+        this.eventTypeNames.add(name);
+
+        this.precedesViolations.add( new BitSet() );
+        this.followedByViolations.add( new BitSet() );
+        this.countViolations.add( new BitSet() );
+        this.countDiffMinima.add( InvariantMiner.createDiffMinima(newId + 1) );
+
+        if (newId >= this.traceCounts.length) {
+
+            this.traceCounts = Arrays.copyOf(this.traceCounts, 2 * (newId + 1));
+        }
+
+        // each event type which occurred before is not preceded by the new
+        // event type in the respective trace;
+        final BitSet occurredTypes = (BitSet) this.previousEventTypes.clone();
+
+        occurredTypes.or(this.traceEventTypes);
+
+        for (int i = occurredTypes.nextSetBit(0); i >= 0;
+                i = occurredTypes.nextSetBit(i + 1)) {
+
+            this.precedesViolations.get(i).set(newId);
+            this.countViolations.get(i).set(newId);
+        }
+
+        return newId;
+    }
+
+    /**
+     * Returns the minimum count differences for a second event type, ensuring
+     * that the array covers all registered event types.
+     *
+     * @param id  ID of the second event type.
+     * @param n   number of registered event types.
+     *
+     * @return  a valid array of length <code>n</code> at least.
+     */
+    private int[] getCountDiffMinima (final int id, final int n) {
+
+        int[] diffMinima = this.countDiffMinima.get(id);
+
+        if (diffMinima.length < n) {
+
+            final int length = diffMinima.length;
+
+            diffMinima = Arrays.copyOf(diffMinima, Math.max(n, 2 * length));
+            Arrays.fill(diffMinima, length, diffMinima.length, Integer.MAX_VALUE);
+
+            this.countDiffMinima.set(id, diffMinima);
+        }
+
+        return diffMinima;
+    }
+
+    /**
+     * Sets the bits of a set for all bits of another set, whose indices are
+     * mapped before.
+     *
+     * @param target  set whose bits shall be set.
+     * @param source  set whose bits shall be mapped.
+     * @param ids     target indices, indexed by source indices.
+     */
+    private static void orMapped (
+            final BitSet target,
+            final BitSet source,
+            final int[] ids) {
+
+        for (int i = source.nextSetBit(0); i >= 0; i = source.nextSetBit(i + 1)) {
+
+            target.set(ids[i]);
+        }
+    }
+
+    /**
+     * Creates an array of minimum count differences, which are initialized
+     * with the maximum integer value.
+     *
+     * @param length  length of the array.
+     *
+     * @return  the newly created array.
+     */
+    private static int[] createDiffMinima (final int length) {
+
+        final int[] diffMinima = new int[length];
+
+        Arrays.fill(diffMinima, Integer.MAX_VALUE);
+
+        return diffMinima;
+    }
+}
@@ -0,0 +1,254 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator.components.efsm;
+
+import java.util.Comparator;
+
+import synoptic.invariants.AlwaysPrecedesInvariant;
+import synoptic.invariants.BinaryInvariant;
+import synoptic.invariants.CntAlwaysEqualsGreaterInvariant;
+import synoptic.invariants.ITemporalInvariant;
+import synoptic.invariants.NeverFollowedInvariant;
+
+/**
+ * Temporal invariant between two event types (services) of a trace log, as
+ * used for generating guards and actions. Invariants might be mined by the
+ * built-in {@link InvariantMiner} or be converted from Synoptic invariants,
+ * see {@link #fromSynopticInvariant(ITemporalInvariant)}.
+ *
+ * @version  1.0
+ */
+public class MinedInvariant {
+
+
+    /* *****************************  constants  **************************** */
+
+
+    /** Type constant for "<i>first</i> always precedes <i>second</i>". */
+    public final static int TYPE_ALWAYS_PRECEDES = 0;
+
+    /** Type constant for "<i>first</i> is never followed by
+     *  <i>second</i>". */
+    public final static int TYPE_NEVER_FOLLOWED_BY = 1;
+
+    /** Type constant for "the count of <i>first</i> is always equal to or
+     *  greater than the count of <i>second</i>". */
+    public final static int TYPE_CNT_ALWAYS_EQUALS_GREATER = 2;
+
+    /** Comparator which orders invariants by type, first and second event
+     *  type, and minimum difference. */
+    public final static Comparator<MinedInvariant> ORDER =
+            new Comparator<MinedInvariant>() {
+
+        @Override
+        public int compare (final MinedInvariant i1, final MinedInvariant i2) {
+
+            int result = i1.type - i2.type;
+
+            if (result == 0) {
+
+                result = i1.first.compareTo(i2.first);
+            }
+
+            if (result == 0) {
+
+                result = i1.second.compareTo(i2.second);
+            }
+
+            return (result != 0) ?
+                    result : Integer.compare(i1.diffMinimum, i2.diffMinimum);
+        }
+    };
+
+    /** Names of the invariant types, indexed by type constants. */
+    private final static String[] TYPE_NAMES = {
+        "AlwaysPrecedes", "NeverFollowedBy", "CntAlwaysEqualsGreater"};
+
+
+    /* *************************  global variables  ************************* */
+
+
+    /** Type of the invariant, one of the <code>TYPE</code> constants. */
+    private final int type;
+
+    /** First event type of the invariant. */
+    private final String first;
+
+    /** Second event type of the invariant. */
+    private final String second;
+
+    /** Minimum difference between the counts of both event types; only used
+     *  for {@link #TYPE_CNT_ALWAYS_EQUALS_GREATER} invariants. */
+    private final int diffMinimum;
+
+
+    /* ***************************  constructors  *************************** */
+
+
+    /**
+     * Constructor for a Mined Invariant.
+     *
+     * @param type
+     *     type of the invariant, one of the <code>TYPE</code> constants.
+     * @param first
+     *     first event type of the invariant.
+     * @param second
+     *     second event type of the invariant.
+     * @param diffMinimum
+     *     minimum difference between the counts of both event types, for
+     *     {@link #TYPE_CNT_ALWAYS_EQUALS_GREATER} invariants; otherwise 0.
+     */
+    public MinedInvariant (
+            final int type,
+            final String first,
+            final String second,
+            final int diffMinimum) {
+
+        this.type        = type;
+        this.first       = first;
+        this.second      = second;
+        this.diffMinimum = diffMinimum;
+    }
+
+
+    /* **************************  public methods  ************************** */
+
+
+    /**
+     * Converts a Synoptic invariant into a Mined Invariant.
+     *
+     * @param invariant  Synoptic invariant to be converted.
+     *
+     * @return
+     *     the converted invariant, or <code>null</code> if the type of the
+     *     invariant is not supported.
+     */
+    public static MinedInvariant fromSynopticInvariant (
+            final ITemporalInvariant invariant) {
+
+        final int type;
+        int diffMinimum = 0;
+
+        if (invariant instanceof AlwaysPrecedesInvariant) {
+
+            type = MinedInvariant.TYPE_ALWAYS_PRECEDES;
+
+        } else if (invariant instanceof NeverFollowedInvariant) {
+
+            type = MinedInvariant.TYPE_NEVER_FOLLOWED_BY;
+
+        } else if (invariant instanceof CntAlwaysEqualsGreaterInvariant) {
+
+            type = MinedInvariant.TYPE_CNT_ALWAYS_EQUALS_GREATER;
+            diffMinimum =
+                    ((CntAlwaysEqualsGreaterInvariant) invariant).getDiffMinimum();
+
+        } else {
+
+            return null;  // unsupported invariant type;
+        }
+
+        final BinaryInvariant binaryInvariant = (BinaryInvariant) invariant;
+
+        return new MinedInvariant(
+                type,
+                binaryInvariant.getFirst().toString(),
+                binaryInvariant.getSecond().toString(),
+                diffMinimum);
+    }
+
+    /**
+     * Returns the type of the invariant.
+     *
+     * @return  one of the <code>TYPE</code> constants.
+     */
+    public int getType () {
+
+        return this.type;
+    }
+
+    /**
+     * Returns the first event type of the invariant.
+     *
+     * @return  a valid <code>String</code> instance.
+     */
+    public String getFirst () {
+
+        return this.first;
+    }
+
+    /**
+     * Returns the second event type of the invariant.
+     *
+     * @return  a valid <code>String</code> instance.
+     */
+    public String getSecond () {
+
+        return this.second;
+    }
+
+    /**
+     * Returns the minimum difference between the counts of both event types.
+     *
+     * @return
+     *     a non-negative number for {@link #TYPE_CNT_ALWAYS_EQUALS_GREATER}
+     *     invariants; otherwise 0.
+     */
+    public int getDiffMinimum () {
+
+        return this.diffMinimum;
+    }
+
+    @Override
+    public boolean equals (final Object object) {
+
+        if ( !(object instanceof MinedInvariant) ) {
+
+            return false;
+        }
+
+        final MinedInvariant invariant = (MinedInvariant) object;
+
+        return this.type        == invariant.type        &&
+               this.diffMinimum == invariant.diffMinimum &&
+               this.first.equals(invariant.first)        &&
+               this.second.equals(invariant.second);
+    }
+
+    @Override
+    public int hashCode () {
+
+        int hashCode = this.type;
+
+        hashCode = 31 * hashCode + this.first.hashCode();
+        hashCode = 31 * hashCode + this.second.hashCode();
+        hashCode = 31 * hashCode + this.diffMinimum;
+
+        return hashCode;
+    }
+
+    @Override
+    public String toString () {
+
+        final String s = this.first + " " +
+                MinedInvariant.TYPE_NAMES[this.type] + " " + this.second;
+
+        return (this.type == MinedInvariant.TYPE_CNT_ALWAYS_EQUALS_GREATER) ?
+                s + " (" + this.diffMinimum + ")" : s;
+    }
+}
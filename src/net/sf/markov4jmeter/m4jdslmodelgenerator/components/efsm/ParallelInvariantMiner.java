@@ -0,0 +1,346 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator.components.efsm;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+/**
+ * Reader which mines the invariants of a trace log in parallel. The log is
+ * split into shards of complete traces at separator lines; each shard is
+ * mined by its own {@link InvariantMiner} in a worker thread, and the shard
+ * miners are merged in log order afterwards. Since merging preserves the
+ * semantics of mining the whole log, the result does not depend on the
+ * number of workers.
+ *
+ * <p> The log is read sequentially, and the number of pending shards is
+ * bounded, so that the log is not held in memory entirely.
+ *
+ * @version  1.0
+ */
+public class ParallelInvariantMiner {
+
+
+    /* *****************************  constants  **************************** */
+
+
+    /** Minimum number of lines per shard; a shard ends at the first separator
+     *  line after that number of lines. */
+    private final static int MIN_SHARD_LINES = 1 << 16;
+
+    /** Maximum number of pending shards per worker. */
+    private final static int PENDING_SHARDS_PER_WORKER = 2;
+
+    /** Error message for the case that mining a shard failed. */
+    private final static String ERROR_SHARD_MINING_FAILED =
+            "could not mine shard of trace log file \"%s\": %s";
+
+
+    /* *************************  global variables  ************************* */
+
+
+    /** Number of worker threads which mine the shards. */
+    private final int workerCount;
+
+
+    /* ***************************  constructors  *************************** */
+
+
+    /**
+     * Constructor for a Parallel Invariant Miner.
+     *
+     * @param workerCount
+     *     number of worker threads; a value less than 1 indicates a single
+     *     thread.
+     */
+    public ParallelInvariantMiner (final int workerCount) {
+
+        this.workerCount = Math.max(workerCount, 1);
+    }
+
+
+    /* **************************  public methods  ************************** */
+
+
+    /**
+     * Mines the invariants of a trace log file.
+     *
+     * @param filename
+     *     name of the trace log file to be read.
+     * @param expression
+     *     expression for extracting the event type of a log line, see
+     *     {@link InvariantMiner#InvariantMiner(Pattern, Pattern)}.
+     * @param separator
+     *     expression for lines which separate traces.
+     *
+     * @return
+     *     a miner which includes all traces of the log file.
+     *
+     * @throws FileNotFoundException
+     *     in case the denoted file does not exist.
+     * @throws IOException
+     *     if any error while reading or mining occurs.
+     */
+    public InvariantMiner read (
+            final String filename,
+            final Pattern expression,
+            final Pattern separator)
+                    throws FileNotFoundException, IOException {
+
+        // might throw a FileNotFoundException or an IOException;
+        return this.read(filename, expression, separator, null);
+    }
+
+    /**
+     * Mines the invariants of a trace log file, mapping event types before
+     * they are counted.
+     *
+     * @param filename
+     *     name of the trace log file to be read.
+     * @param expression
+     *     expression for extracting the event type of a log line, see
+     *     {@link InvariantMiner#InvariantMiner(Pattern, Pattern)}.
+     * @param separator
+     *     expression for lines which separate traces.
+     * @param eventTypeMapping
+     *     target event types, keyed by the names of the event types to be
+     *     mapped; might be <code>null</code>, if no event types shall be
+     *     mapped.
+     *
+     * @return
+     *     a miner which includes all traces of the log file.
+     *
+     * @throws FileNotFoundException
+     *     in case the denoted file does not exist.
+     * @throws IOException
+     *     if any error while reading or mining occurs.
+     */
+    public InvariantMiner read (
+            final String filename,
+            final Pattern expression,
+            final Pattern separator,
+            final Map<String, String> eventTypeMapping)
+                    throws FileNotFoundException, IOException {
+
+        final InvariantMiner invariantMiner =
+                new InvariantMiner(expression, separator, eventTypeMapping);
+
+        if (this.workerCount == 1) {
+
+            // might throw a FileNotFoundException or an IOException;
+            invariantMiner.readTraces(filename);
+
+            return invariantMiner;
+        }
+
+        BufferedReader bufferedReader = null;
+        ExecutorService executorService = null;
+
+        try {
+
+            // might throw a FileNotFoundException;
+            bufferedReader = new BufferedReader( new FileReader(filename) );
+
+            executorService = Executors.newFixedThreadPool(this.workerCount);
+
+            final LinkedList<Future<InvariantMiner>> futures =
+                    new LinkedList<Future<InvariantMiner>>();
+
+            final int maxPendingShards =
+                    ParallelInvariantMiner.PENDING_SHARDS_PER_WORKER *
+                    this.workerCount;
+
+            ArrayList<String> lines = new ArrayList<String>();
+
+            String line;
+
+            // might throw an IOException;
+            while ((line = bufferedReader.readLine()) != null) {
+
+                lines.add(line);
+
+                if (lines.size() >= ParallelInvariantMiner.MIN_SHARD_LINES &&
+                        separator.matcher(line).matches()) {
+
+                    if (futures.size() >= maxPendingShards) {
+
+                        // merge in log order; might throw an IOException;
+                        invariantMiner.merge( this.getShardMiner(
+                                futures.removeFirst(), filename) );
+                    }
+
+                    futures.add( executorService.submit(
+                            new ShardTask(lines, expression, separator,
+                            eventTypeMapping)) );
+
+                    lines = new ArrayList<String>();
+                }
+            }
+
+            if ( !lines.isEmpty() ) {
+
+                futures.add( executorService.submit(
+                        new ShardTask(lines, expression, separator,
+                            eventTypeMapping)) );
+            }
+
+            for (final Future<InvariantMiner> future : futures) {
+
+                // might throw an IOException;
+                invariantMiner.merge( this.getShardMiner(future, filename) );
+            }
+
+            return invariantMiner;
+
+        } finally {
+
+            if (executorService != null) {
+
+                executorService.shutdownNow();
+            }
+
+            if (bufferedReader != null) {
+
+                try {
+
+                    bufferedReader.close();
+
+                } catch (final IOException ex) {
+
+                    // ignore exception, since this is the "finally" block;
+                    // TODO: exception message should be written to log file;
+                }
+            }
+        }
+    }
+
+
+    /* **************************  private methods  ************************* */
+
+
+    /**
+     * Waits for the miner of a shard.
+     *
+     * @param future    future of the shard task.
+     * @param filename  name of the trace log file, for error messages only.
+     *
+     * @return  the miner of the shard.
+     *
+     * @throws IOException
+     *     if mining the shard failed or waiting has been interrupted.
+     */
+    private InvariantMiner getShardMiner (
+            final Future<InvariantMiner> future,
+            final String filename) throws IOException {
+
+        try {
+
+            return future.get();
+
+        } catch (final ExecutionException ex) {
+
+            final Throwable cause = ex.getCause();
+
+            final String message = String.format(
+                    ParallelInvariantMiner.ERROR_SHARD_MINING_FAILED,
+                    filename,
+                    cause.getMessage());
+
+            throw new IOException(message, cause);
+
+        } catch (final InterruptedException ex) {
+
+            Thread.currentThread().interrupt();
+
+            throw new InterruptedIOException();
+        }
+    }
+
+
+    /* *************************  internal classes  ************************* */
+
+
+    /**
+     * Task which mines a single shard by a shard-local miner.
+     */
+    private static class ShardTask implements Callable<InvariantMiner> {
+
+        /** Lines of the shard, which consist of complete traces. */
+        private final ArrayList<String> lines;
+
+        /** Expression for extracting the event type of a log line. */
+        private final Pattern expression;
+
+        /** Expression for lines which separate traces. */
+        private final Pattern separator;
+
+        /** Target event types, keyed by the names of the event types to be
+         *  mapped, or <code>null</code>. */
+        private final Map<String, String> eventTypeMapping;
+
+
+        /**
+         * Constructor for a Shard Task.
+         *
+         * @param lines             lines of the shard.
+         * @param expression        expression for extracting event types.
+         * @param separator         expression for separator lines.
+         * @param eventTypeMapping  mapping of event types, or
+         *                          <code>null</code>.
+         */
+        public ShardTask (
+                final ArrayList<String> lines,
+                final Pattern expression,
+                final Pattern separator,
+                final Map<String, String> eventTypeMapping) {
+
+            this.lines            = lines;
+            this.expression       = expression;
+            this.separator        = separator;
+            this.eventTypeMapping = eventTypeMapping;
+        }
+
+        @Override
+        public InvariantMiner call () {
+
+            final InvariantMiner invariantMiner = new InvariantMiner(
+                    this.expression, this.separator, this.eventTypeMapping);
+
+            for (final String line : this.lines) {
+
+                invariantMiner.addLine(line);
+            }
+
+            invariantMiner.endTrace();
+
+            return invariantMiner;
+        }
+    }
+}
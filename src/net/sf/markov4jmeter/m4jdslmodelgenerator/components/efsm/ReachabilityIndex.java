@@ -0,0 +1,201 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator.components.efsm;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+import m4jdsl.ApplicationState;
+import m4jdsl.ApplicationTransition;
+import m4jdsl.SessionLayerEFSM;
+import m4jdsl.SessionLayerEFSMState;
+
+/**
+ * Index for reachability queries between the Application States of a Session
+ * Layer EFSM. A state is reachable from another state, if a path of at least
+ * one transition leads from that state to the other one, whereas paths only
+ * pass Application States (and no exit state).
+ *
+ * <p> The successors of all states are stored as bit sets; the set of states
+ * reachable from a source state is computed by a breadth-first search on the
+ * first query for that source and cached, so that each further query is
+ * answered in constant time. The index reflects the transitions at the time
+ * of its creation; guards and actions may be added to transitions later on,
+ * since they do not change the structure of the EFSM.
+ *
+ * @version  1.0
+ */
+public class ReachabilityIndex {
+
+
+    /* *************************  global variables  ************************* */
+
+
+    /** IDs of all Application States, keyed by states. */
+    private final HashMap<ApplicationState, Integer> stateIds;
+
+    /** Direct successors of each state, indexed by state IDs. */
+    private final BitSet[] successors;
+
+    /** States reachable from each state, indexed by state IDs; an element is
+     *  <code>null</code> if it has not been computed yet. */
+    private final BitSet[] reachableStates;
+
+
+    /* ***************************  constructors  *************************** */
+
+
+    /**
+     * Constructor for a Reachability Index.
+     *
+     * @param sessionLayerEFSM  EFSM whose Application States shall be indexed.
+     */
+    public ReachabilityIndex (final SessionLayerEFSM sessionLayerEFSM) {
+
+        final List<ApplicationState> applicationStates =
+                sessionLayerEFSM.getApplicationStates();
+
+        final int n = applicationStates.size();
+
+        this.stateIds        = new HashMap<ApplicationState, Integer>(2 * n);
+        this.successors      = new BitSet[n];
+        this.reachableStates = new BitSet[n];
+
+        for (final ApplicationState applicationState : applicationStates) {
+
+            if ( !this.stateIds.containsKey(applicationState) ) {
+
+                this.stateIds.put(applicationState, this.stateIds.size());
+            }
+        }
+
+        for (final ApplicationState applicationState : applicationStates) {
+
+            final int id = this.stateIds.get(applicationState);
+
+            if (this.successors[id] != null) {
+
+                continue;  // state is listed multiple times;
+            }
+
+            final BitSet successors = new BitSet(n);
+
+            for (final ApplicationTransition applicationTransition :
+                    applicationState.getOutgoingTransitions()) {
+
+                final SessionLayerEFSMState targetState =
+                        applicationTransition.getTargetState();
+
+                final Integer targetId = this.stateIds.get(targetState);
+
+                if (targetId != null) {
+
+                    successors.set(targetId);
+                }
+            }
+
+            this.successors[id] = successors;
+        }
+    }
+
+
+    /* **************************  public methods  ************************** */
+
+
+    /**
+     * Checks whether a path of at least one transition leads from one state
+     * to another one.
+     *
+     * @param source  source state of the path.
+     * @param target  target state of the path.
+     *
+     * @return
+     *     <code>true</code> if and only if the target state is reachable from
+     *     the source state; if any of both states is not included in the
+     *     EFSM, <code>false</code> is returned.
+     */
+    public boolean isReachable (
+            final ApplicationState source,
+            final ApplicationState target) {
+
+        final Integer sourceId = this.stateIds.get(source);
+        final Integer targetId = this.stateIds.get(target);
+
+        if (sourceId == null || targetId == null) {
+
+            return false;
+        }
+
+        return this.getReachableStates(sourceId).get(targetId);
+    }
+
+
+    /* **************************  private methods  ************************* */
+
+
+    /**
+     * Returns the states which are reachable from a given state; the result
+     * is computed by a breadth-first search on the first request.
+     *
+     * @param sourceId  ID of the source state.
+     *
+     * @return  the IDs of all reachable states.
+     */
+    private BitSet getReachableStates (final int sourceId) {
+
+        BitSet reachableStates = this.reachableStates[sourceId];
+
+        if (reachableStates == null) {
+
+            reachableStates = new BitSet(this.successors.length);
+
+            final int[] queue = new int[this.successors.length];
+
+            int head = 0;
+            int tail = 0;
+
+            // start with the direct successors, for paths of length >= 1;
+            final BitSet start = this.successors[sourceId];
+
+            for (int i = start.nextSetBit(0); i >= 0; i = start.nextSetBit(i + 1)) {
+
+                reachableStates.set(i);
+                queue[tail++] = i;
+            }
+
+            while (head < tail) {
+
+                final BitSet next = this.successors[ queue[head++] ];
+
+                for (int i = next.nextSetBit(0); i >= 0; i = next.nextSetBit(i + 1)) {
+
+                    if ( !reachableStates.get(i) ) {
+
+                        reachableStates.set(i);
+                        queue[tail++] = i;
+                    }
+                }
+            }
+
+            this.reachableStates[sourceId] = reachableStates;
+        }
+
+        return reachableStates;
+    }
+}
@@ -17,13 +17,18 @@
 
 package net.sf.markov4jmeter.m4jdslmodelgenerator.components.efsm;
 
-import java.io.File;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import m4jdsl.Action;
 import m4jdsl.ApplicationExitState;
@@ -38,10 +43,11 @@ import m4jdsl.SessionLayerEFSM;
 import m4jdsl.SessionLayerEFSMState;
 import net.sf.markov4jmeter.m4jdslmodelgenerator.GeneratorException;
 import net.sf.markov4jmeter.m4jdslmodelgenerator.ServiceRepository;
-import net.sf.markov4jmeter.m4jdslmodelgenerator.util.CSVHandler;
+import net.sf.markov4jmeter.m4jdslmodelgenerator.util.BehaviorMatrix;
 import net.sf.markov4jmeter.m4jdslmodelgenerator.util.DotGraphGenerator;
 import net.sf.markov4jmeter.m4jdslmodelgenerator.util.FlowDotGraphGenerator;
 import net.sf.markov4jmeter.m4jdslmodelgenerator.util.IdGenerator;
+import net.sf.markov4jmeter.m4jdslmodelgenerator.util.TransitionGraph;
 
 /**
  * Class for building Session Layer EFSMs based on Flows.
@@ -68,6 +74,11 @@ public class SessionLayerEFSMGenerator extends
     private final static String WARNING_NO_INITIAL_STATE =
             "could not detect any initial state; "
             + "will choose first available state \"%s\"";
+
+    /** Error message for the case that allowed transitions could not be
+     *  collected in parallel. */
+    private final static String ERROR_PARALLEL_COLLECTION_FAILED =
+            "collecting allowed transitions failed: %s";
     
 
     /* ----------------------  debug messages/settings  --------------------- */
@@ -102,7 +113,10 @@ public class SessionLayerEFSMGenerator extends
      *  <code>true</code>, transitions to the exit state will be installed for
      *  all states of the Application Layer. */
     private final boolean sessionsCanBeExitedAnytime;
-    
+
+    /** Number of worker threads for collecting allowed transitions. */
+    private int workerCount = 1;
+
     /* ***************************  constructors  *************************** */
 
 
@@ -131,8 +145,9 @@ public class SessionLayerEFSMGenerator extends
      * @param graphFilePath
      *     path of the DOT graph output file; might be <code>null</code>, if no
      *     graph shall be generated.
-     * @param filenames 
-     *     behaviorModel filenames.    
+     * @param behaviorMatrices
+     *     behavior information of the Behavior Models, which indicates the
+     *     allowed transitions.
      */
     public SessionLayerEFSMGenerator (
             final M4jdslFactory m4jdslFactory,
@@ -141,7 +156,7 @@ public class SessionLayerEFSMGenerator extends
             final IdGenerator idGenerator,
             final boolean sessionsCanBeExitedAnytime,
             final String graphFilePath,
-            final File[] filenames) {
+            final BehaviorMatrix[] behaviorMatrices) {
 
         super(m4jdslFactory,
               serviceRepository,
@@ -149,7 +164,7 @@ public class SessionLayerEFSMGenerator extends
               idGenerator,
               graphFilePath,
               (graphFilePath != null) ? new FlowDotGraphGenerator() : null,
-              filenames);
+              behaviorMatrices);
 
         this.sessionsCanBeExitedAnytime = sessionsCanBeExitedAnytime;
 
@@ -177,6 +192,9 @@ public class SessionLayerEFSMGenerator extends
      *     be used; if this flag is <code>false</code>, plain Node names will be
      *     used as state names, without any related Flow names being added as
      *     prefixes.
+     * @param behaviorMatrices
+     *     behavior information of the Behavior Models, which indicates the
+     *     allowed transitions.
      */
     public SessionLayerEFSMGenerator (
             final M4jdslFactory m4jdslFactory,
@@ -184,20 +202,33 @@ public class SessionLayerEFSMGenerator extends
             final JavaProtocolLayerEFSMGenerator protocolLayerEFSMGenerator,
             final IdGenerator idGenerator,
             final boolean sessionsCanBeExitedAnytime,
-            final File[] filenames) {
+            final BehaviorMatrix[] behaviorMatrices) {
 
         this(m4jdslFactory,
              serviceRepository,
              protocolLayerEFSMGenerator,
              idGenerator,
              sessionsCanBeExitedAnytime,
-             null, filenames);  // no graph file path;
+             null, behaviorMatrices);  // no graph file path;
     }
 
 
     /* **************************  public methods  ************************** */
 
 
+    /**
+     * Sets the number of worker threads for collecting the allowed
+     * transitions of the Behavior Models in parallel.
+     *
+     * @param workerCount
+     *     number of worker threads; values less than 2 indicate sequential
+     *     collection (default).
+     */
+    public void setWorkerCount (final int workerCount) {
+
+        this.workerCount = workerCount;
+    }
+
     /**
      * {@inheritDoc}
      * <p> This method creates an EFSM.
@@ -216,10 +247,12 @@ public class SessionLayerEFSMGenerator extends
         
         sessionLayerEFSM.setGuardActionParameterList(guardActionParameterList);
         
-        final HashMap<Service, ApplicationState> serviceAppStateHashMap =
-                new HashMap<Service, ApplicationState>();
+        final HashMap<String, ApplicationState> serviceAppStateHashMap =
+                new HashMap<String, ApplicationState>();
 
-        HashMap<String, List<String>> allowedTransitions = this.getAllAllowedTransitions( this.fileNames );          
+        // might throw a GeneratorException;
+        final TransitionGraph allowedTransitions =
+                this.getAllAllowedTransitions(this.behaviorMatrices);
        
         final Service initialService = this.determineInitialService(
         		allowedTransitions,
@@ -237,7 +270,7 @@ public class SessionLayerEFSMGenerator extends
                 initialService);
 
         sessionLayerEFSM.setInitialState(
-                serviceAppStateHashMap.get(initialService));
+                serviceAppStateHashMap.get( initialService.getName() ));
 
         this.installGenericTransitionsToExitState(
                 sessionLayerEFSM,
@@ -256,9 +289,9 @@ public class SessionLayerEFSMGenerator extends
     /* *********  private methods (Application States installation)  ******** */
     
     private Service determineInitialService (
-            final HashMap<String, List<String>> allowedTransitions,
+            final TransitionGraph allowedTransitions,
             final SessionLayerEFSM sessionLayerEFSM,
-            final HashMap<Service, ApplicationState> serviceAppStateHashMap)
+            final HashMap<String, ApplicationState> serviceAppStateHashMap)
                     throws GeneratorException {
 
         final Service initialService;
@@ -295,16 +328,20 @@ public class SessionLayerEFSMGenerator extends
     }
 
     private LinkedList<Service> findInitialServices (
-            final HashMap<String, List<String>> allowedTransitions) {
+            final TransitionGraph allowedTransitions) {
 
         // initial services to be returned;
         final LinkedList<Service> initialServices = new LinkedList<Service>();
 
-        for (String fromState : allowedTransitions.keySet() ) {        	
+        final BitSet sourceStates = allowedTransitions.getSourceStates();
+
+        for (int from = sourceStates.nextSetBit(0); from >= 0;
+                from = sourceStates.nextSetBit(from + 1)) {
 
-        	if (fromState.contains(INITIAL_STATE_IDENTIFIER)) {
+        	if ( allowedTransitions.isInitialState(from) ) {
         		
-        		String fromStateName = getFullyQualifiedName(fromState);  
+        		String fromStateName = getFullyQualifiedName(
+        		        allowedTransitions.getStateName(from));
         		
         		initialServices.add(this.createService(fromStateName));
 
@@ -324,18 +361,18 @@ public class SessionLayerEFSMGenerator extends
     }    
     
     private Service findFirstService (
-            final HashMap<String, List<String>> allowedTransitions) {
+            final TransitionGraph allowedTransitions) {
     	
     	Service service = null;
     	
-        for (String fromState : allowedTransitions.keySet() ) {            	
+        final int from = allowedTransitions.getSourceStates().nextSetBit(0);
+
+        if (from >= 0) {
         		
-        		String fromStateName = getFullyQualifiedName(fromState);  
+        		String fromStateName = getFullyQualifiedName(
+        		        allowedTransitions.getStateName(from));
         		
         		service = this.createService(fromStateName);
-              
-                break;
-            
         }
 
         return service;
@@ -351,7 +388,7 @@ public class SessionLayerEFSMGenerator extends
      */
     private Service installGenericInitialState (
             final SessionLayerEFSM sessionLayerEFSM,
-            final HashMap<Service, ApplicationState> serviceAppStateHashMap) throws GeneratorException {
+            final HashMap<String, ApplicationState> serviceAppStateHashMap) throws GeneratorException {
 
         final String serviceName =
                 SessionLayerEFSMGenerator.INITIAL_STATE__SERVICE_NAME;
@@ -368,7 +405,7 @@ public class SessionLayerEFSMGenerator extends
                 SessionLayerEFSMGenerator.INITIAL_STATE__SERVICE_NAME);
 
         // (generic) initial state must be registered as a non-exit state;
-        serviceAppStateHashMap.put(initialService, applicationInitialState);
+        serviceAppStateHashMap.put(serviceName, applicationInitialState);
 
         return initialService;
     }
@@ -382,7 +419,7 @@ public class SessionLayerEFSMGenerator extends
      */
     private void installGenericExitState (
             final SessionLayerEFSM sessionLayerEFSM,
-            final HashMap<Service, ApplicationState> serviceAppStateHashMap) throws GeneratorException {
+            final HashMap<String, ApplicationState> serviceAppStateHashMap) throws GeneratorException {
 
         // exit state already exists in (default) Session Layer EFSM -> get ID;
         final String exitStateId = sessionLayerEFSM.getExitState().getEId();
@@ -399,8 +436,8 @@ public class SessionLayerEFSMGenerator extends
 
     private void installStates (
             final SessionLayerEFSM sessionLayerEFSM,
-            final HashMap<Service, ApplicationState> serviceAppStateHashMap,
-            final HashMap<String, List<String>> allowedTransitions,
+            final HashMap<String, ApplicationState> serviceAppStateHashMap,
+            final TransitionGraph allowedTransitions,
             final Service initialService) throws GeneratorException {
 
         // collect all Application States indicated by nodes;
@@ -427,7 +464,8 @@ public class SessionLayerEFSMGenerator extends
 
         for (final Service service : services) {
 
-            final ApplicationState as = serviceAppStateHashMap.get(service);
+            final ApplicationState as =
+                    serviceAppStateHashMap.get( service.getName() );
 
             applicationStates.add(as);
 
@@ -445,17 +483,17 @@ public class SessionLayerEFSMGenerator extends
     }
 
     private boolean isServiceRepositoryConsistent (
-            final Set<Service> servicesSet,
+            final Set<String> serviceNames,
             final List<Service> services) {
 
-        if (servicesSet.size() != services.size()) {
+        if (serviceNames.size() != services.size()) {
 
             return false;
         }
 
-        for (final Service service : servicesSet) {
+        for (final Service service : services) {
 
-            if ( !services.contains(service) ) {
+            if ( !serviceNames.contains( service.getName() ) ) {
 
                 return false;
             }
@@ -465,14 +503,17 @@ public class SessionLayerEFSMGenerator extends
     }
 
     private void collectApplicationStates (
-            final HashMap<String, List<String>> allowedTransitions,
-            final HashMap<Service, ApplicationState> serviceAppStateHashMap) throws GeneratorException {
+            final TransitionGraph allowedTransitions,
+            final HashMap<String, ApplicationState> serviceAppStateHashMap) throws GeneratorException {
 
-        for (final String fromState : allowedTransitions.keySet()) {
+        final BitSet sourceStates = allowedTransitions.getSourceStates();
+
+        for (int from = sourceStates.nextSetBit(0); from >= 0;
+                from = sourceStates.nextSetBit(from + 1)) {
 
                 // might throw a GeneratorException;
                 this.registerApplicationState(
-                        fromState,
+                        allowedTransitions.getStateName(from),
                         serviceAppStateHashMap);
 
         }
@@ -480,14 +521,14 @@ public class SessionLayerEFSMGenerator extends
 
     private void registerApplicationState (
             final String nodeName,
-            final HashMap<Service, ApplicationState> serviceAppStateHashMap) throws GeneratorException {
+            final HashMap<String, ApplicationState> serviceAppStateHashMap) throws GeneratorException {
 
         final String serviceName =
                 this.getFullyQualifiedName(nodeName);
 
         final Service service = this.createService(serviceName);
 
-        if ( !serviceAppStateHashMap.containsKey(service) ) {
+        if ( !serviceAppStateHashMap.containsKey(serviceName) ) {
 
             // might throw a GeneratorException;
             final ProtocolLayerEFSM protocolLayerEFSM =
@@ -498,7 +539,7 @@ public class SessionLayerEFSMGenerator extends
                     this.createApplicationState(service, protocolLayerEFSM);
 
             // register new Application State;
-            serviceAppStateHashMap.put(service, applicationState);
+            serviceAppStateHashMap.put(serviceName, applicationState);
         }
     }
 
@@ -514,18 +555,21 @@ public class SessionLayerEFSMGenerator extends
      */
     private void installGenericTransitionsToExitState (
             final SessionLayerEFSM sessionLayerEFSM,
-            final HashMap<Service, ApplicationState> serviceAppStateHashMap,
-            final HashMap<String, List<String>> allowedTransitions) {
+            final HashMap<String, ApplicationState> serviceAppStateHashMap,
+            final TransitionGraph allowedTransitions) {
 
         final String targetServiceName =
                 SessionLayerEFSMGenerator.EXIT_STATE_NAME;
 
-        for (final String fromString : allowedTransitions.keySet()) {
+        final BitSet sourceStates = allowedTransitions.getSourceStates();
+
+        for (int from = sourceStates.nextSetBit(0); from >= 0;
+                from = sourceStates.nextSetBit(from + 1)) {
 
             if ( this.sessionsCanBeExitedAnytime ) {
 
                 final String sourceServiceName = this.getFullyQualifiedName(
-                		fromString);
+                		allowedTransitions.getStateName(from));
 
                 this.installApplicationTransition(
                         sourceServiceName,
@@ -541,8 +585,8 @@ public class SessionLayerEFSMGenerator extends
 
     private void installFlowTransitions (
             final SessionLayerEFSM sessionLayerEFSM,
-            final HashMap<Service, ApplicationState> serviceAppStateHashMap,
-            final HashMap<String, List<String>> allowedTransitions) {
+            final HashMap<String, ApplicationState> serviceAppStateHashMap,
+            final TransitionGraph allowedTransitions) {
 
         final HashMap<ApplicationState, HashSet<ApplicationTransition>>
         serviceAppTransitionsHashMap =
@@ -557,22 +601,30 @@ public class SessionLayerEFSMGenerator extends
 
 
     private void collectApplicationTransitions (
-            final HashMap<String, List<String>> allowedTransitions,
-            final HashMap<Service, ApplicationState> serviceAppStateHashMap,
+            final TransitionGraph allowedTransitions,
+            final HashMap<String, ApplicationState> serviceAppStateHashMap,
             final HashMap<ApplicationState, HashSet<ApplicationTransition>>
             serviceAppTransitionsHashMap, 
             final SessionLayerEFSM sessionLayerEFSM) {
 
-    		for (final String fromState : allowedTransitions.keySet()) {
+            final BitSet sourceStates = allowedTransitions.getSourceStates();
+
+    		for (int from = sourceStates.nextSetBit(0); from >= 0;
+    		        from = sourceStates.nextSetBit(from + 1)) {
     	
                final String sourceServiceName =
-                        this.getFullyQualifiedName(fromState);
+                        this.getFullyQualifiedName(
+                                allowedTransitions.getStateName(from));
 
-                final List<String> toStates = allowedTransitions.get(fromState);
+                final BitSet toStates = allowedTransitions.getSuccessors(from);
 
                 if ( !toStates.isEmpty() ) {
 
-                    for (final String toString : toStates) {
+                    for (int to = toStates.nextSetBit(0); to >= 0;
+                            to = toStates.nextSetBit(to + 1)) {
+
+                        final String toString =
+                                allowedTransitions.getStateName(to);
                     	
                     	if (!toString.equals(EXIT_STATE_NAME)) {
 	
@@ -599,7 +651,7 @@ public class SessionLayerEFSMGenerator extends
             final String targetServiceName,
             final List<Guard> guards,
             final List<Action> actions,
-            final HashMap<Service, ApplicationState> serviceAppStateHashMap) {
+            final HashMap<String, ApplicationState> serviceAppStateHashMap) {
 
         this.installApplicationTransition(
                 sourceServiceName,
@@ -615,7 +667,7 @@ public class SessionLayerEFSMGenerator extends
             final String targetServiceName,
             final List<Guard> guards,
             final List<Action> actions,
-            final HashMap<Service, ApplicationState> serviceAppStateHashMap,
+            final HashMap<String, ApplicationState> serviceAppStateHashMap,
             final ApplicationExitState applicationExitState) {
 
         final ApplicationState source = this.findApplicationStateByServiceName(
@@ -707,17 +759,10 @@ public class SessionLayerEFSMGenerator extends
 
     private ApplicationState findApplicationStateByServiceName (
             final String serviceName,
-            final HashMap<Service, ApplicationState> serviceAppStateHashMap) {
-
-        for (final Service service : serviceAppStateHashMap.keySet()) {
-
-            if ( service.getName().equals(serviceName) ) {
-
-                return serviceAppStateHashMap.get(service);
-            }
-        }
+            final HashMap<String, ApplicationState> serviceAppStateHashMap) {
 
-        return null;  // no matching state found;
+        // states are keyed by service names, so no search is required;
+        return serviceAppStateHashMap.get(serviceName);
     }
 
 
@@ -759,66 +804,99 @@ public class SessionLayerEFSMGenerator extends
     }
     
     /**
-     * Identify all allowed transitions based on the behaviorModels .csv files. 
-     * 
-     * @param fileNames 
-     * 		behaviorModel fileNames
-     * @return allAllowedTransitions
-     */
-    private HashMap<String, List<String>> getAllAllowedTransitions(final File[] fileNames) {   
-    	HashMap<String, List<String>> allowedTransitions = new HashMap<String, List<String>>();
-    	for (File file : fileNames) {    		
-            final String[][] behaviorInformation =
-                    this.readBehaviorInformation( file.getAbsolutePath() );            
-            for (int row = 1; row < behaviorInformation.length; row++) {
-            	String fromState = behaviorInformation[row][0];     
-            	String toState = "";
-            	for (int col = 1; col < behaviorInformation[row].length; col++) {            		
-            		if (!behaviorInformation[row][col].contains("0.0;")) {
-            			toState = behaviorInformation[0][col];            			
-            			if (allowedTransitions.containsKey(fromState)) {
-            				List<String> toTransitions = allowedTransitions.get(fromState);
-            				if (!toTransitions.contains(toState)) {
-            					toTransitions.add(toState);
-                				allowedTransitions.put(fromState, toTransitions);
-            				}
-            			} else {
-            				List<String> toTransitions = new ArrayList<String>();
-            				if (!toTransitions.contains(toState)) {
-            					toTransitions.add(toState);
-                				allowedTransitions.put(fromState, toTransitions);
-            				}
-            			}                    			
-            		}            		
-            	}            	
-            }        		
-    	}       
-    	return allowedTransitions;
-    }
-    
-    /**
-     * Reads the behavior information from a given CSV file.
+     * Identify all allowed transitions based on the behavior information of
+     * the Behavior Models; a transition is allowed, if its probability is
+     * greater than 0 in any Behavior Model. If multiple worker threads are
+     * available, the transitions of each Behavior Model are collected in
+     * parallel, and the resulting graphs are merged afterwards.
      *
-     * @param filename
-     *     CSV file which provides the behavior information as matrix.
+     * @param behaviorMatrices
+     *     behavior information of the Behavior Models; <code>null</code>
+     *     entries will be ignored.
+     *
+     * @return allAllowedTransitions
      *
-     * @return
-     *     the matrix which has been read from the given CSV file, or
-     *     <code>null</code> if the file could not be read.
+     * @throws GeneratorException
+     *     if the parallel collection fails or has been interrupted.
      */
-    private String[][] readBehaviorInformation (final String filename) {
+    private TransitionGraph getAllAllowedTransitions (
+            final BehaviorMatrix[] behaviorMatrices) throws GeneratorException {
+
+        final TransitionGraph allowedTransitions =
+                new TransitionGraph(behaviorMatrices);
+
+        final int threads = Math.min(this.workerCount, behaviorMatrices.length);
+
+        if (threads <= 1) {
+
+            for (final BehaviorMatrix behaviorMatrix : behaviorMatrices) {
+
+                if (behaviorMatrix != null) {
+
+                    allowedTransitions.addTransitions(behaviorMatrix);
+                }
+            }
+
+            return allowedTransitions;
+        }
 
-        String[][] information;  // to be returned;
+        final ExecutorService executorService =
+                Executors.newFixedThreadPool(threads);
 
         try {
-        	CSVHandler cSVHandler = new CSVHandler();
-            information = cSVHandler.readValues(filename);
 
-        } catch (final Exception ex) {
+            final List<Future<TransitionGraph>> futures =
+                    new ArrayList<Future<TransitionGraph>>();
+
+            for (final BehaviorMatrix behaviorMatrix : behaviorMatrices) {
+
+                if (behaviorMatrix != null) {
+
+                    futures.add( executorService.submit(
+                            new Callable<TransitionGraph>() {
+
+                        @Override
+                        public TransitionGraph call () {
+
+                            final TransitionGraph transitionGraph =
+                                    allowedTransitions.createEmptyCopy();
+
+                            transitionGraph.addTransitions(behaviorMatrix);
+
+                            return transitionGraph;
+                        }
+                    }) );
+                }
+            }
+
+            for (final Future<TransitionGraph> future : futures) {
+
+                allowedTransitions.or( future.get() );
+            }
+
+        } catch (final ExecutionException ex) {
+
+            final String message = String.format(
+                    SessionLayerEFSMGenerator.ERROR_PARALLEL_COLLECTION_FAILED,
+                    ex.getCause());
+
+            throw new GeneratorException(message);
+
+        } catch (final InterruptedException ex) {
+
+            Thread.currentThread().interrupt();
+
+            final String message = String.format(
+                    SessionLayerEFSMGenerator.ERROR_PARALLEL_COLLECTION_FAILED,
+                    ex);
+
+            throw new GeneratorException(message);
+
+        } finally {
 
-            information = null;  // null indicates an error;
+            executorService.shutdownNow();
         }
 
-        return information;
+        return allowedTransitions;
     }
 }
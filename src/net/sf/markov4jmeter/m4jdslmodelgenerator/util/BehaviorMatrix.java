@@ -0,0 +1,1095 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator.util;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Typed representation of the behavior information of a Behavior Model, as
+ * provided by a CSV file of the Behavior Model Extractor. Each row of such a
+ * file is associated with a source state, each column with a target state;
+ * a cell is formatted as <blockquote> <i>&#060;probability&#062;</i>;
+ * <i>&#060;functionDescriptor&#062;</i>(<i>&#060;mean&#062;
+ * &#060;deviation&#062;</i>) </blockquote> whereas only normally distributed
+ * think times (function descriptor <code>"n"</code>) are supported.
+ *
+ * <p> Behavior information might be provided in a binary format as well, see
+ * {@link BinaryBehaviorMatrixHandler}.
+ *
+ * <p> Probabilities and think time parameters are stored in row-major
+ * <code>double</code> arrays; a think time which is missing or cannot be
+ * parsed is indicated by {@link Double#NaN} values. Alternatively, a matrix
+ * might be read in sparse mode, in which only transitions with a probability
+ * greater than 0 are stored in a {@link SparseBehaviorMatrix}; in that case,
+ * no dense arrays are created at all.
+ *
+ * @version  1.0
+ */
+public class BehaviorMatrix {
+
+
+    /* *****************************  constants  **************************** */
+
+
+    /** Separator between the cells of a behavior information file. */
+    private final static char SEPARATOR = ',';
+
+    /** Suffix which marks the name of an initial state. */
+    private final static String INITIAL_STATE_MARKER = "*";
+
+
+    /* *************************  global variables  ************************* */
+
+
+    /** Names of the source states, as given in the first column; initial
+     *  states are marked by an asterisk suffix. */
+    private final String[] rowNames;
+
+    /** Names of the target states, as given in the header row. */
+    private final String[] columnNames;
+
+    /** Row indices, keyed by state names without initial state markers. */
+    private final HashMap<String, Integer> rowIndices;
+
+    /** Transition probabilities, in row-major order, or <code>null</code> if
+     *  the matrix is sparse. */
+    private final double[] probabilities;
+
+    /** Think time means, in row-major order, or <code>null</code> if the
+     *  matrix is sparse. */
+    private final double[] thinkTimeMeans;
+
+    /** Think time deviations, in row-major order, or <code>null</code> if the
+     *  matrix is sparse. */
+    private final double[] thinkTimeDeviations;
+
+    /** Transitions in compressed sparse row format, or <code>null</code> if
+     *  the matrix is dense. */
+    private final SparseBehaviorMatrix sparseMatrix;
+
+
+    /* ***************************  constructors  *************************** */
+
+
+    /**
+     * Constructor for a Behavior Matrix.
+     *
+     * @param rowNames
+     *     names of the source states.
+     * @param columnNames
+     *     names of the target states.
+     * @param probabilities
+     *     transition probabilities, in row-major order.
+     * @param thinkTimeMeans
+     *     think time means, in row-major order.
+     * @param thinkTimeDeviations
+     *     think time deviations, in row-major order.
+     */
+    public BehaviorMatrix (
+            final String[] rowNames,
+            final String[] columnNames,
+            final double[] probabilities,
+            final double[] thinkTimeMeans,
+            final double[] thinkTimeDeviations) {
+
+        this.rowNames            = rowNames;
+        this.columnNames         = columnNames;
+        this.probabilities       = probabilities;
+        this.thinkTimeMeans      = thinkTimeMeans;
+        this.thinkTimeDeviations = thinkTimeDeviations;
+        this.sparseMatrix        = null;
+        this.rowIndices          = BehaviorMatrix.indexRows(rowNames);
+    }
+
+    /**
+     * Constructor for a sparse Behavior Matrix.
+     *
+     * @param rowNames
+     *     names of the source states.
+     * @param columnNames
+     *     names of the target states.
+     * @param sparseMatrix
+     *     transitions in compressed sparse row format, with one row per
+     *     source state.
+     */
+    public BehaviorMatrix (
+            final String[] rowNames,
+            final String[] columnNames,
+            final SparseBehaviorMatrix sparseMatrix) {
+
+        this.rowNames            = rowNames;
+        this.columnNames         = columnNames;
+        this.probabilities       = null;
+        this.thinkTimeMeans      = null;
+        this.thinkTimeDeviations = null;
+        this.sparseMatrix        = sparseMatrix;
+        this.rowIndices          = BehaviorMatrix.indexRows(rowNames);
+    }
+
+
+    /* **************************  public methods  ************************** */
+
+
+    /**
+     * Reads a Behavior Matrix from a file, which might be either a CSV file or
+     * a binary file as written by {@link BinaryBehaviorMatrixHandler}; the
+     * format is detected automatically.
+     *
+     * @param filename
+     *     name of the file which provides the behavior information.
+     *
+     * @return
+     *     the newly created Behavior Matrix.
+     *
+     * @throws FileNotFoundException
+     *     in case the denoted file does not exist.
+     * @throws IOException
+     *     if any error while reading occurs.
+     */
+    public static BehaviorMatrix read (final String filename)
+            throws FileNotFoundException, IOException {
+
+        // might throw a FileNotFound- or IOException;
+        return BehaviorMatrix.read(filename, false);
+    }
+
+    /**
+     * Reads a Behavior Matrix from a file, which might be either a CSV file or
+     * a binary file as written by {@link BinaryBehaviorMatrixHandler}; the
+     * format is detected automatically.
+     *
+     * @param filename
+     *     name of the file which provides the behavior information.
+     * @param sparse
+     *     <code>true</code> if and only if the matrix shall be stored in
+     *     sparse format, without creating any dense arrays.
+     *
+     * @return
+     *     the newly created Behavior Matrix.
+     *
+     * @throws FileNotFoundException
+     *     in case the denoted file does not exist.
+     * @throws IOException
+     *     if any error while reading occurs.
+     */
+    public static BehaviorMatrix read (
+            final String filename,
+            final boolean sparse) throws FileNotFoundException, IOException {
+
+        final BinaryBehaviorMatrixHandler binaryHandler =
+                new BinaryBehaviorMatrixHandler();
+
+        // might throw a FileNotFound- or IOException;
+        return binaryHandler.isBinaryFile(filename) ?
+                binaryHandler.readBehaviorMatrix(filename, sparse) :
+                BehaviorMatrix.readFromCSV(filename, sparse);
+    }
+
+    /**
+     * Reads a Behavior Matrix from a CSV file.
+     *
+     * @param filename
+     *     name of the CSV file which provides the behavior information.
+     *
+     * @return
+     *     the newly created Behavior Matrix.
+     *
+     * @throws FileNotFoundException
+     *     in case the denoted file does not exist.
+     * @throws IOException
+     *     if any error while reading occurs.
+     */
+    public static BehaviorMatrix readFromCSV (final String filename)
+            throws FileNotFoundException, IOException {
+
+        // might throw a FileNotFound- or IOException;
+        return BehaviorMatrix.readFromCSV(filename, false);
+    }
+
+    /**
+     * Reads a Behavior Matrix from a CSV file.
+     *
+     * @param filename
+     *     name of the CSV file which provides the behavior information.
+     * @param sparse
+     *     <code>true</code> if and only if the matrix shall be stored in
+     *     sparse format, without creating any dense arrays.
+     *
+     * @return
+     *     the newly created Behavior Matrix.
+     *
+     * @throws FileNotFoundException
+     *     in case the denoted file does not exist.
+     * @throws IOException
+     *     if any error while reading occurs.
+     */
+    public static BehaviorMatrix readFromCSV (
+            final String filename,
+            final boolean sparse) throws FileNotFoundException, IOException {
+
+        // might throw a FileNotFound- or IOException;
+        final CSVTokenizer tokenizer =
+                new CSVTokenizer(filename, BehaviorMatrix.SEPARATOR);
+
+        final String[] columnNames = BehaviorMatrix.readHeader(tokenizer);
+        final int n = columnNames.length;
+
+        if (sparse) {
+
+            return BehaviorMatrix.readSparseRows(tokenizer, columnNames);
+        }
+
+        final ArrayList<String> rowNames = new ArrayList<String>();
+
+        final TransitionCellDecoder decoder = new TransitionCellDecoder();
+
+        double[] probabilities       = new double[16 * n];
+        double[] thinkTimeMeans      = new double[16 * n];
+        double[] thinkTimeDeviations = new double[16 * n];
+
+        while ( tokenizer.nextLine() ) {
+
+            if ( !tokenizer.nextCell() ) {
+
+                continue;
+            }
+
+            final int offset = rowNames.size() * n;
+
+            if (offset + n > probabilities.length) {
+
+                final int capacity = 2 * probabilities.length;
+
+                probabilities       = grow(probabilities, capacity);
+                thinkTimeMeans      = grow(thinkTimeMeans, capacity);
+                thinkTimeDeviations = grow(thinkTimeDeviations, capacity);
+            }
+
+            rowNames.add( tokenizer.cellAsString() );
+
+            for (int j = 0; j < n; j++) {
+
+                final int index = offset + j;
+
+                if ( tokenizer.nextCell() ) {
+
+                    decoder.decode(tokenizer);
+
+                    probabilities[index]       = decoder.getProbability();
+                    thinkTimeMeans[index]      = decoder.getThinkTimeMean();
+                    thinkTimeDeviations[index] = decoder.getThinkTimeDeviation();
+
+                } else {  // missing cell ~ no transition;
+
+                    probabilities[index]       = 0.0d;
+                    thinkTimeMeans[index]      = Double.NaN;
+                    thinkTimeDeviations[index] = Double.NaN;
+                }
+            }
+        }
+
+        final int size = rowNames.size() * n;
+
+        return new BehaviorMatrix(
+                rowNames.toArray(new String[rowNames.size()]),
+                columnNames,
+                grow(probabilities, size),
+                grow(thinkTimeMeans, size),
+                grow(thinkTimeDeviations, size));
+    }
+
+    /**
+     * Creates a Behavior Matrix in which several states are folded into other
+     * states, preserving the probability mass of all transitions: the
+     * probabilities of folded target states are summed up, and the rows of
+     * folded source states are merged into a single row, weighted by the
+     * probability mass of their incoming transitions; think times are merged
+     * as mixtures of the merged transitions, weighted by probability. A
+     * merged row is marked as initial state, if any of its rows is marked.
+     *
+     * @param stateMapping
+     *     target state names, keyed by the names of the states to be folded;
+     *     states which are not included are kept unchanged.
+     *
+     * @return
+     *     the newly created Behavior Matrix, or this matrix if no state needs
+     *     to be folded.
+     */
+    public BehaviorMatrix fold (final Map<String, String> stateMapping) {
+
+        final int m = this.rowNames.length;
+        final int n = this.columnNames.length;
+
+        final HashMap<String, Integer> foldedRows =
+                new HashMap<String, Integer>();
+
+        final LinkedHashMap<String, Integer> columns =
+                new LinkedHashMap<String, Integer>();
+
+        final int[] rowTargets    = new int[m];
+        final int[] columnTargets = new int[n];
+
+        final double[] rowWeights = new double[m];
+
+        // computed once, since each folded row requires the mass of its state;
+        final HashMap<String, Double> incomingMasses = this.getIncomingMasses();
+
+        int rowCount = 0;
+
+        boolean folded = false;
+
+        for (int j = 0; j < n; j++) {
+
+            final String targetName = stateMapping.get(this.columnNames[j]);
+
+            folded |= (targetName != null);
+
+            columnTargets[j] = BehaviorMatrix.indexOf(columns,
+                    (targetName != null) ? targetName : this.columnNames[j]);
+        }
+
+        for (int i = 0; i < m; i++) {
+
+            final String targetName = stateMapping.get( this.getRowStateName(i) );
+
+            if (targetName == null) {
+
+                // keep the row, even if its name is not unique;
+                rowTargets[i] = rowCount++;
+                rowWeights[i] = 1.0d;
+
+            } else {
+
+                Integer target = foldedRows.get(targetName);
+
+                if (target == null) {
+
+                    target = rowCount++;
+                    foldedRows.put(targetName, target);
+                }
+
+                folded = true;
+
+                final Double incomingMass =
+                        incomingMasses.get( this.getRowStateName(i) );
+
+                rowTargets[i] = target;
+                rowWeights[i] = (incomingMass != null) ? incomingMass : 0.0d;
+
+                if ( this.isInitialState(i) ) {
+
+                    // count each session start as one visit of the state;
+                    rowWeights[i] += 1.0d;
+                }
+            }
+        }
+
+        if (!folded) {
+
+            return this;
+        }
+
+        final int columnCount = columns.size();
+
+        // rows which have no incoming mass at all are merged uniformly;
+        final double[] groupWeights = new double[rowCount];
+
+        for (int i = 0; i < m; i++) {
+
+            groupWeights[rowTargets[i]] += rowWeights[i];
+        }
+
+        for (int i = 0; i < m; i++) {
+
+            if ( !(groupWeights[rowTargets[i]] > 0.0d) ) {
+
+                rowWeights[i] = 1.0d;
+            }
+        }
+
+        Arrays.fill(groupWeights, 0.0d);
+
+        for (int i = 0; i < m; i++) {
+
+            groupWeights[rowTargets[i]] += rowWeights[i];
+        }
+
+        // source rows of each folded row, grouped by a counting sort;
+        final int[] groupStarts = new int[rowCount + 1];
+        final int[] groupRows   = new int[m];
+
+        for (int i = 0; i < m; i++) {
+
+            groupStarts[rowTargets[i] + 1]++;
+        }
+
+        for (int t = 0; t < rowCount; t++) {
+
+            groupStarts[t + 1] += groupStarts[t];
+        }
+
+        final int[] groupPositions = Arrays.copyOf(groupStarts, rowCount);
+
+        for (int i = 0; i < m; i++) {
+
+            groupRows[groupPositions[rowTargets[i]]++] = i;
+        }
+
+        // folded rows are accumulated one by one, in either representation;
+        final FoldedRow foldedRow = new FoldedRow(columnCount);
+
+        final SparseBehaviorMatrix sparseMatrix = (this.sparseMatrix != null) ?
+                new SparseBehaviorMatrix(columnCount) : null;
+
+        final int size = (sparseMatrix == null) ? rowCount * columnCount : 0;
+
+        final double[] probabilities       = new double[size];
+        final double[] thinkTimeMeans      = new double[size];
+        final double[] thinkTimeDeviations = new double[size];
+
+        for (int t = 0; t < rowCount; t++) {
+
+            foldedRow.clear();
+
+            for (int g = groupStarts[t]; g < groupStarts[t + 1]; g++) {
+
+                this.addRow(foldedRow, groupRows[g],
+                        rowWeights[groupRows[g]] / groupWeights[t],
+                        columnTargets);
+            }
+
+            foldedRow.complete();
+
+            if (sparseMatrix != null) {
+
+                for (int j = 0; j < columnCount; j++) {
+
+                    sparseMatrix.addTransition(j,
+                            foldedRow.probabilities[j],
+                            foldedRow.thinkTimeMeans[j],
+                            foldedRow.thinkTimeDeviations[j]);
+                }
+
+                sparseMatrix.endRow();
+
+            } else {
+
+                final int offset = t * columnCount;
+
+                System.arraycopy(foldedRow.probabilities, 0,
+                        probabilities, offset, columnCount);
+                System.arraycopy(foldedRow.thinkTimeMeans, 0,
+                        thinkTimeMeans, offset, columnCount);
+                System.arraycopy(foldedRow.thinkTimeDeviations, 0,
+                        thinkTimeDeviations, offset, columnCount);
+            }
+        }
+
+        final String[] rowNames = new String[rowCount];
+
+        final boolean[] initialRows = new boolean[rowCount];
+
+        for (int i = 0; i < m; i++) {
+
+            final String targetName = stateMapping.get( this.getRowStateName(i) );
+
+            rowNames[rowTargets[i]] =
+                    (targetName != null) ? targetName : this.getRowStateName(i);
+
+            initialRows[rowTargets[i]] |= this.isInitialState(i);
+        }
+
+        for (int i = 0; i < rowCount; i++) {
+
+            if (initialRows[i]) {
+
+                rowNames[i] += BehaviorMatrix.INITIAL_STATE_MARKER;
+            }
+        }
+
+        final String[] columnNames =
+                columns.keySet().toArray(new String[columnCount]);
+
+        if (sparseMatrix != null) {
+
+            sparseMatrix.trimToSize();
+
+            return new BehaviorMatrix(rowNames, columnNames, sparseMatrix);
+        }
+
+        return new BehaviorMatrix(
+                rowNames,
+                columnNames,
+                probabilities,
+                thinkTimeMeans,
+                thinkTimeDeviations);
+    }
+
+    /**
+     * Returns the number of rows (source states).
+     *
+     * @return  a non-negative number.
+     */
+    public int getRowCount () {
+
+        return this.rowNames.length;
+    }
+
+    /**
+     * Returns the number of columns (target states).
+     *
+     * @return  a non-negative number.
+     */
+    public int getColumnCount () {
+
+        return this.columnNames.length;
+    }
+
+    /**
+     * Returns the name of a source state, as given in the first column;
+     * initial states are marked by an asterisk suffix.
+     *
+     * @param row  index of the row.
+     *
+     * @return  a valid <code>String</code> instance.
+     */
+    public String getRowName (final int row) {
+
+        return this.rowNames[row];
+    }
+
+    /**
+     * Returns the name of a source state without initial state marker.
+     *
+     * @param row  index of the row.
+     *
+     * @return  a valid <code>String</code> instance.
+     */
+    public String getRowStateName (final int row) {
+
+        return BehaviorMatrix.removeInitialStateMarker(this.rowNames[row]);
+    }
+
+    /**
+     * Checks whether a source state is marked as initial state.
+     *
+     * @param row  index of the row.
+     *
+     * @return
+     *     <code>true</code> if and only if the row name ends with an initial
+     *     state marker.
+     */
+    public boolean isInitialState (final int row) {
+
+        return this.rowNames[row].endsWith(BehaviorMatrix.INITIAL_STATE_MARKER);
+    }
+
+    /**
+     * Returns the index of the row which is associated with a specific state
+     * name; initial state markers of row names are ignored.
+     *
+     * @param stateName  state name whose associated row shall be found.
+     *
+     * @return  the index of a matching row, or -1 if no matching row exists.
+     */
+    public int getRowIndex (final String stateName) {
+
+        final Integer index = this.rowIndices.get(stateName);
+
+        return (index != null) ? index : -1;
+    }
+
+    /**
+     * Returns the name of a target state, as given in the header row.
+     *
+     * @param column  index of the column.
+     *
+     * @return  a valid <code>String</code> instance.
+     */
+    public String getColumnName (final int column) {
+
+        return this.columnNames[column];
+    }
+
+    /**
+     * Returns the probability of a transition.
+     *
+     * @param row     index of the source state.
+     * @param column  index of the target state.
+     *
+     * @return  a non-negative probability value.
+     */
+    public double getProbability (final int row, final int column) {
+
+        if (this.sparseMatrix != null) {
+
+            final int position = this.sparseMatrix.getPosition(row, column);
+
+            return (position >= 0) ?
+                    this.sparseMatrix.getProbability(position) : 0.0d;
+        }
+
+        return this.probabilities[row * this.columnNames.length + column];
+    }
+
+    /**
+     * Returns the think time mean of a transition.
+     *
+     * @param row     index of the source state.
+     * @param column  index of the target state.
+     *
+     * @return
+     *     the think time mean, or {@link Double#NaN} if no valid think time is
+     *     available.
+     */
+    public double getThinkTimeMean (final int row, final int column) {
+
+        if (this.sparseMatrix != null) {
+
+            final int position = this.sparseMatrix.getPosition(row, column);
+
+            return (position >= 0) ?
+                    this.sparseMatrix.getThinkTimeMean(position) : Double.NaN;
+        }
+
+        return this.thinkTimeMeans[row * this.columnNames.length + column];
+    }
+
+    /**
+     * Returns the think time deviation of a transition.
+     *
+     * @param row     index of the source state.
+     * @param column  index of the target state.
+     *
+     * @return
+     *     the think time deviation, or {@link Double#NaN} if no valid think
+     *     time is available.
+     */
+    public double getThinkTimeDeviation (final int row, final int column) {
+
+        if (this.sparseMatrix != null) {
+
+            final int position = this.sparseMatrix.getPosition(row, column);
+
+            return (position >= 0) ?
+                    this.sparseMatrix.getThinkTimeDeviation(position) :
+                    Double.NaN;
+        }
+
+        return this.thinkTimeDeviations[row * this.columnNames.length + column];
+    }
+
+    /**
+     * Returns the transitions of this matrix in compressed sparse row format,
+     * if the matrix has been created in sparse mode.
+     *
+     * @return
+     *     the sparse transitions, or <code>null</code> if this matrix is
+     *     dense.
+     */
+    public SparseBehaviorMatrix getSparseMatrix () {
+
+        return this.sparseMatrix;
+    }
+
+
+    /* **************************  private methods  ************************* */
+
+
+    /**
+     * Builds an index which maps state names, without initial state markers,
+     * to row indices; if a state name occurs multiple times, its first row
+     * will be indexed.
+     *
+     * @param rowNames  names of the source states.
+     *
+     * @return  the newly created index.
+     */
+    private static HashMap<String, Integer> indexRows (final String[] rowNames) {
+
+        final HashMap<String, Integer> rowIndices =
+                new HashMap<String, Integer>(2 * rowNames.length);
+
+        for (int i = rowNames.length - 1; i >= 0; i--) {
+
+            final String stateName =
+                    BehaviorMatrix.removeInitialStateMarker(rowNames[i]);
+
+            rowIndices.put(stateName, i);  // first occurrence wins;
+        }
+
+        return rowIndices;
+    }
+
+    /**
+     * Returns the sums of all probabilities of transitions which lead to each
+     * target state; the sums are computed in a single pass over the matrix.
+     *
+     * @return
+     *     the probability masses, keyed by the names of all states which are
+     *     included in the header row.
+     */
+    private HashMap<String, Double> getIncomingMasses () {
+
+        final int n = this.columnNames.length;
+
+        final double[] columnMasses = new double[n];
+
+        if (this.sparseMatrix != null) {
+
+            final int size =
+                    this.sparseMatrix.getRowStart(this.rowNames.length);
+
+            for (int k = 0; k < size; k++) {
+
+                columnMasses[this.sparseMatrix.getColumnIndex(k)] +=
+                        this.sparseMatrix.getProbability(k);
+            }
+
+        } else {
+
+            for (int i = 0; i < this.rowNames.length; i++) {
+
+                for (int j = 0; j < n; j++) {
+
+                    columnMasses[j] += this.getProbability(i, j);
+                }
+            }
+        }
+
+        final HashMap<String, Double> incomingMasses =
+                new HashMap<String, Double>(2 * n);
+
+        for (int j = 0; j < n; j++) {
+
+            // a state might be included in multiple columns;
+            final Double mass = incomingMasses.get(this.columnNames[j]);
+
+            incomingMasses.put(this.columnNames[j],
+                    (mass != null) ? mass + columnMasses[j] : columnMasses[j]);
+        }
+
+        return incomingMasses;
+    }
+
+    /**
+     * Adds the transitions of a source row to a folded row.
+     *
+     * @param foldedRow      folded row to which the transitions are added.
+     * @param row            index of the source row.
+     * @param rowWeight      weight of the source row within the folded row.
+     * @param columnTargets  folded column indices, indexed by columns.
+     */
+    private void addRow (
+            final FoldedRow foldedRow,
+            final int row,
+            final double rowWeight,
+            final int[] columnTargets) {
+
+        if (this.sparseMatrix != null) {
+
+            for (int k = this.sparseMatrix.getRowStart(row),
+                    end = this.sparseMatrix.getRowEnd(row); k < end; k++) {
+
+                foldedRow.add(
+                        columnTargets[this.sparseMatrix.getColumnIndex(k)],
+                        rowWeight * this.sparseMatrix.getProbability(k),
+                        this.sparseMatrix.getThinkTimeMean(k),
+                        this.sparseMatrix.getThinkTimeDeviation(k));
+            }
+
+        } else {
+
+            for (int j = 0; j < this.columnNames.length; j++) {
+
+                final double p = this.getProbability(row, j);
+
+                if (p > 0.0d) {
+
+                    foldedRow.add(
+                            columnTargets[j],
+                            rowWeight * p,
+                            this.getThinkTimeMean(row, j),
+                            this.getThinkTimeDeviation(row, j));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the index of a key in an insertion-ordered index; if the key is
+     * not included yet, it will be added with the next free index.
+     *
+     * @param index  index to be searched.
+     * @param key    key whose index shall be returned.
+     *
+     * @return  a non-negative index.
+     */
+    private static int indexOf (
+            final LinkedHashMap<String, Integer> index,
+            final String key) {
+
+        Integer value = index.get(key);
+
+        if (value == null) {
+
+            value = index.size();
+            index.put(key, value);
+        }
+
+        return value;
+    }
+
+    /**
+     * Removes the initial state marker from a state name, if available.
+     *
+     * @param stateName  state name to be processed.
+     *
+     * @return  the state name without initial state marker.
+     */
+    private static String removeInitialStateMarker (final String stateName) {
+
+        if ( stateName.endsWith(BehaviorMatrix.INITIAL_STATE_MARKER) ) {
+
+            return stateName.substring(0, stateName.length() - 1);
+        }
+
+        return stateName;
+    }
+
+    /**
+     * Reads the remaining rows of a CSV file into a sparse Behavior Matrix;
+     * only transitions with a probability greater than 0 are stored.
+     *
+     * @param tokenizer    tokenizer which is positioned behind the header.
+     * @param columnNames  names of the target states.
+     *
+     * @return  the newly created Behavior Matrix.
+     */
+    private static BehaviorMatrix readSparseRows (
+            final CSVTokenizer tokenizer,
+            final String[] columnNames) {
+
+        final int n = columnNames.length;
+
+        final ArrayList<String> rowNames = new ArrayList<String>();
+
+        final TransitionCellDecoder decoder = new TransitionCellDecoder();
+
+        final SparseBehaviorMatrix sparseMatrix = new SparseBehaviorMatrix(n);
+
+        while ( tokenizer.nextLine() ) {
+
+            if ( !tokenizer.nextCell() ) {
+
+                continue;
+            }
+
+            rowNames.add( tokenizer.cellAsString() );
+
+            // missing cells ~ no transitions;
+            for (int j = 0; j < n && tokenizer.nextCell(); j++) {
+
+                decoder.decode(tokenizer);
+
+                sparseMatrix.addTransition(j,
+                        decoder.getProbability(),
+                        decoder.getThinkTimeMean(),
+                        decoder.getThinkTimeDeviation());
+            }
+
+            sparseMatrix.endRow();
+        }
+
+        sparseMatrix.trimToSize();
+
+        return new BehaviorMatrix(
+                rowNames.toArray(new String[rowNames.size()]),
+                columnNames,
+                sparseMatrix);
+    }
+
+    /**
+     * Reads the header row, which provides the target state names; the first
+     * (empty) cell will be skipped.
+     *
+     * @param tokenizer  tokenizer which is positioned in front of the header.
+     *
+     * @return  the names of the target states.
+     */
+    private static String[] readHeader (final CSVTokenizer tokenizer) {
+
+        final ArrayList<String> columnNames = new ArrayList<String>();
+
+        if ( tokenizer.nextLine() && tokenizer.nextCell() ) {
+
+            while ( tokenizer.nextCell() ) {
+
+                columnNames.add( tokenizer.cellAsString() );
+            }
+        }
+
+        return columnNames.toArray(new String[columnNames.size()]);
+    }
+
+    /**
+     * Copies an array into a new array of a given length.
+     *
+     * @param array   array to be copied.
+     * @param length  length of the new array.
+     *
+     * @return  the newly created array.
+     */
+    private static double[] grow (final double[] array, final int length) {
+
+        return Arrays.copyOf(array, length);
+    }
+
+
+    /* *************************  internal classes  ************************* */
+
+
+    /**
+     * Accumulator for a single row of a folded matrix; think times are merged
+     * as mixtures of the accumulated transitions, weighted by probability.
+     */
+    private static class FoldedRow {
+
+        /** Accumulated probabilities, indexed by columns. */
+        private final double[] probabilities;
+
+        /** Accumulated think time means, indexed by columns. */
+        private final double[] thinkTimeMeans;
+
+        /** Accumulated think time deviations, indexed by columns. */
+        private final double[] thinkTimeDeviations;
+
+        /** Accumulated think time weights, indexed by columns. */
+        private final double[] thinkTimeWeights;
+
+        /** Number of think times contributed to each column. */
+        private final int[] contributions;
+
+
+        /**
+         * Constructor for a Folded Row.
+         *
+         * @param columnCount  number of columns of the folded matrix.
+         */
+        public FoldedRow (final int columnCount) {
+
+            this.probabilities       = new double[columnCount];
+            this.thinkTimeMeans      = new double[columnCount];
+            this.thinkTimeDeviations = new double[columnCount];
+            this.thinkTimeWeights    = new double[columnCount];
+            this.contributions       = new int[columnCount];
+        }
+
+        /**
+         * Resets the row for accumulating the next folded row.
+         */
+        public void clear () {
+
+            Arrays.fill(this.probabilities, 0.0d);
+            Arrays.fill(this.thinkTimeWeights, 0.0d);
+            Arrays.fill(this.contributions, 0);
+        }
+
+        /**
+         * Adds a transition to the row.
+         *
+         * @param column  index of the folded target state.
+         * @param weight  weighted probability of the transition.
+         * @param mean    think time mean, or {@link Double#NaN}.
+         * @param dev     think time deviation, or {@link Double#NaN}.
+         */
+        public void add (
+                final int column,
+                final double weight,
+                final double mean,
+                final double dev) {
+
+            this.probabilities[column] += weight;
+
+            if ( Double.isNaN(mean) || Double.isNaN(dev) ) {
+
+                return;
+            }
+
+            if (++this.contributions[column] == 1) {
+
+                this.thinkTimeMeans[column]      = mean;
+                this.thinkTimeDeviations[column] = dev;
+
+            } else {
+
+                // accumulate first and second moments of the mixture;
+                final double w = this.thinkTimeWeights[column];
+
+                if (this.contributions[column] == 2) {
+
+                    final double m1 = this.thinkTimeMeans[column];
+                    final double s1 = this.thinkTimeDeviations[column];
+
+                    this.thinkTimeMeans[column]      = w * m1;
+                    this.thinkTimeDeviations[column] = w * (s1 * s1 + m1 * m1);
+                }
+
+                this.thinkTimeMeans[column]      += weight * mean;
+                this.thinkTimeDeviations[column] +=
+                        weight * (dev * dev + mean * mean);
+            }
+
+            this.thinkTimeWeights[column] += weight;
+        }
+
+        /**
+         * Completes the row by converting the accumulated moments into think
+         * time means and deviations.
+         */
+        public void complete () {
+
+            for (int j = 0; j < this.contributions.length; j++) {
+
+                if (this.contributions[j] == 0) {
+
+                    this.thinkTimeMeans[j]      = Double.NaN;
+                    this.thinkTimeDeviations[j] = Double.NaN;
+
+                } else if (this.contributions[j] > 1) {
+
+                    final double w = this.thinkTimeWeights[j];
+
+                    final double mean     = this.thinkTimeMeans[j] / w;
+                    final double variance =
+                            this.thinkTimeDeviations[j] / w - mean * mean;
+
+                    this.thinkTimeMeans[j]      = mean;
+                    this.thinkTimeDeviations[j] =
+                            Math.sqrt( Math.max(variance, 0.0d) );
+                }
+            }
+        }
+    }
+}
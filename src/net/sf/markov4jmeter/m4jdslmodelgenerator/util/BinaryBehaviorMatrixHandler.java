@@ -0,0 +1,552 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * This class provides methods for reading and writing Behavior Matrices in a
+ * compact binary format, which can be loaded via memory-mapping without any
+ * text parsing. A file of this format is structured as follows (all numbers
+ * in big-endian byte order):
+ *
+ * <ul>
+ *   <li> magic number <code>"WBMX"</code> (4 bytes) and format version
+ *        (<code>int</code>);
+ *   <li> number of rows and columns (<code>int</code> each);
+ *   <li> column names and row names, each as UTF-8 byte length
+ *        (<code>int</code>) followed by the UTF-8 bytes;
+ *   <li> probabilities, think time means and think time deviations, each as
+ *        <i>rows</i> &times; <i>columns</i> <code>double</code> values in
+ *        row-major order.
+ * </ul>
+ *
+ * <p> The {@link #main(String[])} method converts CSV behavior information
+ * files into binary files.
+ *
+ * @version  1.0
+ */
+public class BinaryBehaviorMatrixHandler {
+
+
+    /* *****************************  constants  **************************** */
+
+
+    /** Magic number which identifies a binary Behavior Matrix file. */
+    private final static int MAGIC_NUMBER = 0x57424D58;  // "WBMX";
+
+    /** Version of the binary format. */
+    private final static int FORMAT_VERSION = 1;
+
+    /** Encoding of state names. */
+    private final static Charset CHARSET = Charset.forName("UTF-8");
+
+    /** Usage information for the converter. */
+    private final static String USAGE =
+            "Usage: %s <inputFile.csv> <outputFile> [<inputFile.csv> <outputFile> ...]";
+
+    /** Error message for the case that a file is too large to be mapped. */
+    private final static String ERROR_FILE_TOO_LARGE =
+            "file \"%s\" is too large to be mapped (%d bytes)";
+
+    /** Error message for the case that a file is no binary Behavior Matrix
+     *  file. */
+    private final static String ERROR_INVALID_MAGIC_NUMBER =
+            "file \"%s\" is no binary behavior information file";
+
+    /** Error message for the case that the format version is unsupported. */
+    private final static String ERROR_UNSUPPORTED_VERSION =
+            "file \"%s\" has unsupported format version %d";
+
+    /** Error message for the case that a file is truncated or corrupt. */
+    private final static String ERROR_CORRUPT_FILE =
+            "file \"%s\" is truncated or corrupt";
+
+
+    /* **************************  public methods  ************************** */
+
+
+    /**
+     * Checks whether a file is a binary Behavior Matrix file, which is
+     * indicated by its leading magic number.
+     *
+     * @param filename  name of the file to be checked.
+     *
+     * @return
+     *     <code>true</code> if and only if the file starts with the magic
+     *     number of the binary format.
+     *
+     * @throws FileNotFoundException
+     *     in case the denoted file does not exist.
+     * @throws IOException
+     *     if any error while reading occurs.
+     */
+    public boolean isBinaryFile (final String filename)
+            throws FileNotFoundException, IOException {
+
+        // might throw a FileNotFoundException;
+        final RandomAccessFile file = new RandomAccessFile(filename, "r");
+
+        try {
+
+            // might throw an IOException;
+            return file.length() >= 4 &&
+                   file.readInt() == BinaryBehaviorMatrixHandler.MAGIC_NUMBER;
+
+        } finally {
+
+            try {
+
+                file.close();
+
+            } catch (final IOException ex) {
+
+                // ignore exception, since this is the "finally" block;
+                // TODO: exception message should be written to log file;
+            }
+        }
+    }
+
+    /**
+     * Reads a Behavior Matrix from a binary file, which will be memory-mapped.
+     *
+     * @param filename  name of the binary file to be read.
+     *
+     * @return  the Behavior Matrix which has been read.
+     *
+     * @throws FileNotFoundException
+     *     in case the denoted file does not exist.
+     * @throws IOException
+     *     if any error while reading occurs, or if the file is not a valid
+     *     binary Behavior Matrix file.
+     */
+    public BehaviorMatrix readBehaviorMatrix (final String filename)
+            throws FileNotFoundException, IOException {
+
+        // might throw a FileNotFound- or IOException;
+        return this.readBehaviorMatrix(filename, false);
+    }
+
+    /**
+     * Reads a Behavior Matrix from a binary file, which will be memory-mapped.
+     * In sparse mode, only transitions with a probability greater than 0 are
+     * read from the mapped file, without creating any dense arrays.
+     *
+     * @param filename
+     *     name of the binary file to be read.
+     * @param sparse
+     *     <code>true</code> if and only if the matrix shall be stored in
+     *     sparse format.
+     *
+     * @return
+     *     the Behavior Matrix which has been read.
+     *
+     * @throws FileNotFoundException
+     *     in case the denoted file does not exist.
+     * @throws IOException
+     *     if any error while reading occurs, or if the file is not a valid
+     *     binary Behavior Matrix file.
+     */
+    public BehaviorMatrix readBehaviorMatrix (
+            final String filename,
+            final boolean sparse) throws FileNotFoundException, IOException {
+
+        final MappedByteBuffer buffer = this.map(filename);
+
+        try {
+
+            final int magicNumber = buffer.getInt();
+
+            if (magicNumber != BinaryBehaviorMatrixHandler.MAGIC_NUMBER) {
+
+                throw new IOException(String.format(
+                        BinaryBehaviorMatrixHandler.ERROR_INVALID_MAGIC_NUMBER,
+                        filename));
+            }
+
+            final int version = buffer.getInt();
+
+            if (version != BinaryBehaviorMatrixHandler.FORMAT_VERSION) {
+
+                throw new IOException(String.format(
+                        BinaryBehaviorMatrixHandler.ERROR_UNSUPPORTED_VERSION,
+                        filename,
+                        version));
+            }
+
+            final int rows    = buffer.getInt();
+            final int columns = buffer.getInt();
+
+            if (rows < 0 || columns < 0 ||
+                    (long) rows * columns > Integer.MAX_VALUE) {
+
+                throw new IOException(String.format(
+                        BinaryBehaviorMatrixHandler.ERROR_CORRUPT_FILE,
+                        filename));
+            }
+
+            final String[] columnNames = this.readNames(buffer, columns);
+            final String[] rowNames    = this.readNames(buffer, rows);
+
+            final int size = rows * columns;
+
+            if (sparse) {
+
+                return this.readSparseBehaviorMatrix(
+                        buffer.asDoubleBuffer(),
+                        rowNames,
+                        columnNames,
+                        filename);
+            }
+
+            final double[] probabilities       = new double[size];
+            final double[] thinkTimeMeans      = new double[size];
+            final double[] thinkTimeDeviations = new double[size];
+
+            // bulk reads, advancing the buffer position manually;
+            buffer.asDoubleBuffer().get(probabilities);
+            buffer.position(buffer.position() + 8 * size);
+            buffer.asDoubleBuffer().get(thinkTimeMeans);
+            buffer.position(buffer.position() + 8 * size);
+            buffer.asDoubleBuffer().get(thinkTimeDeviations);
+
+            return new BehaviorMatrix(
+                    rowNames,
+                    columnNames,
+                    probabilities,
+                    thinkTimeMeans,
+                    thinkTimeDeviations);
+
+        } catch (final BufferUnderflowException
+                | IllegalArgumentException ex) {
+
+            throw new IOException(String.format(
+                    BinaryBehaviorMatrixHandler.ERROR_CORRUPT_FILE,
+                    filename));
+        }
+    }
+
+    /**
+     * Reads the transitions of a binary file into a sparse Behavior Matrix;
+     * think times are only read for transitions with a probability greater
+     * than 0.
+     *
+     * @param values
+     *     the mapped probability, think time mean and think time deviation
+     *     blocks, each of them in row-major order.
+     * @param rowNames
+     *     names of the source states.
+     * @param columnNames
+     *     names of the target states.
+     * @param filename
+     *     name of the binary file, for error messages.
+     *
+     * @return
+     *     the Behavior Matrix which has been read.
+     *
+     * @throws IOException
+     *     if the file is truncated.
+     */
+    private BehaviorMatrix readSparseBehaviorMatrix (
+            final DoubleBuffer values,
+            final String[] rowNames,
+            final String[] columnNames,
+            final String filename) throws IOException {
+
+        final int rows    = rowNames.length;
+        final int columns = columnNames.length;
+        final int size    = rows * columns;
+
+        if (values.remaining() < 3L * size) {
+
+            throw new IOException(String.format(
+                    BinaryBehaviorMatrixHandler.ERROR_CORRUPT_FILE,
+                    filename));
+        }
+
+        final SparseBehaviorMatrix sparseMatrix =
+                new SparseBehaviorMatrix(columns);
+
+        for (int i = 0, index = 0; i < rows; i++) {
+
+            for (int j = 0; j < columns; j++, index++) {
+
+                final double probability = values.get(index);
+
+                if (probability > 0.0d) {
+
+                    sparseMatrix.addTransition(j,
+                            probability,
+                            values.get(size + index),
+                            values.get(2 * size + index));
+                }
+            }
+
+            sparseMatrix.endRow();
+        }
+
+        sparseMatrix.trimToSize();
+
+        return new BehaviorMatrix(rowNames, columnNames, sparseMatrix);
+    }
+
+    /**
+     * Writes a Behavior Matrix into a binary file.
+     *
+     * @param behaviorMatrix  Behavior Matrix to be written.
+     * @param filename        name of the file to be written.
+     *
+     * @throws FileNotFoundException
+     *     in case the denoted file cannot be created.
+     * @throws IOException
+     *     if any error while writing occurs.
+     */
+    public void writeBehaviorMatrix (
+            final BehaviorMatrix behaviorMatrix,
+            final String filename) throws FileNotFoundException, IOException {
+
+        final int rows    = behaviorMatrix.getRowCount();
+        final int columns = behaviorMatrix.getColumnCount();
+
+        DataOutputStream out = null;
+
+        try {
+
+            // might throw a FileNotFoundException;
+            out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(filename)));
+
+            // might throw an IOException;
+            out.writeInt(BinaryBehaviorMatrixHandler.MAGIC_NUMBER);
+            out.writeInt(BinaryBehaviorMatrixHandler.FORMAT_VERSION);
+            out.writeInt(rows);
+            out.writeInt(columns);
+
+            for (int j = 0; j < columns; j++) {
+
+                this.writeName(out, behaviorMatrix.getColumnName(j));
+            }
+
+            for (int i = 0; i < rows; i++) {
+
+                this.writeName(out, behaviorMatrix.getRowName(i));
+            }
+
+            for (int i = 0; i < rows; i++) {
+
+                for (int j = 0; j < columns; j++) {
+
+                    out.writeDouble(behaviorMatrix.getProbability(i, j));
+                }
+            }
+
+            for (int i = 0; i < rows; i++) {
+
+                for (int j = 0; j < columns; j++) {
+
+                    out.writeDouble(behaviorMatrix.getThinkTimeMean(i, j));
+                }
+            }
+
+            for (int i = 0; i < rows; i++) {
+
+                for (int j = 0; j < columns; j++) {
+
+                    out.writeDouble(behaviorMatrix.getThinkTimeDeviation(i, j));
+                }
+            }
+
+        } finally {
+
+            if (out != null) {
+
+                try {
+
+                    out.close();
+
+                } catch (final IOException ex) {
+
+                    // ignore exception, since this is the "finally" block;
+                    // TODO: exception message should be written to log file;
+                }
+            }
+        }
+    }
+
+
+    /* **************************  private methods  ************************* */
+
+
+    /**
+     * Maps a file into memory, read-only.
+     *
+     * @param filename  name of the file to be mapped.
+     *
+     * @return  the mapped file content.
+     *
+     * @throws FileNotFoundException
+     *     in case the denoted file does not exist.
+     * @throws IOException
+     *     if any error while mapping the file occurs, or if the file is too
+     *     large to be mapped.
+     */
+    private MappedByteBuffer map (final String filename)
+            throws FileNotFoundException, IOException {
+
+        // might throw a FileNotFoundException;
+        final RandomAccessFile file = new RandomAccessFile(filename, "r");
+
+        try {
+
+            final FileChannel channel = file.getChannel();
+
+            // might throw an IOException;
+            final long size = channel.size();
+
+            if (size > Integer.MAX_VALUE) {
+
+                final String message = String.format(
+                        BinaryBehaviorMatrixHandler.ERROR_FILE_TOO_LARGE,
+                        filename,
+                        size);
+
+                throw new IOException(message);
+            }
+
+            // the mapping remains valid after the channel has been closed;
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+        } finally {
+
+            try {
+
+                file.close();
+
+            } catch (final IOException ex) {
+
+                // ignore exception, since this is the "finally" block;
+                // TODO: exception message should be written to log file;
+            }
+        }
+    }
+
+    /**
+     * Reads a sequence of length-prefixed UTF-8 encoded names.
+     *
+     * @param buffer  buffer to be read from.
+     * @param n       number of names to be read.
+     *
+     * @return  the names which have been read.
+     *
+     * @throws BufferUnderflowException
+     *     if the buffer does not provide enough bytes.
+     * @throws IllegalArgumentException
+     *     if a name length is invalid.
+     */
+    private String[] readNames (final MappedByteBuffer buffer, final int n)
+            throws BufferUnderflowException, IllegalArgumentException {
+
+        final String[] names = new String[n];
+
+        for (int i = 0; i < n; i++) {
+
+            final int length = buffer.getInt();
+
+            if (length < 0 || length > buffer.remaining()) {
+
+                throw new IllegalArgumentException();
+            }
+
+            final byte[] bytes = new byte[length];
+
+            buffer.get(bytes);
+            names[i] = new String(bytes, BinaryBehaviorMatrixHandler.CHARSET);
+        }
+
+        return names;
+    }
+
+    /**
+     * Writes a name as length-prefixed UTF-8 byte sequence.
+     *
+     * @param out   stream to be written to.
+     * @param name  name to be written.
+     *
+     * @throws IOException  if any error while writing occurs.
+     */
+    private void writeName (final DataOutputStream out, final String name)
+            throws IOException {
+
+        final byte[] bytes = name.getBytes(BinaryBehaviorMatrixHandler.CHARSET);
+
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+
+    /* *************************  main method(s)  *************************** */
+
+
+    /**
+     * Converts CSV behavior information files into binary files.
+     *
+     * @param argv
+     *     pairs of input (CSV) and output (binary) filenames.
+     */
+    public static void main (final String[] argv) {
+
+        if (argv.length == 0 || argv.length % 2 != 0) {
+
+            System.out.println(String.format(
+                    BinaryBehaviorMatrixHandler.USAGE,
+                    BinaryBehaviorMatrixHandler.class.getSimpleName()));
+
+            return;
+        }
+
+        final BinaryBehaviorMatrixHandler handler =
+                new BinaryBehaviorMatrixHandler();
+
+        for (int i = 0; i < argv.length; i += 2) {
+
+            try {
+
+                // might throw a FileNotFound- or IOException;
+                final BehaviorMatrix behaviorMatrix =
+                        BehaviorMatrix.readFromCSV(argv[i]);
+
+                // might throw a FileNotFound- or IOException;
+                handler.writeBehaviorMatrix(behaviorMatrix, argv[i + 1]);
+
+            } catch (final IOException ex) {
+
+                ex.printStackTrace();
+            }
+        }
+    }
+}
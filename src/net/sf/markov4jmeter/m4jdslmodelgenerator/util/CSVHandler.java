@@ -220,6 +220,38 @@ public class CSVHandler {
         return values.toArray( new String[][]{} );
     }
 
+    /**
+     * Opens a tokenizer for a CSV-file which is specified by its name; in
+     * contrast to {@link #readValues(String)}, the tokenizer scans the
+     * memory-mapped file directly and creates <code>String</code>s only on
+     * request.
+     *
+     * @param filename
+     *     name of the CSV-file to be tokenized.
+     *
+     * @return
+     *     a tokenizer which is positioned in front of the first line.
+     *
+     * @throws FileNotFoundException
+     *     in case the denoted file does not exist.
+     * @throws IOException
+     *     if any error while mapping the file occurs.
+     * @throws IllegalStateException
+     *     if the separator of this handler is not a single character.
+     */
+    public CSVTokenizer tokenize (final String filename)
+            throws FileNotFoundException, IOException, IllegalStateException {
+
+        if (this.separator == null || this.separator.length() != 1) {
+
+            throw new IllegalStateException(
+                    "tokenizing requires a single-character separator");
+        }
+
+        // might throw a FileNotFound- or IOException;
+        return new CSVTokenizer(filename, this.separator.charAt(0));
+    }
+
     /**
      * Writes values to a CSV-file which is specified by its name.
      *
@@ -0,0 +1,524 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator.util;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Tokenizer for comma-separated-values (CSV) files, which scans a
+ * memory-mapped file directly. Lines are read one after another via
+ * {@link #nextLine()}, and the cells of the current line via
+ * {@link #nextCell()}; the current cell might then be read as
+ * <code>String</code> or, without creating any intermediate
+ * <code>String</code>, as <code>double</code> value.
+ *
+ * <p> The file content is assumed to be UTF-8 encoded (ASCII being a subset);
+ * line-breaks might be any of <code>"\r\n"</code>, <code>"\n"</code> or
+ * <code>"\r"</code>. Cells are not unquoted, and leading/trailing whitespace
+ * of a cell is ignored, just as done by {@link CSVHandler#readValues(String)}.
+ *
+ * @version  1.0
+ */
+public class CSVTokenizer {
+
+
+    /* *****************************  constants  **************************** */
+
+
+    /** Encoding of the file content. */
+    private final static Charset CHARSET = Charset.forName("UTF-8");
+
+    /** Greatest integer up to which all integers are exact doubles (2^53). */
+    private final static long MAX_EXACT_MANTISSA = 1L << 53;
+
+    /** Powers of ten which are exactly representable as doubles. */
+    private final static double[] EXACT_POWERS_OF_TEN = {
+        1e0,  1e1,  1e2,  1e3,  1e4,  1e5,  1e6,  1e7,  1e8,  1e9,  1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /** Error message for the case that a file is too large to be mapped. */
+    private final static String ERROR_FILE_TOO_LARGE =
+            "file \"%s\" is too large to be mapped (%d bytes)";
+
+
+    /* *************************  global variables  ************************* */
+
+
+    /** Content of the file to be tokenized. */
+    private final MappedByteBuffer buffer;
+
+    /** Number of bytes in the buffer. */
+    private final int length;
+
+    /** Separator between cells. */
+    private final byte separator;
+
+    /** Buffer position of the next line to be read. */
+    private int nextLineStart;
+
+    /** Buffer position right after the last character of the current line. */
+    private int lineEnd;
+
+    /** Buffer position of the next cell to be read in the current line, or
+     *  -1 if all cells of the current line have been read. */
+    private int nextCellStart;
+
+    /** Buffer position of the current cell's first character. */
+    private int cellStart;
+
+    /** Buffer position right after the current cell's last character. */
+    private int cellEnd;
+
+    /** Scratch array for decoding <code>String</code>s. */
+    private byte[] scratch = new byte[64];
+
+
+    /* ***************************  constructors  *************************** */
+
+
+    /**
+     * Constructor for a CSV Tokenizer.
+     *
+     * @param filename
+     *     name of the CSV-file to be tokenized.
+     * @param separator
+     *     separator between cells; this must be an ASCII character.
+     *
+     * @throws FileNotFoundException
+     *     in case the denoted file does not exist.
+     * @throws IOException
+     *     if any error while mapping the file occurs, or if the file is too
+     *     large to be mapped.
+     */
+    public CSVTokenizer (final String filename, final char separator)
+            throws FileNotFoundException, IOException {
+
+        // might throw a FileNotFoundException;
+        final RandomAccessFile file = new RandomAccessFile(filename, "r");
+
+        try {
+
+            final FileChannel channel = file.getChannel();
+
+            // might throw an IOException;
+            final long size = channel.size();
+
+            if (size > Integer.MAX_VALUE) {
+
+                final String message = String.format(
+                        CSVTokenizer.ERROR_FILE_TOO_LARGE, filename, size);
+
+                throw new IOException(message);
+            }
+
+            // the mapping remains valid after the channel has been closed;
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+        } finally {
+
+            try {
+
+                file.close();
+
+            } catch (final IOException ex) {
+
+                // ignore exception, since this is the "finally" block;
+                // TODO: exception message should be written to log file;
+            }
+        }
+
+        this.length        = this.buffer.limit();
+        this.separator     = (byte) separator;
+        this.nextLineStart = 0;
+        this.nextCellStart = -1;
+    }
+
+
+    /* **************************  public methods  ************************** */
+
+
+    /**
+     * Advances to the next line.
+     *
+     * @return
+     *     <code>true</code> if and only if a next line is available.
+     */
+    public boolean nextLine () {
+
+        int pos = this.nextLineStart;
+
+        if (pos >= this.length) {
+
+            this.nextCellStart = -1;
+            return false;
+        }
+
+        final int start = pos;
+
+        while (pos < this.length) {
+
+            final byte b = this.buffer.get(pos);
+
+            if (b == '\n' || b == '\r') {
+
+                break;
+            }
+
+            pos++;
+        }
+
+        this.lineEnd = pos;
+
+        // skip the line-break, "\r\n" counting as one;
+        if (pos < this.length && this.buffer.get(pos) == '\r') {
+
+            pos++;
+        }
+
+        if (pos < this.length && this.buffer.get(pos) == '\n') {
+
+            pos++;
+        }
+
+        this.nextLineStart = pos;
+        this.nextCellStart = start;
+
+        return true;
+    }
+
+    /**
+     * Advances to the next cell of the current line.
+     *
+     * @return
+     *     <code>true</code> if and only if a next cell is available in the
+     *     current line.
+     */
+    public boolean nextCell () {
+
+        if (this.nextCellStart < 0) {
+
+            return false;
+        }
+
+        int pos = this.nextCellStart;
+
+        while (pos < this.lineEnd && this.buffer.get(pos) != this.separator) {
+
+            pos++;
+        }
+
+        // trim the cell;
+        int start = this.nextCellStart;
+        int end   = pos;
+
+        while (start < end && CSVTokenizer.isWhitespace(this.buffer.get(start))) {
+
+            start++;
+        }
+
+        while (end > start && CSVTokenizer.isWhitespace(this.buffer.get(end - 1))) {
+
+            end--;
+        }
+
+        this.cellStart = start;
+        this.cellEnd   = end;
+
+        this.nextCellStart = (pos < this.lineEnd) ? pos + 1 : -1;
+
+        return true;
+    }
+
+    /**
+     * Returns the buffer position of the current cell's first (non-whitespace)
+     * character.
+     *
+     * @return  a valid buffer position.
+     */
+    public int getCellStart () {
+
+        return this.cellStart;
+    }
+
+    /**
+     * Returns the buffer position right after the current cell's last
+     * (non-whitespace) character.
+     *
+     * @return  a valid buffer position.
+     */
+    public int getCellEnd () {
+
+        return this.cellEnd;
+    }
+
+    /**
+     * Returns the byte at a given buffer position.
+     *
+     * @param position  buffer position of the byte to be returned.
+     *
+     * @return  the byte at the given position.
+     */
+    public byte byteAt (final int position) {
+
+        return this.buffer.get(position);
+    }
+
+    /**
+     * Indicates whether the current cell is empty (or consists of whitespace
+     * only).
+     *
+     * @return
+     *     <code>true</code> if and only if the current cell is empty.
+     */
+    public boolean isCellEmpty () {
+
+        return this.cellStart == this.cellEnd;
+    }
+
+    /**
+     * Returns the content of the current cell as <code>String</code>, without
+     * any leading or trailing whitespace.
+     *
+     * @return  a valid <code>String</code> instance.
+     */
+    public String cellAsString () {
+
+        return this.decode(this.cellStart, this.cellEnd);
+    }
+
+    /**
+     * Returns the content of the current cell as <code>double</code> value.
+     *
+     * @return  the parsed value.
+     *
+     * @throws NumberFormatException
+     *     if the cell does not denote a <code>double</code> value.
+     */
+    public double cellAsDouble () throws NumberFormatException {
+
+        return this.parseDouble(this.cellStart, this.cellEnd);
+    }
+
+    /**
+     * Parses a <code>double</code> value from a range of the buffer; the
+     * range might be wrapped into whitespace. For plain decimal values, as
+     * they are written by the Behavior Model Extractor, no intermediate
+     * <code>String</code> will be created; the result is always identical to
+     * the one of {@link Double#parseDouble(String)}.
+     *
+     * @param from  buffer position of the first character to be parsed.
+     * @param to    buffer position right after the last character.
+     *
+     * @return  the parsed value.
+     *
+     * @throws NumberFormatException
+     *     if the range does not denote a <code>double</code> value.
+     */
+    public double parseDouble (int from, int to)
+            throws NumberFormatException {
+
+        while (from < to && CSVTokenizer.isWhitespace(this.buffer.get(from))) {
+
+            from++;
+        }
+
+        while (to > from && CSVTokenizer.isWhitespace(this.buffer.get(to - 1))) {
+
+            to--;
+        }
+
+        int pos = from;
+        boolean negative = false;
+
+        if (pos < to) {
+
+            final byte sign = this.buffer.get(pos);
+
+            if (sign == '-' || sign == '+') {
+
+                negative = (sign == '-');
+                pos++;
+            }
+        }
+
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean fraction = false;
+
+        for (; pos < to; pos++) {
+
+            final byte b = this.buffer.get(pos);
+
+            if (b >= '0' && b <= '9') {
+
+                if (mantissa >= CSVTokenizer.MAX_EXACT_MANTISSA / 10) {
+
+                    return this.parseDoubleSlowly(from, to);
+                }
+
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+
+                if (fraction) {
+
+                    exponent--;
+                }
+
+            } else if (b == '.' && !fraction) {
+
+                fraction = true;
+
+            } else if (b == 'e' || b == 'E') {
+
+                break;
+
+            } else {
+
+                return this.parseDoubleSlowly(from, to);
+            }
+        }
+
+        if (digits == 0) {
+
+            return this.parseDoubleSlowly(from, to);
+        }
+
+        if (pos < to) {  // exponent;
+
+            pos++;
+
+            boolean negativeExponent = false;
+
+            if (pos < to) {
+
+                final byte sign = this.buffer.get(pos);
+
+                if (sign == '-' || sign == '+') {
+
+                    negativeExponent = (sign == '-');
+                    pos++;
+                }
+            }
+
+            if (pos == to || to - pos > 3) {
+
+                return this.parseDoubleSlowly(from, to);
+            }
+
+            int e = 0;
+
+            for (; pos < to; pos++) {
+
+                final byte b = this.buffer.get(pos);
+
+                if (b < '0' || b > '9') {
+
+                    return this.parseDoubleSlowly(from, to);
+                }
+
+                e = e * 10 + (b - '0');
+            }
+
+            exponent += negativeExponent ? -e : e;
+        }
+
+        final int maxExponent = CSVTokenizer.EXACT_POWERS_OF_TEN.length - 1;
+
+        if (exponent < -maxExponent || exponent > maxExponent) {
+
+            return this.parseDoubleSlowly(from, to);
+        }
+
+        // both operands are exact, so the result is correctly rounded;
+        final double value = (exponent < 0) ?
+                mantissa / CSVTokenizer.EXACT_POWERS_OF_TEN[-exponent] :
+                mantissa * CSVTokenizer.EXACT_POWERS_OF_TEN[exponent];
+
+        return negative ? -value : value;
+    }
+
+    /**
+     * Decodes a range of the buffer as <code>String</code>.
+     *
+     * @param from  buffer position of the first character to be decoded.
+     * @param to    buffer position right after the last character.
+     *
+     * @return  a valid <code>String</code> instance.
+     */
+    public String decode (final int from, final int to) {
+
+        final int n = to - from;
+
+        if (n > this.scratch.length) {
+
+            this.scratch = new byte[Math.max(n, 2 * this.scratch.length)];
+        }
+
+        for (int i = 0; i < n; i++) {
+
+            this.scratch[i] = this.buffer.get(from + i);
+        }
+
+        return new String(this.scratch, 0, n, CSVTokenizer.CHARSET);
+    }
+
+
+    /* **************************  private methods  ************************* */
+
+
+    /**
+     * Checks whether a given byte denotes a whitespace (or control) character,
+     * just like {@link String#trim()} does.
+     *
+     * @param b  byte to be checked.
+     *
+     * @return
+     *     <code>true</code> if and only if the byte denotes a whitespace; bytes
+     *     of multi-byte UTF-8 sequences are never whitespaces.
+     */
+    private static boolean isWhitespace (final byte b) {
+
+        return b >= 0 && b <= ' ';
+    }
+
+    /**
+     * Parses a <code>double</code> value from a range of the buffer via
+     * {@link Double#parseDouble(String)}; this is used for all values which
+     * cannot be parsed exactly without it.
+     *
+     * @param from  buffer position of the first character to be parsed.
+     * @param to    buffer position right after the last character.
+     *
+     * @return  the parsed value.
+     *
+     * @throws NumberFormatException
+     *     if the range does not denote a <code>double</code> value.
+     */
+    private double parseDoubleSlowly (final int from, final int to)
+            throws NumberFormatException {
+
+        return Double.parseDouble( this.decode(from, to) );
+    }
+}
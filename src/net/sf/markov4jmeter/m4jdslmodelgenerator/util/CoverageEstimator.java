@@ -0,0 +1,343 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator.util;
+
+import java.util.Map;
+
+/**
+ * Estimator for the coverage of aggregated sessions, that is, for the
+ * fraction of all service calls and parameter values which is represented by
+ * the (sampled) sessions. The coverage is estimated by the Good-Turing
+ * estimator <i>1 - f<sub>1</sub>/n</i>, with <i>f<sub>1</sub></i> being the
+ * number of items observed exactly once and <i>n</i> being the number of
+ * observations; the number of distinct services is estimated by the
+ * bias-corrected Chao1 estimator, together with a 95% confidence interval
+ * which is based on the log-normal distribution of the number of unobserved
+ * services (Chao, 1987).
+ *
+ * @version  1.0
+ */
+public class CoverageEstimator {
+
+
+    /* *****************************  constants  **************************** */
+
+
+    /** Quantile of the standard normal distribution for 95% confidence
+     *  intervals. */
+    private final static double Z_95 = 1.96d;
+
+
+    /* *************************  global variables  ************************* */
+
+
+    /** Number of distinct services which have been observed. */
+    private long observedServiceCount;
+
+    /** Number of services which have been observed exactly once. */
+    private long serviceSingletons;
+
+    /** Number of services which have been observed exactly twice. */
+    private long serviceDoubletons;
+
+    /** Number of use cases which have been observed. */
+    private long useCaseCount;
+
+    /** Number of parameter values which have been observed exactly once. */
+    private long valueSingletons;
+
+    /** Number of parameter value occurrences which have been observed. */
+    private long valueCount;
+
+    /** Smallest coverage of the values of a single parameter. */
+    private double minParameterValueCoverage = 1.0d;
+
+    /** Name of the parameter with the smallest value coverage, including its
+     *  service name. */
+    private String minParameterName;
+
+
+    /* ***************************  constructors  *************************** */
+
+
+    /**
+     * Constructor for a Coverage Estimator.
+     *
+     * @param sessionAggregator  aggregated sessions to be evaluated.
+     */
+    public CoverageEstimator (final SessionAggregator sessionAggregator) {
+
+        for (final ServiceSummary serviceSummary :
+                sessionAggregator.getServiceSummaries()) {
+
+            final long n = serviceSummary.getUseCaseCount();
+
+            this.observedServiceCount++;
+            this.useCaseCount += n;
+
+            if (n == 1) {
+
+                this.serviceSingletons++;
+
+            } else if (n == 2) {
+
+                this.serviceDoubletons++;
+            }
+
+            for (final Map.Entry<String, ParameterValueSample> entry :
+                    serviceSummary.getParameters().entrySet()) {
+
+                // value coverage requires the occurrences of values;
+                if ( entry.getValue().isCountingOccurrences() ) {
+
+                    this.addParameter(
+                            serviceSummary.getName() + "." + entry.getKey(),
+                            entry.getValue());
+                }
+            }
+        }
+    }
+
+
+    /* **************************  public methods  ************************** */
+
+
+    /**
+     * Computes the Good-Turing estimate of the sample coverage.
+     *
+     * @param singletons    number of items observed exactly once.
+     * @param observations  number of observations.
+     *
+     * @return
+     *     the estimated coverage in range [0, 1], or 1 if no observations
+     *     are available.
+     */
+    public static double estimateCoverage (
+            final long singletons,
+            final long observations) {
+
+        return (observations > 0) ?
+                1.0d - (double) singletons / observations : 1.0d;
+    }
+
+    /**
+     * Computes the bias-corrected Chao1 estimate of the number of distinct
+     * items.
+     *
+     * @param observed    number of distinct items observed.
+     * @param singletons  number of items observed exactly once.
+     * @param doubletons  number of items observed exactly twice.
+     *
+     * @return  the estimated number of distinct items.
+     */
+    public static double estimateDistinctCount (
+            final long observed,
+            final long singletons,
+            final long doubletons) {
+
+        return observed +
+                (double) singletons * (singletons - 1) / (2 * (doubletons + 1));
+    }
+
+    /**
+     * Computes the variance of the bias-corrected Chao1 estimate of the
+     * number of distinct items.
+     *
+     * @param observed    number of distinct items observed.
+     * @param singletons  number of items observed exactly once.
+     * @param doubletons  number of items observed exactly twice.
+     *
+     * @return  the estimated variance, which is non-negative.
+     */
+    public static double estimateDistinctCountVariance (
+            final long observed,
+            final long singletons,
+            final long doubletons) {
+
+        final double f1 = singletons;
+        final double f2 = doubletons;
+
+        double variance =
+                f1 * (f1 - 1) / (2 * (f2 + 1)) +
+                f1 * (2 * f1 - 1) * (2 * f1 - 1) / (4 * (f2 + 1) * (f2 + 1)) +
+                f1 * f1 * f2 * (f1 - 1) * (f1 - 1) /
+                        (4 * Math.pow(f2 + 1, 4));
+
+        if (doubletons == 0 && singletons > 0) {
+
+            variance -= Math.pow(f1, 4) / (4 * CoverageEstimator
+                    .estimateDistinctCount(observed, singletons, doubletons));
+        }
+
+        return Math.max(variance, 0.0d);
+    }
+
+    /**
+     * Computes a 95% confidence interval for the number of distinct items,
+     * based on the bias-corrected Chao1 estimate; the interval is not
+     * symmetric, and its lower bound is never less than the number of
+     * observed items.
+     *
+     * @param observed    number of distinct items observed.
+     * @param singletons  number of items observed exactly once.
+     * @param doubletons  number of items observed exactly twice.
+     *
+     * @return
+     *     an array which contains the lower and upper bound of the interval;
+     *     both bounds equal the number of observed items, if no unobserved
+     *     items are estimated.
+     */
+    public static double[] estimateDistinctCountInterval (
+            final long observed,
+            final long singletons,
+            final long doubletons) {
+
+        // estimated number of unobserved items;
+        final double t = CoverageEstimator.estimateDistinctCount(
+                observed, singletons, doubletons) - observed;
+
+        final double variance = CoverageEstimator.estimateDistinctCountVariance(
+                observed, singletons, doubletons);
+
+        if ( !(t > 0.0d && variance > 0.0d) ) {
+
+            return new double[]{observed + Math.max(t, 0.0d),
+                                observed + Math.max(t, 0.0d)};
+        }
+
+        final double k = Math.exp(CoverageEstimator.Z_95 *
+                Math.sqrt( Math.log(1.0d + variance / (t * t)) ));
+
+        return new double[]{observed + t / k, observed + t * k};
+    }
+
+    /**
+     * Returns the number of distinct services which have been observed.
+     *
+     * @return  a non-negative number.
+     */
+    public long getObservedServiceCount () {
+
+        return this.observedServiceCount;
+    }
+
+    /**
+     * Returns the estimated number of distinct services, including services
+     * which have not been observed.
+     *
+     * @return  the Chao1 estimate of the number of services.
+     */
+    public double getEstimatedServiceCount () {
+
+        return CoverageEstimator.estimateDistinctCount(
+                this.observedServiceCount,
+                this.serviceSingletons,
+                this.serviceDoubletons);
+    }
+
+    /**
+     * Returns a 95% confidence interval for the number of distinct services.
+     *
+     * @return
+     *     an array which contains the lower and upper bound of the interval.
+     */
+    public double[] getEstimatedServiceCountInterval () {
+
+        return CoverageEstimator.estimateDistinctCountInterval(
+                this.observedServiceCount,
+                this.serviceSingletons,
+                this.serviceDoubletons);
+    }
+
+    /**
+     * Returns the estimated fraction of service calls whose services have
+     * been observed.
+     *
+     * @return  a coverage in range [0, 1].
+     */
+    public double getServiceCoverage () {
+
+        return CoverageEstimator.estimateCoverage(
+                this.serviceSingletons, this.useCaseCount);
+    }
+
+    /**
+     * Returns the estimated fraction of parameter value occurrences whose
+     * values have been observed, pooled over all parameters.
+     *
+     * @return  a coverage in range [0, 1].
+     */
+    public double getParameterValueCoverage () {
+
+        return CoverageEstimator.estimateCoverage(
+                this.valueSingletons, this.valueCount);
+    }
+
+    /**
+     * Returns the smallest value coverage of a single parameter.
+     *
+     * @return  a coverage in range [0, 1].
+     */
+    public double getMinParameterValueCoverage () {
+
+        return this.minParameterValueCoverage;
+    }
+
+    /**
+     * Returns the name of the parameter with the smallest value coverage.
+     *
+     * @return
+     *     the parameter name, prefixed by its service name and a dot, or
+     *     <code>null</code> if no parameters have been observed.
+     */
+    public String getMinParameterName () {
+
+        return this.minParameterName;
+    }
+
+
+    /* **************************  private methods  ************************* */
+
+
+    /**
+     * Adds the values of a parameter to the pooled value counts.
+     *
+     * @param name    name of the parameter.
+     * @param values  values of the parameter.
+     */
+    private void addParameter (
+            final String name,
+            final ParameterValueSample values) {
+
+        final long singletons = values.getFrequencyCount(1);
+        final long n          = values.getKeptValueCount();
+
+        this.valueSingletons += singletons;
+        this.valueCount      += n;
+
+        final double coverage =
+                CoverageEstimator.estimateCoverage(singletons, n);
+
+        if (this.minParameterName == null ||
+                coverage < this.minParameterValueCoverage) {
+
+            this.minParameterValueCoverage = coverage;
+            this.minParameterName          = name;
+        }
+    }
+}
@@ -17,9 +17,12 @@
 
 package net.sf.markov4jmeter.m4jdslmodelgenerator.util;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Helper class for generating unique identifiers. Each identifier consists of
- * a common prefix and a counter ID.
+ * a common prefix and a counter ID. Identifiers might be requested by
+ * multiple threads concurrently.
  *
  * @author   Eike Schulz (esc@informatik.uni-kiel.de)
  * @version  1.0
@@ -40,7 +43,7 @@ public class IdGenerator {
 
 
     /** ID counter for generating unique values. */
-    private long idCounter;
+    private final AtomicLong idCounter;
 
     /** Prefix of each generated identifier. */
     private final String prefix;
@@ -58,7 +61,7 @@ public class IdGenerator {
     public IdGenerator (final String prefix) {
 
         this.prefix    = prefix;
-        this.idCounter = IdGenerator.START_ID;
+        this.idCounter = new AtomicLong(IdGenerator.START_ID);
     }
 
     /**
@@ -89,7 +92,7 @@ public class IdGenerator {
      */
     public void reset () {
 
-        this.idCounter = IdGenerator.START_ID;
+        this.idCounter.set(IdGenerator.START_ID);
     }
 
     /**
@@ -99,6 +102,6 @@ public class IdGenerator {
      */
     public String newId () {
 
-        return this.prefix + this.idCounter++;
+        return this.prefix + this.idCounter.getAndIncrement();
     }
 }
@@ -0,0 +1,465 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator.util;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parallel reader for session log files (<code>sessions.dat</code>), in the
+ * format described in {@link SessionLogReader}. The file is split into
+ * line-aligned chunks, each of which is memory-mapped and parsed by its own
+ * worker thread into a chunk-local {@link SessionAggregator}; finally, the
+ * chunk aggregates are merged in file order, so that the result equals the
+ * result of a sequential read. Like {@link java.io.BufferedReader#readLine()},
+ * the chunk parser accepts line feeds, carriage returns and carriage returns
+ * followed by line feeds as line terminators; chunks are only split after
+ * line feeds.
+ *
+ * @version  1.0
+ */
+public class ParallelSessionLogReader {
+
+
+    /* *****************************  constants  **************************** */
+
+
+    /** Minimum size of a chunk in bytes; smaller files are not split. */
+    private final static long MIN_CHUNK_SIZE = 1L << 20;
+
+    /** Maximum size of a chunk in bytes, which is limited by the size of a
+     *  single memory mapping. */
+    private final static long MAX_CHUNK_SIZE = Integer.MAX_VALUE;
+
+    /** Line feed character, which terminates each line. */
+    private final static byte LINE_FEED = '\n';
+
+    /** Carriage return character, which terminates a line, possibly
+     *  followed by a line feed. */
+    private final static byte CARRIAGE_RETURN = '\r';
+
+    /** Error message for the case that parsing a chunk failed. */
+    private final static String ERROR_CHUNK_PARSING_FAILED =
+            "could not parse chunk of session log file \"%s\": %s";
+
+
+    /* *************************  global variables  ************************* */
+
+
+    /** Number of worker threads which parse the chunks. */
+    private final int workerCount;
+
+    /** Minimum size of a chunk in bytes. */
+    private final long minChunkSize;
+
+    /** Charset of the session log file. */
+    private final Charset charset;
+
+
+    /* ***************************  constructors  *************************** */
+
+
+    /**
+     * Constructor for a Parallel Session Log Reader, which decodes files with
+     * the charset of session log files, see {@link SessionLogReader#CHARSET}.
+     *
+     * @param workerCount
+     *     number of worker threads; a value less than 1 indicates a single
+     *     thread.
+     */
+    public ParallelSessionLogReader (final int workerCount) {
+
+        this(workerCount, ParallelSessionLogReader.MIN_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructor for a Parallel Session Log Reader with a specific minimum
+     * chunk size, e.g., for splitting small files in tests.
+     *
+     * @param workerCount
+     *     number of worker threads; a value less than 1 indicates a single
+     *     thread.
+     * @param minChunkSize
+     *     minimum size of a chunk in bytes; a value less than 1 indicates a
+     *     size of 1 byte.
+     */
+    ParallelSessionLogReader (final int workerCount, final long minChunkSize) {
+
+        this.workerCount  = Math.max(workerCount, 1);
+        this.minChunkSize = Math.max(minChunkSize, 1L);
+        this.charset      = SessionLogReader.CHARSET;
+    }
+
+
+    /* **************************  public methods  ************************** */
+
+
+    /**
+     * Reads a session log file and merges all sessions into an aggregator.
+     *
+     * @param filename
+     *     name of the session log file to be read.
+     * @param sessionAggregator
+     *     aggregator into which the sessions shall be merged; its
+     *     configuration is used for the chunk aggregates, too.
+     *
+     * @throws FileNotFoundException
+     *     in case the denoted file does not exist.
+     * @throws IOException
+     *     if any error while reading occurs.
+     */
+    public void read (
+            final String filename,
+            final SessionAggregator sessionAggregator)
+                    throws FileNotFoundException, IOException {
+
+        FileInputStream fileInputStream = null;
+        ExecutorService executorService = null;
+
+        try {
+
+            // might throw a FileNotFoundException;
+            fileInputStream = new FileInputStream(filename);
+
+            final FileChannel fileChannel = fileInputStream.getChannel();
+
+            // might throw an IOException;
+            final long[] boundaries = this.findChunkBoundaries(fileChannel);
+
+            final int chunkCount = boundaries.length - 1;
+
+            executorService = Executors.newFixedThreadPool(
+                    Math.max(Math.min(this.workerCount, chunkCount), 1));
+
+            final ArrayList<Future<SessionAggregator>> futures =
+                    new ArrayList<Future<SessionAggregator>>(chunkCount);
+
+            for (int i = 0; i < chunkCount; i++) {
+
+                futures.add( executorService.submit(new ChunkTask(
+                        filename,
+                        fileChannel,
+                        boundaries[i],
+                        boundaries[i + 1],
+                        i + 1,
+                        sessionAggregator.createPartialAggregator())) );
+            }
+
+            // merge in file order, for a deterministic result;
+            for (final Future<SessionAggregator> future : futures) {
+
+                // might throw an IOException;
+                sessionAggregator.merge( this.getChunkAggregate(future, filename) );
+            }
+
+            new SessionLogReader().completeSampling(sessionAggregator, filename);
+
+        } finally {
+
+            if (executorService != null) {
+
+                executorService.shutdownNow();
+            }
+
+            if (fileInputStream != null) {
+
+                try {
+
+                    fileInputStream.close();
+
+                } catch (final IOException ex) {
+
+                    // ignore exception, since this is the "finally" block;
+                    // TODO: exception message should be written to log file;
+                }
+            }
+        }
+    }
+
+
+    /* **************************  private methods  ************************* */
+
+
+    /**
+     * Splits a file into line-aligned chunks; each chunk, apart from the last
+     * one, ends right after a line feed.
+     *
+     * @param fileChannel  channel of the file to be split.
+     *
+     * @return
+     *     the chunk boundaries, starting with 0 and ending with the file
+     *     size; chunk <i>i</i> ranges from boundary <i>i</i> (inclusive) to
+     *     boundary <i>i+1</i> (exclusive).
+     *
+     * @throws IOException  if any error while reading occurs.
+     */
+    private long[] findChunkBoundaries (final FileChannel fileChannel)
+            throws IOException {
+
+        // might throw an IOException;
+        final long size = fileChannel.size();
+
+        final long chunkSize = Math.min(
+                Math.max(size / this.workerCount, this.minChunkSize),
+                ParallelSessionLogReader.MAX_CHUNK_SIZE / 2);
+
+        final ArrayList<Long> boundaries = new ArrayList<Long>();
+
+        long position = 0;
+
+        boundaries.add(position);
+
+        while (size - position > chunkSize) {
+
+            // might throw an IOException;
+            position = this.findLineEnd(fileChannel, position + chunkSize);
+
+            boundaries.add(position);
+        }
+
+        if (position < size) {
+
+            boundaries.add(size);
+        }
+
+        final long[] result = new long[boundaries.size()];
+
+        for (int i = 0; i < result.length; i++) {
+
+            result[i] = boundaries.get(i);
+        }
+
+        return result;
+    }
+
+    /**
+     * Finds the position right after the first line feed at or after a given
+     * position.
+     *
+     * @param fileChannel  channel of the file to be searched.
+     * @param position     position at which the search shall start.
+     *
+     * @return
+     *     the position right after the line feed, or the file size if no
+     *     further line feed exists.
+     *
+     * @throws IOException  if any error while reading occurs.
+     */
+    private long findLineEnd (final FileChannel fileChannel, long position)
+            throws IOException {
+
+        final ByteBuffer buffer = ByteBuffer.allocate(8192);
+
+        int n;
+
+        // might throw an IOException;
+        while ((n = fileChannel.read(buffer, position)) > 0) {
+
+            for (int i = 0; i < n; i++) {
+
+                if (buffer.get(i) == ParallelSessionLogReader.LINE_FEED) {
+
+                    return position + i + 1;
+                }
+            }
+
+            position += n;
+            buffer.clear();
+        }
+
+        return fileChannel.size();
+    }
+
+    /**
+     * Waits for the aggregate of a chunk.
+     *
+     * @param future    pending aggregate of the chunk.
+     * @param filename  name of the session log file, for error messages only.
+     *
+     * @return  the aggregate of the chunk.
+     *
+     * @throws IOException
+     *     if parsing the chunk failed or waiting has been interrupted.
+     */
+    private SessionAggregator getChunkAggregate (
+            final Future<SessionAggregator> future,
+            final String filename) throws IOException {
+
+        try {
+
+            return future.get();
+
+        } catch (final ExecutionException ex) {
+
+            final Throwable cause = ex.getCause();
+
+            if (cause instanceof IOException) {
+
+                throw (IOException) cause;
+            }
+
+            final String message = String.format(
+                    ParallelSessionLogReader.ERROR_CHUNK_PARSING_FAILED,
+                    filename,
+                    cause.getMessage());
+
+            throw new IOException(message, cause);
+
+        } catch (final InterruptedException ex) {
+
+            Thread.currentThread().interrupt();
+
+            throw new InterruptedIOException();
+        }
+    }
+
+
+    /* *************************  internal classes  ************************* */
+
+
+    /**
+     * Task which parses a single chunk into a chunk-local aggregate.
+     */
+    private class ChunkTask implements Callable<SessionAggregator> {
+
+        /** Name of the session log file, for warning messages only. */
+        private final String filename;
+
+        /** Channel of the session log file. */
+        private final FileChannel fileChannel;
+
+        /** Start position of the chunk (inclusive). */
+        private final long start;
+
+        /** End position of the chunk (exclusive). */
+        private final long end;
+
+        /** Number of the chunk, for warning messages only. */
+        private final int chunkNumber;
+
+        /** Empty aggregator for the sessions of the chunk. */
+        private final SessionAggregator chunkAggregator;
+
+
+        /**
+         * Constructor for a Chunk Task.
+         *
+         * @param filename            name of the session log file.
+         * @param fileChannel         channel of the session log file.
+         * @param start               start position of the chunk.
+         * @param end                 end position of the chunk.
+         * @param chunkNumber         number of the chunk, starting with 1.
+         * @param chunkAggregator     empty aggregator for the sessions of
+         *                            the chunk.
+         */
+        public ChunkTask (
+                final String filename,
+                final FileChannel fileChannel,
+                final long start,
+                final long end,
+                final int chunkNumber,
+                final SessionAggregator chunkAggregator) {
+
+            this.filename           = filename;
+            this.fileChannel        = fileChannel;
+            this.start              = start;
+            this.end                = end;
+            this.chunkNumber        = chunkNumber;
+            this.chunkAggregator    = chunkAggregator;
+        }
+
+        @Override
+        public SessionAggregator call () throws IOException {
+
+            final SessionAggregator chunkAggregator = this.chunkAggregator;
+
+            final SessionLogReader sessionLogReader = new SessionLogReader();
+
+            // might throw an IOException;
+            final MappedByteBuffer buffer = this.fileChannel.map(
+                    FileChannel.MapMode.READ_ONLY,
+                    this.start,
+                    this.end - this.start);
+
+            final int limit = buffer.limit();
+
+            byte[] line = new byte[256];
+            long lineNumber = 0;
+            int position = 0;
+
+            while (position < limit) {
+
+                int length = 0;
+
+                while (position < limit) {
+
+                    final byte b = buffer.get(position++);
+
+                    if (b == ParallelSessionLogReader.LINE_FEED) {
+
+                        break;
+                    }
+
+                    if (b == ParallelSessionLogReader.CARRIAGE_RETURN) {
+
+                        // a line feed right after it belongs to the same
+                        // line terminator;
+                        if (position < limit && buffer.get(position) ==
+                                ParallelSessionLogReader.LINE_FEED) {
+
+                            position++;
+                        }
+
+                        break;
+                    }
+
+                    if (length == line.length) {
+
+                        line = Arrays.copyOf(line, 2 * length);
+                    }
+
+                    line[length++] = b;
+                }
+
+                lineNumber++;
+
+                sessionLogReader.parseSession(
+                        new String(line, 0, length,
+                                ParallelSessionLogReader.this.charset),
+                        chunkAggregator,
+                        this.filename,
+                        "line " + lineNumber + " of chunk " + this.chunkNumber);
+            }
+
+            return chunkAggregator;
+        }
+    }
+}
@@ -0,0 +1,457 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator.util;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects the distinct values of a request parameter. If the number of
+ * values to be kept is unlimited, all distinct values will be stored in the
+ * order of their first occurrence. Otherwise, a bottom-<i>k</i> reservoir is
+ * used: each distinct value is ranked by a 64-bit hash, and only the
+ * <i>k</i> values with the smallest hashes are kept. This gives a uniform
+ * sample of the distinct values, independent of how often each value occurs,
+ * with bounded memory.
+ *
+ * <p> The number of distinct values is exact as long as the reservoir has not
+ * been filled; beyond that, it is estimated from the <i>k</i>-th smallest
+ * hash (KMV estimator).
+ *
+ * <p> Optionally, the number of occurrences of each kept value is counted;
+ * since a value which has been dropped from the reservoir never re-enters
+ * it, these counts are exact, and frequency counts of the kept values can be
+ * used for coverage estimates (see {@link CoverageEstimator}). Counting is
+ * disabled by default, since it requires an additional map entry per kept
+ * value.
+ *
+ * @version  1.0
+ */
+public class ParameterValueSample {
+
+
+    /* *****************************  constants  **************************** */
+
+
+    /** Maximum number of values indicating that no limit shall be applied. */
+    public final static int UNLIMITED = 0;
+
+    /** Number of hash values in the (non-negative) 63-bit hash space. */
+    private final static double HASH_SPACE_SIZE = 0x1p63;
+
+
+    /* *************************  global variables  ************************* */
+
+
+    /** Maximum number of values to be kept, or {@link #UNLIMITED}. */
+    private final int maxValues;
+
+    /** All distinct values in order of their first occurrence; only used if
+     *  the number of values is unlimited. */
+    private final LinkedHashSet<String> allValues;
+
+    /** Sampled values, keyed (and ordered) by their hash values; only used
+     *  if the number of values is limited. */
+    private final TreeMap<Long, String> sampledValues;
+
+    /** Numbers of occurrences of the kept values, or <code>null</code> if
+     *  occurrences are not counted. */
+    private final HashMap<String, Long> occurrences;
+
+    /** Number of values which have been added, including duplicates. */
+    private long valueCount;
+
+    /** <code>true</code> if and only if any distinct value has been rejected
+     *  or evicted from the reservoir. */
+    private boolean sampled;
+
+
+    /* ***************************  constructors  *************************** */
+
+
+    /**
+     * Constructor for a Parameter Value Sample which does not count the
+     * occurrences of values.
+     *
+     * @param maxValues
+     *     maximum number of distinct values to be kept; a value less than or
+     *     equal to {@link #UNLIMITED} indicates that all values shall be kept.
+     */
+    public ParameterValueSample (final int maxValues) {
+
+        this(maxValues, false);
+    }
+
+    /**
+     * Constructor for a Parameter Value Sample.
+     *
+     * @param maxValues
+     *     maximum number of distinct values to be kept; a value less than or
+     *     equal to {@link #UNLIMITED} indicates that all values shall be kept.
+     * @param countingOccurrences
+     *     <code>true</code> if and only if the occurrences of the kept values
+     *     shall be counted, as required for coverage estimates.
+     */
+    public ParameterValueSample (
+            final int maxValues,
+            final boolean countingOccurrences) {
+
+        this.maxValues   = Math.max(maxValues, ParameterValueSample.UNLIMITED);
+        this.occurrences =
+                countingOccurrences ? new HashMap<String, Long>() : null;
+
+        if (this.maxValues == ParameterValueSample.UNLIMITED) {
+
+            this.allValues     = new LinkedHashSet<String>();
+            this.sampledValues = null;
+
+        } else {
+
+            this.allValues     = null;
+            this.sampledValues = new TreeMap<Long, String>();
+        }
+    }
+
+
+    /* **************************  public methods  ************************** */
+
+
+    /**
+     * Adds a value to the sample.
+     *
+     * @param value
+     *     value to be added; <code>null</code> denotes an empty value.
+     */
+    public void add (final String value) {
+
+        final String v = (value != null) ? value : "";
+
+        this.valueCount++;
+
+        if (this.allValues != null) {
+
+            this.allValues.add(v);
+            this.countOccurrences(v, 1);
+            return;
+        }
+
+        this.addSampledValue(ParameterValueSample.hash(v), v, 1);
+    }
+
+    /**
+     * Merges another sample into this sample; both samples must keep the
+     * same maximum number of values. Since the kept values only depend on
+     * their hashes, merging the samples of partial inputs gives the same
+     * result as adding all values to a single sample; if the number of values
+     * is unlimited, the values of this sample precede those of the other one.
+     *
+     * @param sample  sample to be merged into this sample.
+     */
+    public void merge (final ParameterValueSample sample) {
+
+        this.valueCount += sample.valueCount;
+        this.sampled    |= sample.sampled;
+
+        if (this.allValues != null) {
+
+            for (final String value : sample.allValues) {
+
+                this.allValues.add(value);
+                this.countOccurrences(value, sample.getOccurrences(value));
+            }
+
+            return;
+        }
+
+        for (final Map.Entry<Long, String> entry :
+                sample.sampledValues.entrySet()) {
+
+            final String value = entry.getValue();
+
+            this.addSampledValue(
+                    entry.getKey(), value, sample.getOccurrences(value));
+        }
+    }
+
+    /**
+     * Returns the values which have been kept.
+     *
+     * @return  a valid collection of distinct values.
+     */
+    public Collection<String> getValues () {
+
+        return (this.allValues != null) ?
+                this.allValues : this.sampledValues.values();
+    }
+
+    /**
+     * Returns the number of values which have been added, including
+     * duplicates.
+     *
+     * @return  a non-negative number.
+     */
+    public long getValueCount () {
+
+        return this.valueCount;
+    }
+
+    /**
+     * Checks whether the occurrences of the kept values are counted.
+     *
+     * @return
+     *     <code>true</code> if and only if occurrences are counted.
+     */
+    public boolean isCountingOccurrences () {
+
+        return this.occurrences != null;
+    }
+
+    /**
+     * Returns the number of kept values which occurred exactly a given number
+     * of times; for example, <code>getFrequencyCount(1)</code> returns the
+     * number of kept values which occurred only once (singletons). This
+     * method requires occurrences to be counted.
+     *
+     * @param frequency  number of occurrences.
+     *
+     * @return
+     *     a non-negative number, or 0 if occurrences are not counted.
+     */
+    public long getFrequencyCount (final long frequency) {
+
+        long count = 0;
+
+        if (this.occurrences == null) {
+
+            return count;
+        }
+
+        for (final Long n : this.occurrences.values()) {
+
+            if (n == frequency) {
+
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the total number of occurrences of all kept values; this number
+     * equals {@link #getValueCount()}, unless the values have been sampled.
+     * This method requires occurrences to be counted.
+     *
+     * @return
+     *     a non-negative number, or 0 if occurrences are not counted.
+     */
+    public long getKeptValueCount () {
+
+        long count = 0;
+
+        if (this.occurrences == null) {
+
+            return count;
+        }
+
+        for (final Long n : this.occurrences.values()) {
+
+            count += n;
+        }
+
+        return count;
+    }
+
+    /**
+     * Indicates whether the distinct values have been sampled, that is, if
+     * any distinct values have been dropped.
+     *
+     * @return
+     *     <code>true</code> if and only if not all distinct values are kept.
+     */
+    public boolean isSampled () {
+
+        return this.sampled;
+    }
+
+    /**
+     * Returns the number of distinct values which have been added; the value
+     * is exact, unless the values have been sampled, in which case it is
+     * estimated.
+     *
+     * @return  the (estimated) number of distinct values.
+     */
+    public long getDistinctCount () {
+
+        // the KMV estimate requires a full reservoir, which is given unless
+        // values have been dropped due to hash collisions only;
+        if ( !this.isSampled() || this.sampledValues.size() < this.maxValues ) {
+
+            return this.getValues().size();
+        }
+
+        // KMV estimate: (k - 1) / (k-th smallest hash, normalized to [0,1]);
+        final double kthHash =
+                (this.sampledValues.lastKey() + 1.0d) /
+                ParameterValueSample.HASH_SPACE_SIZE;
+
+        return Math.round((this.maxValues - 1) / kthHash);
+    }
+
+    /**
+     * Joins all kept values to a single <code>String</code>, each value being
+     * trimmed and followed by the given delimiter.
+     *
+     * @param delimiter  delimiter to be appended to each value.
+     *
+     * @return  a valid <code>String</code> instance.
+     */
+    public String join (final String delimiter) {
+
+        final StringBuilder stringBuilder = new StringBuilder();
+
+        for (final String value : this.getValues()) {
+
+            stringBuilder.append(value.trim()).append(delimiter);
+        }
+
+        return stringBuilder.toString();
+    }
+
+
+    /* **************************  private methods  ************************* */
+
+
+    /**
+     * Adds a value to the reservoir, if its hash is among the <i>k</i>
+     * smallest hashes.
+     *
+     * @param hash   hash value of the value to be added.
+     * @param value  value to be added.
+     * @param count  number of occurrences of the value to be added.
+     */
+    private void addSampledValue (
+            final Long hash,
+            final String value,
+            final long count) {
+
+        if ( this.sampledValues.containsKey(hash) ) {
+
+            // value is already included, unless its hash collides;
+            if ( value.equals(this.sampledValues.get(hash)) ) {
+
+                this.countOccurrences(value, count);
+
+            } else {
+
+                this.sampled = true;
+            }
+
+        } else if (this.sampledValues.size() < this.maxValues) {
+
+            this.sampledValues.put(hash, value);
+            this.countOccurrences(value, count);
+
+        } else if (hash < this.sampledValues.lastKey()) {
+
+            final String evictedValue =
+                    this.sampledValues.pollLastEntry().getValue();
+
+            if (this.occurrences != null) {
+
+                this.occurrences.remove(evictedValue);
+            }
+
+            this.sampledValues.put(hash, value);
+            this.countOccurrences(value, count);
+            this.sampled = true;
+
+        } else {
+
+            this.sampled = true;
+        }
+    }
+
+    /**
+     * Increases the number of occurrences of a kept value, if occurrences are
+     * counted.
+     *
+     * @param value  value whose occurrences shall be counted.
+     * @param count  number of occurrences to be added.
+     */
+    private void countOccurrences (final String value, final long count) {
+
+        if (this.occurrences == null) {
+
+            return;
+        }
+
+        final Long n = this.occurrences.get(value);
+
+        this.occurrences.put(value, (n != null) ? n + count : count);
+    }
+
+    /**
+     * Returns the number of occurrences of a kept value.
+     *
+     * @param value  value whose occurrences shall be returned.
+     *
+     * @return
+     *     the number of occurrences, or 0 if occurrences are not counted.
+     */
+    private long getOccurrences (final String value) {
+
+        final Long n =
+                (this.occurrences != null) ? this.occurrences.get(value) : null;
+
+        return (n != null) ? n : 0;
+    }
+
+    /**
+     * Computes a non-negative 63-bit hash value for a given
+     * <code>String</code> (FNV-1a, followed by a 64-bit finalizer for a
+     * uniform distribution of the resulting bits); this method is shared with
+     * other classes of this package which require uniformly distributed
+     * hashes.
+     *
+     * @param str  <code>String</code> to be hashed.
+     *
+     * @return  a non-negative hash value.
+     */
+    static long hash (final String str) {
+
+        long h = 0xcbf29ce484222325L;
+
+        for (int i = 0, n = str.length(); i < n; i++) {
+
+            h ^= str.charAt(i);
+            h *= 0x100000001b3L;
+        }
+
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+
+        return h >>> 1;
+    }
+}
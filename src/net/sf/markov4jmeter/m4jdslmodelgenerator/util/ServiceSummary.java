@@ -0,0 +1,302 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Summary of all use cases of a single service, as required for generating
+ * the Protocol Layer EFSM of that service: the endpoint information is taken
+ * from the first use case of the service, and the values of all request
+ * parameters are collected in {@link ParameterValueSample} instances.
+ *
+ * @version  1.0
+ */
+public class ServiceSummary {
+
+
+    /* *************************  global variables  ************************* */
+
+
+    /** Name of the service. */
+    private final String name;
+
+    /** Maximum number of distinct values to be kept per parameter. */
+    private final int maxParameterValues;
+
+    /** <code>true</code> if and only if the occurrences of parameter values
+     *  shall be counted. */
+    private final boolean countingOccurrences;
+
+    /** Parameter values, keyed by parameter names in order of their first
+     *  occurrence. */
+    private final LinkedHashMap<String, ParameterValueSample> parameters;
+
+    /** Number of use cases which have been summarized. */
+    private long useCaseCount;
+
+    /** IP address of the first use case. */
+    private String ip;
+
+    /** Port of the first use case. */
+    private int port;
+
+    /** URI of the first use case. */
+    private String uri;
+
+    /** Request method of the first use case. */
+    private String method;
+
+    /** Encoding of the first use case. */
+    private String encoding;
+
+    /** Protocol of the first use case. */
+    private String protocol;
+
+
+    /* ***************************  constructors  *************************** */
+
+
+    /**
+     * Constructor for a Service Summary.
+     *
+     * @param name
+     *     name of the service.
+     * @param maxParameterValues
+     *     maximum number of distinct values to be kept per parameter, or
+     *     {@link ParameterValueSample#UNLIMITED}.
+     * @param countingOccurrences
+     *     <code>true</code> if and only if the occurrences of parameter values
+     *     shall be counted, as required for coverage estimates.
+     */
+    public ServiceSummary (
+            final String name,
+            final int maxParameterValues,
+            final boolean countingOccurrences) {
+
+        this.name                = name;
+        this.maxParameterValues  = maxParameterValues;
+        this.countingOccurrences = countingOccurrences;
+        this.parameters          =
+                new LinkedHashMap<String, ParameterValueSample>();
+    }
+
+
+    /* **************************  public methods  ************************** */
+
+
+    /**
+     * Counts a use case of the service, regardless of whether it provides
+     * any endpoint information.
+     */
+    public void countUseCase () {
+
+        this.useCaseCount++;
+    }
+
+    /**
+     * Adds the endpoint information of a use case; only the information of
+     * the first use case with a URI will be kept.
+     *
+     * @param ip        IP address of the use case.
+     * @param port      port of the use case.
+     * @param uri       URI of the use case.
+     * @param method    request method of the use case.
+     * @param encoding  encoding of the use case.
+     * @param protocol  protocol of the use case.
+     */
+    public void addEndpoint (
+            final String ip,
+            final int port,
+            final String uri,
+            final String method,
+            final String encoding,
+            final String protocol) {
+
+        if (this.uri == null) {
+
+            this.ip       = ip;
+            this.port     = port;
+            this.uri      = uri;
+            this.method   = method;
+            this.encoding = encoding;
+            this.protocol = protocol;
+        }
+    }
+
+    /**
+     * Adds a value of a request parameter.
+     *
+     * @param parameterName
+     *     name of the parameter.
+     * @param value
+     *     value to be added; <code>null</code> denotes an empty value.
+     */
+    public void addParameterValue (
+            final String parameterName,
+            final String value) {
+
+        ParameterValueSample values = this.parameters.get(parameterName);
+
+        if (values == null) {
+
+            values = new ParameterValueSample(
+                    this.maxParameterValues, this.countingOccurrences);
+            this.parameters.put(parameterName, values);
+        }
+
+        values.add(value);
+    }
+
+    /**
+     * Merges the summary of a subsequent part of the sessions into this
+     * summary; the endpoint information of this summary is kept, unless it
+     * has no endpoint information yet. If services are folded, e.g., by URI
+     * templating, the resulting service therefore keeps the endpoint of the
+     * first folded service which provides one, including its concrete URI.
+     *
+     * @param serviceSummary  summary to be merged into this summary.
+     */
+    public void merge (final ServiceSummary serviceSummary) {
+
+        if (this.uri == null) {
+
+            this.ip       = serviceSummary.ip;
+            this.port     = serviceSummary.port;
+            this.uri      = serviceSummary.uri;
+            this.method   = serviceSummary.method;
+            this.encoding = serviceSummary.encoding;
+            this.protocol = serviceSummary.protocol;
+        }
+
+        this.useCaseCount += serviceSummary.useCaseCount;
+
+        for (final Map.Entry<String, ParameterValueSample> entry :
+                serviceSummary.parameters.entrySet()) {
+
+            final ParameterValueSample values =
+                    this.parameters.get( entry.getKey() );
+
+            if (values == null) {
+
+                final ParameterValueSample copy = new ParameterValueSample(
+                        this.maxParameterValues, this.countingOccurrences);
+
+                copy.merge( entry.getValue() );
+                this.parameters.put(entry.getKey(), copy);
+
+            } else {
+
+                values.merge( entry.getValue() );
+            }
+        }
+    }
+
+    /**
+     * Returns the name of the service.
+     *
+     * @return  a valid <code>String</code> instance.
+     */
+    public String getName () {
+
+        return this.name;
+    }
+
+    /**
+     * Returns the number of use cases which have been summarized.
+     *
+     * @return  a non-negative number.
+     */
+    public long getUseCaseCount () {
+
+        return this.useCaseCount;
+    }
+
+    /**
+     * Returns the IP address of the first use case.
+     *
+     * @return  the IP address, or <code>null</code> if not available.
+     */
+    public String getIp () {
+
+        return this.ip;
+    }
+
+    /**
+     * Returns the port of the first use case.
+     *
+     * @return  the port number.
+     */
+    public int getPort () {
+
+        return this.port;
+    }
+
+    /**
+     * Returns the URI of the first use case.
+     *
+     * @return  the URI, or <code>null</code> if not available.
+     */
+    public String getUri () {
+
+        return this.uri;
+    }
+
+    /**
+     * Returns the request method of the first use case.
+     *
+     * @return  the request method, or <code>null</code> if not available.
+     */
+    public String getMethod () {
+
+        return this.method;
+    }
+
+    /**
+     * Returns the encoding of the first use case.
+     *
+     * @return  the encoding, or <code>null</code> if not available.
+     */
+    public String getEncoding () {
+
+        return this.encoding;
+    }
+
+    /**
+     * Returns the protocol of the first use case.
+     *
+     * @return  the protocol, or <code>null</code> if not available.
+     */
+    public String getProtocol () {
+
+        return this.protocol;
+    }
+
+    /**
+     * Returns the values of all request parameters.
+     *
+     * @return
+     *     the parameter values, keyed by parameter names in order of their
+     *     first occurrence.
+     */
+    public LinkedHashMap<String, ParameterValueSample> getParameters () {
+
+        return this.parameters;
+    }
+}
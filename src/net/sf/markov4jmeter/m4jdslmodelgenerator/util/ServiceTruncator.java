@@ -0,0 +1,350 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator.util;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * Truncator which bounds the number of services of a workload model: only
+ * the most frequent services are kept, and all other services are folded into
+ * a single aggregate service, see {@link #OTHER_SERVICE_NAME}. The services
+ * are ranked by their exact weights, which are either the use case counts of
+ * aggregated sessions or, if no use cases are available, the probability mass
+ * of the incoming transitions in the Behavior Models.
+ *
+ * <p> Exit states and initial states are never folded, since they are
+ * required for building valid Behavior Models.
+ *
+ * @version  1.0
+ */
+public class ServiceTruncator {
+
+
+    /* *****************************  constants  **************************** */
+
+
+    /** Name of the aggregate service into which rare services are folded. */
+    public final static String OTHER_SERVICE_NAME = "OTHER";
+
+    /** Name of the exit state in Behavior Models. */
+    private final static String EXIT_STATE_NAME = "$";
+
+    /** Comparator which orders weighted services by descending weight. */
+    private final static Comparator<Map.Entry<String, Double>>
+    DESCENDING_WEIGHT_ORDER = new Comparator<Map.Entry<String, Double>>() {
+
+        @Override
+        public int compare (
+                final Map.Entry<String, Double> e1,
+                final Map.Entry<String, Double> e2) {
+
+            return Double.compare(e2.getValue(), e1.getValue());
+        }
+    };
+
+
+    /* *************************  global variables  ************************* */
+
+
+    /** Maximum number of services to be kept, or 0 for no limit. */
+    private final int maxServices;
+
+    /** Minimum share of all service calls a service must have for being
+     *  kept, or 0 for no minimum. */
+    private final double minServiceShare;
+
+    /** Number of distinct services which have been inspected by the most
+     *  recent truncation. */
+    private int serviceCount;
+
+
+    /* ***************************  constructors  *************************** */
+
+
+    /**
+     * Constructor for a Service Truncator.
+     *
+     * @param maxServices
+     *     maximum number of services to be kept, or 0 for no limit.
+     * @param minServiceShare
+     *     minimum share of all service calls a service must have for being
+     *     kept, in range [0, 1]; 0 denotes no minimum.
+     */
+    public ServiceTruncator (final int maxServices, final double minServiceShare) {
+
+        this.maxServices     = Math.max(maxServices, 0);
+        this.minServiceShare = Math.max(minServiceShare, 0.0d);
+    }
+
+
+    /* **************************  public methods  ************************** */
+
+
+    /**
+     * Checks whether this truncator limits the number of services at all.
+     *
+     * @return
+     *     <code>true</code> if and only if a maximum number of services or a
+     *     minimum share has been defined.
+     */
+    public boolean isEnabled () {
+
+        return this.maxServices > 0 || this.minServiceShare > 0.0d;
+    }
+
+    /**
+     * Determines the services to be folded.
+     *
+     * @param sessionAggregator
+     *     aggregated sessions, which provide the use case counts of all
+     *     services.
+     * @param behaviorMatrices
+     *     behavior information of all Behavior Models; <code>null</code>
+     *     elements are ignored.
+     *
+     * @return
+     *     the name of the aggregate service, keyed by the names of the
+     *     services to be folded; the map is empty if less than two services
+     *     would be folded.
+     */
+    public LinkedHashMap<String, String> computeServiceMapping (
+            final SessionAggregator sessionAggregator,
+            final BehaviorMatrix[] behaviorMatrices) {
+
+        final LinkedHashMap<String, String> serviceMapping =
+                new LinkedHashMap<String, String>();
+
+        if ( !this.isEnabled() ) {
+
+            return serviceMapping;
+        }
+
+        final LinkedHashSet<String> serviceNames = new LinkedHashSet<String>();
+        final HashSet<String> keptServiceNames   = new HashSet<String>();
+
+        keptServiceNames.add(ServiceTruncator.EXIT_STATE_NAME);
+
+        // weights of all services, keyed by service names;
+        final LinkedHashMap<String, Double> serviceWeights =
+                new LinkedHashMap<String, Double>();
+
+        long useCaseCount = 0;
+
+        for (final ServiceSummary serviceSummary :
+                sessionAggregator.getServiceSummaries()) {
+
+            serviceNames.add( serviceSummary.getName() );
+
+            ServiceTruncator.addWeight(
+                    serviceWeights,
+                    serviceSummary.getName(),
+                    serviceSummary.getUseCaseCount());
+
+            useCaseCount += serviceSummary.getUseCaseCount();
+        }
+
+        final boolean useCasesAvailable = useCaseCount > 0;
+
+        for (final BehaviorMatrix behaviorMatrix : behaviorMatrices) {
+
+            if (behaviorMatrix == null) {
+
+                continue;
+            }
+
+            for (int i = 0; i < behaviorMatrix.getRowCount(); i++) {
+
+                serviceNames.add( behaviorMatrix.getRowStateName(i) );
+
+                if ( behaviorMatrix.isInitialState(i) ) {
+
+                    keptServiceNames.add( behaviorMatrix.getRowStateName(i) );
+                }
+            }
+
+            for (int j = 0; j < behaviorMatrix.getColumnCount(); j++) {
+
+                final String serviceName = behaviorMatrix.getColumnName(j);
+
+                serviceNames.add(serviceName);
+
+                if (!useCasesAvailable) {
+
+                    double incomingMass = 0.0d;
+
+                    for (int i = 0; i < behaviorMatrix.getRowCount(); i++) {
+
+                        incomingMass += behaviorMatrix.getProbability(i, j);
+                    }
+
+                    ServiceTruncator.addWeight(
+                            serviceWeights, serviceName, incomingMass);
+                }
+            }
+        }
+
+        keptServiceNames.addAll(
+                this.getTopServiceNames(serviceNames, serviceWeights) );
+
+        final String otherServiceName =
+                ServiceTruncator.getOtherServiceName(keptServiceNames);
+
+        for (final String serviceName : serviceNames) {
+
+            if ( !keptServiceNames.contains(serviceName) ) {
+
+                serviceMapping.put(serviceName, otherServiceName);
+            }
+        }
+
+        this.serviceCount = serviceNames.size();
+
+        // folding a single service would only rename it;
+        if (serviceMapping.size() < 2) {
+
+            serviceMapping.clear();
+        }
+
+        return serviceMapping;
+    }
+
+    /**
+     * Returns the number of distinct services which have been inspected by
+     * the most recent call of
+     * {@link #computeServiceMapping(SessionAggregator, BehaviorMatrix[])}.
+     *
+     * @return  a non-negative number.
+     */
+    public int getServiceCount () {
+
+        return this.serviceCount;
+    }
+
+
+    /* **************************  private methods  ************************* */
+
+
+    /**
+     * Returns the names of the services with the highest weights, limited by
+     * the maximum number of services and the minimum share.
+     *
+     * @param serviceNames
+     *     names of all services to be ranked.
+     * @param serviceWeights
+     *     weights of the services, keyed by service names; services without
+     *     weight are regarded as having weight 0.
+     *
+     * @return
+     *     the names of the services to be kept, ordered by descending weight;
+     *     services of equal weight keep their order of occurrence.
+     */
+    private ArrayList<String> getTopServiceNames (
+            final LinkedHashSet<String> serviceNames,
+            final LinkedHashMap<String, Double> serviceWeights) {
+
+        final ArrayList<Map.Entry<String, Double>> weightedServices =
+                new ArrayList<Map.Entry<String, Double>>();
+
+        double totalWeight = 0.0d;
+
+        for (final String serviceName : serviceNames) {
+
+            if ( ServiceTruncator.EXIT_STATE_NAME.equals(serviceName) ) {
+
+                continue;
+            }
+
+            final Double weight = serviceWeights.get(serviceName);
+            final double value  = (weight != null) ? weight : 0.0d;
+
+            weightedServices.add( new AbstractMap.SimpleEntry<String, Double>(
+                    serviceName, value) );
+
+            totalWeight += value;
+        }
+
+        // stable sort, services of equal weight keep their order;
+        Collections.sort(
+                weightedServices, ServiceTruncator.DESCENDING_WEIGHT_ORDER);
+
+        final double minWeight = this.minServiceShare * totalWeight;
+
+        final ArrayList<String> topServiceNames = new ArrayList<String>();
+
+        for (final Map.Entry<String, Double> weightedService :
+                weightedServices) {
+
+            if ((this.maxServices > 0 &&
+                    topServiceNames.size() >= this.maxServices) ||
+                    weightedService.getValue() < minWeight) {
+
+                break;
+            }
+
+            topServiceNames.add( weightedService.getKey() );
+        }
+
+        return topServiceNames;
+    }
+
+    /**
+     * Adds a weight to the weight of a service.
+     *
+     * @param serviceWeights  weights of services, keyed by service names.
+     * @param serviceName     name of the service whose weight shall be raised.
+     * @param weight          weight to be added.
+     */
+    private static void addWeight (
+            final LinkedHashMap<String, Double> serviceWeights,
+            final String serviceName,
+            final double weight) {
+
+        final Double currentWeight = serviceWeights.get(serviceName);
+
+        serviceWeights.put(serviceName,
+                (currentWeight != null) ? currentWeight + weight : weight);
+    }
+
+    /**
+     * Returns a name for the aggregate service which does not collide with
+     * the name of a kept service.
+     *
+     * @param keptServiceNames  names of the services to be kept.
+     *
+     * @return  a valid service name.
+     */
+    private static String getOtherServiceName (
+            final HashSet<String> keptServiceNames) {
+
+        String otherServiceName = ServiceTruncator.OTHER_SERVICE_NAME;
+
+        while ( keptServiceNames.contains(otherServiceName) ) {
+
+            otherServiceName += "_";
+        }
+
+        return otherServiceName;
+    }
+}
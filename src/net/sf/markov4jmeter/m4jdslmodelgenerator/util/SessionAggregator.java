@@ -0,0 +1,427 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import wessbas.commons.parser.SessionData;
+import wessbas.commons.parser.UseCase;
+
+/**
+ * Aggregator which consumes sessions one use case at a time and keeps only a
+ * {@link ServiceSummary} per service; the memory required is therefore
+ * independent of the number of sessions, apart from the (bounded) number of
+ * distinct parameter values.
+ *
+ * <p> Whether protocol information is available at all is decided by the
+ * first use case: if it provides no URI, the sessions are assumed to contain
+ * no protocol information.
+ *
+ * <p> Optionally, an aggregator might be associated with a
+ * {@link SessionSampler}, which is consulted by the session log readers for
+ * deciding whether a session shall be aggregated at all. Only in that case,
+ * the occurrences of parameter values are counted, since they are required
+ * for coverage estimates of the sample only.
+ *
+ * @version  1.0
+ */
+public class SessionAggregator {
+
+
+    /* *****************************  constants  **************************** */
+
+
+    /** Parameter name which indicates a request without query string. */
+    private final static String NO_QUERY_STRING = "<no-query-string>";
+
+
+    /* *************************  global variables  ************************* */
+
+
+    /** Maximum number of distinct values to be kept per parameter. */
+    private final int maxParameterValues;
+
+    /** Service summaries, keyed by service names in order of their first
+     *  occurrence. */
+    private final LinkedHashMap<String, ServiceSummary> serviceSummaries;
+
+    /** Sampler which decides whether a session shall be aggregated, or
+     *  <code>null</code> if all sessions shall be aggregated. */
+    private final SessionSampler sessionSampler;
+
+    /** Number of sessions which have been started. */
+    private long sessionCount;
+
+    /** Number of use cases which have been added. */
+    private long useCaseCount;
+
+    /** <code>true</code> if and only if the first use case provides protocol
+     *  information. */
+    private boolean protocolInformation;
+
+
+    /* ***************************  constructors  *************************** */
+
+
+    /**
+     * Constructor for a Session Aggregator.
+     *
+     * @param maxParameterValues
+     *     maximum number of distinct values to be kept per parameter, or
+     *     {@link ParameterValueSample#UNLIMITED}.
+     */
+    public SessionAggregator (final int maxParameterValues) {
+
+        this(maxParameterValues, null);
+    }
+
+    /**
+     * Constructor for a Session Aggregator which aggregates a sample of
+     * sessions only.
+     *
+     * @param maxParameterValues
+     *     maximum number of distinct values to be kept per parameter, or
+     *     {@link ParameterValueSample#UNLIMITED}.
+     * @param sessionSampler
+     *     sampler which decides whether a session shall be aggregated, or
+     *     <code>null</code> if all sessions shall be aggregated.
+     */
+    public SessionAggregator (
+            final int maxParameterValues,
+            final SessionSampler sessionSampler) {
+
+        this.maxParameterValues = maxParameterValues;
+        this.sessionSampler     = sessionSampler;
+        this.serviceSummaries   = new LinkedHashMap<String, ServiceSummary>();
+    }
+
+
+    /* **************************  public methods  ************************** */
+
+
+    /**
+     * Starts a new session; all subsequently added use cases are regarded as
+     * being part of that session.
+     */
+    public void startSession () {
+
+        this.sessionCount++;
+    }
+
+    /**
+     * Adds a use case to the current session.
+     *
+     * @param name
+     *     name of the use case, which is the name of the related service.
+     * @param uri
+     *     URI of the use case; <code>null</code> indicates that no protocol
+     *     information is available, in which case all remaining parameters
+     *     will be ignored.
+     * @param port         port of the use case.
+     * @param ip           IP address of the use case.
+     * @param protocol     protocol of the use case.
+     * @param method       request method of the use case.
+     * @param queryString  query string of the use case.
+     * @param encoding     encoding of the use case.
+     */
+    public void addUseCase (
+            final String name,
+            final String uri,
+            final int port,
+            final String ip,
+            final String protocol,
+            final String method,
+            final String queryString,
+            final String encoding) {
+
+        if (this.useCaseCount++ == 0) {
+
+            this.protocolInformation = (uri != null);
+        }
+
+        final ServiceSummary serviceSummary = this.getOrCreateSummary(name);
+
+        serviceSummary.countUseCase();
+
+        if (uri != null) {
+
+            serviceSummary.addEndpoint(
+                    ip, port, uri, method, encoding, protocol);
+
+            this.addParameterValues(serviceSummary, queryString);
+        }
+    }
+
+    /**
+     * Adds sessions which have been materialized already, for example by the
+     * parser of the <code>wessbas.commons</code> bundle.
+     *
+     * @param sessions  sessions to be added.
+     */
+    public void addSessions (final List<SessionData> sessions) {
+
+        for (final SessionData sessionData : sessions) {
+
+            this.startSession();
+
+            for (final UseCase useCase : sessionData.getUseCases()) {
+
+                this.addUseCase(
+                        useCase.getName(),
+                        useCase.getUri(),
+                        useCase.getPort(),
+                        useCase.getIp(),
+                        useCase.getProtocol(),
+                        useCase.getMethode(),
+                        useCase.getQueryString(),
+                        useCase.getEncoding());
+            }
+        }
+    }
+
+    /**
+     * Creates a new, empty aggregator with the same configuration as this
+     * one, including an empty copy of the sampler; the new aggregator might
+     * be used for a part of the sessions, to be merged via
+     * {@link #merge(SessionAggregator)} later.
+     *
+     * @return  the newly created aggregator.
+     */
+    public SessionAggregator createPartialAggregator () {
+
+        return new SessionAggregator(
+                this.maxParameterValues,
+                (this.sessionSampler != null) ?
+                        this.sessionSampler.createEmptyCopy() : null);
+    }
+
+    /**
+     * Merges the aggregate of a subsequent part of the sessions into this
+     * aggregate; merging the aggregates of consecutive parts in order gives
+     * the same result as aggregating all sessions at once.
+     *
+     * @param sessionAggregator  aggregate to be merged into this aggregate.
+     */
+    public void merge (final SessionAggregator sessionAggregator) {
+
+        if (this.useCaseCount == 0) {
+
+            this.protocolInformation = sessionAggregator.protocolInformation;
+        }
+
+        this.sessionCount += sessionAggregator.sessionCount;
+        this.useCaseCount += sessionAggregator.useCaseCount;
+
+        for (final ServiceSummary serviceSummary :
+                sessionAggregator.serviceSummaries.values()) {
+
+            this.getOrCreateSummary( serviceSummary.getName() )
+                    .merge(serviceSummary);
+        }
+
+        if (this.sessionSampler != null &&
+                sessionAggregator.sessionSampler != null) {
+
+            this.sessionSampler.merge(sessionAggregator.sessionSampler);
+        }
+    }
+
+    /**
+     * Folds the summaries of several services into summaries of other
+     * services; the use case counts, endpoints and parameter values of the
+     * folded services are merged into their target summaries. A target
+     * summary keeps a single endpoint, see
+     * {@link ServiceSummary#merge(ServiceSummary)}.
+     *
+     * @param serviceMapping
+     *     target service names, keyed by the names of the services to be
+     *     folded; services which are not included are kept unchanged.
+     */
+    public void foldServices (final Map<String, String> serviceMapping) {
+
+        final ArrayList<ServiceSummary> serviceSummaries =
+                new ArrayList<ServiceSummary>( this.serviceSummaries.values() );
+
+        this.serviceSummaries.clear();
+
+        for (final ServiceSummary serviceSummary : serviceSummaries) {
+
+            final String targetName =
+                    serviceMapping.get( serviceSummary.getName() );
+
+            if (targetName == null) {
+
+                this.serviceSummaries.put(
+                        serviceSummary.getName(), serviceSummary);
+
+            } else {
+
+                this.getOrCreateSummary(targetName).merge(serviceSummary);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the sessions provide protocol information.
+     *
+     * @return
+     *     <code>true</code> if and only if the first use case provides
+     *     protocol information.
+     */
+    public boolean hasProtocolInformation () {
+
+        return this.protocolInformation;
+    }
+
+    /**
+     * Returns the summary of a specific service.
+     *
+     * @param serviceName  name of the service.
+     *
+     * @return
+     *     the summary of the service, or <code>null</code> if no use case of
+     *     that service has been added.
+     */
+    public ServiceSummary getServiceSummary (final String serviceName) {
+
+        return this.serviceSummaries.get(serviceName);
+    }
+
+    /**
+     * Returns the summaries of all services.
+     *
+     * @return
+     *     the service summaries, in order of the first occurrence of their
+     *     services.
+     */
+    public Collection<ServiceSummary> getServiceSummaries () {
+
+        return this.serviceSummaries.values();
+    }
+
+    /**
+     * Returns the sampler which decides whether a session shall be
+     * aggregated.
+     *
+     * @return
+     *     the sampler, or <code>null</code> if all sessions shall be
+     *     aggregated.
+     */
+    public SessionSampler getSessionSampler () {
+
+        return this.sessionSampler;
+    }
+
+    /**
+     * Returns the maximum number of distinct values to be kept per parameter.
+     *
+     * @return
+     *     a positive number, or {@link ParameterValueSample#UNLIMITED}.
+     */
+    public int getMaxParameterValues () {
+
+        return this.maxParameterValues;
+    }
+
+    /**
+     * Returns the number of sessions which have been added.
+     *
+     * @return  a non-negative number.
+     */
+    public long getSessionCount () {
+
+        return this.sessionCount;
+    }
+
+    /**
+     * Returns the number of use cases which have been added.
+     *
+     * @return  a non-negative number.
+     */
+    public long getUseCaseCount () {
+
+        return this.useCaseCount;
+    }
+
+
+    /* **************************  private methods  ************************* */
+
+
+    /**
+     * Returns the summary of a service; if no such summary exists, it will be
+     * created.
+     *
+     * @param serviceName  name of the service.
+     *
+     * @return  a valid summary instance.
+     */
+    private ServiceSummary getOrCreateSummary (final String serviceName) {
+
+        ServiceSummary serviceSummary =
+                this.serviceSummaries.get(serviceName);
+
+        if (serviceSummary == null) {
+
+            serviceSummary = new ServiceSummary(
+                    serviceName,
+                    this.maxParameterValues,
+                    this.sessionSampler != null);
+
+            this.serviceSummaries.put(serviceName, serviceSummary);
+        }
+
+        return serviceSummary;
+    }
+
+    /**
+     * Adds the parameter values of a query string to a service summary; a
+     * parameter without value is added with value <code>null</code>.
+     *
+     * @param serviceSummary  summary to which the values shall be added.
+     * @param queryString     query string to be split, might be
+     *                        <code>null</code>.
+     */
+    private void addParameterValues (
+            final ServiceSummary serviceSummary,
+            final String queryString) {
+
+        if (queryString == null) {
+
+            return;
+        }
+
+        for (final String pair : queryString.split("&")) {
+
+            final int idx = pair.indexOf('=');
+
+            final String key = (idx > 0) ? pair.substring(0, idx) : pair;
+
+            if ( !SessionAggregator.NO_QUERY_STRING.equals(key) ) {
+
+                final String value = (idx > 0 && pair.length() > idx + 1) ?
+                        pair.substring(idx + 1) : null;
+
+                serviceSummary.addParameterValue(key, value);
+            }
+        }
+    }
+}
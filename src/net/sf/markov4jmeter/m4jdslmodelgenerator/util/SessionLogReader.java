@@ -0,0 +1,390 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator.util;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+
+/**
+ * Streaming reader for session log files (<code>sessions.dat</code>), which
+ * passes each session to a {@link SessionAggregator} as soon as it has been
+ * read, without keeping any session in memory. Each line of a session log
+ * file denotes one session and is formatted as
+ *
+ * <blockquote>
+ * <i>&#060;sessionId&#062;</i>;<i>&#060;useCase&#062;</i>;<i>&#060;useCase&#062;</i>;...
+ * </blockquote>
+ *
+ * whereas each use case is formatted as
+ *
+ * <blockquote>
+ * "<i>&#060;name&#062;</i>":<i>&#060;start&#062;</i>:<i>&#060;end&#062;</i>[:<i>&#060;uri&#062;</i>:<i>&#060;port&#062;</i>:<i>&#060;ip&#062;</i>:<i>&#060;protocol&#062;</i>:<i>&#060;method&#062;</i>:<i>&#060;queryString&#062;</i>:<i>&#060;encoding&#062;</i>]
+ * </blockquote>
+ *
+ * which is the format that is read by the session parser of the
+ * <code>wessbas.commons</code> bundle; the protocol fields are optional. A
+ * query string might contain colons, since it is delimited by the fields
+ * before and after it. Session log files are decoded as UTF-8, independent
+ * of the platform's default charset.
+ *
+ * @version  1.0
+ */
+public class SessionLogReader {
+
+
+    /* *****************************  constants  **************************** */
+
+
+    /** Charset of session log files. */
+    public final static Charset CHARSET = Charset.forName("UTF-8");
+
+    /** Separator between the session ID and the use cases of a session. */
+    private final static String USE_CASE_SEPARATOR = ";";
+
+    /** Separator between the fields of a use case. */
+    private final static char FIELD_SEPARATOR = ':';
+
+    /** Quote character which encloses use case names. */
+    private final static char QUOTE = '"';
+
+    /** Minimum number of fields of a use case with protocol information. */
+    private final static int PROTOCOL_FIELD_COUNT = 10;
+
+    /** Warning message for the case that an invalid use case has been
+     *  detected. */
+    private final static String WARNING_INVALID_USE_CASE =
+            "invalid use case in %s of session log file \"%s\" "
+            + "will be ignored: %s";
+
+
+    /* **************************  public methods  ************************** */
+
+
+    /**
+     * Reads a session log file and passes all sessions to an aggregator.
+     *
+     * @param filename
+     *     name of the session log file to be read.
+     * @param sessionAggregator
+     *     aggregator to which the sessions shall be passed.
+     *
+     * @throws FileNotFoundException
+     *     in case the denoted file does not exist.
+     * @throws IOException
+     *     if any error while reading occurs.
+     */
+    public void read (
+            final String filename,
+            final SessionAggregator sessionAggregator)
+                    throws FileNotFoundException, IOException {
+
+        BufferedReader bufferedReader = null;
+
+        try {
+
+            // might throw a FileNotFoundException;
+            bufferedReader = new BufferedReader( new InputStreamReader(
+                    new FileInputStream(filename), SessionLogReader.CHARSET) );
+
+            String line;
+            long lineNumber = 0;
+
+            // might throw an IOException;
+            while ((line = bufferedReader.readLine()) != null) {
+
+                lineNumber++;
+
+                this.parseSession(line, sessionAggregator,
+                        filename, "line " + lineNumber);
+            }
+
+            this.completeSampling(sessionAggregator, filename);
+
+        } finally {
+
+            if (bufferedReader != null) {
+
+                try {
+
+                    bufferedReader.close();
+
+                } catch (final IOException ex) {
+
+                    // ignore exception, since this is the "finally" block;
+                    // TODO: exception message should be written to log file;
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses a single line of a session log file and passes the session to
+     * an aggregator; empty lines will be ignored, and invalid use cases will
+     * be skipped with a warning. If the aggregator is associated with a
+     * {@link SessionSampler}, the session will only be passed, if it is
+     * sampled.
+     *
+     * @param line
+     *     line to be parsed.
+     * @param sessionAggregator
+     *     aggregator to which the session shall be passed.
+     * @param filename
+     *     name of the session log file, for warning messages only.
+     * @param location
+     *     location of the line inside the file, for warning messages only.
+     */
+    public void parseSession (
+            final String line,
+            final SessionAggregator sessionAggregator,
+            final String filename,
+            final String location) {
+
+        if ( line.trim().isEmpty() ) {
+
+            return;
+        }
+
+        final String[] parts = line.split(SessionLogReader.USE_CASE_SEPARATOR);
+
+        final SessionSampler sessionSampler =
+                sessionAggregator.getSessionSampler();
+
+        if (sessionSampler != null && !sessionSampler.offer(
+                parts[0], this.getEntryService(parts), line)) {
+
+            return;
+        }
+
+        this.aggregateSession(parts, sessionAggregator, filename, location);
+    }
+
+    /**
+     * Passes the sessions which are additionally required by the sampler of
+     * an aggregator to that aggregator; this method must be called once,
+     * after all lines of a session log file have been parsed.
+     *
+     * @param sessionAggregator
+     *     aggregator whose sampler shall be completed; if it has no sampler,
+     *     nothing will be done.
+     * @param filename
+     *     name of the session log file, for warning messages only.
+     */
+    public void completeSampling (
+            final SessionAggregator sessionAggregator,
+            final String filename) {
+
+        final SessionSampler sessionSampler =
+                sessionAggregator.getSessionSampler();
+
+        if (sessionSampler != null) {
+
+            for (final String line : sessionSampler.drainReservoirs()) {
+
+                this.aggregateSession(
+                        line.split(SessionLogReader.USE_CASE_SEPARATOR),
+                        sessionAggregator,
+                        filename,
+                        "stratum sample");
+            }
+        }
+    }
+
+
+    /* **************************  private methods  ************************* */
+
+
+    /**
+     * Passes a session to an aggregator.
+     *
+     * @param parts
+     *     session ID and use cases of the session.
+     * @param sessionAggregator
+     *     aggregator to which the session shall be passed.
+     * @param filename
+     *     name of the session log file, for warning messages only.
+     * @param location
+     *     location of the session inside the file, for warning messages only.
+     */
+    private void aggregateSession (
+            final String[] parts,
+            final SessionAggregator sessionAggregator,
+            final String filename,
+            final String location) {
+
+        sessionAggregator.startSession();
+
+        // first part is the session ID, which is not required;
+        for (int i = 1; i < parts.length; i++) {
+
+            if ( !this.parseUseCase(parts[i], sessionAggregator) ) {
+
+                this.warn(SessionLogReader.WARNING_INVALID_USE_CASE,
+                        location, filename, parts[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns the name of the first use case of a session.
+     *
+     * @param parts  session ID and use cases of the session.
+     *
+     * @return
+     *     the name of the first use case, or <code>null</code> if it is
+     *     unavailable.
+     */
+    private String getEntryService (final String[] parts) {
+
+        if (parts.length < 2) {
+
+            return null;
+        }
+
+        final String useCase = parts[1];
+
+        final int nameStart = useCase.indexOf(SessionLogReader.QUOTE);
+        final int nameEnd   =
+                useCase.indexOf(SessionLogReader.QUOTE, nameStart + 1);
+
+        return (nameStart < 0 || nameEnd < 0) ?
+                null : useCase.substring(nameStart + 1, nameEnd);
+    }
+
+    /**
+     * Parses a use case and passes it to an aggregator.
+     *
+     * @param useCase            use case to be parsed.
+     * @param sessionAggregator  aggregator to which the use case shall be
+     *                           passed.
+     *
+     * @return
+     *     <code>true</code> if and only if the use case could be parsed
+     *     successfully.
+     */
+    private boolean parseUseCase (
+            final String useCase,
+            final SessionAggregator sessionAggregator) {
+
+        // use case names are quoted and might contain colons;
+        final int nameStart = useCase.indexOf(SessionLogReader.QUOTE);
+        final int nameEnd   =
+                useCase.indexOf(SessionLogReader.QUOTE, nameStart + 1);
+
+        if (nameStart < 0 || nameEnd < 0) {
+
+            return false;
+        }
+
+        final String name = useCase.substring(nameStart + 1, nameEnd);
+
+        final String[] fields = this.split(useCase.substring(nameEnd + 1));
+
+        // fields[0] is empty, fields[1] and fields[2] denote start and end
+        // time;
+        if (fields.length < 3) {
+
+            return false;
+        }
+
+        if (fields.length < SessionLogReader.PROTOCOL_FIELD_COUNT) {
+
+            sessionAggregator.addUseCase(
+                    name, null, 0, null, null, null, null, null);
+
+            return true;
+        }
+
+        final int port;
+
+        try {
+
+            port = Integer.parseInt( fields[4].trim() );
+
+        } catch (final NumberFormatException ex) {
+
+            return false;
+        }
+
+        final int last = fields.length - 1;
+
+        sessionAggregator.addUseCase(
+                name,
+                fields[3],                              // uri;
+                port,
+                fields[5],                              // ip;
+                fields[6],                              // protocol;
+                fields[7],                              // method;
+                this.join(fields, 8, last),             // queryString;
+                fields[last]);                          // encoding;
+
+        return true;
+    }
+
+    /**
+     * Splits a <code>String</code> at each field separator, keeping empty
+     * trailing fields.
+     *
+     * @param str  <code>String</code> to be split.
+     *
+     * @return  the fields of the <code>String</code>.
+     */
+    private String[] split (final String str) {
+
+        return str.split(
+                String.valueOf(SessionLogReader.FIELD_SEPARATOR), -1);
+    }
+
+    /**
+     * Joins a range of fields, separated by the field separator.
+     *
+     * @param fields  fields to be joined.
+     * @param from    index of the first field (inclusive).
+     * @param to      index of the last field (exclusive).
+     *
+     * @return  a valid <code>String</code> instance.
+     */
+    private String join (final String[] fields, final int from, final int to) {
+
+        final StringBuilder stringBuilder = new StringBuilder(fields[from]);
+
+        for (int i = from + 1; i < to; i++) {
+
+            stringBuilder.append(SessionLogReader.FIELD_SEPARATOR);
+            stringBuilder.append(fields[i]);
+        }
+
+        return stringBuilder.toString();
+    }
+
+    /**
+     * Prints a warning message on the standard output stream.
+     *
+     * @param template  template of the message to be written.
+     * @param args      arguments to be inserted into the template.
+     */
+    private void warn (final String template, final Object... args) {
+
+        final String message = String.format(template, args);
+
+        System.out.println("WARNING: " + message);
+    }
+}
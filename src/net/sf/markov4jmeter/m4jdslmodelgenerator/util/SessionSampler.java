@@ -0,0 +1,393 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Sampler which decides for each session of a session log, whether it shall
+ * be aggregated or not. A session is sampled if the hash of its ID is below a
+ * threshold given by the sampling rate; hence, the sample only depends on the
+ * session IDs, not on the order in which the sessions are read.
+ *
+ * <p> In stratified mode, sessions are grouped into strata by their entry
+ * service (the service of their first use case), and each stratum is
+ * guaranteed to contribute a minimum number of sessions, if available: for
+ * each stratum, the sessions with the smallest hashes which are not sampled
+ * by rate are kept in a bounded reservoir, and they are released by
+ * {@link #drainReservoirs()} as far as the stratum lacks sessions. This keeps
+ * rare entry paths in the sample.
+ *
+ * @version  1.0
+ */
+public class SessionSampler {
+
+
+    /* *****************************  constants  **************************** */
+
+
+    /** Mode constant for uniform sampling. */
+    public final static int MODE_UNIFORM = 0;
+
+    /** Mode constant for stratified sampling. */
+    public final static int MODE_STRATIFIED = 1;
+
+    /** Default minimum number of sessions per stratum. */
+    public final static int DEFAULT_MIN_SESSIONS_PER_STRATUM = 10;
+
+    /** Number of hash values in the (non-negative) 63-bit hash space. */
+    private final static double HASH_SPACE_SIZE = 0x1p63;
+
+    /** Error message for the case that an invalid sampling rate has been
+     *  passed. */
+    private final static String ERROR_INVALID_SAMPLING_RATE =
+            "invalid sampling rate %f, must be in range (0, 1]";
+
+
+    /* *************************  global variables  ************************* */
+
+
+    /** Sampling mode, either {@link #MODE_UNIFORM} or
+     *  {@link #MODE_STRATIFIED}. */
+    private final int mode;
+
+    /** Fraction of sessions to be sampled. */
+    private final double rate;
+
+    /** Minimum number of sessions per stratum in stratified mode. */
+    private final int minSessionsPerStratum;
+
+    /** Hash threshold below which a session is sampled. */
+    private final long threshold;
+
+    /** Strata, keyed by entry service names in order of their first
+     *  occurrence; only used in stratified mode. */
+    private final LinkedHashMap<String, Stratum> strata;
+
+    /** Number of sessions which have been offered. */
+    private long sessionCount;
+
+    /** Number of sessions which have been sampled. */
+    private long sampledCount;
+
+
+    /* ***************************  constructors  *************************** */
+
+
+    /**
+     * Constructor for a Session Sampler.
+     *
+     * @param mode
+     *     sampling mode, either {@link #MODE_UNIFORM} or
+     *     {@link #MODE_STRATIFIED}.
+     * @param rate
+     *     fraction of sessions to be sampled, in range (0, 1].
+     * @param minSessionsPerStratum
+     *     minimum number of sessions per stratum in stratified mode.
+     *
+     * @throws IllegalArgumentException
+     *     if the sampling rate is out of range.
+     */
+    public SessionSampler (
+            final int mode,
+            final double rate,
+            final int minSessionsPerStratum) throws IllegalArgumentException {
+
+        if ( !(rate > 0.0d && rate <= 1.0d) ) {
+
+            final String message = String.format(
+                    SessionSampler.ERROR_INVALID_SAMPLING_RATE, rate);
+
+            throw new IllegalArgumentException(message);
+        }
+
+        this.mode                  = mode;
+        this.rate                  = rate;
+        this.minSessionsPerStratum = Math.max(minSessionsPerStratum, 0);
+        this.strata                = new LinkedHashMap<String, Stratum>();
+
+        // a rate of 1 must accept all hashes, including the largest one;
+        this.threshold = (rate >= 1.0d) ?
+                Long.MAX_VALUE :
+                (long) (rate * SessionSampler.HASH_SPACE_SIZE);
+    }
+
+
+    /* **************************  public methods  ************************** */
+
+
+    /**
+     * Creates a new sampler with the same configuration, but without any
+     * sessions being offered yet; the new sampler might be used for a part of
+     * the input, to be merged via {@link #merge(SessionSampler)} later.
+     *
+     * @return  the newly created sampler.
+     */
+    public SessionSampler createEmptyCopy () {
+
+        return new SessionSampler(
+                this.mode, this.rate, this.minSessionsPerStratum);
+    }
+
+    /**
+     * Offers a session to the sampler.
+     *
+     * @param sessionId
+     *     ID of the session.
+     * @param entryService
+     *     name of the service of the first use case, which denotes the
+     *     stratum of the session; might be <code>null</code> for sessions
+     *     without use cases.
+     * @param line
+     *     line of the session log file which contains the session; it might
+     *     be kept in a reservoir in stratified mode.
+     *
+     * @return
+     *     <code>true</code> if and only if the session shall be aggregated
+     *     immediately.
+     */
+    public boolean offer (
+            final String sessionId,
+            final String entryService,
+            final String line) {
+
+        final long hash = ParameterValueSample.hash(sessionId);
+        final boolean sampled = hash < this.threshold;
+
+        this.sessionCount++;
+
+        if (sampled) {
+
+            this.sampledCount++;
+        }
+
+        if (this.mode == SessionSampler.MODE_STRATIFIED) {
+
+            final Stratum stratum = this.getOrCreateStratum(
+                    (entryService != null) ? entryService : "");
+
+            stratum.sessionCount++;
+
+            if (sampled) {
+
+                stratum.sampledCount++;
+
+            } else {
+
+                stratum.addToReservoir(hash, line);
+            }
+        }
+
+        return sampled;
+    }
+
+    /**
+     * Merges the sampler of a subsequent part of the input into this sampler.
+     *
+     * @param sessionSampler  sampler to be merged into this sampler.
+     */
+    public void merge (final SessionSampler sessionSampler) {
+
+        this.sessionCount += sessionSampler.sessionCount;
+        this.sampledCount += sessionSampler.sampledCount;
+
+        for (final Map.Entry<String, Stratum> entry :
+                sessionSampler.strata.entrySet()) {
+
+            final Stratum stratum = this.getOrCreateStratum( entry.getKey() );
+            final Stratum other   = entry.getValue();
+
+            stratum.sessionCount += other.sessionCount;
+            stratum.sampledCount += other.sampledCount;
+
+            for (final Map.Entry<Long, String> session :
+                    other.reservoir.entrySet()) {
+
+                stratum.addToReservoir(session.getKey(), session.getValue());
+            }
+        }
+    }
+
+    /**
+     * Releases the sessions which are required for each stratum to reach its
+     * minimum number of sessions, and clears all reservoirs; this method
+     * should be called once, after all sessions have been offered.
+     *
+     * @return
+     *     the lines of the released sessions, which shall be aggregated
+     *     additionally.
+     */
+    public List<String> drainReservoirs () {
+
+        final ArrayList<String> lines = new ArrayList<String>();
+
+        for (final Stratum stratum : this.strata.values()) {
+
+            for (final String line : stratum.reservoir.values()) {
+
+                if (stratum.sampledCount >= this.minSessionsPerStratum) {
+
+                    break;
+                }
+
+                lines.add(line);
+                stratum.sampledCount++;
+                this.sampledCount++;
+            }
+
+            stratum.reservoir.clear();
+        }
+
+        return lines;
+    }
+
+    /**
+     * Returns the sampling rate.
+     *
+     * @return  a rate in range (0, 1].
+     */
+    public double getRate () {
+
+        return this.rate;
+    }
+
+    /**
+     * Returns the sampling mode.
+     *
+     * @return
+     *     either {@link #MODE_UNIFORM} or {@link #MODE_STRATIFIED}.
+     */
+    public int getMode () {
+
+        return this.mode;
+    }
+
+    /**
+     * Returns the number of sessions which have been offered.
+     *
+     * @return  a non-negative number.
+     */
+    public long getSessionCount () {
+
+        return this.sessionCount;
+    }
+
+    /**
+     * Returns the number of sessions which have been sampled, including the
+     * sessions released from reservoirs.
+     *
+     * @return  a non-negative number.
+     */
+    public long getSampledCount () {
+
+        return this.sampledCount;
+    }
+
+    /**
+     * Returns the number of strata; in uniform mode, this number is 0.
+     *
+     * @return  a non-negative number.
+     */
+    public int getStratumCount () {
+
+        return this.strata.size();
+    }
+
+
+    /* **************************  private methods  ************************* */
+
+
+    /**
+     * Returns a stratum; if no such stratum exists, it will be created.
+     *
+     * @param entryService  name of the entry service of the stratum.
+     *
+     * @return  a valid stratum instance.
+     */
+    private Stratum getOrCreateStratum (final String entryService) {
+
+        Stratum stratum = this.strata.get(entryService);
+
+        if (stratum == null) {
+
+            stratum = new Stratum(this.minSessionsPerStratum);
+            this.strata.put(entryService, stratum);
+        }
+
+        return stratum;
+    }
+
+
+    /* *************************  internal classes  ************************* */
+
+
+    /**
+     * Counters and reservoir of a single stratum.
+     */
+    private static class Stratum {
+
+        /** Maximum number of sessions in the reservoir. */
+        private final int capacity;
+
+        /** Sessions which have not been sampled by rate, keyed (and ordered)
+         *  by their hash values; only the smallest hashes are kept. */
+        private final TreeMap<Long, String> reservoir;
+
+        /** Number of sessions of this stratum. */
+        private long sessionCount;
+
+        /** Number of sampled sessions of this stratum. */
+        private long sampledCount;
+
+
+        /**
+         * Constructor for a Stratum.
+         *
+         * @param capacity  maximum number of sessions in the reservoir.
+         */
+        public Stratum (final int capacity) {
+
+            this.capacity  = capacity;
+            this.reservoir = new TreeMap<Long, String>();
+        }
+
+        /**
+         * Adds a session to the reservoir, if its hash is among the smallest
+         * ones.
+         *
+         * @param hash  hash value of the session ID.
+         * @param line  line which contains the session.
+         */
+        public void addToReservoir (final long hash, final String line) {
+
+            if (this.reservoir.size() < this.capacity) {
+
+                this.reservoir.put(hash, line);
+
+            } else if (this.capacity > 0 && hash < this.reservoir.lastKey()) {
+
+                this.reservoir.pollLastEntry();
+                this.reservoir.put(hash, line);
+            }
+        }
+    }
+}
@@ -0,0 +1,434 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator.util;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Streaming sessionizer, which splits a time-ordered log of raw requests into
+ * sessions and passes each session to a {@link SessionAggregator} as soon as
+ * it has been closed. Each line of a request log file denotes one request and
+ * is formatted as
+ *
+ * <blockquote>
+ * <i>&#060;clientId&#062;</i>;<i>&#060;useCase&#062;</i>
+ * </blockquote>
+ *
+ * whereas the use case is formatted as described in {@link SessionLogReader}.
+ * Request log files are decoded as UTF-8, like session log files.
+ * A session of a client is closed, as soon as the time between the end of
+ * its last request and the start of the next request exceeds a given
+ * inactivity threshold; the threshold is given in the unit of the use case
+ * timestamps.
+ *
+ * <p> Only open sessions are kept in memory. They are held in an
+ * access-ordered map, so that the least recently active session is always
+ * the first one; since requests are time-ordered, idle sessions can be
+ * evicted from the head of that map, each in constant time.
+ *
+ * @version  1.0
+ */
+public class Sessionizer {
+
+
+    /* *****************************  constants  **************************** */
+
+
+    /** Separator between client ID and use case of a request. */
+    private final static char USE_CASE_SEPARATOR = ';';
+
+    /** Separator between the fields of a use case. */
+    private final static char FIELD_SEPARATOR = ':';
+
+    /** Quote character which encloses use case names. */
+    private final static char QUOTE = '"';
+
+    /** Warning message for the case that an invalid request has been
+     *  detected. */
+    private final static String WARNING_INVALID_REQUEST =
+            "invalid request in line %d of request log file \"%s\" "
+            + "will be ignored: %s";
+
+
+    /* *************************  global variables  ************************* */
+
+
+    /** Maximum time between two requests of the same session. */
+    private final long threshold;
+
+    /** Reader which parses and aggregates closed sessions. */
+    private final SessionLogReader sessionLogReader;
+
+    /** Open sessions, keyed by client IDs, from least to most recently
+     *  active. */
+    private final LinkedHashMap<String, OpenSession> openSessions;
+
+    /** Number of sessions which have been opened, used for session IDs. */
+    private long sessionCount;
+
+
+    /* ***************************  constructors  *************************** */
+
+
+    /**
+     * Constructor for a Sessionizer.
+     *
+     * @param threshold
+     *     maximum time between the end of a request and the start of the next
+     *     request of the same session, in the unit of the use case
+     *     timestamps.
+     */
+    public Sessionizer (final long threshold) {
+
+        this.threshold        = threshold;
+        this.sessionLogReader = new SessionLogReader();
+        this.openSessions     =
+                new LinkedHashMap<String, OpenSession>(16, 0.75f, true);
+    }
+
+
+    /* **************************  public methods  ************************** */
+
+
+    /**
+     * Reads a request log file, splits the requests into sessions and passes
+     * all sessions to an aggregator.
+     *
+     * @param filename
+     *     name of the request log file to be read.
+     * @param sessionAggregator
+     *     aggregator to which the sessions shall be passed.
+     *
+     * @throws FileNotFoundException
+     *     in case the denoted file does not exist.
+     * @throws IOException
+     *     if any error while reading occurs.
+     */
+    public void read (
+            final String filename,
+            final SessionAggregator sessionAggregator)
+                    throws FileNotFoundException, IOException {
+
+        BufferedReader bufferedReader = null;
+
+        try {
+
+            // might throw a FileNotFoundException;
+            bufferedReader = new BufferedReader( new InputStreamReader(
+                    new FileInputStream(filename), SessionLogReader.CHARSET) );
+
+            String line;
+            long lineNumber = 0;
+
+            // might throw an IOException;
+            while ((line = bufferedReader.readLine()) != null) {
+
+                lineNumber++;
+
+                if ( line.trim().isEmpty() ) {
+
+                    continue;
+                }
+
+                if ( !this.addRequest(line, sessionAggregator, filename) ) {
+
+                    this.warn(Sessionizer.WARNING_INVALID_REQUEST,
+                            lineNumber, filename, line);
+                }
+            }
+
+            this.closeAllSessions(sessionAggregator, filename);
+
+            this.sessionLogReader.completeSampling(sessionAggregator, filename);
+
+        } finally {
+
+            if (bufferedReader != null) {
+
+                try {
+
+                    bufferedReader.close();
+
+                } catch (final IOException ex) {
+
+                    // ignore exception, since this is the "finally" block;
+                    // TODO: exception message should be written to log file;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of sessions which are currently open.
+     *
+     * @return  a non-negative number.
+     */
+    public int getOpenSessionCount () {
+
+        return this.openSessions.size();
+    }
+
+
+    /* **************************  private methods  ************************* */
+
+
+    /**
+     * Adds a request to the open session of its client; if the session has
+     * been idle for too long, it will be closed, and a new session will be
+     * opened. All other sessions which have become idle will be closed, too.
+     *
+     * @param line               line which contains the request.
+     * @param sessionAggregator  aggregator to which closed sessions shall be
+     *                           passed.
+     * @param filename           name of the request log file, for warning
+     *                           messages only.
+     *
+     * @return
+     *     <code>true</code> if and only if the request could be parsed
+     *     successfully.
+     */
+    private boolean addRequest (
+            final String line,
+            final SessionAggregator sessionAggregator,
+            final String filename) {
+
+        final int separator = line.indexOf(Sessionizer.USE_CASE_SEPARATOR);
+
+        if (separator < 0) {
+
+            return false;
+        }
+
+        final String clientId = line.substring(0, separator);
+        final String useCase  = line.substring(separator + 1);
+
+        final long[] times = this.parseTimes(useCase);
+
+        if (times == null) {
+
+            return false;
+        }
+
+        final long start = times[0];
+        final long end   = times[1];
+
+        // close the session of this client, if it has been idle too long;
+        OpenSession openSession = this.openSessions.get(clientId);
+
+        if (openSession != null && start - openSession.lastActivity > this.threshold) {
+
+            this.openSessions.remove(clientId);
+            this.closeSession(openSession, sessionAggregator, filename);
+            openSession = null;
+        }
+
+        if (openSession == null) {
+
+            openSession = new OpenSession(clientId + "_" + (++this.sessionCount));
+            this.openSessions.put(clientId, openSession);
+        }
+
+        openSession.add(useCase, Math.max(end, start));
+
+        this.evictIdleSessions(start, sessionAggregator, filename);
+
+        return true;
+    }
+
+    /**
+     * Closes all sessions whose last activity is older than the threshold;
+     * since the map of open sessions is ordered by activity, only its head
+     * needs to be inspected.
+     *
+     * @param now                start time of the current request.
+     * @param sessionAggregator  aggregator to which closed sessions shall be
+     *                           passed.
+     * @param filename           name of the request log file, for warning
+     *                           messages only.
+     */
+    private void evictIdleSessions (
+            final long now,
+            final SessionAggregator sessionAggregator,
+            final String filename) {
+
+        final Iterator<OpenSession> iterator =
+                this.openSessions.values().iterator();
+
+        while ( iterator.hasNext() ) {
+
+            final OpenSession openSession = iterator.next();
+
+            if (now - openSession.lastActivity <= this.threshold) {
+
+                break;
+            }
+
+            iterator.remove();
+            this.closeSession(openSession, sessionAggregator, filename);
+        }
+    }
+
+    /**
+     * Closes all open sessions, from least to most recently active.
+     *
+     * @param sessionAggregator  aggregator to which closed sessions shall be
+     *                           passed.
+     * @param filename           name of the request log file, for warning
+     *                           messages only.
+     */
+    private void closeAllSessions (
+            final SessionAggregator sessionAggregator,
+            final String filename) {
+
+        for (final OpenSession openSession : this.openSessions.values()) {
+
+            this.closeSession(openSession, sessionAggregator, filename);
+        }
+
+        this.openSessions.clear();
+    }
+
+    /**
+     * Passes a closed session to an aggregator.
+     *
+     * @param openSession        session to be closed.
+     * @param sessionAggregator  aggregator to which the session shall be
+     *                           passed.
+     * @param filename           name of the request log file, for warning
+     *                           messages only.
+     */
+    private void closeSession (
+            final OpenSession openSession,
+            final SessionAggregator sessionAggregator,
+            final String filename) {
+
+        this.sessionLogReader.parseSession(
+                openSession.line.toString(),
+                sessionAggregator,
+                filename,
+                "session " + openSession.sessionId);
+    }
+
+    /**
+     * Parses start and end time of a use case.
+     *
+     * @param useCase  use case to be parsed.
+     *
+     * @return
+     *     an array which contains start and end time, or <code>null</code>
+     *     if parsing fails.
+     */
+    private long[] parseTimes (final String useCase) {
+
+        final int nameStart = useCase.indexOf(Sessionizer.QUOTE);
+        final int nameEnd   = useCase.indexOf(Sessionizer.QUOTE, nameStart + 1);
+
+        if (nameStart < 0 || nameEnd < 0) {
+
+            return null;
+        }
+
+        final int startPos = useCase.indexOf(Sessionizer.FIELD_SEPARATOR, nameEnd);
+        final int endPos   = useCase.indexOf(Sessionizer.FIELD_SEPARATOR, startPos + 1);
+
+        if (startPos < 0 || endPos < 0) {
+
+            return null;
+        }
+
+        int endEnd = useCase.indexOf(Sessionizer.FIELD_SEPARATOR, endPos + 1);
+
+        if (endEnd < 0) {
+
+            endEnd = useCase.length();
+        }
+
+        try {
+
+            return new long[] {
+                    Long.parseLong( useCase.substring(startPos + 1, endPos).trim() ),
+                    Long.parseLong( useCase.substring(endPos + 1, endEnd).trim() )};
+
+        } catch (final NumberFormatException ex) {
+
+            return null;
+        }
+    }
+
+    /**
+     * Prints a warning message on the standard output stream.
+     *
+     * @param template  template of the message to be written.
+     * @param args      arguments to be inserted into the template.
+     */
+    private void warn (final String template, final Object... args) {
+
+        final String message = String.format(template, args);
+
+        System.out.println("WARNING: " + message);
+    }
+
+
+    /* *************************  internal classes  ************************* */
+
+
+    /**
+     * Session which has not been closed yet.
+     */
+    private static class OpenSession {
+
+        /** ID of the session. */
+        private final String sessionId;
+
+        /** Session log line of the session, without line feed. */
+        private final StringBuilder line;
+
+        /** End time of the most recent request. */
+        private long lastActivity;
+
+
+        /**
+         * Constructor for an Open Session.
+         *
+         * @param sessionId  ID of the session.
+         */
+        public OpenSession (final String sessionId) {
+
+            this.sessionId = sessionId;
+            this.line      = new StringBuilder(sessionId);
+        }
+
+        /**
+         * Adds a use case to the session.
+         *
+         * @param useCase  use case to be added.
+         * @param end      end time of the use case.
+         */
+        public void add (final String useCase, final long end) {
+
+            this.line.append(Sessionizer.USE_CASE_SEPARATOR).append(useCase);
+            this.lastActivity = Math.max(this.lastActivity, end);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator.util;
+
+import java.util.Arrays;
+
+/**
+ * Transitions of a {@link BehaviorMatrix} in compressed sparse row (CSR)
+ * format; only transitions with a probability greater than 0 are stored. The
+ * transitions of row <i>i</i> are located at the positions
+ * {@link #getRowStart(int) getRowStart(i)} (inclusive) to
+ * {@link #getRowEnd(int) getRowEnd(i)} (exclusive), ordered by column.
+ *
+ * <p> A matrix is filled row by row while the behavior information is being
+ * read, so that no dense representation is required at all; state names are
+ * held by the enclosing {@link BehaviorMatrix}.
+ *
+ * @version  1.0
+ */
+public class SparseBehaviorMatrix {
+
+
+    /* *****************************  constants  **************************** */
+
+
+    /** Initial capacity for stored transitions. */
+    private final static int INITIAL_CAPACITY = 64;
+
+
+    /* *************************  global variables  ************************* */
+
+
+    /** Number of columns (target states). */
+    private final int columnCount;
+
+    /** Number of completed rows. */
+    private int rowCount;
+
+    /** Start positions of the rows; the entry at index <i>rowCount</i>
+     *  denotes the number of stored transitions of all completed rows, and
+     *  the entry at index <i>rowCount + 1</i> the end of the current row. */
+    private int[] rowPointers;
+
+    /** Column indices of the stored transitions. */
+    private int[] columnIndices;
+
+    /** Probabilities of the stored transitions. */
+    private double[] probabilities;
+
+    /** Think time means of the stored transitions. */
+    private double[] thinkTimeMeans;
+
+    /** Think time deviations of the stored transitions. */
+    private double[] thinkTimeDeviations;
+
+    /** Flags indicating which columns have incoming transitions. */
+    private final boolean[] incoming;
+
+
+    /* ***************************  constructors  *************************** */
+
+
+    /**
+     * Constructor for an empty Sparse Behavior Matrix, to be filled via
+     * {@link #addTransition(int, double, double, double)} and
+     * {@link #endRow()}.
+     *
+     * @param columnCount  number of columns (target states).
+     */
+    public SparseBehaviorMatrix (final int columnCount) {
+
+        final int capacity = SparseBehaviorMatrix.INITIAL_CAPACITY;
+
+        this.columnCount         = columnCount;
+        this.rowPointers         = new int[16];
+        this.columnIndices       = new int[capacity];
+        this.probabilities       = new double[capacity];
+        this.thinkTimeMeans      = new double[capacity];
+        this.thinkTimeDeviations = new double[capacity];
+        this.incoming            = new boolean[columnCount];
+    }
+
+
+    /* **************************  public methods  ************************** */
+
+
+    /**
+     * Adds a transition to the current row; transitions of a row must be
+     * added in ascending column order. Transitions whose probability is not
+     * greater than 0 are ignored.
+     *
+     * @param column
+     *     index of the target state.
+     * @param probability
+     *     probability of the transition.
+     * @param thinkTimeMean
+     *     think time mean, or {@link Double#NaN} if no valid think time is
+     *     available.
+     * @param thinkTimeDeviation
+     *     think time deviation, or {@link Double#NaN} if no valid think time
+     *     is available.
+     */
+    public void addTransition (
+            final int column,
+            final double probability,
+            final double thinkTimeMean,
+            final double thinkTimeDeviation) {
+
+        if ( !(probability > 0.0d) ) {
+
+            return;
+        }
+
+        final int k = this.rowPointers[this.rowCount + 1];
+
+        if (k == this.columnIndices.length) {
+
+            final int capacity = 2 * k;
+
+            this.columnIndices       =
+                    Arrays.copyOf(this.columnIndices, capacity);
+            this.probabilities       =
+                    Arrays.copyOf(this.probabilities, capacity);
+            this.thinkTimeMeans      =
+                    Arrays.copyOf(this.thinkTimeMeans, capacity);
+            this.thinkTimeDeviations =
+                    Arrays.copyOf(this.thinkTimeDeviations, capacity);
+        }
+
+        this.columnIndices[k]       = column;
+        this.probabilities[k]       = probability;
+        this.thinkTimeMeans[k]      = thinkTimeMean;
+        this.thinkTimeDeviations[k] = thinkTimeDeviation;
+        this.incoming[column]       = true;
+
+        this.rowPointers[this.rowCount + 1] = k + 1;
+    }
+
+    /**
+     * Completes the current row; subsequently added transitions belong to the
+     * next row.
+     */
+    public void endRow () {
+
+        if (this.rowCount + 3 > this.rowPointers.length) {
+
+            final int capacity = 2 * this.rowPointers.length;
+
+            this.rowPointers = Arrays.copyOf(this.rowPointers, capacity);
+        }
+
+        this.rowCount++;
+        this.rowPointers[this.rowCount + 1] = this.rowPointers[this.rowCount];
+    }
+
+    /**
+     * Releases unused capacity; this should be called once all rows have been
+     * added.
+     */
+    public void trimToSize () {
+
+        final int size = this.rowPointers[this.rowCount];
+
+        this.rowPointers         =
+                Arrays.copyOf(this.rowPointers, this.rowCount + 1);
+        this.columnIndices       = Arrays.copyOf(this.columnIndices, size);
+        this.probabilities       = Arrays.copyOf(this.probabilities, size);
+        this.thinkTimeMeans      = Arrays.copyOf(this.thinkTimeMeans, size);
+        this.thinkTimeDeviations =
+                Arrays.copyOf(this.thinkTimeDeviations, size);
+    }
+
+    /**
+     * Returns the number of completed rows (source states).
+     *
+     * @return  a non-negative number.
+     */
+    public int getRowCount () {
+
+        return this.rowCount;
+    }
+
+    /**
+     * Returns the number of columns (target states).
+     *
+     * @return  a non-negative number.
+     */
+    public int getColumnCount () {
+
+        return this.columnCount;
+    }
+
+    /**
+     * Returns the position of the first transition of a row.
+     *
+     * @param row  index of the row.
+     *
+     * @return  a non-negative position.
+     */
+    public int getRowStart (final int row) {
+
+        return this.rowPointers[row];
+    }
+
+    /**
+     * Returns the position right after the last transition of a row.
+     *
+     * @param row  index of the row.
+     *
+     * @return  a non-negative position.
+     */
+    public int getRowEnd (final int row) {
+
+        return this.rowPointers[row + 1];
+    }
+
+    /**
+     * Returns the position of the transition between two states.
+     *
+     * @param row     index of the source state.
+     * @param column  index of the target state.
+     *
+     * @return
+     *     the position of the transition, or -1 if no transition with a
+     *     probability greater than 0 is stored.
+     */
+    public int getPosition (final int row, final int column) {
+
+        final int position = Arrays.binarySearch(this.columnIndices,
+                this.rowPointers[row], this.rowPointers[row + 1], column);
+
+        return (position >= 0) ? position : -1;
+    }
+
+    /**
+     * Checks whether a row has any outgoing transitions.
+     *
+     * @param row  index of the row.
+     *
+     * @return
+     *     <code>true</code> if and only if the row has at least one
+     *     transition with a probability greater than 0.
+     */
+    public boolean hasOutgoingTransitions (final int row) {
+
+        return this.rowPointers[row] < this.rowPointers[row + 1];
+    }
+
+    /**
+     * Checks whether a column has any incoming transitions.
+     *
+     * @param column  index of the column.
+     *
+     * @return
+     *     <code>true</code> if and only if the column has at least one
+     *     transition with a probability greater than 0.
+     */
+    public boolean hasIncomingTransitions (final int column) {
+
+        return this.incoming[column];
+    }
+
+    /**
+     * Returns the column index of a stored transition.
+     *
+     * @param position  position of the transition.
+     *
+     * @return  a valid column index.
+     */
+    public int getColumnIndex (final int position) {
+
+        return this.columnIndices[position];
+    }
+
+    /**
+     * Returns the probability of a stored transition.
+     *
+     * @param position  position of the transition.
+     *
+     * @return  a probability greater than 0.
+     */
+    public double getProbability (final int position) {
+
+        return this.probabilities[position];
+    }
+
+    /**
+     * Returns the think time mean of a stored transition.
+     *
+     * @param position  position of the transition.
+     *
+     * @return
+     *     the think time mean, or {@link Double#NaN} if no valid think time is
+     *     available.
+     */
+    public double getThinkTimeMean (final int position) {
+
+        return this.thinkTimeMeans[position];
+    }
+
+    /**
+     * Returns the think time deviation of a stored transition.
+     *
+     * @param position  position of the transition.
+     *
+     * @return
+     *     the think time deviation, or {@link Double#NaN} if no valid think
+     *     time is available.
+     */
+    public double getThinkTimeDeviation (final int position) {
+
+        return this.thinkTimeDeviations[position];
+    }
+}
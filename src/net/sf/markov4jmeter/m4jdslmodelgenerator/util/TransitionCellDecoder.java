@@ -0,0 +1,321 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator.util;
+
+/**
+ * Decoder for the transition cells of a behavior information file, which are
+ * formatted as <blockquote> <i>&#060;probability&#062;</i>;
+ * <i>&#060;functionDescriptor&#062;</i>(<i>&#060;mean&#062;
+ * &#060;deviation&#062;</i>) </blockquote> whereas only normally distributed
+ * think times (function descriptor <code>"n"</code>) are supported.
+ *
+ * <p> Cells are decoded directly from the buffer of a {@link CSVTokenizer},
+ * without creating any intermediate objects for valid cells; the think time
+ * of a cell is only decoded, if its probability is greater than 0. The results
+ * of the most recently decoded cell are provided by the getter methods, so
+ * that a single decoder instance can be used for all cells of a file.
+ *
+ * @version  1.0
+ */
+public class TransitionCellDecoder {
+
+
+    /* *****************************  constants  **************************** */
+
+
+    /** Separator between probability and think time inside a cell. */
+    private final static byte CELL_SEPARATOR = ';';
+
+    /** Warning message for the case that a negative probability has been
+     *  detected. */
+    private final static String WARNING_NEGATIVE_PROBABILITY =
+            "negative probability value detected, will use 0.0 instead of %f";
+
+    /** Warning message for the case that a probability value could not be
+     *  parsed. */
+    private final static String WARNING_PROBABILITY_PARSING_FAILED =
+            "could not parse probability value \"%s\", will use 0.0 instead";
+
+
+    /* *************************  global variables  ************************* */
+
+
+    /** Probability of the most recently decoded cell. */
+    private double probability;
+
+    /** Think time mean of the most recently decoded cell. */
+    private double thinkTimeMean;
+
+    /** Think time deviation of the most recently decoded cell. */
+    private double thinkTimeDeviation;
+
+
+    /* **************************  public methods  ************************** */
+
+
+    /**
+     * Decodes the current cell of a tokenizer. In case the probability cannot
+     * be parsed or is negative, a warning will be given, and 0.0 will be used
+     * instead.
+     *
+     * @param tokenizer  tokenizer whose current cell shall be decoded.
+     */
+    public void decode (final CSVTokenizer tokenizer) {
+
+        final int start = tokenizer.getCellStart();
+        final int end   = tokenizer.getCellEnd();
+
+        int separator = start;
+
+        while (separator < end &&
+               tokenizer.byteAt(separator) != TransitionCellDecoder.CELL_SEPARATOR) {
+
+            separator++;
+        }
+
+        this.probability        = this.parseProbability(tokenizer, start, separator);
+        this.thinkTimeMean      = Double.NaN;
+        this.thinkTimeDeviation = Double.NaN;
+
+        // think times of impossible transitions are never used;
+        if (this.probability > 0 && separator < end) {
+
+            this.parseThinkTime(tokenizer, separator + 1, end);
+        }
+    }
+
+    /**
+     * Returns the probability of the most recently decoded cell.
+     *
+     * @return  a non-negative probability value.
+     */
+    public double getProbability () {
+
+        return this.probability;
+    }
+
+    /**
+     * Returns the think time mean of the most recently decoded cell.
+     *
+     * @return
+     *     the think time mean, or {@link Double#NaN} if no valid think time is
+     *     available or the probability is 0.
+     */
+    public double getThinkTimeMean () {
+
+        return this.thinkTimeMean;
+    }
+
+    /**
+     * Returns the think time deviation of the most recently decoded cell.
+     *
+     * @return
+     *     the think time deviation, or {@link Double#NaN} if no valid think
+     *     time is available or the probability is 0.
+     */
+    public double getThinkTimeDeviation () {
+
+        return this.thinkTimeDeviation;
+    }
+
+
+    /* **************************  private methods  ************************* */
+
+
+    /**
+     * Parses a probability; in case any parsing error occurs or the value is
+     * negative, a warning will be given, and 0.0 will be returned.
+     *
+     * @param tokenizer  tokenizer which provides the characters.
+     * @param from       buffer position of the first character.
+     * @param to         buffer position right after the last character.
+     *
+     * @return  the parsed probability, or 0.0 if parsing fails.
+     */
+    private double parseProbability (
+            final CSVTokenizer tokenizer,
+            final int from,
+            final int to) {
+
+        double probability;
+
+        try {
+
+            // might throw a NumberFormatException;
+            probability = tokenizer.parseDouble(from, to);
+
+            if (probability < 0) {
+
+                this.warn(
+                        TransitionCellDecoder.WARNING_NEGATIVE_PROBABILITY,
+                        probability);
+
+                probability = 0.0d;
+            }
+
+        } catch (final NumberFormatException ex) {
+
+            this.warn(
+                    TransitionCellDecoder.WARNING_PROBABILITY_PARSING_FAILED,
+                    tokenizer.decode(from, to).trim());
+
+            probability = 0.0d;
+        }
+
+        return probability;
+    }
+
+    /**
+     * Parses a think time of type <code>n(mean deviation)</code>; the fields
+     * for mean and deviation remain {@link Double#NaN}, if parsing fails for
+     * any reason.
+     *
+     * @param tokenizer  tokenizer which provides the characters.
+     * @param from       buffer position of the first character.
+     * @param to         buffer position right after the last character.
+     */
+    private void parseThinkTime (
+            final CSVTokenizer tokenizer,
+            int from,
+            int to) {
+
+        from = this.skipWhitespace(tokenizer, from, to);
+
+        while (to > from && this.isWhitespace(tokenizer.byteAt(to - 1))) {
+
+            to--;
+        }
+
+        // function descriptor "n", optionally followed by whitespace;
+        if (from == to || (tokenizer.byteAt(from) | 0x20) != 'n') {
+
+            return;
+        }
+
+        int pos = this.skipWhitespace(tokenizer, from + 1, to);
+
+        // opening bracket must follow; closing bracket must be at last
+        // position;
+        if (pos >= to - 1 || tokenizer.byteAt(pos) != '(' ||
+                tokenizer.byteAt(to - 1) != ')') {
+
+            return;
+        }
+
+        final int parametersEnd = to - 1;
+
+        try {
+
+            // mean;
+            final int meanStart = this.skipWhitespace(tokenizer, pos + 1, parametersEnd);
+            final int meanEnd   = this.skipToken(tokenizer, meanStart, parametersEnd);
+
+            // deviation;
+            final int deviationStart = this.skipWhitespace(tokenizer, meanEnd, parametersEnd);
+            final int deviationEnd   = this.skipToken(tokenizer, deviationStart, parametersEnd);
+
+            // exactly two parameters are required;
+            if (meanStart == meanEnd || deviationStart == deviationEnd ||
+                    this.skipWhitespace(tokenizer, deviationEnd, parametersEnd) != parametersEnd) {
+
+                return;
+            }
+
+            // might throw a NumberFormatException;
+            final double mean      = tokenizer.parseDouble(meanStart, meanEnd);
+            final double deviation = tokenizer.parseDouble(deviationStart, deviationEnd);
+
+            this.thinkTimeMean      = mean;
+            this.thinkTimeDeviation = deviation;
+
+        } catch (final NumberFormatException ex) {
+
+            // keep mean and deviation being NaN for indicating an error;
+        }
+    }
+
+    /**
+     * Returns the position of the first non-whitespace character in a range.
+     *
+     * @param tokenizer  tokenizer which provides the characters.
+     * @param from       buffer position of the first character.
+     * @param to         buffer position right after the last character.
+     *
+     * @return  a position between <code>from</code> and <code>to</code>.
+     */
+    private int skipWhitespace (
+            final CSVTokenizer tokenizer,
+            int from,
+            final int to) {
+
+        while (from < to && this.isWhitespace(tokenizer.byteAt(from))) {
+
+            from++;
+        }
+
+        return from;
+    }
+
+    /**
+     * Returns the position of the first whitespace character in a range.
+     *
+     * @param tokenizer  tokenizer which provides the characters.
+     * @param from       buffer position of the first character.
+     * @param to         buffer position right after the last character.
+     *
+     * @return  a position between <code>from</code> and <code>to</code>.
+     */
+    private int skipToken (
+            final CSVTokenizer tokenizer,
+            int from,
+            final int to) {
+
+        while (from < to && !this.isWhitespace(tokenizer.byteAt(from))) {
+
+            from++;
+        }
+
+        return from;
+    }
+
+    /**
+     * Checks whether a given byte denotes a whitespace character.
+     *
+     * @param b  byte to be checked.
+     *
+     * @return
+     *     <code>true</code> if and only if the byte denotes a whitespace.
+     */
+    private boolean isWhitespace (final byte b) {
+
+        return b >= 0 && b <= ' ';
+    }
+
+    /**
+     * Prints a warning message on the standard output stream.
+     *
+     * @param template  template of the message to be written.
+     * @param args      arguments to be inserted into the template.
+     */
+    private void warn (final String template, final Object... args) {
+
+        final String message = String.format(template, args);
+
+        System.out.println("WARNING: " + message);
+    }
+}
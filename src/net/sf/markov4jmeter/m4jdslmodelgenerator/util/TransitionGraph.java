@@ -0,0 +1,308 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator.util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Directed graph of the transitions which are allowed by a set of Behavior
+ * Models; a transition is allowed if its probability is greater than 0 in any
+ * Behavior Model.
+ *
+ * <p> States are identified by dense integer IDs, and the successors of each
+ * state are stored as a {@link BitSet}. Graphs with the same states, see
+ * {@link #createEmptyCopy()}, might be built independently, e.g. one per
+ * Behavior Model in parallel, and be merged via {@link #or(TransitionGraph)}
+ * afterwards.
+ *
+ * @version  1.0
+ */
+public class TransitionGraph {
+
+
+    /* *************************  global variables  ************************* */
+
+
+    /** Names of all states without initial state markers, indexed by state
+     *  IDs. */
+    private final List<String> stateNames;
+
+    /** State IDs, keyed by state names. */
+    private final HashMap<String, Integer> stateIds;
+
+    /** Successors of each state, indexed by state IDs. */
+    private final BitSet[] successors;
+
+    /** States which are marked as initial states in any Behavior Model. */
+    private final BitSet initialStates;
+
+    /** States which have at least one successor. */
+    private final BitSet sourceStates;
+
+
+    /* ***************************  constructors  *************************** */
+
+
+    /**
+     * Constructor for a Transition Graph without any transitions; the states
+     * are given by the row and column names of a set of Behavior Matrices.
+     *
+     * @param behaviorMatrices
+     *     behavior information of the Behavior Models; <code>null</code>
+     *     elements are ignored.
+     */
+    public TransitionGraph (final BehaviorMatrix[] behaviorMatrices) {
+
+        this.stateNames = new ArrayList<String>();
+        this.stateIds   = new HashMap<String, Integer>();
+
+        for (final BehaviorMatrix behaviorMatrix : behaviorMatrices) {
+
+            if (behaviorMatrix == null) {
+
+                continue;
+            }
+
+            for (int i = 0; i < behaviorMatrix.getRowCount(); i++) {
+
+                this.registerState( behaviorMatrix.getRowStateName(i) );
+            }
+
+            for (int j = 0; j < behaviorMatrix.getColumnCount(); j++) {
+
+                this.registerState( behaviorMatrix.getColumnName(j) );
+            }
+        }
+
+        this.successors    = TransitionGraph.createBitSets( this.stateNames.size() );
+        this.initialStates = new BitSet();
+        this.sourceStates  = new BitSet();
+    }
+
+    /**
+     * Constructor for a Transition Graph which shares the states of another
+     * graph, but has no transitions.
+     *
+     * @param transitionGraph  graph whose states shall be shared.
+     */
+    private TransitionGraph (final TransitionGraph transitionGraph) {
+
+        this.stateNames    = transitionGraph.stateNames;
+        this.stateIds      = transitionGraph.stateIds;
+        this.successors    = TransitionGraph.createBitSets( this.stateNames.size() );
+        this.initialStates = new BitSet();
+        this.sourceStates  = new BitSet();
+    }
+
+
+    /* **************************  public methods  ************************** */
+
+
+    /**
+     * Creates a new graph with the same states as this graph, but without any
+     * transitions.
+     *
+     * @return  the newly created graph.
+     */
+    public TransitionGraph createEmptyCopy () {
+
+        return new TransitionGraph(this);
+    }
+
+    /**
+     * Adds all transitions of a Behavior Matrix whose probabilities are
+     * greater than 0; all states of the matrix must be included in this
+     * graph.
+     *
+     * @param behaviorMatrix  behavior information to be added.
+     */
+    public void addTransitions (final BehaviorMatrix behaviorMatrix) {
+
+        final int n = behaviorMatrix.getColumnCount();
+
+        final int[] columnIds = new int[n];
+
+        for (int j = 0; j < n; j++) {
+
+            columnIds[j] = this.stateIds.get( behaviorMatrix.getColumnName(j) );
+        }
+
+        for (int i = 0; i < behaviorMatrix.getRowCount(); i++) {
+
+            final int source =
+                    this.stateIds.get( behaviorMatrix.getRowStateName(i) );
+
+            final BitSet successors = this.successors[source];
+
+            if ( behaviorMatrix.isInitialState(i) ) {
+
+                this.initialStates.set(source);
+            }
+
+            for (int j = 0; j < n; j++) {
+
+                if (behaviorMatrix.getProbability(i, j) > 0) {
+
+                    successors.set(columnIds[j]);
+                }
+            }
+
+            if ( !successors.isEmpty() ) {
+
+                this.sourceStates.set(source);
+            }
+        }
+    }
+
+    /**
+     * Merges the transitions of another graph with the same states into this
+     * graph.
+     *
+     * @param transitionGraph
+     *     graph to be merged, which must have been created via
+     *     {@link #createEmptyCopy()} of this graph or vice versa.
+     */
+    public void or (final TransitionGraph transitionGraph) {
+
+        final BitSet sourceStates = transitionGraph.sourceStates;
+
+        for (int i = sourceStates.nextSetBit(0); i >= 0;
+                i = sourceStates.nextSetBit(i + 1)) {
+
+            this.successors[i].or(transitionGraph.successors[i]);
+        }
+
+        this.sourceStates.or(sourceStates);
+        this.initialStates.or(transitionGraph.initialStates);
+    }
+
+    /**
+     * Returns the number of states.
+     *
+     * @return  a non-negative number.
+     */
+    public int getStateCount () {
+
+        return this.stateNames.size();
+    }
+
+    /**
+     * Returns the name of a state.
+     *
+     * @param id  ID of the state.
+     *
+     * @return  the state name, without initial state marker.
+     */
+    public String getStateName (final int id) {
+
+        return this.stateNames.get(id);
+    }
+
+    /**
+     * Returns the ID of a state.
+     *
+     * @param name  name of the state, without initial state marker.
+     *
+     * @return  the ID of the state, or -1 if no such state exists.
+     */
+    public int getStateId (final String name) {
+
+        final Integer id = this.stateIds.get(name);
+
+        return (id != null) ? id : -1;
+    }
+
+    /**
+     * Checks whether a state is marked as initial state in any Behavior
+     * Model.
+     *
+     * @param id  ID of the state.
+     *
+     * @return
+     *     <code>true</code> if and only if the state is an initial state.
+     */
+    public boolean isInitialState (final int id) {
+
+        return this.initialStates.get(id);
+    }
+
+    /**
+     * Returns the states which have at least one successor, in order of their
+     * IDs.
+     *
+     * @return
+     *     the IDs of the source states; the set must not be modified.
+     */
+    public BitSet getSourceStates () {
+
+        return this.sourceStates;
+    }
+
+    /**
+     * Returns the successors of a state.
+     *
+     * @param id  ID of the state.
+     *
+     * @return
+     *     the IDs of the successors; the set must not be modified.
+     */
+    public BitSet getSuccessors (final int id) {
+
+        return this.successors[id];
+    }
+
+
+    /* **************************  private methods  ************************* */
+
+
+    /**
+     * Registers a state, if it has not been registered before.
+     *
+     * @param name  name of the state, without initial state marker.
+     */
+    private void registerState (final String name) {
+
+        if ( !this.stateIds.containsKey(name) ) {
+
+            this.stateIds.put(name, this.stateNames.size());
+            this.stateNames.add(name);
+        }
+    }
+
+    /**
+     * Creates an array of empty bit sets.
+     *
+     * @param length  length of the array.
+     *
+     * @return  the newly created array.
+     */
+    private static BitSet[] createBitSets (final int length) {
+
+        final BitSet[] bitSets = new BitSet[length];
+
+        for (int i = 0; i < length; i++) {
+
+            bitSets[i] = new BitSet();
+        }
+
+        return bitSets;
+    }
+}
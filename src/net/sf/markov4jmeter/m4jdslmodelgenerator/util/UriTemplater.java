@@ -0,0 +1,463 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator.util;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Templater which maps URI-like service names to URI templates, so that
+ * services which differ in parameterized path segments only, e.g.
+ * <code>/item/123</code> and <code>/item/456</code>, are regarded as the same
+ * service <code>/item/{id}</code>.
+ *
+ * <p> User-defined templates are stored in a trie of path segments, in which
+ * a segment enclosed in braces matches any segment; a service name is mapped
+ * to the template it matches, whereas literal segments take precedence over
+ * placeholders. If no user-defined template matches, segments which are
+ * numeric, UUIDs or long hexadecimal numbers might be replaced automatically
+ * by the placeholder {@link #AUTO_PLACEHOLDER}.
+ *
+ * <p> Service names which do not contain any path separator are never
+ * changed; query strings are not part of templates.
+ *
+ * <p> Templating affects service names only: a templated service keeps the
+ * endpoint of the first service which has been folded into it, see
+ * {@link ServiceSummary#merge(ServiceSummary)}. Consequently, the generated
+ * requests of <code>/item/{id}</code> always address the same concrete URI,
+ * e.g. <code>/item/123</code>; the placeholder values of the other folded
+ * services are not carried over.
+ *
+ * @version  1.0
+ */
+public class UriTemplater {
+
+
+    /* *****************************  constants  **************************** */
+
+
+    /** Placeholder for automatically detected parameter segments. */
+    public final static String AUTO_PLACEHOLDER = "{id}";
+
+    /** Charset of template files. */
+    private final static Charset CHARSET = Charset.forName("UTF-8");
+
+    /** Separator between path segments. */
+    private final static String PATH_SEPARATOR = "/";
+
+    /** Separator between path and query string. */
+    private final static char QUERY_SEPARATOR = '?';
+
+    /** Pattern for numeric segments. */
+    private final static Pattern NUMERIC_SEGMENT =
+            Pattern.compile("-?\\d+");
+
+    /** Pattern for UUID segments. */
+    private final static Pattern UUID_SEGMENT = Pattern.compile(
+            "[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-"
+            + "[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+
+    /** Pattern for hexadecimal segments, which must include a digit for not
+     *  matching regular words like "deadbeef". */
+    private final static Pattern HEX_SEGMENT =
+            Pattern.compile("(?=[a-zA-Z]*\\d)[0-9a-fA-F]{8,}");
+
+    /** Prefix of comment lines in template files. */
+    private final static String COMMENT_PREFIX = "#";
+
+
+    /* *************************  global variables  ************************* */
+
+
+    /** Root of the trie which holds the user-defined templates. */
+    private final Node root;
+
+    /** <code>true</code> if and only if parameter segments shall be detected
+     *  automatically. */
+    private final boolean autoDetection;
+
+    /** Number of user-defined templates. */
+    private int templateCount;
+
+
+    /* ***************************  constructors  *************************** */
+
+
+    /**
+     * Constructor for a URI Templater.
+     *
+     * @param autoDetection
+     *     <code>true</code> if and only if numeric, UUID and hexadecimal
+     *     segments shall be replaced automatically.
+     */
+    public UriTemplater (final boolean autoDetection) {
+
+        this.root          = new Node();
+        this.autoDetection = autoDetection;
+    }
+
+
+    /* **************************  public methods  ************************** */
+
+
+    /**
+     * Adds a user-defined template; segments enclosed in braces, e.g.
+     * <code>{itemId}</code>, denote placeholders.
+     *
+     * @param template  template to be added.
+     */
+    public void addTemplate (String template) {
+
+        template = template.trim();
+
+        Node node = this.root;
+
+        for (final String segment :
+                template.split(UriTemplater.PATH_SEPARATOR, -1)) {
+
+            node = node.getOrCreateChild(segment);
+        }
+
+        if (node.template == null) {
+
+            this.templateCount++;
+        }
+
+        node.template = template;
+    }
+
+    /**
+     * Reads user-defined templates from a UTF-8 encoded file, one template
+     * per line; empty lines and lines starting with <code>#</code> are
+     * ignored.
+     *
+     * @param filename  name of the template file to be read.
+     *
+     * @throws FileNotFoundException
+     *     in case the denoted file does not exist.
+     * @throws IOException
+     *     if any error while reading occurs.
+     */
+    public void readTemplates (final String filename)
+            throws FileNotFoundException, IOException {
+
+        BufferedReader bufferedReader = null;
+
+        try {
+
+            // might throw a FileNotFoundException;
+            bufferedReader = new BufferedReader( new InputStreamReader(
+                    new FileInputStream(filename), UriTemplater.CHARSET) );
+
+            String line;
+
+            // might throw an IOException;
+            while ((line = bufferedReader.readLine()) != null) {
+
+                line = line.trim();
+
+                if ( !line.isEmpty() &&
+                        !line.startsWith(UriTemplater.COMMENT_PREFIX) ) {
+
+                    this.addTemplate(line);
+                }
+            }
+
+        } finally {
+
+            if (bufferedReader != null) {
+
+                try {
+
+                    bufferedReader.close();
+
+                } catch (final IOException ex) {
+
+                    // ignore exception, since this is the "finally" block;
+                    // TODO: exception message should be written to log file;
+                }
+            }
+        }
+    }
+
+    /**
+     * Maps a service name to its template.
+     *
+     * @param serviceName  name of the service to be mapped.
+     *
+     * @return
+     *     the matching template, or the service name itself if it is not
+     *     URI-like or no template applies.
+     */
+    public String apply (final String serviceName) {
+
+        if ( !serviceName.contains(UriTemplater.PATH_SEPARATOR) ) {
+
+            return serviceName;
+        }
+
+        final int queryStart = serviceName.indexOf(UriTemplater.QUERY_SEPARATOR);
+
+        final String path = (queryStart >= 0) ?
+                serviceName.substring(0, queryStart) : serviceName;
+
+        final String[] segments = path.split(UriTemplater.PATH_SEPARATOR, -1);
+
+        final String template = UriTemplater.match(this.root, segments, 0);
+
+        if (template != null) {
+
+            return template;
+        }
+
+        return this.autoDetection ?
+                UriTemplater.replaceParameterSegments(segments) : serviceName;
+    }
+
+    /**
+     * Determines the templates of several services.
+     *
+     * @param serviceNames  names of the services to be mapped.
+     *
+     * @return
+     *     the templates, keyed by the names of all services which share their
+     *     template with another service or whose template differs from their
+     *     name; services which are kept unchanged are not included.
+     */
+    public LinkedHashMap<String, String> computeServiceMapping (
+            final Iterable<String> serviceNames) {
+
+        final LinkedHashMap<String, String> templates =
+                new LinkedHashMap<String, String>();
+
+        final HashMap<String, Integer> templateUsages =
+                new HashMap<String, Integer>();
+
+        for (final String serviceName : serviceNames) {
+
+            if ( templates.containsKey(serviceName) ) {
+
+                continue;
+            }
+
+            final String template = this.apply(serviceName);
+
+            templates.put(serviceName, template);
+
+            final Integer usages = templateUsages.get(template);
+
+            templateUsages.put(template, (usages != null) ? usages + 1 : 1);
+        }
+
+        final LinkedHashMap<String, String> serviceMapping =
+                new LinkedHashMap<String, String>();
+
+        for (final String serviceName : templates.keySet()) {
+
+            final String template = templates.get(serviceName);
+
+            if ( !template.equals(serviceName) ||
+                    templateUsages.get(template) > 1 ) {
+
+                serviceMapping.put(serviceName, template);
+            }
+        }
+
+        return serviceMapping;
+    }
+
+    /**
+     * Checks whether this templater changes any service names at all.
+     *
+     * @return
+     *     <code>true</code> if and only if user-defined templates are
+     *     available or automatic detection is enabled.
+     */
+    public boolean isEnabled () {
+
+        return this.autoDetection || this.templateCount > 0;
+    }
+
+    /**
+     * Returns the number of user-defined templates.
+     *
+     * @return  a non-negative number.
+     */
+    public int getTemplateCount () {
+
+        return this.templateCount;
+    }
+
+
+    /* **************************  private methods  ************************* */
+
+
+    /**
+     * Finds the template which matches a sequence of segments, preferring
+     * literal segments over placeholders.
+     *
+     * @param node      current node of the trie.
+     * @param segments  segments to be matched.
+     * @param index     index of the next segment to be matched.
+     *
+     * @return
+     *     the matching template, or <code>null</code> if no template matches.
+     */
+    private static String match (
+            final Node node,
+            final String[] segments,
+            final int index) {
+
+        if (index == segments.length) {
+
+            return node.template;
+        }
+
+        final Node child = node.children.get(segments[index]);
+
+        if (child != null) {
+
+            final String template =
+                    UriTemplater.match(child, segments, index + 1);
+
+            if (template != null) {
+
+                return template;
+            }
+        }
+
+        return (node.placeholder != null) ?
+                UriTemplater.match(node.placeholder, segments, index + 1) :
+                null;
+    }
+
+    /**
+     * Replaces all numeric, UUID and hexadecimal segments by the automatic
+     * placeholder.
+     *
+     * @param segments  segments to be processed.
+     *
+     * @return  the joined segments.
+     */
+    private static String replaceParameterSegments (final String[] segments) {
+
+        final StringBuilder stringBuilder = new StringBuilder();
+
+        for (int i = 0; i < segments.length; i++) {
+
+            if (i > 0) {
+
+                stringBuilder.append(UriTemplater.PATH_SEPARATOR);
+            }
+
+            stringBuilder.append( UriTemplater.isParameterSegment(segments[i]) ?
+                    UriTemplater.AUTO_PLACEHOLDER : segments[i] );
+        }
+
+        return stringBuilder.toString();
+    }
+
+    /**
+     * Checks whether a segment is regarded as parameter value.
+     *
+     * @param segment  segment to be checked.
+     *
+     * @return
+     *     <code>true</code> if and only if the segment is numeric, a UUID or
+     *     a hexadecimal number of at least 8 digits.
+     */
+    private static boolean isParameterSegment (final String segment) {
+
+        return UriTemplater.NUMERIC_SEGMENT.matcher(segment).matches() ||
+               UriTemplater.UUID_SEGMENT.matcher(segment).matches()    ||
+               UriTemplater.HEX_SEGMENT.matcher(segment).matches();
+    }
+
+    /**
+     * Checks whether a template segment denotes a placeholder.
+     *
+     * @param segment  segment to be checked.
+     *
+     * @return
+     *     <code>true</code> if and only if the segment is enclosed in braces.
+     */
+    private static boolean isPlaceholder (final String segment) {
+
+        return segment.length() > 1 &&
+               segment.startsWith("{") && segment.endsWith("}");
+    }
+
+
+    /* *************************  internal classes  ************************* */
+
+
+    /**
+     * Node of the template trie.
+     */
+    private static class Node {
+
+        /** Children for literal segments, keyed by segments. */
+        private final HashMap<String, Node> children =
+                new HashMap<String, Node>();
+
+        /** Child for placeholder segments, might be <code>null</code>. */
+        private Node placeholder;
+
+        /** Template which ends at this node, might be <code>null</code>. */
+        private String template;
+
+
+        /**
+         * Returns the child for a template segment; if no such child exists,
+         * it will be created.
+         *
+         * @param segment  template segment.
+         *
+         * @return  a valid child node.
+         */
+        public Node getOrCreateChild (final String segment) {
+
+            if ( UriTemplater.isPlaceholder(segment) ) {
+
+                if (this.placeholder == null) {
+
+                    this.placeholder = new Node();
+                }
+
+                return this.placeholder;
+            }
+
+            Node child = this.children.get(segment);
+
+            if (child == null) {
+
+                child = new Node();
+                this.children.put(segment, child);
+            }
+
+            return child;
+        }
+    }
+}
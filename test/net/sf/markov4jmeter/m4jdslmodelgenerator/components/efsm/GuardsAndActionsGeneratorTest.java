@@ -0,0 +1,123 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator.components.efsm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link GuardsAndActionsGenerator} class, which must mine the
+ * same invariants with the built-in miner as with the Synoptic tool.
+ *
+ * @version  1.0
+ */
+public class GuardsAndActionsGeneratorTest {
+
+
+    /** Synoptic properties of the SPECj example, including the log file. */
+    private final static String SYNOPTIC_PROPERTIES_FILE =
+            "./examples/specj/input/synoptic.properties";
+
+    /** Property key for the invariant miner to be used. */
+    private final static String PKEY_SYNOPTIC_MINER = "synoptic.miner";
+
+
+    /**
+     * The built-in miner must give the same invariants as the Synoptic tool
+     * for the example trace log, including the minimum differences of
+     * CntAlwaysEqualsGreater invariants.
+     *
+     * @throws IOException  if the Synoptic properties cannot be read.
+     */
+    @Test
+    public void testBuiltInMinerMatchesSynoptic () throws IOException {
+
+        final List<MinedInvariant> expected = this.mine("synoptic");
+        final List<MinedInvariant> actual   = this.mine("builtin");
+
+        assertNotNull(expected);
+        assertNotNull(actual);
+        assertTrue( !expected.isEmpty() );
+
+        assertEquals(expected, actual);
+
+        // surplus of at least two additions at each removal;
+        assertTrue( actual.contains(new MinedInvariant(
+                MinedInvariant.TYPE_CNT_ALWAYS_EQUALS_GREATER,
+                "Add_to_Cart", "remove", 1)) );
+    }
+
+
+    /**
+     * Mines the invariants of the example trace log.
+     *
+     * @param miner  value of the <code>synoptic.miner</code> property.
+     *
+     * @return
+     *     the mined invariants, ordered by {@link MinedInvariant#ORDER}, or
+     *     <code>null</code> if mining fails.
+     *
+     * @throws IOException  if the Synoptic properties cannot be read.
+     */
+    private List<MinedInvariant> mine (final String miner) throws IOException {
+
+        final Properties synopticProperties = new Properties();
+
+        final InputStream inputStream = new FileInputStream(
+                GuardsAndActionsGeneratorTest.SYNOPTIC_PROPERTIES_FILE);
+
+        try {
+
+            synopticProperties.load(inputStream);
+
+        } finally {
+
+            inputStream.close();
+        }
+
+        synopticProperties.setProperty(
+                GuardsAndActionsGeneratorTest.PKEY_SYNOPTIC_MINER, miner);
+
+        final List<MinedInvariant> invariants =
+                new GuardsAndActionsGenerator(null).mineTemporalInvariants(
+                        synopticProperties);
+
+        if (invariants == null) {
+
+            return null;
+        }
+
+        final List<MinedInvariant> orderedInvariants =
+                new ArrayList<MinedInvariant>(invariants);
+
+        Collections.sort(orderedInvariants, MinedInvariant.ORDER);
+
+        return orderedInvariants;
+    }
+}
@@ -0,0 +1,148 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator.components.efsm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link InvariantMiner} class.
+ *
+ * @version  1.0
+ */
+public class InvariantMinerTest {
+
+
+    /** Expression for lines which separate traces. */
+    private final static Pattern SEPARATOR = Pattern.compile("^---$");
+
+
+    /**
+     * Invariants of merged event types must be mined from the merged traces:
+     * neither <i>a</i> nor <i>c</i> always precedes <i>b</i>, but their
+     * merged event type does.
+     */
+    @Test
+    public void testMappedEventTypesAreMinedAfterMerging () {
+
+        final HashMap<String, String> eventTypeMapping =
+                new HashMap<String, String>();
+
+        eventTypeMapping.put("a", "X");
+        eventTypeMapping.put("c", "X");
+
+        final InvariantMiner invariantMiner = new InvariantMiner(
+                null, InvariantMinerTest.SEPARATOR, eventTypeMapping);
+
+        this.addLines(invariantMiner, "a", "b", "---", "c", "b");
+
+        final List<MinedInvariant> invariants = invariantMiner.getInvariants();
+
+        assertEquals(2, invariantMiner.getEventTypeCount());
+        assertEquals(2, invariantMiner.getTraceCount());
+
+        assertTrue( invariants.contains(new MinedInvariant(
+                MinedInvariant.TYPE_ALWAYS_PRECEDES, "X", "b", 0)) );
+
+        assertTrue( invariants.contains(new MinedInvariant(
+                MinedInvariant.TYPE_CNT_ALWAYS_EQUALS_GREATER, "X", "b", 0)) );
+
+        for (final MinedInvariant invariant : invariants) {
+
+            assertFalse( eventTypeMapping.containsKey(invariant.getFirst()) );
+            assertFalse( eventTypeMapping.containsKey(invariant.getSecond()) );
+        }
+    }
+
+    /**
+     * Without mapping, the same traces do not yield the invariant.
+     */
+    @Test
+    public void testUnmappedEventTypesAreMinedSeparately () {
+
+        final InvariantMiner invariantMiner =
+                new InvariantMiner(null, InvariantMinerTest.SEPARATOR);
+
+        this.addLines(invariantMiner, "a", "b", "---", "c", "b");
+
+        final List<MinedInvariant> invariants = invariantMiner.getInvariants();
+
+        assertEquals(3, invariantMiner.getEventTypeCount());
+
+        assertFalse( invariants.contains(new MinedInvariant(
+                MinedInvariant.TYPE_ALWAYS_PRECEDES, "a", "b", 0)) );
+
+        assertFalse( invariants.contains(new MinedInvariant(
+                MinedInvariant.TYPE_ALWAYS_PRECEDES, "c", "b", 0)) );
+    }
+
+
+    /**
+     * The minimum difference of a CntAlwaysEqualsGreater invariant is the
+     * minimum surplus of preceding <i>a</i> over preceding <i>b</i> at each
+     * occurrence of <i>b</i>, minus 1.
+     */
+    @Test
+    public void testCountInvariantHasMinimumSurplus () {
+
+        final InvariantMiner invariantMiner =
+                new InvariantMiner(null, InvariantMinerTest.SEPARATOR);
+
+        // surpluses at the occurrences of b: 2, 2, 2;
+        this.addLines(invariantMiner,
+                "a", "a", "b", "---", "a", "a", "b", "a", "b");
+
+        assertTrue( invariantMiner.getInvariants().contains(new MinedInvariant(
+                MinedInvariant.TYPE_CNT_ALWAYS_EQUALS_GREATER, "a", "b", 1)) );
+
+        // surplus 0 at the second occurrence of b violates the invariant;
+        this.addLines(invariantMiner, "---", "a", "b", "b");
+
+        for (final MinedInvariant invariant : invariantMiner.getInvariants()) {
+
+            assertFalse( invariant.getType() ==
+                    MinedInvariant.TYPE_CNT_ALWAYS_EQUALS_GREATER &&
+                    "a".equals(invariant.getFirst()) &&
+                    "b".equals(invariant.getSecond()) );
+        }
+    }
+
+
+    /**
+     * Adds log lines to a miner.
+     *
+     * @param invariantMiner  miner to which the lines are added.
+     * @param lines           lines to be added.
+     */
+    private void addLines (
+            final InvariantMiner invariantMiner,
+            final String... lines) {
+
+        for (final String line : lines) {
+
+            invariantMiner.addLine(line);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link CoverageEstimator} class.
+ *
+ * @version  1.0
+ */
+public class CoverageEstimatorTest {
+
+
+    /** Maximum deviation for values which are compared. */
+    private final static double DELTA = 1.0E-6d;
+
+
+    /**
+     * The confidence interval must contain the Chao1 estimate, and its lower
+     * bound must not be less than the number of observed items; for 50
+     * observed items with 10 singletons and 5 doubletons, the variance is
+     * 7.5 + 25.0694 + 7.8125.
+     */
+    @Test
+    public void testIntervalContainsEstimate () {
+
+        final double estimate =
+                CoverageEstimator.estimateDistinctCount(50, 10, 5);
+
+        final double[] interval =
+                CoverageEstimator.estimateDistinctCountInterval(50, 10, 5);
+
+        assertEquals(57.5d, estimate, CoverageEstimatorTest.DELTA);
+        assertEquals(
+                40.381944d,
+                CoverageEstimator.estimateDistinctCountVariance(50, 10, 5),
+                CoverageEstimatorTest.DELTA);
+
+        assertTrue(interval[0] > 50.0d);
+        assertTrue(interval[0] < estimate);
+        assertTrue(interval[1] > estimate);
+    }
+
+    /**
+     * Without unobserved items, the interval degenerates to the number of
+     * observed items.
+     */
+    @Test
+    public void testIntervalWithoutSingletonsIsDegenerate () {
+
+        final double[] interval =
+                CoverageEstimator.estimateDistinctCountInterval(20, 0, 4);
+
+        assertEquals(20.0d, interval[0], CoverageEstimatorTest.DELTA);
+        assertEquals(20.0d, interval[1], CoverageEstimatorTest.DELTA);
+    }
+
+    /**
+     * Without doubletons, the variance must remain non-negative and the
+     * interval must still contain the estimate.
+     */
+    @Test
+    public void testIntervalWithoutDoubletons () {
+
+        final double estimate =
+                CoverageEstimator.estimateDistinctCount(12, 6, 0);
+
+        final double[] interval =
+                CoverageEstimator.estimateDistinctCountInterval(12, 6, 0);
+
+        assertTrue(
+                CoverageEstimator.estimateDistinctCountVariance(12, 6, 0) > 0);
+        assertTrue(interval[0] >= 12.0d);
+        assertTrue(interval[0] <= estimate);
+        assertTrue(interval[1] >= estimate);
+    }
+}
@@ -0,0 +1,136 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link ParameterValueSample} class.
+ *
+ * @version  1.0
+ */
+public class ParameterValueSampleTest {
+
+
+    /**
+     * A reservoir which holds exactly <i>k</i> distinct values has not
+     * dropped anything, so the distinct count must be exact.
+     */
+    @Test
+    public void testFullReservoirIsNotSampled () {
+
+        final ParameterValueSample sample = new ParameterValueSample(3);
+
+        sample.add("a");
+        sample.add("b");
+        sample.add("c");
+        sample.add("a");
+
+        assertFalse( sample.isSampled() );
+        assertEquals(3, sample.getDistinctCount());
+    }
+
+    /**
+     * Once a distinct value is rejected or evicted, the sample is marked as
+     * sampled and the distinct count is estimated.
+     */
+    @Test
+    public void testDroppedValueMarksSample () {
+
+        final ParameterValueSample sample = new ParameterValueSample(3);
+
+        for (int i = 0; i < 1000; i++) {
+
+            sample.add("value" + i);
+        }
+
+        assertTrue( sample.isSampled() );
+        assertEquals(3, sample.getValues().size());
+        assertTrue(sample.getDistinctCount() > 3);
+    }
+
+    /**
+     * Merging a sampled sample marks the merged sample as sampled.
+     */
+    @Test
+    public void testMergeKeepsSampledFlag () {
+
+        final ParameterValueSample sample1 = new ParameterValueSample(3);
+        final ParameterValueSample sample2 = new ParameterValueSample(3);
+
+        sample1.add("a");
+
+        for (int i = 0; i < 100; i++) {
+
+            sample2.add("value" + i);
+        }
+
+        sample1.merge(sample2);
+
+        assertTrue( sample1.isSampled() );
+    }
+
+    /**
+     * Occurrences are only counted on request.
+     */
+    @Test
+    public void testOccurrencesAreCountedOnRequestOnly () {
+
+        final ParameterValueSample counting = new ParameterValueSample(
+                ParameterValueSample.UNLIMITED, true);
+
+        final ParameterValueSample plain =
+                new ParameterValueSample(ParameterValueSample.UNLIMITED);
+
+        for (final String value : new String[]{"a", "b", "b", "c", "c", "c"}) {
+
+            counting.add(value);
+            plain.add(value);
+        }
+
+        assertTrue( counting.isCountingOccurrences() );
+        assertEquals(1, counting.getFrequencyCount(1));
+        assertEquals(6, counting.getKeptValueCount());
+
+        assertFalse( plain.isCountingOccurrences() );
+        assertEquals(0, plain.getKeptValueCount());
+        assertEquals(3, plain.getDistinctCount());
+    }
+
+    /**
+     * Unlimited samples are never sampled.
+     */
+    @Test
+    public void testUnlimitedSampleIsNotSampled () {
+
+        final ParameterValueSample sample =
+                new ParameterValueSample(ParameterValueSample.UNLIMITED);
+
+        for (int i = 0; i < 100; i++) {
+
+            sample.add("value" + i);
+        }
+
+        assertFalse( sample.isSampled() );
+        assertEquals(100, sample.getDistinctCount());
+    }
+}
@@ -0,0 +1,140 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.LinkedHashMap;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link ServiceTruncator} class.
+ *
+ * @version  1.0
+ */
+public class ServiceTruncatorTest {
+
+
+    /** Number of rare services in the long-tail distribution. */
+    private final static int TAIL_SERVICE_COUNT = 2000;
+
+
+    /**
+     * Two frequent services must be kept even if they are outnumbered by a
+     * long tail of rare services, regardless of the order of the use cases.
+     */
+    @Test
+    public void testLongTailKeepsMostFrequentServices () {
+
+        final SessionAggregator sessionAggregator =
+                new SessionAggregator(ParameterValueSample.UNLIMITED);
+
+        // 10 rounds of 100 x login, 90 x home and 1 x each tail service;
+        for (int round = 0; round < 10; round++) {
+
+            sessionAggregator.startSession();
+
+            this.addUseCases(sessionAggregator, "login", 100);
+            this.addUseCases(sessionAggregator, "home", 90);
+
+            for (int i = 0; i < ServiceTruncatorTest.TAIL_SERVICE_COUNT; i++) {
+
+                this.addUseCases(sessionAggregator, "tail" + i, 1);
+            }
+        }
+
+        final ServiceTruncator serviceTruncator = new ServiceTruncator(2, 0);
+
+        final LinkedHashMap<String, String> serviceMapping =
+                serviceTruncator.computeServiceMapping(
+                        sessionAggregator, new BehaviorMatrix[0]);
+
+        assertFalse( serviceMapping.containsKey("login") );
+        assertFalse( serviceMapping.containsKey("home") );
+        assertEquals(
+                ServiceTruncatorTest.TAIL_SERVICE_COUNT,
+                serviceMapping.size());
+        assertEquals(
+                ServiceTruncator.OTHER_SERVICE_NAME,
+                serviceMapping.get("tail0"));
+        assertEquals(
+                ServiceTruncatorTest.TAIL_SERVICE_COUNT + 2,
+                serviceTruncator.getServiceCount());
+    }
+
+    /**
+     * Without use cases, services are ranked by the probability mass of their
+     * incoming transitions; initial states and the exit state are kept.
+     */
+    @Test
+    public void testIncomingMassRanksServicesWithoutUseCases () {
+
+        final String[] rowNames    = {"login*", "home", "a", "b"};
+        final String[] columnNames = {"login", "home", "a", "b", "$"};
+
+        // incoming masses: login = 0.0, home = 0.7, a = 0.1, b = 1.2;
+        final double[] probabilities = {
+            0.0d, 0.2d, 0.1d, 0.7d, 0.0d,
+            0.0d, 0.0d, 0.0d, 0.5d, 0.5d,
+            0.0d, 0.5d, 0.0d, 0.0d, 0.5d,
+            0.0d, 0.0d, 0.0d, 0.0d, 1.0d
+        };
+
+        final double[] zeros = new double[probabilities.length];
+
+        final BehaviorMatrix behaviorMatrix = new BehaviorMatrix(
+                rowNames, columnNames, probabilities, zeros, zeros);
+
+        final ServiceTruncator serviceTruncator = new ServiceTruncator(1, 0);
+
+        final LinkedHashMap<String, String> serviceMapping =
+                serviceTruncator.computeServiceMapping(
+                        new SessionAggregator(ParameterValueSample.UNLIMITED),
+                        new BehaviorMatrix[]{behaviorMatrix});
+
+        assertEquals(2, serviceMapping.size());
+        assertEquals(
+                ServiceTruncator.OTHER_SERVICE_NAME,
+                serviceMapping.get("home"));
+        assertEquals(
+                ServiceTruncator.OTHER_SERVICE_NAME,
+                serviceMapping.get("a"));
+    }
+
+
+    /**
+     * Adds use cases without protocol information to the current session.
+     *
+     * @param sessionAggregator  aggregator to which the use cases are added.
+     * @param name               name of the use cases.
+     * @param count              number of use cases to be added.
+     */
+    private void addUseCases (
+            final SessionAggregator sessionAggregator,
+            final String name,
+            final int count) {
+
+        for (int i = 0; i < count; i++) {
+
+            sessionAggregator.addUseCase(
+                    name, null, 0, null, null, null, null, null);
+        }
+    }
+}
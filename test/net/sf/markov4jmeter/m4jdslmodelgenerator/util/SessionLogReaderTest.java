@@ -0,0 +1,242 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Map;
+
+import org.junit.Test;
+
+import wessbas.commons.parser.Parser;
+
+/**
+ * Tests for the {@link SessionLogReader} and
+ * {@link ParallelSessionLogReader} classes, which must read session log
+ * files exactly like the parser of the <code>wessbas.commons</code> bundle.
+ *
+ * @version  1.0
+ */
+public class SessionLogReaderTest {
+
+
+    /** Example session log file, which is shipped with the SPECj example. */
+    private final static String SESSIONS_FILE =
+            "./examples/specj/input/sessions.dat";
+
+    /** Line terminators which are used alternately in generated files. */
+    private final static String[] LINE_TERMINATORS = {"\n", "\r\n", "\r"};
+
+    /** Minimum chunk size for splitting generated files into many chunks. */
+    private final static long SMALL_CHUNK_SIZE = 1024;
+
+
+    /**
+     * The streaming reader must give the same per-service summaries as the
+     * sessions which are parsed by the <code>wessbas.commons</code> parser.
+     */
+    @Test
+    public void testStreamingReaderMatchesCommonsParser () throws Exception {
+
+        final SessionAggregator expected =
+                new SessionAggregator(ParameterValueSample.UNLIMITED);
+
+        expected.addSessions( Parser.parseSessionsIntoSessionsRepository(
+                SessionLogReaderTest.SESSIONS_FILE, null) );
+
+        final SessionAggregator actual =
+                new SessionAggregator(ParameterValueSample.UNLIMITED);
+
+        new SessionLogReader().read(SessionLogReaderTest.SESSIONS_FILE, actual);
+
+        SessionLogReaderTest.assertSameSummaries(expected, actual);
+    }
+
+    /**
+     * The parallel reader must give the same per-service summaries as the
+     * streaming reader.
+     */
+    @Test
+    public void testParallelReaderMatchesStreamingReader () throws Exception {
+
+        final SessionAggregator expected =
+                new SessionAggregator(ParameterValueSample.UNLIMITED);
+
+        new SessionLogReader().read(SessionLogReaderTest.SESSIONS_FILE, expected);
+
+        final SessionAggregator actual =
+                new SessionAggregator(ParameterValueSample.UNLIMITED);
+
+        new ParallelSessionLogReader(4).read(
+                SessionLogReaderTest.SESSIONS_FILE, actual);
+
+        SessionLogReaderTest.assertSameSummaries(expected, actual);
+    }
+
+    /**
+     * The parallel reader must give the same per-service summaries as the
+     * streaming reader for a file which is split into multiple chunks, with
+     * line feeds, carriage returns and both as line terminators.
+     */
+    @Test
+    public void testParallelReaderMatchesStreamingReaderOnChunks ()
+            throws Exception {
+
+        final File sessionLog = SessionLogReaderTest.writeMixedSessionLog(
+                SessionLogReaderTest.SESSIONS_FILE, 3);
+
+        // at least one chunk per worker;
+        assertTrue(sessionLog.length() >
+                4 * SessionLogReaderTest.SMALL_CHUNK_SIZE);
+
+        final SessionAggregator expected =
+                new SessionAggregator(ParameterValueSample.UNLIMITED);
+
+        new SessionLogReader().read(sessionLog.getPath(), expected);
+
+        final SessionAggregator actual =
+                new SessionAggregator(ParameterValueSample.UNLIMITED);
+
+        new ParallelSessionLogReader(
+                4, SessionLogReaderTest.SMALL_CHUNK_SIZE).read(
+                        sessionLog.getPath(), actual);
+
+        SessionLogReaderTest.assertSameSummaries(expected, actual);
+    }
+
+    /**
+     * Writes the sessions of a session log file repeatedly into a temporary
+     * file, alternating the line terminators.
+     *
+     * @param filename  name of the session log file to be read.
+     * @param copies    number of copies of the sessions to be written.
+     *
+     * @return  the temporary file, which will be deleted on exit.
+     *
+     * @throws IOException  if any file cannot be read or written.
+     */
+    private static File writeMixedSessionLog (
+            final String filename,
+            final int copies) throws IOException {
+
+        final File file = File.createTempFile("sessions", ".dat");
+        file.deleteOnExit();
+
+        final Writer writer = new OutputStreamWriter(
+                new FileOutputStream(file), SessionLogReader.CHARSET);
+
+        try {
+
+            int lineNumber = 0;
+
+            for (int i = 0; i < copies; i++) {
+
+                final BufferedReader bufferedReader = new BufferedReader(
+                        new InputStreamReader(
+                                new FileInputStream(filename),
+                                SessionLogReader.CHARSET));
+
+                try {
+
+                    String line;
+
+                    while ((line = bufferedReader.readLine()) != null) {
+
+                        writer.write(line);
+                        writer.write(SessionLogReaderTest.LINE_TERMINATORS[
+                                lineNumber++ %
+                                SessionLogReaderTest.LINE_TERMINATORS.length]);
+                    }
+
+                } finally {
+
+                    bufferedReader.close();
+                }
+            }
+
+        } finally {
+
+            writer.close();
+        }
+
+        return file;
+    }
+
+    /**
+     * Asserts that two aggregators hold equal summaries of the same services.
+     *
+     * @param expected  aggregator with the expected summaries.
+     * @param actual    aggregator with the actual summaries.
+     */
+    static void assertSameSummaries (
+            final SessionAggregator expected,
+            final SessionAggregator actual) {
+
+        assertTrue(expected.getUseCaseCount() > 0);
+        assertEquals(expected.getSessionCount(), actual.getSessionCount());
+        assertEquals(expected.getUseCaseCount(), actual.getUseCaseCount());
+        assertEquals(
+                expected.getServiceSummaries().size(),
+                actual.getServiceSummaries().size());
+
+        for (final ServiceSummary e : expected.getServiceSummaries()) {
+
+            final ServiceSummary a = actual.getServiceSummary( e.getName() );
+
+            assertNotNull(e.getName(), a);
+            assertEquals(e.getName(), e.getUseCaseCount(), a.getUseCaseCount());
+            assertEquals(e.getName(), e.getIp(),           a.getIp());
+            assertEquals(e.getName(), e.getPort(),         a.getPort());
+            assertEquals(e.getName(), e.getUri(),          a.getUri());
+            assertEquals(e.getName(), e.getMethod(),       a.getMethod());
+            assertEquals(e.getName(), e.getEncoding(),     a.getEncoding());
+            assertEquals(e.getName(), e.getProtocol(),     a.getProtocol());
+            assertEquals(
+                    e.getName(),
+                    e.getParameters().keySet(),
+                    a.getParameters().keySet());
+
+            for (final Map.Entry<String, ParameterValueSample> entry :
+                    e.getParameters().entrySet()) {
+
+                final ParameterValueSample values =
+                        a.getParameters().get( entry.getKey() );
+
+                assertEquals(
+                        e.getName() + "." + entry.getKey(),
+                        entry.getValue().join(";"),
+                        values.join(";"));
+
+                assertEquals(
+                        e.getName() + "." + entry.getKey(),
+                        entry.getValue().getValueCount(),
+                        values.getValueCount());
+            }
+        }
+    }
+}
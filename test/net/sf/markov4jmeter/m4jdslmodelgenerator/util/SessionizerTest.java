@@ -0,0 +1,253 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link Sessionizer} class.
+ *
+ * @version  1.0
+ */
+public class SessionizerTest {
+
+
+    /** Example session log file, which is shipped with the SPECj example. */
+    private final static String SESSIONS_FILE =
+            "./examples/specj/input/sessions.dat";
+
+
+    /**
+     * A gap which equals the threshold must keep a session open, whereas a
+     * larger gap must split it.
+     *
+     * @throws IOException  if the request log file cannot be written or read.
+     */
+    @Test
+    public void testGapAboveThresholdSplitsSession () throws IOException {
+
+        final File requestLog = SessionizerTest.writeRequestLog(
+                "c1;" + SessionizerTest.useCase("a", 0, 10),
+                "c1;" + SessionizerTest.useCase("b", 15, 20),  // gap 5;
+                "c1;" + SessionizerTest.useCase("c", 26, 30)); // gap 6;
+
+        final SessionAggregator sessionAggregator =
+                new SessionAggregator(ParameterValueSample.UNLIMITED);
+
+        new Sessionizer(5).read(requestLog.getPath(), sessionAggregator);
+
+        assertEquals(2, sessionAggregator.getSessionCount());
+        assertEquals(3, sessionAggregator.getUseCaseCount());
+    }
+
+    /**
+     * Idle sessions of other clients must be closed while reading, so that
+     * only active sessions are kept in memory.
+     *
+     * @throws IOException  if the request log file cannot be written or read.
+     */
+    @Test
+    public void testIdleSessionsAreEvicted () throws IOException {
+
+        final File requestLog = SessionizerTest.writeRequestLog(
+                "c1;" + SessionizerTest.useCase("a", 0, 10),
+                "c2;" + SessionizerTest.useCase("a", 100, 110),
+                "c3;" + SessionizerTest.useCase("a", 200, 210));
+
+        final Sessionizer sessionizer = new Sessionizer(50);
+        final List<Integer> openSessionCounts = new ArrayList<Integer>();
+
+        // records the number of open sessions whenever a session is closed;
+        final SessionAggregator sessionAggregator =
+                new SessionAggregator(ParameterValueSample.UNLIMITED) {
+
+            @Override
+            public void startSession () {
+
+                openSessionCounts.add( sessionizer.getOpenSessionCount() );
+                super.startSession();
+            }
+        };
+
+        sessionizer.read(requestLog.getPath(), sessionAggregator);
+
+        assertEquals(3, sessionAggregator.getSessionCount());
+        assertEquals(3, openSessionCounts.size());
+
+        for (final int openSessionCount : openSessionCounts) {
+
+            assertEquals(1, openSessionCount);
+        }
+
+        assertEquals(0, sessionizer.getOpenSessionCount());
+    }
+
+    /**
+     * With a threshold which exceeds every gap, the sessions of a request log
+     * derived from the example session log must be restored exactly.
+     *
+     * @throws IOException  if any log file cannot be written or read.
+     */
+    @Test
+    public void testLargeThresholdMatchesSessionLogReader ()
+            throws IOException {
+
+        final SessionAggregator expected =
+                new SessionAggregator(ParameterValueSample.UNLIMITED);
+
+        new SessionLogReader().read(SessionizerTest.SESSIONS_FILE, expected);
+
+        final File requestLog = SessionizerTest.writeRequestLog(
+                SessionizerTest.toRequests(SessionizerTest.SESSIONS_FILE));
+
+        final SessionAggregator actual =
+                new SessionAggregator(ParameterValueSample.UNLIMITED);
+
+        new Sessionizer(Long.MAX_VALUE).read(requestLog.getPath(), actual);
+
+        SessionLogReaderTest.assertSameSummaries(expected, actual);
+    }
+
+
+    /**
+     * Splits the sessions of a session log file into requests, which are
+     * ordered by their start times; the session IDs are used as client IDs.
+     *
+     * @param filename  name of the session log file to be read.
+     *
+     * @return  the requests, each of them formatted as a request log line.
+     *
+     * @throws IOException  if the session log file cannot be read.
+     */
+    private static String[] toRequests (final String filename)
+            throws IOException {
+
+        final List<String[]> requests = new ArrayList<String[]>();
+
+        final BufferedReader bufferedReader = new BufferedReader(
+                new InputStreamReader(
+                        new FileInputStream(filename),
+                        SessionLogReader.CHARSET));
+
+        try {
+
+            String line;
+
+            while ((line = bufferedReader.readLine()) != null) {
+
+                final String[] parts = line.split(";");
+
+                for (int i = 1; i < parts.length; i++) {
+
+                    // start time is the second field of a use case;
+                    requests.add(new String[]{
+                            parts[i].split(":")[1], parts[0] + ";" + parts[i]});
+                }
+            }
+
+        } finally {
+
+            bufferedReader.close();
+        }
+
+        // stable sort, which keeps the order of simultaneous requests;
+        Collections.sort(requests, new Comparator<String[]>() {
+
+            @Override
+            public int compare (final String[] r1, final String[] r2) {
+
+                return Long.valueOf(r1[0]).compareTo( Long.valueOf(r2[0]) );
+            }
+        });
+
+        final String[] lines = new String[requests.size()];
+
+        for (int i = 0; i < lines.length; i++) {
+
+            lines[i] = requests.get(i)[1];
+        }
+
+        return lines;
+    }
+
+    /**
+     * Writes lines into a temporary request log file.
+     *
+     * @param lines  lines to be written.
+     *
+     * @return  the temporary file, which will be deleted on exit.
+     *
+     * @throws IOException  if the file cannot be written.
+     */
+    private static File writeRequestLog (final String... lines)
+            throws IOException {
+
+        final File file = File.createTempFile("requests", ".log");
+        file.deleteOnExit();
+
+        final Writer writer = new OutputStreamWriter(
+                new FileOutputStream(file), SessionLogReader.CHARSET);
+
+        try {
+
+            for (final String line : lines) {
+
+                writer.write(line);
+                writer.write('\n');
+            }
+
+        } finally {
+
+            writer.close();
+        }
+
+        return file;
+    }
+
+    /**
+     * Builds a use case without protocol information.
+     *
+     * @param name   name of the use case.
+     * @param start  start time of the use case.
+     * @param end    end time of the use case.
+     *
+     * @return  the use case, formatted as in session log files.
+     */
+    private static String useCase (
+            final String name,
+            final long start,
+            final long end) {
+
+        return "\"" + name + "\":" + start + ":" + end;
+    }
+}
@@ -0,0 +1,152 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+package net.sf.markov4jmeter.m4jdslmodelgenerator.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.HashMap;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link SparseBehaviorMatrix} class, comparing sparse Behavior
+ * Matrices with their dense counterparts.
+ *
+ * @version  1.0
+ */
+public class SparseBehaviorMatrixTest {
+
+
+    /** Behavior Matrix files of the SPECjEnterprise2010 example. */
+    private final static String[] BEHAVIOR_FILES = {
+        "./examples/specj/input/behaviormodel0.csv",
+        "./examples/specj/input/behaviormodel1.csv",
+        "./examples/specj/input/behaviormodel2.csv"
+    };
+
+    /** Maximum deviation for values which are compared. */
+    private final static double DELTA = 1.0E-12d;
+
+
+    /**
+     * Sparse matrices must provide the same transitions as dense matrices,
+     * without holding any dense arrays.
+     *
+     * @throws IOException  if any example file cannot be read.
+     */
+    @Test
+    public void testSparseMatrixEqualsDenseMatrix () throws IOException {
+
+        for (final String filename : SparseBehaviorMatrixTest.BEHAVIOR_FILES) {
+
+            final BehaviorMatrix dense  = BehaviorMatrix.read(filename, false);
+            final BehaviorMatrix sparse = BehaviorMatrix.read(filename, true);
+
+            assertNull( dense.getSparseMatrix() );
+            assertNotNull( sparse.getSparseMatrix() );
+
+            this.assertEqualTransitions(dense, sparse);
+        }
+    }
+
+    /**
+     * Folding a sparse matrix must give the same result as folding a dense
+     * matrix, and the folded matrix must be sparse as well.
+     *
+     * @throws IOException  if any example file cannot be read.
+     */
+    @Test
+    public void testSparseFoldEqualsDenseFold () throws IOException {
+
+        for (final String filename : SparseBehaviorMatrixTest.BEHAVIOR_FILES) {
+
+            final BehaviorMatrix dense  = BehaviorMatrix.read(filename, false);
+            final BehaviorMatrix sparse = BehaviorMatrix.read(filename, true);
+
+            // fold every third state into one of two groups;
+            final HashMap<String, String> stateMapping =
+                    new HashMap<String, String>();
+
+            for (int j = 1; j < dense.getColumnCount(); j += 3) {
+
+                stateMapping.put(dense.getColumnName(j), "group" + (j % 2));
+            }
+
+            final BehaviorMatrix foldedSparse = sparse.fold(stateMapping);
+
+            assertNotNull( foldedSparse.getSparseMatrix() );
+
+            this.assertEqualTransitions(
+                    dense.fold(stateMapping), foldedSparse);
+        }
+    }
+
+
+    /**
+     * Asserts that two Behavior Matrices have equal states and transitions;
+     * think times are only compared for transitions with a probability
+     * greater than 0.
+     *
+     * @param expected  expected Behavior Matrix.
+     * @param actual    actual Behavior Matrix.
+     */
+    private void assertEqualTransitions (
+            final BehaviorMatrix expected,
+            final BehaviorMatrix actual) {
+
+        final int m = expected.getRowCount();
+        final int n = expected.getColumnCount();
+
+        assertEquals(m, actual.getRowCount());
+        assertEquals(n, actual.getColumnCount());
+
+        for (int j = 0; j < n; j++) {
+
+            assertEquals(expected.getColumnName(j), actual.getColumnName(j));
+        }
+
+        for (int i = 0; i < m; i++) {
+
+            assertEquals(expected.getRowName(i), actual.getRowName(i));
+
+            for (int j = 0; j < n; j++) {
+
+                final double probability = expected.getProbability(i, j);
+
+                assertEquals(probability, actual.getProbability(i, j),
+                        SparseBehaviorMatrixTest.DELTA);
+
+                if (probability > 0.0d) {
+
+                    assertEquals(
+                            expected.getThinkTimeMean(i, j),
+                            actual.getThinkTimeMean(i, j),
+                            SparseBehaviorMatrixTest.DELTA);
+
+                    assertEquals(
+                            expected.getThinkTimeDeviation(i, j),
+                            actual.getThinkTimeDeviation(i, j),
+                            SparseBehaviorMatrixTest.DELTA);
+                }
+            }
+        }
+    }
+}